@@ -0,0 +1,21 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: In-memory unread notification counters
+-- Status: PENDING
+-- Description: users.unread_notifications is maintained by the
+--              application (NotificationCounters flushes and
+--              reconciles it), so the V3 triggers that recounted
+--              it on every notification insert/update are dropped
+-- Notes: Triggers are also dropped at startup by LegacyTriggerInitializer
+-- =====================================================
+
+DROP TRIGGER IF EXISTS update_unread_notification_count;
+DROP TRIGGER IF EXISTS update_unread_count_on_read;
+
+-- One-off recount so the column starts consistent
+UPDATE users u
+    LEFT JOIN (SELECT user_id, COUNT(*) AS unread
+               FROM notifications
+               WHERE status = 'UNREAD'
+               GROUP BY user_id) c ON c.user_id = u.id
+SET u.unread_notifications = COALESCE(c.unread, 0);
@@ -0,0 +1,15 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: SQL notification summary
+-- Status: PENDING
+-- Description: Covering index for the per-user conditional
+--              aggregate behind GET /api/notifications/summary
+-- =====================================================
+
+-- Also created on startup by DatabaseIndexInitializer, so skip it when it already exists
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'notifications' AND index_name = 'idx_notifications_user_status_priority_created');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_notifications_user_status_priority_created ON notifications(user_id, status, priority, created_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
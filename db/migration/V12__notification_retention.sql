@@ -0,0 +1,45 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Chunked notification retention
+-- Status: PENDING
+-- Description: Indexes that let each retention chunk find its
+--              rows by range (expired rows use the existing
+--              idx_notifications_expires_at), and a compressed
+--              archive table rows can be copied to before delete
+--              (notification.retention.archive.enabled=true)
+-- =====================================================
+
+-- Also created on startup by DatabaseIndexInitializer, so skip them when they already exist
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'notifications' AND index_name = 'idx_notifications_status_created');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_notifications_status_created ON notifications(status, created_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'notifications' AND index_name = 'idx_notifications_status_read_at');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_notifications_status_read_at ON notifications(status, read_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+CREATE TABLE IF NOT EXISTS notifications_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    priority VARCHAR(20),
+    status VARCHAR(20),
+    action_url VARCHAR(500),
+    action_data JSON,
+    created_at DATETIME NOT NULL,
+    read_at DATETIME NULL,
+    expires_at DATETIME NULL,
+    archived_at DATETIME NOT NULL,
+    retention_rule VARCHAR(50) NOT NULL,
+    INDEX idx_notifications_archive_user_created (user_id, created_at),
+    INDEX idx_notifications_archive_archived_at (archived_at)
+) ROW_FORMAT=COMPRESSED;
@@ -0,0 +1,66 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Monthly notification partitions
+-- Status: PENDING
+-- Description: RANGE COLUMNS(created_at) partitioning of the
+--              notifications table, one partition per month.
+--              The table starts with the catch-all p_future only;
+--              NotificationPartitionManager splits it into monthly
+--              partitions from the oldest row onwards on startup,
+--              keeps upcoming months ready and drops months past
+--              notification.partitions.retain-months.
+-- Notes: MySQL partitioned tables cannot have foreign keys and
+--        every unique key must include the partition column, so
+--        the user FK is dropped (deleteUser removes notifications
+--        explicitly) and the primary key becomes (id, created_at).
+--        The ALTER rebuilds the table; run it in a maintenance window.
+-- =====================================================
+
+-- MySQL rejects PARTITION BY on a table with foreign keys, so the user_id -> users FK has to go.
+-- Its ON DELETE CASCADE is replaced by UserService.deleteUser removing the user's notifications
+-- explicitly, and the entity maps user_id with NO_CONSTRAINT so ddl-auto does not add it back.
+-- No other table references notifications. The constraint name depends on how the table was created.
+DELIMITER $$
+
+CREATE PROCEDURE DropNotificationForeignKeys()
+BEGIN
+    DECLARE v_done INT DEFAULT 0;
+    DECLARE v_name VARCHAR(64);
+    DECLARE fk_cursor CURSOR FOR
+        SELECT CONSTRAINT_NAME
+        FROM information_schema.TABLE_CONSTRAINTS
+        WHERE TABLE_SCHEMA = DATABASE()
+          AND TABLE_NAME = 'notifications'
+          AND CONSTRAINT_TYPE = 'FOREIGN KEY';
+    DECLARE CONTINUE HANDLER FOR NOT FOUND SET v_done = 1;
+
+    OPEN fk_cursor;
+    drop_loop: LOOP
+        FETCH fk_cursor INTO v_name;
+        IF v_done = 1 THEN
+            LEAVE drop_loop;
+        END IF;
+        SET @drop_fk = CONCAT('ALTER TABLE notifications DROP FOREIGN KEY `', v_name, '`');
+        PREPARE stmt FROM @drop_fk;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END LOOP;
+    CLOSE fk_cursor;
+END$$
+
+DELIMITER ;
+
+CALL DropNotificationForeignKeys();
+DROP PROCEDURE DropNotificationForeignKeys;
+
+-- RANGE COLUMNS does not accept TIMESTAMP, and the partition column must be part of the primary key
+ALTER TABLE notifications
+    MODIFY created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+-- Monthly partitions are created by NotificationPartitionManager, not hardcoded here
+ALTER TABLE notifications
+    PARTITION BY RANGE COLUMNS (created_at) (
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
@@ -0,0 +1,29 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Persistent product import jobs
+-- Status: PENDING
+-- Description: Status of background product imports, so a job
+--              can be polled from any node and survives a
+--              restart (unfinished jobs are then marked FAILED)
+-- Notes: Also created by ddl-auto=update from ProductImportJob
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS product_import_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    filename VARCHAR(255) NOT NULL,
+    node VARCHAR(100) NOT NULL,
+    stored_file VARCHAR(500) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    rows_parsed INT NOT NULL DEFAULT 0,
+    rows_validated INT NOT NULL DEFAULT 0,
+    error_count INT NOT NULL DEFAULT 0,
+    message TEXT,
+    result LONGTEXT,
+    submitted_at DATETIME(6) NOT NULL,
+    started_at DATETIME(6) NULL,
+    finished_at DATETIME(6) NULL,
+    updated_at DATETIME(6) NOT NULL,
+
+    INDEX idx_import_jobs_status_updated (status, updated_at)
+    );
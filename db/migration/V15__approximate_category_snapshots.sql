@@ -0,0 +1,16 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Approximate category trend rows
+-- Status: PENDING
+-- Description: Flags category rollup rows estimated by the
+--              backfill (from today's batches) so they are not
+--              mistaken for snapshots captured on that day
+-- Notes: Also added by ddl-auto=update from ExpiryTrendCategorySnapshot
+-- =====================================================
+
+SET @column_exists = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'expiry_trend_category_snapshots' AND column_name = 'approximate');
+SET @ddl = IF(@column_exists = 0, 'ALTER TABLE expiry_trend_category_snapshots ADD COLUMN approximate BOOLEAN NOT NULL DEFAULT FALSE', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
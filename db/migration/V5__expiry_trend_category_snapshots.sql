@@ -0,0 +1,25 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Per-category expiry trend rollups
+-- Status: PENDING
+-- Description: Category rollup rows captured with each daily
+--              expiry trend snapshot
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS expiry_trend_category_snapshots (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    snapshot_date DATE NOT NULL,
+    category_id BIGINT NOT NULL,
+    category_name VARCHAR(100) NOT NULL,
+    total_batches INT NOT NULL DEFAULT 0,
+    expired_count INT NOT NULL DEFAULT 0,
+    expiring_7_days INT NOT NULL DEFAULT 0,
+    expiring_30_days INT NOT NULL DEFAULT 0,
+    at_risk_count INT NOT NULL DEFAULT 0,
+    expired_value DECIMAL(15,2) DEFAULT 0,
+    expiring_30_days_value DECIMAL(15,2) DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE KEY unique_category_snapshot (snapshot_date, category_id),
+    INDEX idx_category_snapshot_category_date (category_id, snapshot_date)
+    );
@@ -0,0 +1,14 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Document number sequences
+-- Status: PENDING
+-- Description: Counter table used to allocate PO and goods
+--              receipt numbers per prefix (PO-yyyyMM-, GR-yyyyMMdd-)
+-- Notes: Also created by ddl-auto=update from DocumentSequence
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS document_sequences (
+    prefix VARCHAR(50) PRIMARY KEY,
+    last_value BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NULL
+    );
@@ -0,0 +1,11 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Product on-hand ledger
+-- Status: PENDING
+-- Description: products.quantity is now maintained by the
+--              application with atomic delta updates; drop the
+--              trigger that re-summed product_batches per row
+-- Notes: Also dropped at startup by LegacyTriggerInitializer
+-- =====================================================
+
+DROP TRIGGER IF EXISTS update_product_quantity_after_batch_change;
@@ -0,0 +1,16 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Set-based expiry alert generation
+-- Status: PENDING
+-- Description: Covering index for the single query that loads
+--              all PENDING product-level (product, tier) alert
+--              pairs (batch_id IS NULL)
+-- =====================================================
+
+-- Also created on startup by DatabaseIndexInitializer, so skip it when it already exists
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'expiry_alerts' AND index_name = 'idx_alert_status_config_product');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_alert_status_config_product ON expiry_alerts(status, config_id, product_id, batch_id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,26 @@
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Partitioned batch expiry evaluation
+-- Status: PENDING
+-- Description: Per-partition checkpoints of an expiry check so
+--              a failed product-id range can be re-run alone
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS expiry_check_partitions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    check_log_id BIGINT NOT NULL,
+    check_date DATE NOT NULL,
+    partition_index INT NOT NULL,
+    product_id_from BIGINT NOT NULL,
+    product_id_to BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    batches_checked INT NOT NULL DEFAULT 0,
+    alerts_generated INT NOT NULL DEFAULT 0,
+    attempts INT NOT NULL DEFAULT 0,
+    error_message TEXT,
+    start_time DATETIME,
+    end_time DATETIME,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_check_partition (check_log_id, partition_index),
+    INDEX idx_check_partition_status (check_log_id, status)
+);
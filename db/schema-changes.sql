@@ -2842,6 +2842,345 @@ CREATE INDEX idx_batch_cost_quantity
 -- END OF EXPIRY TIMELINE ENHANCEMENT
 -- =====================================================
 
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Per-category expiry trend rollups
+-- Status: READY TO APPLY
+-- Description: Category rollup rows captured with each daily
+--              expiry trend snapshot
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS expiry_trend_category_snapshots (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    snapshot_date DATE NOT NULL,
+    category_id BIGINT NOT NULL,
+    category_name VARCHAR(100) NOT NULL,
+    total_batches INT NOT NULL DEFAULT 0,
+    expired_count INT NOT NULL DEFAULT 0,
+    expiring_7_days INT NOT NULL DEFAULT 0,
+    expiring_30_days INT NOT NULL DEFAULT 0,
+    at_risk_count INT NOT NULL DEFAULT 0,
+    expired_value DECIMAL(15,2) DEFAULT 0,
+    expiring_30_days_value DECIMAL(15,2) DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE KEY unique_category_snapshot (snapshot_date, category_id),
+    INDEX idx_category_snapshot_category_date (category_id, snapshot_date)
+    );
+
+-- =====================================================
+-- END OF PER-CATEGORY EXPIRY TREND ROLLUPS
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Document number sequences
+-- Status: READY TO APPLY
+-- Description: Counter table used to allocate PO and goods
+--              receipt numbers per prefix (PO-yyyyMM-, GR-yyyyMMdd-)
+-- Notes: Also created by ddl-auto=update from DocumentSequence
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS document_sequences (
+    prefix VARCHAR(50) PRIMARY KEY,
+    last_value BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NULL
+    );
+
+-- =====================================================
+-- END OF DOCUMENT NUMBER SEQUENCES
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Product on-hand ledger
+-- Status: READY TO APPLY
+-- Description: products.quantity is now maintained by the
+--              application with atomic delta updates; drop the
+--              trigger that re-summed product_batches per row
+-- Notes: Also dropped at startup by LegacyTriggerInitializer
+-- =====================================================
+
+DROP TRIGGER IF EXISTS update_product_quantity_after_batch_change;
+
+-- =====================================================
+-- END OF PRODUCT ON-HAND LEDGER
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Set-based expiry alert generation
+-- Status: READY TO APPLY
+-- Description: Covering index for the single query that loads
+--              all PENDING product-level (product, tier) alert
+--              pairs (batch_id IS NULL)
+-- =====================================================
+
+-- Also created on startup by DatabaseIndexInitializer, so skip it when it already exists
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'expiry_alerts' AND index_name = 'idx_alert_status_config_product');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_alert_status_config_product ON expiry_alerts(status, config_id, product_id, batch_id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- =====================================================
+-- END OF SET-BASED EXPIRY ALERT GENERATION
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Partitioned batch expiry evaluation
+-- Status: READY TO APPLY
+-- Description: Per-partition checkpoints of an expiry check so
+--              a failed product-id range can be re-run alone
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS expiry_check_partitions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    check_log_id BIGINT NOT NULL,
+    check_date DATE NOT NULL,
+    partition_index INT NOT NULL,
+    product_id_from BIGINT NOT NULL,
+    product_id_to BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    batches_checked INT NOT NULL DEFAULT 0,
+    alerts_generated INT NOT NULL DEFAULT 0,
+    attempts INT NOT NULL DEFAULT 0,
+    error_message TEXT,
+    start_time DATETIME,
+    end_time DATETIME,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_check_partition (check_log_id, partition_index),
+    INDEX idx_check_partition_status (check_log_id, status)
+);
+
+-- =====================================================
+-- END OF PARTITIONED BATCH EXPIRY EVALUATION
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: In-memory unread notification counters
+-- Status: READY TO APPLY
+-- Description: users.unread_notifications is maintained by the
+--              application (NotificationCounters flushes and
+--              reconciles it), so the V3 triggers that recounted
+--              it on every notification insert/update are dropped
+-- Notes: Triggers are also dropped at startup by LegacyTriggerInitializer
+-- =====================================================
+
+DROP TRIGGER IF EXISTS update_unread_notification_count;
+DROP TRIGGER IF EXISTS update_unread_count_on_read;
+
+-- One-off recount so the column starts consistent
+UPDATE users u
+    LEFT JOIN (SELECT user_id, COUNT(*) AS unread
+               FROM notifications
+               WHERE status = 'UNREAD'
+               GROUP BY user_id) c ON c.user_id = u.id
+SET u.unread_notifications = COALESCE(c.unread, 0);
+
+-- =====================================================
+-- END OF IN-MEMORY UNREAD NOTIFICATION COUNTERS
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: SQL notification summary
+-- Status: READY TO APPLY
+-- Description: Covering index for the per-user conditional
+--              aggregate behind GET /api/notifications/summary
+-- =====================================================
+
+-- Also created on startup by DatabaseIndexInitializer, so skip it when it already exists
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'notifications' AND index_name = 'idx_notifications_user_status_priority_created');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_notifications_user_status_priority_created ON notifications(user_id, status, priority, created_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- =====================================================
+-- END OF SQL NOTIFICATION SUMMARY
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Chunked notification retention
+-- Status: READY TO APPLY
+-- Description: Indexes that let each retention chunk find its
+--              rows by range (expired rows use the existing
+--              idx_notifications_expires_at), and a compressed
+--              archive table rows can be copied to before delete
+--              (notification.retention.archive.enabled=true)
+-- =====================================================
+
+-- Also created on startup by DatabaseIndexInitializer, so skip them when they already exist
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'notifications' AND index_name = 'idx_notifications_status_created');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_notifications_status_created ON notifications(status, created_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'notifications' AND index_name = 'idx_notifications_status_read_at');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_notifications_status_read_at ON notifications(status, read_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+CREATE TABLE IF NOT EXISTS notifications_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    priority VARCHAR(20),
+    status VARCHAR(20),
+    action_url VARCHAR(500),
+    action_data JSON,
+    created_at DATETIME NOT NULL,
+    read_at DATETIME NULL,
+    expires_at DATETIME NULL,
+    archived_at DATETIME NOT NULL,
+    retention_rule VARCHAR(50) NOT NULL,
+    INDEX idx_notifications_archive_user_created (user_id, created_at),
+    INDEX idx_notifications_archive_archived_at (archived_at)
+) ROW_FORMAT=COMPRESSED;
+
+-- =====================================================
+-- END OF CHUNKED NOTIFICATION RETENTION
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Monthly notification partitions
+-- Status: READY TO APPLY
+-- Description: RANGE COLUMNS(created_at) partitioning of the
+--              notifications table, one partition per month.
+--              The table starts with the catch-all p_future only;
+--              NotificationPartitionManager splits it into monthly
+--              partitions from the oldest row onwards on startup,
+--              keeps upcoming months ready and drops months past
+--              notification.partitions.retain-months.
+-- Notes: MySQL partitioned tables cannot have foreign keys and
+--        every unique key must include the partition column, so
+--        the user FK is dropped (deleteUser removes notifications
+--        explicitly) and the primary key becomes (id, created_at).
+--        The ALTER rebuilds the table; run it in a maintenance window.
+-- =====================================================
+
+-- MySQL rejects PARTITION BY on a table with foreign keys, so the user_id -> users FK has to go.
+-- Its ON DELETE CASCADE is replaced by UserService.deleteUser removing the user's notifications
+-- explicitly, and the entity maps user_id with NO_CONSTRAINT so ddl-auto does not add it back.
+-- No other table references notifications. The constraint name depends on how the table was created.
+DELIMITER $$
+
+CREATE PROCEDURE DropNotificationForeignKeys()
+BEGIN
+    DECLARE v_done INT DEFAULT 0;
+    DECLARE v_name VARCHAR(64);
+    DECLARE fk_cursor CURSOR FOR
+        SELECT CONSTRAINT_NAME
+        FROM information_schema.TABLE_CONSTRAINTS
+        WHERE TABLE_SCHEMA = DATABASE()
+          AND TABLE_NAME = 'notifications'
+          AND CONSTRAINT_TYPE = 'FOREIGN KEY';
+    DECLARE CONTINUE HANDLER FOR NOT FOUND SET v_done = 1;
+
+    OPEN fk_cursor;
+    drop_loop: LOOP
+        FETCH fk_cursor INTO v_name;
+        IF v_done = 1 THEN
+            LEAVE drop_loop;
+        END IF;
+        SET @drop_fk = CONCAT('ALTER TABLE notifications DROP FOREIGN KEY `', v_name, '`');
+        PREPARE stmt FROM @drop_fk;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END LOOP;
+    CLOSE fk_cursor;
+END$$
+
+DELIMITER ;
+
+CALL DropNotificationForeignKeys();
+DROP PROCEDURE DropNotificationForeignKeys;
+
+-- RANGE COLUMNS does not accept TIMESTAMP, and the partition column must be part of the primary key
+ALTER TABLE notifications
+    MODIFY created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+-- Monthly partitions are created by NotificationPartitionManager, not hardcoded here
+ALTER TABLE notifications
+    PARTITION BY RANGE COLUMNS (created_at) (
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
+
+-- =====================================================
+-- END OF MONTHLY NOTIFICATION PARTITIONS
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Persistent product import jobs
+-- Status: READY TO APPLY
+-- Description: Status of background product imports, so a job
+--              can be polled from any node and survives a
+--              restart (unfinished jobs are then marked FAILED)
+-- Notes: Also created by ddl-auto=update from ProductImportJob
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS product_import_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    filename VARCHAR(255) NOT NULL,
+    node VARCHAR(100) NOT NULL,
+    stored_file VARCHAR(500) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    rows_parsed INT NOT NULL DEFAULT 0,
+    rows_validated INT NOT NULL DEFAULT 0,
+    error_count INT NOT NULL DEFAULT 0,
+    message TEXT,
+    result LONGTEXT,
+    submitted_at DATETIME(6) NOT NULL,
+    started_at DATETIME(6) NULL,
+    finished_at DATETIME(6) NULL,
+    updated_at DATETIME(6) NOT NULL,
+
+    INDEX idx_import_jobs_status_updated (status, updated_at)
+    );
+
+-- =====================================================
+-- END OF PERSISTENT PRODUCT IMPORT JOBS
+-- =====================================================
+
+-- =====================================================
+-- Date: 2026-10-16
+-- Feature: Approximate category trend rows
+-- Status: READY TO APPLY
+-- Description: Flags category rollup rows estimated by the
+--              backfill (from today's batches) so they are not
+--              mistaken for snapshots captured on that day
+-- Notes: Also added by ddl-auto=update from ExpiryTrendCategorySnapshot
+-- =====================================================
+
+SET @column_exists = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'expiry_trend_category_snapshots' AND column_name = 'approximate');
+SET @ddl = IF(@column_exists = 0, 'ALTER TABLE expiry_trend_category_snapshots ADD COLUMN approximate BOOLEAN NOT NULL DEFAULT FALSE', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- =====================================================
+-- END OF APPROXIMATE CATEGORY TREND ROWS
+-- =====================================================
+
 -- =====================================================
 -- UPCOMING CHANGES
 -- =====================================================
@@ -0,0 +1,39 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.service.BarcodeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BarcodeService Code128 image encoding and decoding
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BarcodeBenchmark {
+
+    private static final String BARCODE_TEXT = "MED000123456789";
+
+    private BarcodeService barcodeService;
+    private String encodedImage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        barcodeService = new BarcodeService();
+        encodedImage = barcodeService.generateBarcodeImage(BARCODE_TEXT);
+    }
+
+    @Benchmark
+    public String encode() throws Exception {
+        return barcodeService.generateBarcodeImage(BARCODE_TEXT);
+    }
+
+    @Benchmark
+    public String decode() throws Exception {
+        return barcodeService.decodeBarcode(encodedImage);
+    }
+}
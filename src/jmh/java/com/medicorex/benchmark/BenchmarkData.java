@@ -0,0 +1,122 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.entity.Category;
+import com.medicorex.entity.ExpiryTrendSnapshot;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic datasets for the benchmarks (fixed seed, no database)
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    public static List<Category> categories(int count) {
+        List<Category> categories = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Category category = new Category();
+            category.setId((long) i);
+            category.setName("Category " + i);
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    public static List<Product> products(int count, List<Category> categories) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDate today = LocalDate.now();
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Product " + i);
+            product.setCode("P" + i);
+            product.setCategory(categories.get(random.nextInt(categories.size())));
+            product.setQuantity(random.nextInt(0, 5000));
+            product.setMinStockLevel(random.nextInt(10, 200));
+            product.setUnit("tablets");
+            product.setUnitPrice(BigDecimal.valueOf(random.nextInt(50, 50_000), 2));
+            product.setExpiryDate(random.nextInt(10) == 0 ? null : today.plusDays(random.nextInt(-60, 720)));
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Active batches spread over the given products, expiring between 90 days ago and two years ahead
+     */
+    public static List<ProductBatch> batches(int count, List<Product> products) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDate today = LocalDate.now();
+        List<ProductBatch> batches = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            batches.add(batch((long) i, products.get(random.nextInt(products.size())),
+                    today.plusDays(random.nextInt(-90, 730)), random.nextInt(1, 500), random));
+        }
+        return batches;
+    }
+
+    /**
+     * FIFO-ordered active batches of a single product
+     */
+    public static List<ProductBatch> fifoBatches(Product product, int count, int quantityPerBatch) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDate firstExpiry = LocalDate.now().plusDays(1);
+        List<ProductBatch> batches = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            batches.add(batch((long) i, product, firstExpiry.plusDays(i), quantityPerBatch, random));
+        }
+        return batches;
+    }
+
+    /**
+     * One snapshot per day ending today
+     */
+    public static List<ExpiryTrendSnapshot> dailySnapshots(int days) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDate start = LocalDate.now().minusDays(days - 1L);
+        ExpiryTrendSnapshot.TrendDirection[] directions = ExpiryTrendSnapshot.TrendDirection.values();
+        List<ExpiryTrendSnapshot> snapshots = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            ExpiryTrendSnapshot snapshot = new ExpiryTrendSnapshot();
+            snapshot.setId((long) i + 1);
+            snapshot.setSnapshotDate(start.plusDays(i));
+            snapshot.setTotalProducts(random.nextInt(5_000, 200_000));
+            snapshot.setExpiredCount(random.nextInt(0, 2_000));
+            snapshot.setExpiring7Days(random.nextInt(0, 1_000));
+            snapshot.setExpiring30Days(random.nextInt(0, 5_000));
+            snapshot.setExpiring60Days(random.nextInt(0, 8_000));
+            snapshot.setExpiring90Days(random.nextInt(0, 12_000));
+            snapshot.setExpiredValue(BigDecimal.valueOf(random.nextInt(0, 10_000_000), 2));
+            snapshot.setExpiring30DaysValue(BigDecimal.valueOf(random.nextInt(0, 50_000_000), 2));
+            snapshot.setTrendDirection(directions[random.nextInt(directions.length)]);
+            snapshot.setTrendPercentage(random.nextDouble(-50, 50));
+            snapshots.add(snapshot);
+        }
+        return snapshots;
+    }
+
+    private static ProductBatch batch(Long id, Product product, LocalDate expiryDate, int quantity,
+                                      SplittableRandom random) {
+        ProductBatch batch = new ProductBatch();
+        batch.setId(id);
+        batch.setProduct(product);
+        batch.setBatchNumber("B" + id);
+        batch.setQuantity(quantity);
+        batch.setInitialQuantity(quantity);
+        batch.setExpiryDate(expiryDate);
+        batch.setCostPerUnit(BigDecimal.valueOf(random.nextInt(10, 20_000), 2));
+        batch.setStatus(ProductBatch.BatchStatus.ACTIVE);
+        return batch;
+    }
+}
@@ -0,0 +1,91 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.dto.TrendAnalysisResponseDTO;
+import com.medicorex.entity.Category;
+import com.medicorex.entity.ExpiryTrendSnapshot;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+import com.medicorex.repository.CategoryRepository;
+import com.medicorex.repository.ExpiryTrendCategorySnapshotRepository;
+import com.medicorex.repository.ExpiryTrendSnapshotRepository;
+import com.medicorex.repository.ProductBatchRepository;
+import com.medicorex.service.ExpiryTrendService;
+import com.medicorex.util.ExpirySnapshotAccumulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Expiry trend hot paths: the single-pass snapshot over active batches and
+ * weekly/monthly aggregation of the snapshot history in ExpiryTrendService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpiryTrendBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int batchCount;
+
+    @Param({"365"})
+    private int snapshotDays;
+
+    private List<ProductBatch> batches;
+    private ExpiryTrendService trendService;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Category> categories = BenchmarkData.categories(50);
+        List<Product> products = BenchmarkData.products(Math.max(1, batchCount / 10), categories);
+        batches = BenchmarkData.batches(batchCount, products);
+
+        List<ExpiryTrendSnapshot> snapshots = BenchmarkData.dailySnapshots(snapshotDays);
+        startDate = snapshots.get(0).getSnapshotDate();
+        endDate = snapshots.get(snapshots.size() - 1).getSnapshotDate();
+
+        ExpiryTrendSnapshotRepository trendRepository =
+                mock(ExpiryTrendSnapshotRepository.class, withSettings().stubOnly());
+        when(trendRepository.findBySnapshotDateBetweenOrderBySnapshotDate(any(), any())).thenReturn(snapshots);
+
+        trendService = new ExpiryTrendService(
+                trendRepository,
+                mock(ProductBatchRepository.class, withSettings().stubOnly()),
+                mock(CategoryRepository.class, withSettings().stubOnly()),
+                mock(ExpiryTrendCategorySnapshotRepository.class, withSettings().stubOnly()));
+    }
+
+    @Benchmark
+    public ExpiryTrendSnapshot snapshotAccumulation() {
+        ExpirySnapshotAccumulator accumulator = new ExpirySnapshotAccumulator(LocalDate.now());
+        for (ProductBatch batch : batches) {
+            Category category = batch.getProduct().getCategory();
+            accumulator.add(batch.getExpiryDate(), batch.getQuantity(), batch.getCostPerUnit(),
+                    category.getId(), category.getName());
+        }
+        ExpiryTrendSnapshot snapshot = new ExpiryTrendSnapshot();
+        accumulator.applyTo(snapshot);
+        return snapshot;
+    }
+
+    @Benchmark
+    public TrendAnalysisResponseDTO weeklyAggregation() {
+        return trendService.analyzeTrends(startDate, endDate, "WEEKLY");
+    }
+
+    @Benchmark
+    public TrendAnalysisResponseDTO monthlyAggregation() {
+        return trendService.analyzeTrends(startDate, endDate, "MONTHLY");
+    }
+}
@@ -0,0 +1,88 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.entity.Category;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+import com.medicorex.repository.ProductBatchRepository;
+import com.medicorex.repository.ProductRepository;
+import com.medicorex.repository.UserRepository;
+import com.medicorex.service.NotificationService;
+import com.medicorex.service.ProductBatchService;
+import com.medicorex.service.ProductStockLedger;
+import com.medicorex.service.ProductStockLocks;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * ProductBatchService FIFO consumption across the active batches of one product.
+ * Consumption depletes the batches, so every call needs a fresh batch list. Instead of a per-call
+ * setup (whose timing overhead would swamp the small cases), each iteration pre-builds
+ * {@value #CALLS_PER_ITERATION} batch lists and makes exactly that many calls, one list per call,
+ * each consuming half of the product's stock. The score is the time of one iteration; divide by
+ * {@value #CALLS_PER_ITERATION} for the time per consumption.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = FifoConsumptionBenchmark.CALLS_PER_ITERATION)
+@Measurement(iterations = 10, batchSize = FifoConsumptionBenchmark.CALLS_PER_ITERATION)
+@Fork(1)
+public class FifoConsumptionBenchmark {
+
+    static final int CALLS_PER_ITERATION = 200;
+
+    private static final int QUANTITY_PER_BATCH = 100;
+
+    @Param({"10", "100", "1000"})
+    private int batchesPerProduct;
+
+    private Product product;
+    private List<List<ProductBatch>> fixtures;
+    private int nextFixture;
+    private List<ProductBatch> batches;
+    private ProductBatchService batchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Category category = BenchmarkData.categories(1).get(0);
+        product = BenchmarkData.products(1, List.of(category)).get(0);
+
+        ProductBatchRepository batchRepository = mock(ProductBatchRepository.class, withSettings().stubOnly());
+        when(batchRepository.findActiveBatchesForConsumption(anyLong()))
+                .thenAnswer(invocation -> batches);
+
+        ProductRepository productRepository = mock(ProductRepository.class, withSettings().stubOnly());
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(product));
+
+        batchService = new ProductBatchService(batchRepository, productRepository,
+                mock(UserRepository.class, withSettings().stubOnly()), new ProductStockLocks(64, 10_000),
+                mock(ProductStockLedger.class, withSettings().stubOnly()));
+        ReflectionTestUtils.setField(batchService, "notificationService",
+                mock(NotificationService.class, withSettings().stubOnly()));
+    }
+
+    @Setup(Level.Iteration)
+    public void buildFixtures() {
+        fixtures = new ArrayList<>(CALLS_PER_ITERATION);
+        for (int i = 0; i < CALLS_PER_ITERATION; i++) {
+            fixtures.add(BenchmarkData.fifoBatches(product, batchesPerProduct, QUANTITY_PER_BATCH));
+        }
+        nextFixture = 0;
+    }
+
+    @Benchmark
+    public List<ProductBatchService.BatchConsumptionResult> consumeHalfOfStock() {
+        batches = fixtures.get(nextFixture++);
+        return batchService.consumeStock(product.getId(), batchesPerProduct * QUANTITY_PER_BATCH / 2, "Benchmark");
+    }
+}
@@ -0,0 +1,91 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.entity.Category;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+import com.medicorex.repository.ProductBatchRepository;
+import com.medicorex.repository.ProductRepository;
+import com.medicorex.repository.UserRepository;
+import com.medicorex.service.NotificationService;
+import com.medicorex.service.ProductBatchService;
+import com.medicorex.service.ProductStockLedger;
+import com.medicorex.service.ProductStockLocks;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Dispenses per second when several threads consume stock from a few hot products.
+ * Compares one lock stripe (every product serialized) with the default striping, where only
+ * consumers of the same product wait for each other. Thread count can be changed with -t.
+ * <p>
+ * This is a micro-benchmark of the in-memory path only: repositories are stubbed, so it measures the
+ * lock striping and FIFO allocation in ProductBatchService, not the database. Row locks
+ * (SELECT ... FOR UPDATE on product_batches), commit latency and the connection pool are not exercised,
+ * and real dispense throughput will be far lower than the numbers reported here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class FifoContentionBenchmark {
+
+    private static final int BATCHES_PER_PRODUCT = 10;
+    private static final int QUANTITY_PER_BATCH = Integer.MAX_VALUE / 16;
+
+    @Param({"1", "16"})
+    private int hotProducts;
+
+    @Param({"1", "64"})
+    private int lockStripes;
+
+    private ProductBatchService batchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Category category = BenchmarkData.categories(1).get(0);
+        List<Product> products = BenchmarkData.products(hotProducts, List.of(category));
+
+        Map<Long, Product> productsById = new HashMap<>();
+        Map<Long, List<ProductBatch>> batchesByProduct = new HashMap<>();
+        for (Product product : products) {
+            productsById.put(product.getId(), product);
+            batchesByProduct.put(product.getId(),
+                    BenchmarkData.fifoBatches(product, BATCHES_PER_PRODUCT, QUANTITY_PER_BATCH));
+        }
+
+        ProductBatchRepository batchRepository = mock(ProductBatchRepository.class, withSettings().stubOnly());
+        when(batchRepository.findActiveBatchesForConsumption(anyLong()))
+                .thenAnswer(invocation -> batchesByProduct.get(invocation.<Long>getArgument(0)));
+
+        ProductRepository productRepository = mock(ProductRepository.class, withSettings().stubOnly());
+        when(productRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(productsById.get(invocation.<Long>getArgument(0))));
+
+        batchService = new ProductBatchService(batchRepository, productRepository,
+                mock(UserRepository.class, withSettings().stubOnly()), new ProductStockLocks(lockStripes, 10_000),
+                mock(ProductStockLedger.class, withSettings().stubOnly()));
+        ReflectionTestUtils.setField(batchService, "notificationService",
+                mock(NotificationService.class, withSettings().stubOnly()));
+    }
+
+    @Benchmark
+    public List<ProductBatchService.BatchConsumptionResult> dispenseOneUnit() {
+        long productId = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+        return batchService.consumeStock(productId, 1, "Benchmark");
+    }
+}
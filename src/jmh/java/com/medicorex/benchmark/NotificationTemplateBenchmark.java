@@ -0,0 +1,75 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.util.CompiledTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering one title/message pair: the former per-parameter String.replace loop of
+ * NotificationService.processTemplate against a precompiled {@link CompiledTemplate}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationTemplateBenchmark {
+
+    @Param({"2", "6"})
+    private int parameterCount;
+
+    private String titleTemplate;
+    private String messageTemplate;
+    private CompiledTemplate compiledTitle;
+    private CompiledTemplate compiledMessage;
+    private Map<String, String> params;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        params = new LinkedHashMap<>();
+        StringBuilder message = new StringBuilder("Batch update:");
+        for (int i = 0; i < parameterCount; i++) {
+            params.put("param" + i, "value-" + i);
+            message.append(" field").append(i).append("={param").append(i).append("}");
+        }
+        titleTemplate = "Batch {param0} needs attention";
+        messageTemplate = message.toString();
+
+        compiledTitle = CompiledTemplate.compile(titleTemplate);
+        compiledMessage = CompiledTemplate.compile(messageTemplate);
+    }
+
+    @Benchmark
+    public String[] replaceLoop() {
+        return new String[]{
+                replaceLoop(titleTemplate, params),
+                replaceLoop(messageTemplate, params)
+        };
+    }
+
+    @Benchmark
+    public String[] compiled() {
+        return new String[]{
+                compiledTitle.render(params),
+                compiledMessage.render(params)
+        };
+    }
+
+    // Copy of the replaced NotificationService.processTemplate, kept as the baseline
+    private static String replaceLoop(String template, Map<String, String> params) {
+        if (template == null || params == null) {
+            return template;
+        }
+
+        String result = template;
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            String placeholder = "{" + entry.getKey() + "}";
+            result = result.replace(placeholder, entry.getValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package com.medicorex.benchmark;
+
+import com.medicorex.dto.CategoryValuationDTO;
+import com.medicorex.dto.StockValuationDTO;
+import com.medicorex.entity.Product;
+import com.medicorex.repository.CategoryRepository;
+import com.medicorex.repository.ProductRepository;
+import com.medicorex.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * ReportService valuation math over an in-memory product list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportValuationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int productCount;
+
+    private ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Product> products = BenchmarkData.products(productCount, BenchmarkData.categories(50));
+
+        ProductRepository productRepository = mock(ProductRepository.class, withSettings().stubOnly());
+        when(productRepository.findAll()).thenReturn(products);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class, withSettings().stubOnly());
+        when(categoryRepository.count()).thenReturn(50L);
+
+        reportService = new ReportService(productRepository, categoryRepository);
+    }
+
+    @Benchmark
+    public StockValuationDTO stockValuationReport() {
+        return reportService.generateStockValuationReport();
+    }
+
+    @Benchmark
+    public List<CategoryValuationDTO> categoryValuation() {
+        return reportService.getCategoryValuation();
+    }
+}
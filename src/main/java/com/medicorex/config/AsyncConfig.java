@@ -2,6 +2,7 @@ package com.medicorex.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
@@ -35,6 +36,46 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    // Dedicated bounded pool for background product imports; submissions beyond the queue are rejected
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor(@Value("${import.job.pool-size:2}") int poolSize,
+                                                 @Value("${import.job.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("Import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    // Bounded pool for partitioned batch expiry evaluation. Each worker holds its own connection while the
+    // caller keeps the check-log transaction open, so the pool is capped at the JDBC pool size minus that
+    // connection and a headroom left for HTTP traffic (0 workers = one per core, within that cap).
+    // Partitions that do not fit the queue are rejected and recorded as FAILED for a later retry.
+    @Bean(name = "expiryPartitionExecutor")
+    public ThreadPoolTaskExecutor expiryPartitionExecutor(@Value("${expiry.batch-alerts.workers:0}") int workers,
+                                                          @Value("${expiry.batch-alerts.queue-capacity:1000}") int queueCapacity,
+                                                          @Value("${expiry.batch-alerts.connection-headroom:4}") int headroom,
+                                                          @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        int connectionCap = Math.max(1, connectionPoolSize - 1 - headroom);
+        int poolSize = Math.min(workers > 0 ? workers : Runtime.getRuntime().availableProcessors(), connectionCap);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ExpiryPartition-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("Expiry partition executor configured with {} worker(s) for a connection pool of {}",
+                poolSize, connectionPoolSize);
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new CustomAsyncExceptionHandler();
@@ -19,8 +19,14 @@ public class DatabaseIndexInitializer {
             // Create indexes only if they don't exist
             createIndexIfNotExists(jdbc, "notifications", "idx_notifications_expires_at", "expires_at");
             createIndexIfNotExists(jdbc, "notifications", "idx_notifications_user_status", "user_id, status, created_at DESC");
+            createIndexIfNotExists(jdbc, "notifications", "idx_notifications_user_status_priority_created",
+                    "user_id, status, priority, created_at");
+            createIndexIfNotExists(jdbc, "notifications", "idx_notifications_status_created", "status, created_at");
+            createIndexIfNotExists(jdbc, "notifications", "idx_notifications_status_read_at", "status, read_at");
             createIndexIfNotExists(jdbc, "product_batches", "idx_batch_product_status", "product_id, status");
             createIndexIfNotExists(jdbc, "expiry_alerts", "idx_expiry_alert_batch_status", "batch_id, status");
+            createIndexIfNotExists(jdbc, "expiry_alerts", "idx_alert_status_config_product",
+                    "status, config_id, product_id, batch_id");
             createIndexIfNotExists(jdbc, "stock_transactions", "idx_stock_trans_product_date", "product_id, transaction_date DESC");
             createIndexIfNotExists(jdbc, "quarantine_records", "idx_quarantine_date_status", "quarantine_date, status");
             createIndexIfNotExists(jdbc, "products", "idx_products_code", "code");
@@ -0,0 +1,65 @@
+package com.medicorex.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drops the V3 triggers that recompute columns the application now maintains with delta writes.
+ * Their DROP migrations are not applied automatically (Flyway is disabled), and a trigger left in
+ * place recomputes the column and then the application applies its delta on top, counting twice.
+ * Runs while the context starts, before schedulers and the web server; if a trigger cannot be
+ * dropped the application does not start.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class LegacyTriggerInitializer {
+
+    private static final String TRIGGER_EXISTS_SQL =
+            "SELECT COUNT(*) FROM information_schema.triggers WHERE trigger_schema = DATABASE() AND trigger_name = ?";
+
+    // Trigger name -> column it would keep overwriting (dropped by the migration named in brackets)
+    private static final Map<String, String> LEGACY_TRIGGERS = new LinkedHashMap<>();
+
+    static {
+        LEGACY_TRIGGERS.put("update_product_quantity_after_batch_change", "products.quantity (V7)");
+        LEGACY_TRIGGERS.put("update_unread_notification_count", "users.unread_notifications (V10)");
+        LEGACY_TRIGGERS.put("update_unread_count_on_read", "users.unread_notifications (V10)");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void dropLegacyTriggers() {
+        LEGACY_TRIGGERS.forEach(this::dropTriggerIfExists);
+    }
+
+    private void dropTriggerIfExists(String trigger, String column) {
+        if (!triggerExists(trigger)) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + trigger);
+            log.warn("Dropped legacy trigger {} that recomputed {}", trigger, column);
+        } catch (Exception e) {
+            log.error("Failed to drop legacy trigger {}: {}", trigger, e.getMessage());
+        }
+
+        if (triggerExists(trigger)) {
+            throw new IllegalStateException("Legacy trigger " + trigger + " still recomputes " + column +
+                    " and would double-count the application's updates. Drop it before starting the application.");
+        }
+    }
+
+    private boolean triggerExists(String trigger) {
+        Integer count = jdbcTemplate.queryForObject(TRIGGER_EXISTS_SQL, Integer.class, trigger);
+        return count != null && count > 0;
+    }
+}
@@ -69,6 +69,9 @@ public class NotificationTemplateDataLoader {
                         createTemplate("QUARANTINE_PENDING", "QUARANTINE", "Quarantine Review Required",
                                 "{{count}} items are pending review in quarantine",
                                 NotificationPriority.HIGH),
+                        createTemplate("QUARANTINE_BULK_CREATED", "QUARANTINE", "Expired Batches Quarantined",
+                                "{{count}} expired batches of {{productCount}} products ({{quantity}} units, estimated loss {{estimatedLoss}}) have been quarantined and are pending review",
+                                NotificationPriority.HIGH),
 
                         // User Templates
                         createTemplate("USER_REGISTERED", "USER", "New User Registration",
@@ -130,6 +133,14 @@ public class NotificationTemplateDataLoader {
                     log.info("Added missing BATCH_CREATED template");
                 }
 
+                if (!templateRepository.existsByCode("QUARANTINE_BULK_CREATED")) {
+                    templateRepository.save(createTemplate("QUARANTINE_BULK_CREATED", "QUARANTINE",
+                            "Expired Batches Quarantined",
+                            "{{count}} expired batches of {{productCount}} products ({{quantity}} units, estimated loss {{estimatedLoss}}) have been quarantined and are pending review",
+                            NotificationPriority.HIGH));
+                    log.info("Added missing QUARANTINE_BULK_CREATED template");
+                }
+
                 // Fix template code if QUARANTINE_NEW exists but not QUARANTINE_CREATED
                 templateRepository.findByCode("QUARANTINE_NEW").ifPresent(template -> {
                     template.setCode("QUARANTINE_CREATED");
@@ -42,6 +42,15 @@ public class ExpiryMonitoringController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Re-run the failed batch partitions of a check
+     */
+    @PostMapping("/check/{checkLogId}/retry-partitions")
+    @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
+    public ResponseEntity<ExpiryCheckResultDTO> retryFailedBatchPartitions(@PathVariable Long checkLogId) {
+        return ResponseEntity.ok(monitoringService.retryFailedBatchPartitions(checkLogId));
+    }
+
     /**
      * Get check history
      */
@@ -175,6 +175,23 @@ public class ExpiryTrendController {
         return ResponseEntity.ok(Map.of("message", "Trend snapshot created successfully"));
     }
 
+    /**
+     * Backfill category trend rollups for past dates; the rows are estimates and flagged approximate
+     */
+    @PostMapping("/by-category/backfill")
+    @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
+    public ResponseEntity<Map<String, Object>> backfillCategoryTrends(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        int rows = trendService.backfillCategorySnapshots(startDate, endDate);
+        return ResponseEntity.ok(Map.of(
+                "message", "Category trend backfill completed",
+                "rowsCreated", rows,
+                "approximate", true
+        ));
+    }
+
     /**
      * Get trend comparison between periods
      */
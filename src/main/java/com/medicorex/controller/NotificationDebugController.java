@@ -5,6 +5,7 @@ import com.medicorex.entity.User;
 import com.medicorex.repository.NotificationTemplateRepository;
 import com.medicorex.repository.UserRepository;
 import com.medicorex.service.NotificationService;
+import com.medicorex.service.NotificationTemplateRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +25,7 @@ public class NotificationDebugController {
     private final NotificationTemplateRepository templateRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final NotificationTemplateRegistry templateRegistry;
 
     @GetMapping("/check-system")
     @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
@@ -114,6 +116,12 @@ public class NotificationDebugController {
         return ResponseEntity.ok(status);
     }
 
+    @GetMapping("/template-cache")
+    @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
+    public ResponseEntity<Map<String, Object>> getTemplateCacheStats() {
+        return ResponseEntity.ok(templateRegistry.getStats());
+    }
+
     @PostMapping("/test-role-notification")
     @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
     public ResponseEntity<Map<String, Object>> testRoleNotification(
@@ -3,22 +3,30 @@ package com.medicorex.controller;
 import com.medicorex.dto.*;
 import com.medicorex.service.ProductService;
 import com.medicorex.service.ProductExportService;
+import com.medicorex.service.ProductImportJobService;
 import com.medicorex.service.ProductImportService;
 import com.medicorex.service.BarcodeService;
+import com.medicorex.exception.BusinessException;
 import com.medicorex.exception.ResourceNotFoundException;
 import com.medicorex.exception.BarcodeDecodeException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -36,8 +44,12 @@ public class ProductController {
     private final ProductService productService;
     private final ProductExportService exportService;
     private final ProductImportService importService;
+    private final ProductImportJobService importJobService;
     private final BarcodeService barcodeService;
 
+    @Value("${export.stream.timeout-ms:600000}")
+    private long exportTimeoutMs;
+
     @GetMapping
     @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF', 'PROCUREMENT_OFFICER')")
     public ResponseEntity<PageResponseDTO<ProductDTO>> getAllProducts(
@@ -170,53 +182,51 @@ public class ProductController {
     }
 
     /**
-     * Export products to CSV based on filter type
+     * Export products to CSV based on filter type. Rows are streamed to the client as they are read.
      */
     @GetMapping("/export/csv")
     @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
-    public ResponseEntity<byte[]> exportProductsCSV(@RequestParam(defaultValue = "all") String filter) {
-        try {
-            byte[] csvData = exportService.exportProductsToCSV(filter);
-
-            String filename = String.format("products_%s_%s.csv",
-                    filter.toLowerCase(),
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("text/csv"));
-            headers.setContentDispositionFormData("attachment", filename);
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(csvData);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    public WebAsyncTask<Void> exportProductsCSV(@RequestParam(defaultValue = "all") String filter,
+                                                HttpServletResponse response) {
+        String filename = String.format("products_%s_%s.csv",
+                filter.toLowerCase(),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
+
+        return writeExport(response, "text/csv", filename,
+                out -> exportService.writeProductsToCSV(filter, out));
     }
 
     /**
-     * Export products to Excel based on filter type
+     * Export products to Excel based on filter type. Memory stays bounded, but the xlsx is only
+     * assembled once every row has been read, so the download starts when the workbook is complete.
      */
     @GetMapping("/export/excel")
     @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
-    public ResponseEntity<byte[]> exportProductsExcel(@RequestParam(defaultValue = "all") String filter) {
-        try {
-            byte[] excelData = exportService.exportProductsToExcel(filter);
-
-            String filename = String.format("products_%s_%s.xlsx",
-                    filter.toLowerCase(),
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-            headers.setContentDispositionFormData("attachment", filename);
+    public WebAsyncTask<Void> exportProductsExcel(@RequestParam(defaultValue = "all") String filter,
+                                                  HttpServletResponse response) {
+        String filename = String.format("products_%s_%s.xlsx",
+                filter.toLowerCase(),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
+
+        return writeExport(response, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", filename,
+                out -> exportService.writeProductsToExcel(filter, out));
+    }
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(excelData);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    /**
+     * Write an export to the response on an async thread, with its own timeout so long exports
+     * do not need a longer async timeout for every endpoint
+     */
+    private WebAsyncTask<Void> writeExport(HttpServletResponse response, String contentType, String filename,
+                                            StreamingResponseBody body) {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.formData().name("attachment").filename(filename).build().toString());
+
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
     }
 
     /**
@@ -270,7 +280,12 @@ public class ProductController {
             }
 
             String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
-            if (!"csv".equals(extension) && !"xlsx".equals(extension) && !"xls".equals(extension)) {
+            if ("xls".equals(extension)) {
+                return ResponseEntity.badRequest()
+                        .body(new ImportResultDTO(0, 0, 1,
+                                List.of(new ImportErrorDTO(0, ProductImportService.LEGACY_EXCEL_MESSAGE))));
+            }
+            if (!"csv".equals(extension) && !"xlsx".equals(extension)) {
                 return ResponseEntity.badRequest()
                         .body(new ImportResultDTO(0, 0, 1,
                                 List.of(new ImportErrorDTO(0, "Unsupported file format. Please upload CSV or Excel file."))));
@@ -304,4 +319,40 @@ public class ProductController {
                             List.of(new ImportErrorDTO(0, "Unexpected error during import: " + e.getMessage()))));
         }
     }
+
+    /**
+     * Start a background import; progress is available from the status endpoint and /user/queue/imports
+     */
+    @PostMapping("/import/jobs")
+    @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
+    public ResponseEntity<ImportJobStatusDTO> startImportJob(@RequestParam("file") MultipartFile file) throws IOException {
+        String filename = file.getOriginalFilename();
+        if (file.isEmpty()) {
+            throw new BusinessException("File is empty");
+        }
+        if (filename == null) {
+            throw new BusinessException("File name is missing");
+        }
+
+        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+        if ("xls".equals(extension)) {
+            throw new BusinessException(ProductImportService.LEGACY_EXCEL_MESSAGE);
+        }
+        if (!"csv".equals(extension) && !"xlsx".equals(extension)) {
+            throw new BusinessException("Unsupported file format. Please upload CSV or Excel file.");
+        }
+
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importJobService.submit(file, username));
+    }
+
+    /**
+     * Get the progress of a background import
+     */
+    @GetMapping("/import/jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
+    public ResponseEntity<ImportJobStatusDTO> getImportJobStatus(@PathVariable String jobId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(importJobService.getStatus(jobId, username));
+    }
 }
\ No newline at end of file
@@ -94,8 +94,11 @@ public class QuarantineController {
      */
     @PostMapping("/auto-quarantine")
     @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
-    public ResponseEntity<Map<String, String>> triggerAutoQuarantine() {
-        quarantineService.autoQuarantineExpiredBatches();
-        return ResponseEntity.ok(Map.of("message", "Auto-quarantine process completed"));
+    public ResponseEntity<Map<String, Object>> triggerAutoQuarantine() {
+        BulkQuarantineResultDTO result = quarantineService.autoQuarantineExpiredBatches();
+        return ResponseEntity.ok(Map.of(
+                "message", "Auto-quarantine process completed",
+                "batchesQuarantined", result.getBatchesQuarantined(),
+                "productsAffected", result.getProductsAffected()));
     }
 }
\ No newline at end of file
@@ -1,8 +1,12 @@
 package com.medicorex.controller;
 
+import com.medicorex.dto.BulkStockAdjustmentDTO;
+import com.medicorex.dto.BulkStockAdjustmentResultDTO;
 import com.medicorex.dto.PageResponseDTO;
 import com.medicorex.dto.StockAdjustmentDTO;
+import com.medicorex.dto.StockReconciliationDTO;
 import com.medicorex.entity.StockTransaction;
+import com.medicorex.service.ProductStockReconciliationService;
 import com.medicorex.service.StockService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +27,7 @@ import java.util.List;
 public class StockController {
 
     private final StockService stockService;
+    private final ProductStockReconciliationService reconciliationService;
 
     @PostMapping("/adjust")
     @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
@@ -31,6 +36,13 @@ public class StockController {
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @PostMapping("/adjust/bulk")
+    @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
+    public ResponseEntity<BulkStockAdjustmentResultDTO> adjustStockBulk(
+            @Valid @RequestBody BulkStockAdjustmentDTO bulkDTO) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(stockService.adjustStockBulk(bulkDTO));
+    }
+
     @GetMapping("/transactions")
     @PreAuthorize("hasAnyRole('HOSPITAL_MANAGER', 'PHARMACY_STAFF')")
     public ResponseEntity<PageResponseDTO<StockTransaction>> getStockTransactions(
@@ -56,4 +68,10 @@ public class StockController {
 
         return ResponseEntity.ok(history);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/reconciliation")
+    @PreAuthorize("hasRole('HOSPITAL_MANAGER')")
+    public ResponseEntity<StockReconciliationDTO> checkOnHandDrift() {
+        return ResponseEntity.ok(reconciliationService.reconcile(false));
+    }
+}
@@ -0,0 +1,38 @@
+package com.medicorex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchExpiryRunDTO {
+    private Long checkLogId;
+    private LocalDate checkDate;
+    private Integer partitionsTotal;
+    private Integer partitionsCompleted;
+    private Integer partitionsFailed;
+    private Integer batchesChecked;
+    private Integer alertsGenerated;
+    private Long executionTimeMs;
+    private List<FailedPartition> failedPartitions;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FailedPartition {
+        private Long partitionId;
+        private Integer partitionIndex;
+        private Long productIdFrom;
+        private Long productIdTo;
+        private Integer attempts;
+        private String errorMessage;
+    }
+}
@@ -0,0 +1,19 @@
+package com.medicorex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkQuarantineResultDTO {
+    private Integer batchesQuarantined;
+    private Integer productsAffected;
+    private Integer totalQuantity;
+    private BigDecimal totalEstimatedLoss;
+}
@@ -0,0 +1,24 @@
+package com.medicorex.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStockAdjustmentDTO {
+
+    // Applied in order; several lines may target the same product
+    @NotNull(message = "At least one line is required")
+    @Size(min = 1, message = "At least one line is required")
+    @Valid
+    private List<StockAdjustmentDTO> lines;
+}
@@ -0,0 +1,34 @@
+package com.medicorex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStockAdjustmentResultDTO {
+
+    private Integer linesProcessed;
+    private Integer productsAffected;
+    private Integer batchesUpdated;
+    private Integer batchesDepleted;
+
+    // Per-product outcome
+    private List<ProductStockResult> products;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductStockResult {
+        private Long productId;
+        private String productName;
+        private Integer quantityBefore;
+        private Integer quantityAfter;
+    }
+}
@@ -24,6 +24,12 @@ public class ExpiryCheckResultDTO {
     private Long executionTimeMs;
     private String errorMessage;
 
+    // Batch-level evaluation (partitioned)
+    private Integer batchesChecked;
+    private Integer batchAlertsGenerated;
+    private Integer batchPartitions;
+    private Integer failedBatchPartitions;
+
     // Breakdown by severity
     private Map<String, Integer> alertsBySeverity;
 
@@ -20,6 +20,7 @@ public class ExpiryTrendDataPointDTO {
     private BigDecimal value;
     private String trend; // UP, DOWN, STABLE
     private Double percentageChange;
+    private Boolean approximate; // Estimated by the category backfill, not captured on that day
 
     // For chart plotting
     private Integer x; // Days from start
@@ -0,0 +1,26 @@
+package com.medicorex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportJobStatusDTO {
+    private String jobId;
+    private String filename;
+    private String status; // QUEUED, IMPORTING, SAVING, COMPLETED, FAILED
+    private int rowsParsed;
+    private int rowsValidated;
+    private int errorCount;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+    private ImportResultDTO result; // set once the job has finished
+}
@@ -0,0 +1,34 @@
+package com.medicorex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationRetentionRunDTO {
+    private Long rowsDeleted;
+    private Long rowsArchived;
+    private Long executionTimeMs;
+    private Double rowsPerSecond;
+    private List<RuleResult> rules;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RuleResult {
+        private String rule;
+        private Long rowsDeleted;
+        private Long rowsArchived;
+        private Integer chunks;
+        private Long executionTimeMs;
+        private Double rowsPerSecond;
+        private Boolean completed;
+    }
+}
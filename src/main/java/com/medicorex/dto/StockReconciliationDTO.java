@@ -0,0 +1,37 @@
+package com.medicorex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReconciliationDTO {
+
+    private LocalDateTime checkedAt;
+    private Integer productsWithDrift;
+    private Long totalAbsoluteDrift;
+    private Boolean corrected;
+
+    // Largest drifts first, capped by stock.ledger.reconcile.report-limit
+    private List<ProductDrift> drifts;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductDrift {
+        private Long productId;
+        private String productName;
+        private String productCode;
+        private Integer onHandQuantity;
+        private Integer batchQuantity;
+        private Integer drift; // onHandQuantity - batchQuantity
+    }
+}
@@ -60,6 +60,7 @@ public class TrendAnalysisResponseDTO {
         private Double percentageOfTotal;
         private String trend;
         private List<String> topProducts;
+        private Boolean approximate; // Series includes backfilled (estimated) days
     }
 
     @Data
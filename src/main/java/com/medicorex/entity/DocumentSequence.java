@@ -0,0 +1,29 @@
+package com.medicorex.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Counter row per document number prefix (e.g. PO-202610-), advanced atomically by the sequence allocator.
+ * The allocator only uses plain JDBC; the entity is kept so ddl-auto creates the table when Flyway (V6) is off.
+ */
+@Entity
+@Table(name = "document_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSequence {
+    @Id
+    @Column(length = 50)
+    private String prefix;
+
+    @Column(name = "last_value", nullable = false)
+    private Long lastValue = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
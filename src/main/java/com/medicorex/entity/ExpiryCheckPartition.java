@@ -0,0 +1,72 @@
+package com.medicorex.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint of one product-id range of a batch expiry evaluation run.
+ * Each partition commits its alerts together with its COMPLETED status, so a FAILED
+ * partition can be re-run on its own without redoing the rest of the check.
+ */
+@Entity
+@Table(name = "expiry_check_partitions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_check_partition", columnNames = {"check_log_id", "partition_index"}),
+        indexes = @Index(name = "idx_check_partition_status", columnList = "check_log_id, status"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpiryCheckPartition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Plain id: partitions are written in their own transactions, before the check log commits
+    @Column(name = "check_log_id", nullable = false)
+    private Long checkLogId;
+
+    @Column(nullable = false)
+    private LocalDate checkDate;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    @Column(nullable = false)
+    private Long productIdFrom;
+
+    @Column(nullable = false)
+    private Long productIdTo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PartitionStatus status = PartitionStatus.PENDING;
+
+    @Column(nullable = false)
+    private Integer batchesChecked = 0;
+
+    @Column(nullable = false)
+    private Integer alertsGenerated = 0;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public enum PartitionStatus {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,65 @@
+package com.medicorex.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Per-category rollup captured alongside each {@link ExpiryTrendSnapshot}
+ */
+@Entity
+@Table(name = "expiry_trend_category_snapshots",
+        uniqueConstraints = @UniqueConstraint(name = "unique_category_snapshot",
+                columnNames = {"snapshot_date", "category_id"}),
+        indexes = @Index(name = "idx_category_snapshot_category_date", columnList = "category_id, snapshot_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpiryTrendCategorySnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(nullable = false, length = 100)
+    private String categoryName;
+
+    @Column(nullable = false)
+    private Integer totalBatches = 0;
+
+    @Column(nullable = false)
+    private Integer expiredCount = 0;
+
+    @Column(nullable = false)
+    private Integer expiring7Days = 0;
+
+    @Column(nullable = false)
+    private Integer expiring30Days = 0;
+
+    // Batches expiring before 30 days from the snapshot date, expired ones included
+    @Column(nullable = false)
+    private Integer atRiskCount = 0;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal expiredValue = BigDecimal.ZERO;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal expiring30DaysValue = BigDecimal.ZERO;
+
+    // True for rows rebuilt by the backfill from today's batches; captured rows are exact
+    @Column(nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private Boolean approximate = false;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
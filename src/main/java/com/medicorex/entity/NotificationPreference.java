@@ -1,6 +1,7 @@
 package com.medicorex.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.medicorex.service.NotificationPreferenceListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -15,6 +16,7 @@ import java.util.Map;
 
 @Entity
 @Table(name = "notification_preferences")
+@EntityListeners(NotificationPreferenceListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -1,5 +1,6 @@
 package com.medicorex.entity;
 
+import com.medicorex.entity.listener.NotificationTemplateListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -7,10 +8,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
 @Entity
 @Table(name = "notification_templates")
+@EntityListeners(NotificationTemplateListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -61,26 +62,4 @@ public class NotificationTemplate {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
-
-    /**
-     * Process template with parameters
-     */
-    public String processTitle(Map<String, String> params) {
-        return processTemplate(titleTemplate, params);
-    }
-
-    public String processMessage(Map<String, String> params) {
-        return processTemplate(messageTemplate, params);
-    }
-
-    private String processTemplate(String template, Map<String, String> params) {
-        String result = template;
-        if (params != null) {
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                String placeholder = "{{" + entry.getKey() + "}}";
-                result = result.replace(placeholder, entry.getValue());
-            }
-        }
-        return result;
-    }
-}
\ No newline at end of file
+}
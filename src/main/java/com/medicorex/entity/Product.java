@@ -1,5 +1,6 @@
 package com.medicorex.entity;
 
+import com.medicorex.service.expiry.BatchExpiryIndexListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "products")
+@EntityListeners(BatchExpiryIndexListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,7 +38,8 @@ public class Product {
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
-    @Column(nullable = false)
+    // On-hand counter, maintained only through ProductStockLedger delta updates
+    @Column(nullable = false, updatable = false)
     private Integer quantity = 0;
 
     @Column(nullable = false)
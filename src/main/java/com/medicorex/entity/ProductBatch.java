@@ -1,5 +1,6 @@
 package com.medicorex.entity;
 
+import com.medicorex.service.expiry.BatchExpiryIndexListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,6 +12,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "product_batches")
+@EntityListeners(BatchExpiryIndexListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
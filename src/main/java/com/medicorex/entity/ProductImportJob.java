@@ -0,0 +1,77 @@
+package com.medicorex.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of a background product import, kept in the database so status survives a restart
+ * and can be read from any node
+ */
+@Entity
+@Table(name = "product_import_jobs",
+        indexes = @Index(name = "idx_import_jobs_status_updated", columnList = "status, updated_at"))
+@Data
+@NoArgsConstructor
+public class ProductImportJob {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 50)
+    private String username;
+
+    @Column(nullable = false)
+    private String filename;
+
+    // Host that accepted the upload; the stored file and the worker thread live there
+    @Column(nullable = false, length = 100)
+    private String node;
+
+    @Column(nullable = false, length = 500)
+    private String storedFile;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column(nullable = false)
+    private Integer rowsParsed = 0;
+
+    @Column(nullable = false)
+    private Integer rowsValidated = 0;
+
+    @Column(nullable = false)
+    private Integer errorCount = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    // ImportResultDTO as JSON, set once the job has finished
+    @Column(columnDefinition = "LONGTEXT")
+    private String result;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime submittedAt = LocalDateTime.now();
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public enum JobStatus {
+        QUEUED,
+        IMPORTING,
+        SAVING,
+        COMPLETED,
+        FAILED
+    }
+
+    public boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED;
+    }
+}
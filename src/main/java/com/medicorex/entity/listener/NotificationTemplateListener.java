@@ -0,0 +1,39 @@
+package com.medicorex.entity.listener;
+
+import com.medicorex.entity.NotificationTemplate;
+import com.medicorex.service.NotificationTemplateCompiler;
+import com.medicorex.service.NotificationTemplateRegistry;
+import com.medicorex.util.TransactionCallbacks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener that drops compiled copies of a NotificationTemplate and marks the template registry
+ * stale once a write to it commits
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationTemplateListener {
+
+    private final NotificationTemplateCompiler compiler;
+
+    @Autowired
+    @Lazy // Listener is created while the EntityManagerFactory the registry's repository needs is built
+    private NotificationTemplateRegistry registry;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(NotificationTemplate template) {
+        String code = template.getCode();
+        TransactionCallbacks.afterCommit(() -> {
+            compiler.invalidate(code);
+            registry.invalidate();
+        });
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,4 +39,8 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     // Case-insensitive category name search
     Optional<Category> findByNameIgnoreCase(String name);
-}
\ No newline at end of file
+
+    // Case-insensitive bulk lookup; names must already be lower-cased
+    @Query("SELECT c FROM Category c WHERE LOWER(c.name) IN :names")
+    List<Category> findByLowerCaseNameIn(@Param("names") Collection<String> names);
+}
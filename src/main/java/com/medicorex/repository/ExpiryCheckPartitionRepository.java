@@ -0,0 +1,16 @@
+package com.medicorex.repository;
+
+import com.medicorex.entity.ExpiryCheckPartition;
+import com.medicorex.entity.ExpiryCheckPartition.PartitionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ExpiryCheckPartitionRepository extends JpaRepository<ExpiryCheckPartition, Long> {
+
+    List<ExpiryCheckPartition> findByCheckLogIdOrderByPartitionIndexAsc(Long checkLogId);
+
+    List<ExpiryCheckPartition> findByCheckLogIdAndStatusOrderByPartitionIndexAsc(Long checkLogId, PartitionStatus status);
+}
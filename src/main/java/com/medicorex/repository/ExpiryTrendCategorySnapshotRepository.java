@@ -0,0 +1,34 @@
+package com.medicorex.repository;
+
+import com.medicorex.entity.ExpiryTrendCategorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ExpiryTrendCategorySnapshotRepository extends JpaRepository<ExpiryTrendCategorySnapshot, Long> {
+
+    List<ExpiryTrendCategorySnapshot> findBySnapshotDate(LocalDate snapshotDate);
+
+    boolean existsBySnapshotDate(LocalDate snapshotDate);
+
+    @Modifying
+    @Query("DELETE FROM ExpiryTrendCategorySnapshot s WHERE s.snapshotDate = :snapshotDate")
+    int deleteBySnapshotDate(@Param("snapshotDate") LocalDate snapshotDate);
+
+    List<ExpiryTrendCategorySnapshot> findBySnapshotDateBetweenOrderBySnapshotDate(
+            LocalDate startDate, LocalDate endDate);
+
+    List<ExpiryTrendCategorySnapshot> findByCategoryIdAndSnapshotDateBetweenOrderBySnapshotDate(
+            Long categoryId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT DISTINCT s.snapshotDate FROM ExpiryTrendCategorySnapshot s " +
+            "WHERE s.snapshotDate BETWEEN :startDate AND :endDate")
+    List<LocalDate> findSnapshotDatesBetween(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+}
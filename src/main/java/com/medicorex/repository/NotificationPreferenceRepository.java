@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,8 @@ public interface NotificationPreferenceRepository extends JpaRepository<Notifica
 
     Optional<NotificationPreference> findByUserId(Long userId);
 
+    List<NotificationPreference> findByUserIdIn(Collection<Long> userIds);
+
     boolean existsByUserId(Long userId);
 
     @Query("SELECT np FROM NotificationPreference np WHERE np.digestEnabled = true AND np.digestTime = :time")
@@ -27,8 +27,12 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Page<Notification> findByUserIdAndStatusOrderByCreatedAtDesc(
             Long userId, NotificationStatus status, Pageable pageable);
 
-    // Find unread notifications
-    List<Notification> findByUserIdAndStatus(Long userId, NotificationStatus status);
+    // Find unread notifications (since = NotificationPartitionManager.retainedSince())
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.status = :status " +
+            "AND n.createdAt >= :since")
+    List<Notification> findByUserIdAndStatus(@Param("userId") Long userId,
+                                             @Param("status") NotificationStatus status,
+                                             @Param("since") LocalDateTime since);
 
     // Count unread
     Long countByUserIdAndStatus(Long userId, NotificationStatus status);
@@ -38,10 +42,13 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
             Long userId, NotificationCategory category, Pageable pageable);
 
     // Find high priority unread
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.status = :status " +
+            "AND n.priority IN :priorities AND n.createdAt >= :since")
     List<Notification> findByUserIdAndStatusAndPriorityIn(
-            Long userId,
-            NotificationStatus status,
-            List<NotificationPriority> priorities);
+            @Param("userId") Long userId,
+            @Param("status") NotificationStatus status,
+            @Param("priorities") List<NotificationPriority> priorities,
+            @Param("since") LocalDateTime since);
 
     // Mark as read
     @Modifying
@@ -83,15 +90,19 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
             "FROM Notification n WHERE n.user.id = :userId")
     Object[] getNotificationSummary(@Param("userId") Long userId);
 
-    // Alternative: Return a custom DTO directly
+    /**
+     * Whole summary in one conditional aggregate, read from idx_notifications_user_status_priority_created
+     */
     @Query("SELECT new com.medicorex.dto.NotificationSummaryDTO(" +
             "COUNT(n), " +
             "COALESCE(SUM(CASE WHEN n.status = 'UNREAD' THEN 1 ELSE 0 END), 0L), " +
             "COALESCE(SUM(CASE WHEN n.priority = 'CRITICAL' AND n.status = 'UNREAD' THEN 1 ELSE 0 END), 0L), " +
-            "0L, " +  // highPriorityCount
-            "0L) " +  // todayCount
-            "FROM Notification n WHERE n.user.id = :userId")
-    NotificationSummaryDTO getNotificationSummaryDTO(@Param("userId") Long userId);
+            "COALESCE(SUM(CASE WHEN n.priority = 'HIGH' AND n.status = 'UNREAD' THEN 1 ELSE 0 END), 0L), " +
+            "COALESCE(SUM(CASE WHEN n.createdAt > :todayStart THEN 1 ELSE 0 END), 0L)) " +
+            "FROM Notification n WHERE n.user.id = :userId AND n.createdAt >= :since")
+    NotificationSummaryDTO getNotificationSummaryDTO(@Param("userId") Long userId,
+                                                     @Param("todayStart") LocalDateTime todayStart,
+                                                     @Param("since") LocalDateTime since);
 
     // Find by action URL
     Optional<Notification> findByUserIdAndActionUrl(Long userId, String actionUrl);
@@ -113,12 +124,14 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
             "AND (:status IS NULL OR n.status = :status) " +
             "AND (:category IS NULL OR n.category = :category) " +
             "AND (:priority IS NULL OR n.priority = :priority) " +
+            "AND n.createdAt >= :since " +
             "ORDER BY n.createdAt DESC")
     Page<Notification> findByUserIdWithFilters(
             @Param("userId") Long userId,
             @Param("status") NotificationStatus status,
             @Param("category") NotificationCategory category,
             @Param("priority") NotificationPriority priority,
+            @Param("since") LocalDateTime since,
             Pageable pageable);
 
     // Cleanup methods
@@ -132,7 +145,12 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Long countByUserIdAndStatusAndPriority(Long userId, NotificationStatus status, NotificationPriority priority);
 
     // Count by user, status, and category
-    Long countByUserIdAndStatusAndCategory(Long userId, NotificationStatus status, NotificationCategory category);
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.status = :status " +
+            "AND n.category = :category AND n.createdAt >= :since")
+    Long countByUserIdAndStatusAndCategory(@Param("userId") Long userId,
+                                           @Param("status") NotificationStatus status,
+                                           @Param("category") NotificationCategory category,
+                                           @Param("since") LocalDateTime since);
 
     // Find for escalation
     List<Notification> findByStatusAndPriorityAndCreatedAtBefore(
@@ -164,14 +182,22 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     /**
      * Find unescalated critical notifications
      */
-    @Query("SELECT n FROM Notification n WHERE n.createdAt < :thresholdTime " +
+    @Query("SELECT n FROM Notification n WHERE n.createdAt < :thresholdTime AND n.createdAt >= :since " +
             "AND n.priority = :priority AND n.status = :status")
     List<Notification> findUnescalatedCritical(
             @Param("thresholdTime") LocalDateTime thresholdTime,
             @Param("priority") NotificationPriority priority,
-            @Param("status") NotificationStatus status
+            @Param("status") NotificationStatus status,
+            @Param("since") LocalDateTime since
     );
 
+    /**
+     * Remove every notification of a user (notifications has no foreign key once partitioned)
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
     /**
      * Delete old archived notifications
      */
@@ -2,14 +2,21 @@ package com.medicorex.repository;
 
 import com.medicorex.entity.ProductBatch;
 import com.medicorex.entity.ProductBatch.BatchStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductBatchRepository extends JpaRepository<ProductBatch, Long> {
@@ -20,6 +27,13 @@ public interface ProductBatchRepository extends JpaRepository<ProductBatch, Long
     // Find active batches for a product (FIFO order)
     List<ProductBatch> findByProductIdAndStatusOrderByExpiryDateAsc(Long productId, BatchStatus status);
 
+    // Active batches for stock consumption in FIFO order, row-locked (SELECT ... FOR UPDATE) so concurrent
+    // consumers always see committed quantities
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ProductBatch b WHERE b.product.id = :productId AND b.status = 'ACTIVE' " +
+            "ORDER BY b.expiryDate ASC, b.id ASC")
+    List<ProductBatch> findActiveBatchesForConsumption(@Param("productId") Long productId);
+
     // Find by product and batch number
     Optional<ProductBatch> findByProductIdAndBatchNumber(Long productId, String batchNumber);
 
@@ -82,4 +96,57 @@ public interface ProductBatchRepository extends JpaRepository<ProductBatch, Long
     // Additional useful methods
     @Query("SELECT b FROM ProductBatch b WHERE b.status = :status ORDER BY b.expiryDate ASC")
     List<ProductBatch> findByStatusOrderByExpiryDate(@Param("status") BatchStatus status);
-}
\ No newline at end of file
+
+    // Lightweight projection of active batches for the in-memory expiry index
+    @Query("SELECT b.id, b.product.id, b.batchNumber, b.expiryDate, b.quantity FROM ProductBatch b " +
+            "WHERE b.status = 'ACTIVE'")
+    List<Object[]> findActiveBatchIndexRows();
+
+    // Batch expiry report: counts, quantities and cost values grouped by status and expiry bucket.
+    // Buckets: 0 expired, 1 today, 2 (today, +7), 3 +7, 4 (+7, +30), 5 +30, 6 (+30, +60), 7 +60, 8 (+60, +90), 9 later
+    @Query(value = "SELECT b.status AS status, " +
+            "CASE WHEN b.expiry_date < :today THEN 0 " +
+            "WHEN b.expiry_date = :today THEN 1 " +
+            "WHEN b.expiry_date < :day7 THEN 2 " +
+            "WHEN b.expiry_date = :day7 THEN 3 " +
+            "WHEN b.expiry_date < :day30 THEN 4 " +
+            "WHEN b.expiry_date = :day30 THEN 5 " +
+            "WHEN b.expiry_date < :day60 THEN 6 " +
+            "WHEN b.expiry_date = :day60 THEN 7 " +
+            "WHEN b.expiry_date < :day90 THEN 8 " +
+            "ELSE 9 END AS bucket, " +
+            "COUNT(*) AS batch_count, " +
+            "COALESCE(SUM(b.quantity), 0) AS total_quantity, " +
+            "COALESCE(SUM(b.cost_per_unit * b.quantity), 0) AS total_value " +
+            "FROM product_batches b GROUP BY b.status, bucket", nativeQuery = true)
+    List<Object[]> getExpiryReportAggregates(@Param("today") LocalDate today,
+                                             @Param("day7") LocalDate day7,
+                                             @Param("day30") LocalDate day30,
+                                             @Param("day60") LocalDate day60,
+                                             @Param("day90") LocalDate day90);
+
+    // Earliest-expiring active batches strictly between two dates, with product fetched
+    @Query("SELECT b FROM ProductBatch b JOIN FETCH b.product WHERE b.status = 'ACTIVE' " +
+            "AND b.expiryDate > :startDate AND b.expiryDate < :endDate ORDER BY b.expiryDate ASC")
+    List<ProductBatch> findActiveBatchesExpiringWithin(@Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate,
+                                                       Pageable pageable);
+
+    // Earliest-expired active batches, with product fetched
+    @Query("SELECT b FROM ProductBatch b JOIN FETCH b.product WHERE b.status = 'ACTIVE' " +
+            "AND b.expiryDate < :date ORDER BY b.expiryDate ASC")
+    List<ProductBatch> findActiveBatchesExpiredBefore(@Param("date") LocalDate date, Pageable pageable);
+
+    // Streams (expiry date, quantity, cost per unit, category id, category name, created at) of active batches.
+    // Scalar rows with product and category joined in the same statement, read with a MySQL streaming cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query("SELECT b.expiryDate, b.quantity, b.costPerUnit, c.id, c.name, b.createdAt FROM ProductBatch b " +
+            "JOIN b.product p LEFT JOIN p.category c WHERE b.status = 'ACTIVE'")
+    Stream<Object[]> streamActiveBatchesWithCategory();
+
+    // (category id, product name) of active products with a batch expiring before the cutoff, earliest first
+    @Query("SELECT c.id, p.name FROM ProductBatch b JOIN b.product p JOIN p.category c " +
+            "WHERE b.status = 'ACTIVE' AND b.expiryDate < :cutoff " +
+            "GROUP BY c.id, p.id, p.name ORDER BY MIN(b.expiryDate) ASC")
+    List<Object[]> findEarliestExpiringProductsByCategory(@Param("cutoff") LocalDate cutoff);
+}
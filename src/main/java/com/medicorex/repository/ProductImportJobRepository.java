@@ -0,0 +1,33 @@
+package com.medicorex.repository;
+
+import com.medicorex.entity.ProductImportJob;
+import com.medicorex.entity.ProductImportJob.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductImportJobRepository extends JpaRepository<ProductImportJob, String> {
+
+    /**
+     * Unfinished jobs accepted by one node (e.g. interrupted by its restart)
+     */
+    List<ProductImportJob> findByNodeAndStatusIn(String node, Collection<JobStatus> statuses);
+
+    /**
+     * Unfinished jobs that have not reported progress since the cutoff, on any node
+     */
+    List<ProductImportJob> findByStatusInAndUpdatedAtBefore(Collection<JobStatus> statuses, LocalDateTime cutoff);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductImportJob j WHERE j.status IN :statuses AND j.finishedAt < :cutoff")
+    int deleteFinishedBefore(@Param("statuses") Collection<JobStatus> statuses, @Param("cutoff") LocalDateTime cutoff);
+}
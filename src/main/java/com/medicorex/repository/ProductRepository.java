@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,4 +43,34 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Method to get products with valid expiry dates for monitoring
     @Query("SELECT p FROM Product p WHERE p.expiryDate IS NOT NULL AND p.quantity > 0")
     List<Product> findProductsWithValidExpiryDates();
-}
\ No newline at end of file
+
+    // Product facts (id, name, code, category name, unit price) for the batch expiry index
+    @Query("SELECT p.id, p.name, p.code, c.name, p.unitPrice FROM Product p LEFT JOIN p.category c " +
+            "WHERE p.id IN (SELECT b.product.id FROM ProductBatch b WHERE b.status = 'ACTIVE')")
+    List<Object[]> findProductFactsWithActiveBatches();
+
+    @Query("SELECT p.id, p.name, p.code, c.name, p.unitPrice FROM Product p LEFT JOIN p.category c " +
+            "WHERE p.id IN :ids")
+    List<Object[]> findProductFactsByIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset-paginated export reads (id > afterId in id order) with the category fetched in the same query
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findExportChunk(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category " +
+            "WHERE p.id > :afterId AND p.quantity <= p.minStockLevel ORDER BY p.id")
+    List<Product> findLowStockExportChunk(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category " +
+            "WHERE p.id > :afterId AND p.expiryDate < :cutoff ORDER BY p.id")
+    List<Product> findExpiringExportChunk(@Param("afterId") Long afterId,
+                                          @Param("cutoff") LocalDate cutoff,
+                                          Pageable pageable);
+
+    // Bulk uniqueness checks used by the product import (one IN-query per chunk)
+    @Query("SELECT p.code FROM Product p WHERE p.code IN :codes")
+    List<String> findExistingCodes(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT p.barcode FROM Product p WHERE p.barcode IN :barcodes")
+    List<String> findExistingBarcodes(@Param("barcodes") Collection<String> barcodes);
+}
@@ -73,4 +73,9 @@ public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, Lo
             "WHERE po.status IN ('SENT', 'PARTIALLY_RECEIVED') " +
             "ORDER BY po.orderDate DESC")
     List<PurchaseOrder> findEligibleForReceiving();
-}
\ No newline at end of file
+
+    // Highest numeric suffix among PO numbers with the given prefix (seeds the document sequence once per prefix)
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(po_number, LENGTH(:prefix) + 1) AS UNSIGNED)), 0) " +
+            "FROM purchase_orders WHERE po_number LIKE CONCAT(:prefix, '%')", nativeQuery = true)
+    Long findMaxPoSequence(@Param("prefix") String prefix);
+}
@@ -3,7 +3,6 @@ package com.medicorex.repository;
 import com.medicorex.entity.User;
 import com.medicorex.entity.User.UserRole;  // Using UserRole
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -32,9 +31,4 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Alternative using native query for strings
     @Query(value = "SELECT * FROM users WHERE role IN :roles", nativeQuery = true)
     List<User> findByRoleStringIn(@Param("roles") List<String> roles);
-
-    // Update unread notification count
-    @Modifying
-    @Query("UPDATE User u SET u.unreadNotifications = :count WHERE u.id = :userId")
-    void updateUnreadNotificationCount(@Param("userId") Long userId, @Param("count") Integer count);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.medicorex.scheduler;
 
+import com.medicorex.dto.NotificationRetentionRunDTO;
+import com.medicorex.service.NotificationRetentionService;
 import com.medicorex.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,20 +17,15 @@ import java.time.LocalDateTime;
 public class NotificationScheduler {
 
     private final NotificationService notificationService;
+    private final NotificationRetentionService retentionService;
 
     @Value("${notification.cleanup.enabled:true}")
     private boolean cleanupEnabled;
 
-    @Value("${notification.cleanup.archive.days:90}")
-    private int archiveDays;
-
-    @Value("${notification.cleanup.expired.days:30}")
-    private int expiredDays;
-
     /**
      * Clean up old notifications daily at 3 AM
-     * This removes archived notifications older than configured days
-     * and expired notifications
+     * Removes archived notifications older than configured days, expired notifications
+     * and old read notifications in bounded chunks (see NotificationRetentionService)
      */
     @Scheduled(cron = "${notification.cleanup.cron:0 0 3 * * ?}")
     public void cleanupOldNotifications() {
@@ -39,20 +36,10 @@ public class NotificationScheduler {
 
         log.info("Starting scheduled notification cleanup task");
         try {
-            // Clean up archived notifications older than X days
-            int archivedCleaned = notificationService.cleanupArchivedNotifications(archiveDays);
-            log.info("Cleaned up {} archived notifications older than {} days", archivedCleaned, archiveDays);
-
-            // Clean up expired notifications
-            int expiredCleaned = notificationService.cleanupExpiredNotifications();
-            log.info("Cleaned up {} expired notifications", expiredCleaned);
-
-            // Clean up read notifications older than X days
-            int readCleaned = notificationService.cleanupOldReadNotifications(expiredDays);
-            log.info("Cleaned up {} read notifications older than {} days", readCleaned, expiredDays);
-
-            log.info("Notification cleanup completed successfully. Total cleaned: {}",
-                    archivedCleaned + expiredCleaned + readCleaned);
+            NotificationRetentionRunDTO run = retentionService.runRetention();
+            log.info("Notification cleanup completed. Total cleaned: {} ({} archived) in {} ms, {} rows/s",
+                    run.getRowsDeleted(), run.getRowsArchived(), run.getExecutionTimeMs(),
+                    String.format("%.1f", run.getRowsPerSecond()));
         } catch (Exception e) {
             log.error("Error during notification cleanup: {}", e.getMessage(), e);
         }
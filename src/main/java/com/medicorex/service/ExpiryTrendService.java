@@ -1,15 +1,16 @@
 package com.medicorex.service;
 
 import com.medicorex.dto.*;
+import com.medicorex.entity.ExpiryTrendCategorySnapshot;
 import com.medicorex.entity.ExpiryTrendSnapshot;
-import com.medicorex.entity.ProductBatch;
 import com.medicorex.entity.Category;
-import com.medicorex.entity.Product;
+import com.medicorex.repository.ExpiryTrendCategorySnapshotRepository;
 import com.medicorex.repository.ExpiryTrendSnapshotRepository;
 import com.medicorex.repository.ProductBatchRepository;
 import com.medicorex.repository.CategoryRepository;
-import com.medicorex.repository.ProductRepository;
+import com.medicorex.exception.BusinessException;
 import com.medicorex.exception.ResourceNotFoundException;
+import com.medicorex.util.ExpirySnapshotAccumulator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
@@ -22,12 +23,14 @@ import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.time.temporal.WeekFields;
 import java.time.DayOfWeek;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -38,7 +41,9 @@ public class ExpiryTrendService {
     private final ExpiryTrendSnapshotRepository trendRepository;
     private final ProductBatchRepository batchRepository;
     private final CategoryRepository categoryRepository;
-    private final ProductRepository productRepository;
+    private final ExpiryTrendCategorySnapshotRepository categorySnapshotRepository;
+
+    private static final int MAX_BACKFILL_DAYS = 366;
 
     /**
      * Analyze trends for specified date range with full granularity support
@@ -368,98 +373,132 @@ public class ExpiryTrendService {
     }
 
     /**
-     * Get category-wise trends
+     * Get category-wise trends (daily series read from the category rollup table)
      */
     public Map<String, List<ExpiryTrendDataPointDTO>> getCategoryWiseTrends(int daysBack) {
-        LocalDate startDate = LocalDate.now().minusDays(daysBack);
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(daysBack);
+
+        Map<String, List<ExpiryTrendCategorySnapshot>> rowsByCategory = categorySnapshotRepository
+                .findBySnapshotDateBetweenOrderBySnapshotDate(startDate, endDate).stream()
+                .collect(Collectors.groupingBy(ExpiryTrendCategorySnapshot::getCategoryName,
+                        LinkedHashMap::new, Collectors.toList()));
 
-        // Get all categories
-        List<Category> categories = categoryRepository.findAll();
         Map<String, List<ExpiryTrendDataPointDTO>> categoryTrends = new HashMap<>();
+        rowsByCategory.forEach((categoryName, rows) ->
+                categoryTrends.put(categoryName, calculateCategoryTrends(rows, startDate, endDate)));
+
+        return categoryTrends;
+    }
+
+    /**
+     * Backfill category rollups for past dates that have no category rows yet. Batch history is not
+     * stored, so a past date can only be estimated from the batches that are active now and already
+     * existed on that date; batches consumed, written off or expired since then are missing. The rows
+     * are therefore saved with {@code approximate = true} and reported as such, and a real capture for
+     * the same date (today) replaces them.
+     */
+    @Transactional
+    public int backfillCategorySnapshots(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BusinessException("Invalid date range: start date must be before end date");
+        }
+        if (endDate.isAfter(LocalDate.now())) {
+            throw new BusinessException("Cannot backfill snapshots for future dates");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) > MAX_BACKFILL_DAYS) {
+            throw new BusinessException("Backfill range cannot exceed " + MAX_BACKFILL_DAYS + " days");
+        }
 
-        for (Category category : categories) {
-            List<ExpiryTrendDataPointDTO> trends = calculateCategoryTrends(category, startDate);
-            if (!trends.isEmpty()) {
-                categoryTrends.put(category.getName(), trends);
+        Set<LocalDate> existingDates = new HashSet<>(
+                categorySnapshotRepository.findSnapshotDatesBetween(startDate, endDate));
+
+        List<ExpirySnapshotAccumulator> accumulators = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (!existingDates.contains(date)) {
+                accumulators.add(new ExpirySnapshotAccumulator(date));
             }
         }
 
-        return categoryTrends;
+        if (accumulators.isEmpty()) {
+            log.info("Category rollups already present from {} to {}", startDate, endDate);
+            return 0;
+        }
+
+        try (Stream<Object[]> rows = batchRepository.streamActiveBatchesWithCategory()) {
+            rows.forEach(row -> {
+                LocalDateTime createdAt = (LocalDateTime) row[5];
+                for (ExpirySnapshotAccumulator accumulator : accumulators) {
+                    // Batches received after the date did not exist yet
+                    if (createdAt != null && createdAt.toLocalDate().isAfter(accumulator.getReferenceDate())) {
+                        continue;
+                    }
+                    accumulator.add(
+                            (LocalDate) row[0],
+                            (Integer) row[1],
+                            (BigDecimal) row[2],
+                            (Long) row[3],
+                            (String) row[4]);
+                }
+            });
+        }
+
+        int savedRows = 0;
+        for (ExpirySnapshotAccumulator accumulator : accumulators) {
+            List<ExpiryTrendCategorySnapshot> categorySnapshots = accumulator.getCategorySnapshots();
+            categorySnapshots.forEach(row -> row.setApproximate(true));
+            categorySnapshotRepository.saveAll(categorySnapshots);
+            savedRows += categorySnapshots.size();
+        }
+
+        log.info("Backfilled {} approximate category snapshot rows for {} days between {} and {}",
+                savedRows, accumulators.size(), startDate, endDate);
+
+        return savedRows;
     }
 
     /**
-     * Capture current snapshot
+     * Capture current snapshot. Re-running it on the same day recomputes and overwrites today's
+     * snapshot and category rows.
      */
     @Transactional
     public ExpiryTrendSnapshot captureSnapshot() {
         LocalDate today = LocalDate.now();
 
-        // Check if snapshot already exists
-        if (trendRepository.existsBySnapshotDate(today)) {
-            log.info("Snapshot already exists for {}", today);
-            return trendRepository.findBySnapshotDate(today).get();
+        ExpiryTrendSnapshot snapshot = trendRepository.findBySnapshotDate(today).orElse(null);
+        if (snapshot != null) {
+            log.info("Snapshot already exists for {}, recapturing", today);
+        } else {
+            log.info("Capturing expiry trend snapshot for {}", today);
+            snapshot = new ExpiryTrendSnapshot();
+            snapshot.setSnapshotDate(today);
         }
 
-        log.info("Capturing expiry trend snapshot for {}", today);
-
-        ExpiryTrendSnapshot snapshot = new ExpiryTrendSnapshot();
-        snapshot.setSnapshotDate(today);
-
-        // Get all active batches
-        List<ProductBatch> activeBatches = batchRepository.findAll().stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .collect(Collectors.toList());
-
-        // Count expired
-        long expiredCount = activeBatches.stream()
-                .filter(b -> b.getExpiryDate() != null && b.getExpiryDate().isBefore(today))
-                .count();
-        snapshot.setExpiredCount((int) expiredCount);
-
-        // Count expiring in different periods
-        snapshot.setExpiring7Days(countExpiringInDays(activeBatches, 7));
-        snapshot.setExpiring30Days(countExpiringInDays(activeBatches, 30));
-        snapshot.setExpiring60Days(countExpiringInDays(activeBatches, 60));
-        snapshot.setExpiring90Days(countExpiringInDays(activeBatches, 90));
-
-        // Calculate values
-        snapshot.setExpiredValue(calculateExpiredValue(activeBatches));
-        snapshot.setExpiring7DaysValue(calculateExpiringValue(activeBatches, 7));
-        snapshot.setExpiring30DaysValue(calculateExpiringValue(activeBatches, 30));
-
-        // Calculate average days to expiry
-        double avgDays = activeBatches.stream()
-                .filter(b -> b.getExpiryDate() != null && b.getExpiryDate().isAfter(today))
-                .mapToLong(b -> ChronoUnit.DAYS.between(today, b.getExpiryDate()))
-                .average()
-                .orElse(0);
-        snapshot.setAvgDaysToExpiry(avgDays);
-
-        // Find critical category
-        Map<Category, Long> categoryExpiryCounts = activeBatches.stream()
-                .filter(b -> b.getExpiryDate() != null &&
-                        b.getExpiryDate().isBefore(today.plusDays(30)) &&
-                        b.getProduct() != null &&
-                        b.getProduct().getCategory() != null)
-                .collect(Collectors.groupingBy(
-                        b -> b.getProduct().getCategory(),
-                        Collectors.counting()
-                ));
-
-        categoryExpiryCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .ifPresent(entry -> {
-                    snapshot.setCriticalCategoryId(entry.getKey().getId());
-                    snapshot.setCriticalCategoryName(entry.getKey().getName());
-                    snapshot.setCriticalCategoryCount(entry.getValue().intValue());
-                });
+        // Single streaming pass over active batches (product and category joined in the query)
+        ExpirySnapshotAccumulator accumulator = new ExpirySnapshotAccumulator(today);
+        try (Stream<Object[]> rows = batchRepository.streamActiveBatchesWithCategory()) {
+            rows.forEach(row -> accumulator.add(
+                    (LocalDate) row[0],
+                    (Integer) row[1],
+                    (BigDecimal) row[2],
+                    (Long) row[3],
+                    (String) row[4]));
+        }
+        accumulator.applyTo(snapshot);
 
         // Calculate trend
         calculateTrend(snapshot);
 
-        snapshot.setTotalProducts(activeBatches.size());
+        ExpiryTrendSnapshot savedSnapshot = trendRepository.save(snapshot);
+
+        // Replace today's per-category rollups
+        categorySnapshotRepository.deleteBySnapshotDate(today);
+        categorySnapshotRepository.saveAll(accumulator.getCategorySnapshots());
+
+        log.info("Captured snapshot for {} with {} active batches across {} categories",
+                today, accumulator.getTotalBatches(), accumulator.getCategorySnapshots().size());
 
-        return trendRepository.save(snapshot);
+        return savedSnapshot;
     }
 
     /**
@@ -566,48 +605,6 @@ public class ExpiryTrendService {
 
     // Private helper methods
 
-    private int countExpiringInDays(List<ProductBatch> batches, int days) {
-        LocalDate today = LocalDate.now();
-        LocalDate targetDate = today.plusDays(days);
-
-        return (int) batches.stream()
-                .filter(b -> b.getExpiryDate() != null &&
-                        b.getExpiryDate().isAfter(today) &&
-                        b.getExpiryDate().isBefore(targetDate))
-                .count();
-    }
-
-    private BigDecimal calculateExpiredValue(List<ProductBatch> batches) {
-        LocalDate today = LocalDate.now();
-
-        return batches.stream()
-                .filter(b -> b.getExpiryDate() != null && b.getExpiryDate().isBefore(today))
-                .map(b -> {
-                    if (b.getCostPerUnit() != null && b.getQuantity() != null) {
-                        return b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity()));
-                    }
-                    return BigDecimal.ZERO;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calculateExpiringValue(List<ProductBatch> batches, int days) {
-        LocalDate today = LocalDate.now();
-        LocalDate targetDate = today.plusDays(days);
-
-        return batches.stream()
-                .filter(b -> b.getExpiryDate() != null &&
-                        b.getExpiryDate().isAfter(today) &&
-                        b.getExpiryDate().isBefore(targetDate))
-                .map(b -> {
-                    if (b.getCostPerUnit() != null && b.getQuantity() != null) {
-                        return b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity()));
-                    }
-                    return BigDecimal.ZERO;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     private void calculateTrend(ExpiryTrendSnapshot snapshot) {
         // Get average of previous 7 days
         LocalDate startDate = snapshot.getSnapshotDate().minusDays(7);
@@ -761,75 +758,45 @@ public class ExpiryTrendService {
 
         Map<String, TrendAnalysisResponseDTO.CategoryAnalysis> categoryAnalysisMap = new HashMap<>();
 
-        // Get all categories
-        List<Category> categories = categoryRepository.findAll();
-
-        for (Category category : categories) {
-            // Get all products in this category
-            List<Product> categoryProducts = productRepository.findByCategoryId(category.getId());
-
-            if (categoryProducts.isEmpty()) continue;
+        List<ExpiryTrendCategorySnapshot> rows = categorySnapshotRepository
+                .findBySnapshotDateBetweenOrderBySnapshotDate(startDate, endDate);
 
-            Set<Long> productIds = categoryProducts.stream()
-                    .map(Product::getId)
-                    .collect(Collectors.toSet());
+        if (rows.isEmpty()) {
+            return categoryAnalysisMap;
+        }
 
-            // Get all batches for these products within date range
-            List<ProductBatch> categoryBatches = batchRepository.findAll().stream()
-                    .filter(batch -> batch.getProduct() != null &&
-                            productIds.contains(batch.getProduct().getId()) &&
-                            batch.getExpiryDate() != null &&
-                            !batch.getExpiryDate().isBefore(startDate) &&
-                            !batch.getExpiryDate().isAfter(endDate.plusDays(90)))
-                    .collect(Collectors.toList());
+        // Series per category and batch totals per day
+        Map<Long, List<ExpiryTrendCategorySnapshot>> rowsByCategory = rows.stream()
+                .collect(Collectors.groupingBy(ExpiryTrendCategorySnapshot::getCategoryId,
+                        LinkedHashMap::new, Collectors.toList()));
+        Map<LocalDate, Integer> totalBatchesByDate = rows.stream()
+                .collect(Collectors.groupingBy(ExpiryTrendCategorySnapshot::getSnapshotDate,
+                        Collectors.summingInt(ExpiryTrendCategorySnapshot::getTotalBatches)));
 
-            if (categoryBatches.isEmpty()) continue;
+        Map<Long, List<String>> topProductsByCategory = findTopExpiringProducts(5);
 
-            // Calculate metrics for this category
-            int expiryCount = (int) categoryBatches.stream()
-                    .filter(b -> b.getExpiryDate().isBefore(LocalDate.now()))
-                    .count();
+        for (List<ExpiryTrendCategorySnapshot> series : rowsByCategory.values()) {
+            ExpiryTrendCategorySnapshot latest = series.get(series.size() - 1);
 
-            BigDecimal totalValue = categoryBatches.stream()
-                    .filter(b -> b.getExpiryDate().isBefore(LocalDate.now().plusDays(30)))
-                    .map(b -> {
-                        if (b.getCostPerUnit() != null && b.getQuantity() != null) {
-                            return b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity()));
-                        }
-                        return BigDecimal.ZERO;
-                    })
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totalValue = valueOrZero(latest.getExpiredValue())
+                    .add(valueOrZero(latest.getExpiring30DaysValue()));
 
             // Calculate percentage of total
-            double percentageOfTotal = 0.0;
-            if (!categoryBatches.isEmpty()) {
-                long totalBatches = batchRepository.count();
-                percentageOfTotal = (categoryBatches.size() * 100.0) / totalBatches;
-            }
-
-            // Determine trend for this category
-            String categoryTrend = determineCategoryTrend(categoryBatches, startDate, endDate);
-
-            // Get top expiring products in this category
-            List<String> topProducts = categoryBatches.stream()
-                    .filter(b -> b.getExpiryDate().isBefore(LocalDate.now().plusDays(30)))
-                    .sorted(Comparator.comparing(ProductBatch::getExpiryDate))
-                    .limit(5)
-                    .map(b -> b.getProduct().getName())
-                    .distinct()
-                    .collect(Collectors.toList());
+            int dayTotal = totalBatchesByDate.getOrDefault(latest.getSnapshotDate(), 0);
+            double percentageOfTotal = dayTotal > 0 ? (latest.getTotalBatches() * 100.0) / dayTotal : 0.0;
 
             TrendAnalysisResponseDTO.CategoryAnalysis analysis =
                     TrendAnalysisResponseDTO.CategoryAnalysis.builder()
-                            .categoryName(category.getName())
-                            .expiryCount(expiryCount)
+                            .categoryName(latest.getCategoryName())
+                            .expiryCount(latest.getExpiredCount())
                             .value(totalValue)
                             .percentageOfTotal(percentageOfTotal)
-                            .trend(categoryTrend)
-                            .topProducts(topProducts)
+                            .trend(determineCategoryTrend(series))
+                            .approximate(series.stream().anyMatch(r -> Boolean.TRUE.equals(r.getApproximate())))
+                            .topProducts(topProductsByCategory.getOrDefault(latest.getCategoryId(), List.of()))
                             .build();
 
-            categoryAnalysisMap.put(category.getName(), analysis);
+            categoryAnalysisMap.put(latest.getCategoryName(), analysis);
         }
 
         return categoryAnalysisMap;
@@ -838,25 +805,37 @@ public class ExpiryTrendService {
     /**
      * Determine trend for a specific category
      */
-    private String determineCategoryTrend(List<ProductBatch> categoryBatches,
-                                          LocalDate startDate, LocalDate endDate) {
-        // Compare first half vs second half of the period
-        LocalDate midDate = startDate.plusDays(ChronoUnit.DAYS.between(startDate, endDate) / 2);
-
-        long firstHalfExpiring = categoryBatches.stream()
-                .filter(b -> b.getExpiryDate().isBefore(midDate))
-                .count();
+    private String determineCategoryTrend(List<ExpiryTrendCategorySnapshot> series) {
+        if (series.size() < 2) return "STABLE";
 
-        long secondHalfExpiring = categoryBatches.stream()
-                .filter(b -> !b.getExpiryDate().isBefore(midDate) &&
-                        b.getExpiryDate().isBefore(endDate))
-                .count();
+        // Compare first half vs second half of the period
+        int midPoint = series.size() / 2;
+        double firstHalfAtRisk = series.subList(0, midPoint).stream()
+                .mapToInt(ExpiryTrendCategorySnapshot::getAtRiskCount)
+                .average().orElse(0);
+        double secondHalfAtRisk = series.subList(midPoint, series.size()).stream()
+                .mapToInt(ExpiryTrendCategorySnapshot::getAtRiskCount)
+                .average().orElse(0);
 
-        if (secondHalfExpiring > firstHalfExpiring * 1.2) return "WORSENING";
-        if (firstHalfExpiring > secondHalfExpiring * 1.2) return "IMPROVING";
+        if (secondHalfAtRisk > firstHalfAtRisk * 1.2) return "WORSENING";
+        if (firstHalfAtRisk > secondHalfAtRisk * 1.2) return "IMPROVING";
         return "STABLE";
     }
 
+    /**
+     * Names of the earliest-expiring products per category (expiring within 30 days)
+     */
+    private Map<Long, List<String>> findTopExpiringProducts(int limit) {
+        Map<Long, List<String>> topProducts = new HashMap<>();
+        for (Object[] row : batchRepository.findEarliestExpiringProductsByCategory(LocalDate.now().plusDays(30))) {
+            List<String> names = topProducts.computeIfAbsent((Long) row[0], id -> new ArrayList<>());
+            if (names.size() < limit) {
+                names.add((String) row[1]);
+            }
+        }
+        return topProducts;
+    }
+
     private List<TrendAnalysisResponseDTO.TrendInsight> generateInsights(
             List<ExpiryTrendSnapshot> snapshots,
             TrendAnalysisResponseDTO.SummaryStatistics summary) {
@@ -922,53 +901,25 @@ public class ExpiryTrendService {
         return insights;
     }
 
-    private List<ExpiryTrendDataPointDTO> calculateCategoryTrends(Category category, LocalDate startDate) {
-        LocalDate endDate = LocalDate.now();
+    private List<ExpiryTrendDataPointDTO> calculateCategoryTrends(List<ExpiryTrendCategorySnapshot> rows,
+                                                              LocalDate startDate, LocalDate endDate) {
         List<ExpiryTrendDataPointDTO> categoryTrendPoints = new ArrayList<>();
 
-        // Get products in this category
-        List<Product> categoryProducts = productRepository.findByCategoryId(category.getId());
-        Set<Long> productIds = categoryProducts.stream()
-                .map(Product::getId)
-                .collect(Collectors.toSet());
+        Map<LocalDate, ExpiryTrendCategorySnapshot> rowsByDate = rows.stream()
+                .collect(Collectors.toMap(ExpiryTrendCategorySnapshot::getSnapshotDate, r -> r, (a, b) -> b));
 
-        // Generate daily trend points for this category
+        // Generate daily trend points for this category (days without a rollup count as zero)
         LocalDate currentDate = startDate;
         while (!currentDate.isAfter(endDate)) {
-            LocalDate dateToCheck = currentDate;
-
-            // Count expiring items for this category on this date
-            List<ProductBatch> dayBatches = batchRepository.findAll().stream()
-                    .filter(batch -> batch.getProduct() != null &&
-                            productIds.contains(batch.getProduct().getId()) &&
-                            batch.getExpiryDate() != null &&
-                            batch.getExpiryDate().equals(dateToCheck))
-                    .collect(Collectors.toList());
-
-            int expiredCount = (int) dayBatches.stream()
-                    .filter(b -> b.getExpiryDate().isBefore(LocalDate.now()))
-                    .count();
-
-            int expiringCount = (int) dayBatches.stream()
-                    .filter(b -> b.getExpiryDate().isAfter(LocalDate.now()) &&
-                            b.getExpiryDate().isBefore(LocalDate.now().plusDays(30)))
-                    .count();
-
-            BigDecimal value = dayBatches.stream()
-                    .map(b -> {
-                        if (b.getCostPerUnit() != null && b.getQuantity() != null) {
-                            return b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity()));
-                        }
-                        return BigDecimal.ZERO;
-                    })
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            ExpiryTrendCategorySnapshot row = rowsByDate.get(currentDate);
 
             ExpiryTrendDataPointDTO point = ExpiryTrendDataPointDTO.builder()
                     .date(currentDate)
                     .label(currentDate.toString())
-                    .expiredCount(expiredCount)
-                    .expiringCount(expiringCount)
-                    .value(value)
+                    .expiredCount(row != null ? row.getExpiredCount() : 0)
+                    .expiringCount(row != null ? row.getExpiring30Days() : 0)
+                    .value(row != null ? valueOrZero(row.getExpiredValue()) : BigDecimal.ZERO)
+                    .approximate(row != null && Boolean.TRUE.equals(row.getApproximate()))
                     .trend("STABLE")
                     .percentageChange(0.0)
                     .build();
@@ -996,6 +947,49 @@ public class ExpiryTrendService {
         return categoryTrendPoints;
     }
 
+    /**
+     * Turn a category rollup series into snapshot-shaped rows so the regular
+     * granularity aggregation and summary statistics can be reused
+     */
+    private List<ExpiryTrendSnapshot> toCategoryTrendSnapshots(List<ExpiryTrendCategorySnapshot> rows) {
+        List<ExpiryTrendSnapshot> snapshots = new ArrayList<>();
+        ExpiryTrendCategorySnapshot previous = null;
+
+        for (ExpiryTrendCategorySnapshot row : rows) {
+            ExpiryTrendSnapshot snapshot = new ExpiryTrendSnapshot();
+            snapshot.setSnapshotDate(row.getSnapshotDate());
+            snapshot.setTotalProducts(row.getTotalBatches());
+            snapshot.setExpiredCount(row.getExpiredCount());
+            snapshot.setExpiring7Days(row.getExpiring7Days());
+            snapshot.setExpiring30Days(row.getExpiring30Days());
+            snapshot.setExpiredValue(valueOrZero(row.getExpiredValue()));
+            snapshot.setExpiring30DaysValue(valueOrZero(row.getExpiring30DaysValue()));
+            snapshot.setCriticalCategoryId(row.getCategoryId());
+            snapshot.setCriticalCategoryName(row.getCategoryName());
+
+            double change = previous != null
+                    ? calculatePercentageChange(previous.getExpiredCount(), row.getExpiredCount())
+                    : 0.0;
+            snapshot.setTrendPercentage(change);
+            if (change > 10) {
+                snapshot.setTrendDirection(ExpiryTrendSnapshot.TrendDirection.WORSENING);
+            } else if (change < -10) {
+                snapshot.setTrendDirection(ExpiryTrendSnapshot.TrendDirection.IMPROVING);
+            } else {
+                snapshot.setTrendDirection(ExpiryTrendSnapshot.TrendDirection.STABLE);
+            }
+
+            snapshots.add(snapshot);
+            previous = row;
+        }
+
+        return snapshots;
+    }
+
+    private BigDecimal valueOrZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
     private TrendAnalysisResponseDTO createEmptyAnalysis(LocalDate startDate, LocalDate endDate, String granularity) {
         return TrendAnalysisResponseDTO.builder()
                 .startDate(startDate)
@@ -1037,62 +1031,17 @@ public class ExpiryTrendService {
         // Get the general analysis first
         TrendAnalysisResponseDTO generalAnalysis = analyzeTrends(startDate, endDate, granularity);
 
-        // Filter for specific category
-        List<Product> categoryProducts = productRepository.findByCategoryId(categoryId);
-        Set<Long> productIds = categoryProducts.stream()
-                .map(Product::getId)
-                .collect(Collectors.toSet());
+        // Category series from the rollup table, one row per day
+        List<ExpiryTrendSnapshot> categorySnapshots = toCategoryTrendSnapshots(categorySnapshotRepository
+                .findByCategoryIdAndSnapshotDateBetweenOrderBySnapshotDate(categoryId, startDate, endDate));
 
-        // Get category-specific snapshots
-        List<ExpiryTrendSnapshot> snapshots = trendRepository
-                .findBySnapshotDateBetweenOrderBySnapshotDate(startDate, endDate);
-
-        // Create category-specific trend data
-        List<ExpiryTrendDataPointDTO> categoryTrendData = new ArrayList<>();
-
-        for (ExpiryTrendSnapshot snapshot : snapshots) {
-            // Count items for this category
-            List<ProductBatch> categoryBatches = batchRepository.findAll().stream()
-                    .filter(batch -> batch.getProduct() != null &&
-                            productIds.contains(batch.getProduct().getId()) &&
-                            batch.getExpiryDate() != null)
-                    .collect(Collectors.toList());
-
-            int expiredCount = (int) categoryBatches.stream()
-                    .filter(b -> b.getExpiryDate().isBefore(snapshot.getSnapshotDate()))
-                    .count();
-
-            int expiringCount = (int) categoryBatches.stream()
-                    .filter(b -> b.getExpiryDate().isAfter(snapshot.getSnapshotDate()) &&
-                            b.getExpiryDate().isBefore(snapshot.getSnapshotDate().plusDays(30)))
-                    .count();
-
-            BigDecimal value = categoryBatches.stream()
-                    .filter(b -> b.getExpiryDate().isBefore(snapshot.getSnapshotDate().plusDays(30)))
-                    .map(b -> {
-                        if (b.getCostPerUnit() != null && b.getQuantity() != null) {
-                            return b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity()));
-                        }
-                        return BigDecimal.ZERO;
-                    })
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            ExpiryTrendDataPointDTO point = ExpiryTrendDataPointDTO.builder()
-                    .date(snapshot.getSnapshotDate())
-                    .label(snapshot.getSnapshotDate().toString() + " - " + category.getName())
-                    .expiredCount(expiredCount)
-                    .expiringCount(expiringCount)
-                    .value(value)
-                    .trend("STABLE")
-                    .percentageChange(0.0)
-                    .build();
+        // Apply granularity
+        List<ExpiryTrendDataPointDTO> categoryTrendData = convertToDataPoints(categorySnapshots, granularity);
 
-            categoryTrendData.add(point);
+        if (!categorySnapshots.isEmpty()) {
+            generalAnalysis.setSummary(calculateSummaryStatistics(categorySnapshots));
         }
 
-        // Apply granularity
-        categoryTrendData = convertToDataPoints(snapshots, granularity);
-
         // Update the analysis with category-specific data
         generalAnalysis.setTrendData(categoryTrendData);
 
@@ -0,0 +1,29 @@
+package com.medicorex.service;
+
+/**
+ * Progress callbacks raised by {@link ProductImportService} while an import runs.
+ * Called on the importing thread, so implementations must be cheap.
+ */
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = new ImportProgressListener() {
+    };
+
+    /**
+     * A data row was read from the file (rowsParsed includes empty rows)
+     */
+    default void onRowParsed(int rowsParsed, int errors) {
+    }
+
+    /**
+     * A chunk of parsed rows was checked against the database and its valid rows inserted (not yet committed)
+     */
+    default void onRowsValidated(int rowsValidated, int errors) {
+    }
+
+    /**
+     * Every row passed validation and the import transaction is about to commit
+     */
+    default void onCommitting(int rowsToSave) {
+    }
+}
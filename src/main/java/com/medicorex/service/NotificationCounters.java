@@ -0,0 +1,307 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.Notification.NotificationPriority;
+import com.medicorex.entity.Notification.NotificationStatus;
+import com.medicorex.util.TransactionCallbacks;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory unread / critical / high counters per user.
+ * A user's counters are seeded from one grouped query the first time they are needed; afterwards
+ * notification writes only apply deltas, once their transaction commits. Changed users are flushed to
+ * {@code users.unread_notifications} in coalesced JDBC batches, and a periodic reconciliation recounts
+ * from the notifications table to correct drift (e.g. deltas raced with a seed, or rows changed outside
+ * NotificationService). Like every other notification query, the counts only cover rows created since
+ * {@link NotificationPartitionManager#retainedSince()}, the start of the oldest partition still on disk;
+ * the retention run reconciles after it drops partitions.
+ */
+@Slf4j
+@Component
+public class NotificationCounters {
+
+    private static final String SEED_COUNTS_SQL =
+            "SELECT user_id, priority, COUNT(*) AS unread FROM notifications " +
+            "WHERE status = 'UNREAD' AND user_id IN (:userIds) AND created_at >= :since GROUP BY user_id, priority";
+
+    private static final String ALL_COUNTS_SQL =
+            "SELECT user_id, priority, COUNT(*) AS unread FROM notifications " +
+            "WHERE status = 'UNREAD' AND created_at >= ? GROUP BY user_id, priority";
+
+    private static final String FLUSH_SQL =
+            "UPDATE users SET unread_notifications = ? WHERE id = ?";
+
+    private static final String RECONCILE_USERS_SQL =
+            "UPDATE users u LEFT JOIN (SELECT user_id, COUNT(*) AS unread FROM notifications " +
+            "WHERE status = 'UNREAD' AND created_at >= ? GROUP BY user_id) c ON c.user_id = u.id " +
+            "SET u.unread_notifications = COALESCE(c.unread, 0) " +
+            "WHERE COALESCE(u.unread_notifications, -1) <> COALESCE(c.unread, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final NotificationPartitionManager partitionManager;
+    private final int flushBatchSize;
+
+    private final ConcurrentMap<Long, Counts> counts = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public NotificationCounters(JdbcTemplate jdbcTemplate,
+                                NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                NotificationPartitionManager partitionManager,
+                                @Value("${notification.counters.flush.batch-size:500}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.partitionManager = partitionManager;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    /**
+     * Unread / critical / high counts of one user
+     */
+    public record Snapshot(int unread, int critical, int high) {
+    }
+
+    // ==================== Deltas ====================
+
+    /**
+     * A new UNREAD notification was written for the user
+     */
+    public void created(Long userId, NotificationPriority priority) {
+        TransactionCallbacks.afterCommit(() -> apply(userId, priority, 1));
+    }
+
+    /**
+     * The same UNREAD notification was written for every user
+     */
+    public void created(Collection<Long> userIds, NotificationPriority priority) {
+        List<Long> ids = List.copyOf(userIds);
+        TransactionCallbacks.afterCommit(() -> ids.forEach(userId -> apply(userId, priority, 1)));
+    }
+
+    public void statusChanged(Long userId, NotificationPriority priority,
+                              NotificationStatus from, NotificationStatus to) {
+        if (from == to) {
+            return;
+        }
+        if (from == NotificationStatus.UNREAD) {
+            TransactionCallbacks.afterCommit(() -> apply(userId, priority, -1));
+        } else if (to == NotificationStatus.UNREAD) {
+            TransactionCallbacks.afterCommit(() -> apply(userId, priority, 1));
+        }
+    }
+
+    public void deleted(Long userId, NotificationPriority priority, NotificationStatus status) {
+        if (status == NotificationStatus.UNREAD) {
+            TransactionCallbacks.afterCommit(() -> apply(userId, priority, -1));
+        }
+    }
+
+    /**
+     * All notifications of the user were removed (e.g. the user is being deleted); forget the cached counters
+     */
+    public void evict(Long userId) {
+        TransactionCallbacks.afterCommit(() -> {
+            counts.remove(userId);
+            dirty.remove(userId);
+        });
+    }
+
+    // ==================== Reads ====================
+
+    public int getUnreadCount(Long userId) {
+        return getCounts(userId).unread.get();
+    }
+
+    public Snapshot getSnapshot(Long userId) {
+        return getCounts(userId).snapshot();
+    }
+
+    /**
+     * Unread counts of many users, seeding any that are not cached with one query
+     */
+    public Map<Long, Integer> getUnreadCounts(Collection<Long> userIds) {
+        seed(userIds);
+        Map<Long, Integer> result = new HashMap<>();
+        for (Long userId : userIds) {
+            result.put(userId, getCounts(userId).unread.get());
+        }
+        return result;
+    }
+
+    // ==================== Flush & reconciliation ====================
+
+    /**
+     * Write the latest unread count of every changed user to the users table
+     */
+    @Scheduled(fixedDelayString = "${notification.counters.flush.interval-ms:2000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            Long userId = it.next();
+            it.remove();
+            Counts userCounts = counts.get(userId);
+            if (userCounts != null) {
+                updates.add(new Object[]{userCounts.unread.get(), userId});
+            }
+        }
+
+        try {
+            for (int from = 0; from < updates.size(); from += flushBatchSize) {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, updates.subList(from, Math.min(from + flushBatchSize, updates.size())));
+            }
+            log.debug("Flushed unread counts for {} user(s)", updates.size());
+        } catch (Exception e) {
+            // Keep the users for the next flush
+            updates.forEach(update -> dirty.add((Long) update[1]));
+            log.error("Failed to flush unread notification counts: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recount unread notifications from the table, correct the users column and any cached counters that drifted.
+     * Users whose counters received a delta while the recount ran are left alone, since the recount may
+     * predate that delta; the next run picks them up.
+     */
+    @Scheduled(cron = "${notification.counters.reconcile.cron:0 */15 * * * *}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Timestamp since = Timestamp.valueOf(partitionManager.retainedSince());
+
+        Map<Long, Long> versions = new HashMap<>();
+        counts.forEach((userId, userCounts) -> versions.put(userId, userCounts.version()));
+
+        Map<Long, Counts> actual = new HashMap<>();
+        jdbcTemplate.query(ALL_COUNTS_SQL, rs -> {
+            addRow(actual, rs.getLong("user_id"), rs.getString("priority"), rs.getInt("unread"));
+        }, since);
+
+        int drifted = 0;
+        for (Map.Entry<Long, Long> entry : versions.entrySet()) {
+            Counts userCounts = counts.get(entry.getKey());
+            if (userCounts == null) {
+                continue;
+            }
+            Counts expected = actual.getOrDefault(entry.getKey(), new Counts());
+            if (userCounts.copyFromIfUnchanged(expected, entry.getValue())) {
+                drifted++;
+            }
+        }
+
+        int usersFixed = jdbcTemplate.update(RECONCILE_USERS_SQL, since);
+        if (drifted > 0 || usersFixed > 0) {
+            log.info("Reconciled unread notification counts: {} cached user(s) drifted, {} users row(s) corrected",
+                    drifted, usersFixed);
+        }
+        log.debug("Unread notification counts reconciled in {} ms", System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // ==================== Internals ====================
+
+    private void apply(Long userId, NotificationPriority priority, int delta) {
+        // Users not cached yet are seeded from the table, which already contains the committed change
+        Counts userCounts = counts.get(userId);
+        if (userCounts == null) {
+            return;
+        }
+        userCounts.add(priority, delta);
+        dirty.add(userId);
+    }
+
+    private Counts getCounts(Long userId) {
+        Counts userCounts = counts.get(userId);
+        if (userCounts == null) {
+            seed(List.of(userId));
+            userCounts = counts.get(userId);
+        }
+        return userCounts;
+    }
+
+    private void seed(Collection<Long> userIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (!counts.containsKey(userId)) {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Counts> loaded = new HashMap<>();
+        Map<String, Object> params = Map.of(
+                "userIds", missing,
+                "since", Timestamp.valueOf(partitionManager.retainedSince()));
+        namedParameterJdbcTemplate.query(SEED_COUNTS_SQL, params, rs -> {
+            addRow(loaded, rs.getLong("user_id"), rs.getString("priority"), rs.getInt("unread"));
+        });
+        for (Long userId : missing) {
+            counts.putIfAbsent(userId, loaded.getOrDefault(userId, new Counts()));
+        }
+    }
+
+    private static void addRow(Map<Long, Counts> target, Long userId, String priority, int unread) {
+        Counts userCounts = target.computeIfAbsent(userId, id -> new Counts());
+        userCounts.add(priority != null ? NotificationPriority.valueOf(priority) : NotificationPriority.MEDIUM, unread);
+    }
+
+    private static final class Counts {
+        private final AtomicInteger unread = new AtomicInteger();
+        private final AtomicInteger critical = new AtomicInteger();
+        private final AtomicInteger high = new AtomicInteger();
+        // Bumped by every delta so reconciliation can tell whether the counters moved since it read them
+        private long version;
+
+        synchronized void add(NotificationPriority priority, int delta) {
+            unread.addAndGet(delta);
+            if (priority == NotificationPriority.CRITICAL) {
+                critical.addAndGet(delta);
+            } else if (priority == NotificationPriority.HIGH) {
+                high.addAndGet(delta);
+            }
+            version++;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        /**
+         * Overwrite the counters with a recount, unless a delta was applied since {@code expectedVersion}
+         *
+         * @return true when the counters were overwritten and any of them differed
+         */
+        synchronized boolean copyFromIfUnchanged(Counts other, long expectedVersion) {
+            if (version != expectedVersion) {
+                return false;
+            }
+            boolean changed = unread.getAndSet(other.unread.get()) != other.unread.get();
+            changed |= critical.getAndSet(other.critical.get()) != other.critical.get();
+            changed |= high.getAndSet(other.high.get()) != other.high.get();
+            return changed;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(unread.get(), critical.get(), high.get());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.medicorex.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medicorex.dto.NotificationDTO;
+import com.medicorex.entity.Notification.NotificationCategory;
+import com.medicorex.entity.Notification.NotificationPriority;
+import com.medicorex.entity.Notification.NotificationStatus;
+import com.medicorex.entity.User;
+import com.medicorex.util.TransactionCallbacks;
+import com.medicorex.websocket.service.WebSocketNotificationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers one rendered notification to many recipients as a pipeline:
+ * recipients are filtered through the preference cache (missing users are loaded with one query),
+ * the notifications are persisted with a single JDBC batch insert, {@link NotificationCounters} take the
+ * unread deltas, and WebSocket delivery is handed to the async executor once the transaction commits.
+ */
+@Slf4j
+@Component
+public class NotificationFanOutService {
+
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO notifications (user_id, type, category, title, message, priority, status, action_url, " +
+            "action_data, created_at, expires_at, preference_checked) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationCounters counters;
+    private final NotificationPreferenceCache preferenceCache;
+    private final ObjectMapper objectMapper;
+    private final Executor deliveryExecutor;
+
+    @Autowired(required = false)
+    private WebSocketNotificationService webSocketService;
+
+    public NotificationFanOutService(JdbcTemplate jdbcTemplate,
+                                     NotificationCounters counters,
+                                     NotificationPreferenceCache preferenceCache,
+                                     ObjectMapper objectMapper,
+                                     @Qualifier("taskExecutor") Executor deliveryExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counters = counters;
+        this.preferenceCache = preferenceCache;
+        this.objectMapper = objectMapper;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Rendered notification shared by every recipient of a fan-out
+     */
+    public record Message(String type, NotificationCategory category, NotificationPriority priority,
+                          String title, String message, String actionUrl, Map<String, Object> actionData,
+                          LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Persist the message for every recipient whose preferences allow it
+     *
+     * @return number of notifications created
+     */
+    public int fanOut(Collection<User> recipients, Message message) {
+        if (recipients.isEmpty()) {
+            return 0;
+        }
+
+        List<User> accepted = filterByPreferences(recipients, message);
+        if (accepted.isEmpty()) {
+            log.debug("All {} recipient(s) of {} blocked by preferences", recipients.size(), message.type());
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = insertNotifications(accepted, message, now);
+
+        List<Long> userIds = new ArrayList<>(accepted.size());
+        accepted.forEach(user -> userIds.add(user.getId()));
+        counters.created(userIds, message.priority());
+
+        if (webSocketService != null) {
+            List<NotificationDTO> dtos = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                dtos.add(toDTO(ids.get(i), accepted.get(i), message, now));
+            }
+            // Registered after the counter deltas, so the counts read here already include this fan-out
+            TransactionCallbacks.afterCommit(() -> deliveryExecutor.execute(() -> {
+                Map<Long, Integer> unreadCounts = counters.getUnreadCounts(userIds);
+                for (int i = 0; i < accepted.size(); i++) {
+                    User user = accepted.get(i);
+                    webSocketService.sendNotificationToUser(user.getUsername(), dtos.get(i),
+                            unreadCounts.get(user.getId()));
+                }
+            }));
+        }
+
+        log.debug("Fanned out {} to {} of {} recipient(s)", message.type(), accepted.size(), recipients.size());
+        return accepted.size();
+    }
+
+    private List<User> filterByPreferences(Collection<User> recipients, Message message) {
+        Map<Long, User> byId = new LinkedHashMap<>();
+        recipients.forEach(user -> byId.putIfAbsent(user.getId(), user));
+
+        preferenceCache.preload(byId.keySet());
+
+        long nanoOfDay = LocalTime.now().toNanoOfDay();
+        String category = message.category().name();
+        List<User> accepted = new ArrayList<>(byId.size());
+        for (User user : byId.values()) {
+            if (preferenceCache.shouldSend(user.getId(), category, message.priority(), nanoOfDay)) {
+                accepted.add(user);
+            }
+        }
+        return accepted;
+    }
+
+    private List<Long> insertNotifications(List<User> recipients, Message message, LocalDateTime now) {
+        String actionData = toJson(message.actionData());
+        Timestamp createdAt = Timestamp.valueOf(now);
+        Timestamp expiresAt = message.expiresAt() != null ? Timestamp.valueOf(message.expiresAt()) : null;
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_NOTIFICATION_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, recipients.get(i).getId());
+                        ps.setString(2, message.type());
+                        ps.setString(3, message.category().name());
+                        ps.setString(4, message.title());
+                        ps.setString(5, message.message());
+                        ps.setString(6, message.priority().name());
+                        ps.setString(7, NotificationStatus.UNREAD.name());
+                        ps.setString(8, message.actionUrl());
+                        ps.setString(9, actionData);
+                        ps.setTimestamp(10, createdAt);
+                        ps.setTimestamp(11, expiresAt);
+                        ps.setBoolean(12, true);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return recipients.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(recipients.size());
+        for (Map<String, Object> key : keyHolder.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    private String toJson(Map<String, Object> actionData) {
+        if (actionData == null || actionData.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(actionData);
+        } catch (JsonProcessingException e) {
+            log.error("Error converting action data to JSON", e);
+            return null;
+        }
+    }
+
+    private NotificationDTO toDTO(Long id, User user, Message message, LocalDateTime createdAt) {
+        return NotificationDTO.builder()
+                .id(id)
+                .userId(user.getId())
+                .username(user.getUsername())
+                .type(message.type())
+                .category(message.category())
+                .title(message.title())
+                .message(message.message())
+                .priority(message.priority())
+                .status(NotificationStatus.UNREAD)
+                .actionUrl(message.actionUrl())
+                .actionData(message.actionData())
+                .createdAt(createdAt)
+                .expiresAt(message.expiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.medicorex.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly RANGE COLUMNS(created_at) partitions of the notifications table (V13).
+ * V13 only leaves the catch-all p_future; the first maintenance run splits it into one pYYYYMM partition
+ * per month from the oldest notification onwards, and later runs split upcoming months off ahead of time.
+ * <p>
+ * Retention policy: monthly partitions that end on or before {@link #retentionHorizon()}
+ * ({@code notification.partitions.retain-months}) are dropped whole by the nightly retention run, and
+ * that drop is the only place the policy is enforced. Reads are bounded by {@link #retainedSince()}, the
+ * start of the oldest partition that still exists, so a notification stays visible in the inbox, counts
+ * and summaries until its partition is actually dropped.
+ * When the table is not partitioned (V13 not applied yet) maintenance is skipped and reads are unbounded.
+ */
+@Slf4j
+@Component
+public class NotificationPartitionManager {
+
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'notifications' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private static final String OLDEST_NOTIFICATION_SQL = "SELECT MIN(created_at) FROM notifications";
+
+    private static final String COUNT_PARTITION_SQL = "SELECT COUNT(*) FROM notifications PARTITION (%s)";
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String ARCHIVE_PARTITION_SQL =
+            "INSERT INTO notifications_archive (id, user_id, type, category, title, message, priority, status, " +
+            "action_url, action_data, created_at, read_at, expires_at, archived_at, retention_rule) " +
+            "SELECT id, user_id, type, category, title, message, priority, status, action_url, action_data, " +
+            "created_at, read_at, expires_at, NOW(), 'PARTITION_DROP' FROM notifications PARTITION (%s)";
+
+    // Reads on an unpartitioned table (or before the first split) are not bounded
+    private static final LocalDateTime UNBOUNDED = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile LocalDateTime retainedSince = UNBOUNDED;
+
+    @Value("${notification.partitions.retain-months:12}")
+    private int retainMonths;
+
+    @Value("${notification.partitions.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${notification.retention.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    public NotificationPartitionManager(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private record Partition(String name, LocalDate upperBound) {
+    }
+
+    /**
+     * Rows removed by dropping partitions
+     */
+    public record DropResult(long rowsDeleted, long rowsArchived) {
+    }
+
+    /**
+     * Lower created_at bound of every notification read: the first day of the oldest monthly partition
+     * that still exists. Nothing older is stored, since created_at is set on insert and the oldest
+     * partition starts at the month of the oldest notification when the table is first split.
+     */
+    public LocalDateTime retainedSince() {
+        return retainedSince;
+    }
+
+    /**
+     * Monthly partitions ending on or before this date are dropped by {@link #dropExpiredPartitions()}
+     */
+    public LocalDate retentionHorizon() {
+        return YearMonth.now().minusMonths(retainMonths).atDay(1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensureFuturePartitions();
+        } catch (Exception e) {
+            // retainedSince() stays unbounded, which hides nothing
+            log.error("Failed to prepare notification partitions on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Split p_future so that every month up to {@code premake-months} ahead has its own partition.
+     * On the first run after V13 the split starts at the month of the oldest notification, which
+     * moves the existing rows out of p_future once.
+     */
+    public synchronized void ensureFuturePartitions() {
+        List<Partition> partitions = listPartitions();
+        if (partitions.isEmpty()) {
+            log.debug("notifications table is not partitioned; skipping partition maintenance");
+            refreshRetainedSince(partitions);
+            return;
+        }
+
+        LocalDate lastBound = null;
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null) {
+                lastBound = partition.upperBound();
+            }
+        }
+        YearMonth next = lastBound != null ? YearMonth.from(lastBound) : oldestNotificationMonth();
+        YearMonth until = YearMonth.now().plusMonths(premakeMonths);
+        if (next.isAfter(until)) {
+            refreshRetainedSince(partitions);
+            return;
+        }
+
+        StringBuilder definitions = new StringBuilder();
+        List<String> created = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(until); month = month.plusMonths(1)) {
+            String name = month.atDay(1).format(PARTITION_NAME);
+            definitions.append("PARTITION ").append(name)
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+            created.add(name);
+        }
+        definitions.append("PARTITION ").append(FUTURE_PARTITION).append(" VALUES LESS THAN (MAXVALUE)");
+
+        jdbcTemplate.execute("ALTER TABLE notifications REORGANIZE PARTITION " + FUTURE_PARTITION +
+                " INTO (" + definitions + ")");
+        log.info("Created notification partitions {}", created);
+        refreshRetainedSince(listPartitions());
+    }
+
+    /**
+     * Drop every monthly partition that ends on or before {@link #retentionHorizon()}.
+     * Callers must reconcile the unread counters afterwards, since the dropped rows may include unread ones.
+     *
+     * @return rows counted in the dropped partitions, and rows copied to notifications_archive
+     */
+    public synchronized DropResult dropExpiredPartitions() {
+        LocalDate horizon = retentionHorizon();
+        List<Partition> partitions = listPartitions();
+        List<Partition> expired = new ArrayList<>();
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(horizon)) {
+                expired.add(partition);
+            }
+        }
+        if (expired.isEmpty()) {
+            refreshRetainedSince(partitions);
+            return new DropResult(0, 0);
+        }
+
+        long deleted = 0;
+        long archived = 0;
+        for (Partition partition : expired) {
+            // Rows are only ever inserted with created_at = now, so nothing lands in the partition after the count
+            Long rows = jdbcTemplate.queryForObject(String.format(COUNT_PARTITION_SQL, partition.name()), Long.class);
+            if (archiveEnabled) {
+                int copied = jdbcTemplate.update(String.format(ARCHIVE_PARTITION_SQL, partition.name()));
+                archived += copied;
+                log.info("Archived {} notification(s) from partition {}", copied, partition.name());
+            }
+            // Metadata-only operation: no row locks, no undo, regardless of partition size
+            jdbcTemplate.execute("ALTER TABLE notifications DROP PARTITION " + partition.name());
+            deleted += rows != null ? rows : 0;
+            log.info("Dropped notification partition {} ({} rows)", partition.name(), rows);
+        }
+
+        refreshRetainedSince(listPartitions());
+        return new DropResult(deleted, archived);
+    }
+
+    public boolean isPartitioned() {
+        return !listPartitions().isEmpty();
+    }
+
+    private List<Partition> listPartitions() {
+        return jdbcTemplate.query(LIST_PARTITIONS_SQL, (rs, rowNum) -> new Partition(
+                rs.getString("PARTITION_NAME"),
+                parseBound(rs.getString("PARTITION_DESCRIPTION"))));
+    }
+
+    private YearMonth oldestNotificationMonth() {
+        LocalDateTime oldest = jdbcTemplate.queryForObject(OLDEST_NOTIFICATION_SQL, LocalDateTime.class);
+        return oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+    }
+
+    /**
+     * The oldest monthly partition holds everything below its upper bound, which is only its own month
+     * because the partitions were created from the oldest row's month onwards
+     */
+    private void refreshRetainedSince(List<Partition> partitions) {
+        LocalDateTime since = UNBOUNDED;
+        if (!partitions.isEmpty() && partitions.get(0).upperBound() != null) {
+            since = YearMonth.from(partitions.get(0).upperBound()).minusMonths(1).atDay(1).atStartOfDay();
+        }
+        if (!since.equals(retainedSince)) {
+            log.info("Notification reads now bounded by created_at >= {}", since);
+        }
+        retainedSince = since;
+    }
+
+    private static LocalDate parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        // e.g. '2026-11-01' or '2026-11-01 00:00:00'
+        String value = description.replace("'", "").trim();
+        return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+    }
+}
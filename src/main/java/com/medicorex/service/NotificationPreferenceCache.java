@@ -0,0 +1,193 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.Notification.NotificationCategory;
+import com.medicorex.entity.Notification.NotificationPriority;
+import com.medicorex.entity.NotificationPreference;
+import com.medicorex.repository.NotificationPreferenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-user notification preferences compiled to a category/priority bitmask and a quiet-hours range,
+ * so the send check is a map lookup plus a few comparisons with no JSON or entity access.
+ * Entries are loaded lazily (or in bulk for fan-out) and written through by {@link NotificationPreferenceListener}
+ * once a preference write commits. Users without preferences are cached as "send everything".
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationPreferenceCache {
+
+    private static final Map<String, NotificationCategory> CATEGORIES_BY_NAME;
+
+    static {
+        Map<String, NotificationCategory> byName = new HashMap<>();
+        for (NotificationCategory category : NotificationCategory.values()) {
+            byName.put(category.name(), category);
+        }
+        CATEGORIES_BY_NAME = Map.copyOf(byName);
+    }
+
+    private final NotificationPreferenceRepository preferenceRepository;
+
+    private final ConcurrentMap<Long, CompiledPreference> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Whether a notification of the given category and priority may be sent to the user at the given time of day
+     */
+    public boolean shouldSend(Long userId, String category, NotificationPriority priority, long nanoOfDay) {
+        CompiledPreference preference = cache.get(userId);
+        if (preference == null) {
+            preference = load(userId);
+        }
+        return preference.allows(category, priority, nanoOfDay);
+    }
+
+    /**
+     * Load the preferences of every user not cached yet with a single query
+     */
+    public void preload(Collection<Long> userIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (!cache.containsKey(userId)) {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<Long, CompiledPreference> loaded = new HashMap<>();
+        for (NotificationPreference preference : preferenceRepository.findByUserIdIn(missing)) {
+            loaded.put(preference.getUser().getId(), CompiledPreference.compile(preference));
+        }
+        for (Long userId : missing) {
+            cache.putIfAbsent(userId, loaded.getOrDefault(userId, CompiledPreference.ALLOW_ALL));
+        }
+        log.debug("Loaded notification preferences for {} user(s)", missing.size());
+    }
+
+    /**
+     * Replace the cached entry with a freshly written preference
+     */
+    public void put(Long userId, CompiledPreference preference) {
+        cache.put(userId, preference);
+    }
+
+    public void invalidate(Long userId) {
+        cache.remove(userId);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private CompiledPreference load(Long userId) {
+        CompiledPreference compiled = preferenceRepository.findByUserId(userId)
+                .map(CompiledPreference::compile)
+                .orElse(CompiledPreference.ALLOW_ALL);
+        // A write that committed while we were reading has already put the newer entry
+        CompiledPreference existing = cache.putIfAbsent(userId, compiled);
+        return existing != null ? existing : compiled;
+    }
+
+    /**
+     * Immutable send decision table derived from a {@link NotificationPreference}
+     */
+    public static final class CompiledPreference {
+
+        static final CompiledPreference ALLOW_ALL = new CompiledPreference(
+                (1 << NotificationCategory.values().length) - 1, true,
+                (1 << NotificationPriority.values().length) - 1, false, 0, 0);
+
+        // Bit per NotificationCategory / NotificationPriority ordinal that may be sent
+        private final int categoryMask;
+        // Category names outside the enum; only disabled when in-app or all category settings are off
+        private final boolean otherCategoriesEnabled;
+        private final int priorityMask;
+        private final boolean quietHoursEnabled;
+        private final long quietStartNanos;
+        private final long quietEndNanos;
+
+        private CompiledPreference(int categoryMask, boolean otherCategoriesEnabled, int priorityMask,
+                                   boolean quietHoursEnabled, long quietStartNanos, long quietEndNanos) {
+            this.categoryMask = categoryMask;
+            this.otherCategoriesEnabled = otherCategoriesEnabled;
+            this.priorityMask = priorityMask;
+            this.quietHoursEnabled = quietHoursEnabled;
+            this.quietStartNanos = quietStartNanos;
+            this.quietEndNanos = quietEndNanos;
+        }
+
+        /**
+         * Mirrors {@link NotificationPreference#shouldSendNotification}
+         */
+        public static CompiledPreference compile(NotificationPreference preference) {
+            boolean inApp = Boolean.TRUE.equals(preference.getInAppEnabled());
+            Map<String, Boolean> categories = preference.getCategoryPreferences();
+
+            int categoryMask = 0;
+            if (inApp && categories != null) {
+                for (NotificationCategory category : NotificationCategory.values()) {
+                    if (categories.getOrDefault(category.name(), true)) {
+                        categoryMask |= 1 << category.ordinal();
+                    }
+                }
+            }
+
+            int priorityMask = 0;
+            NotificationPriority threshold = preference.getPriorityThreshold();
+            for (NotificationPriority priority : NotificationPriority.values()) {
+                if (threshold == null || priority.ordinal() >= threshold.ordinal()) {
+                    priorityMask |= 1 << priority.ordinal();
+                }
+            }
+
+            boolean quietEnabled = false;
+            long start = 0;
+            long end = 0;
+            NotificationPreference.QuietHours quietHours = preference.getQuietHours();
+            if (quietHours != null && Boolean.TRUE.equals(quietHours.getEnabled())) {
+                try {
+                    start = LocalTime.parse(quietHours.getStartTime()).toNanoOfDay();
+                    end = LocalTime.parse(quietHours.getEndTime()).toNanoOfDay();
+                    quietEnabled = true;
+                } catch (Exception e) {
+                    // Unparseable quiet hours never block, as in NotificationPreference.isInQuietHours
+                }
+            }
+
+            return new CompiledPreference(categoryMask, inApp && categories != null, priorityMask,
+                    quietEnabled, start, end);
+        }
+
+        public boolean allows(String category, NotificationPriority priority, long nanoOfDay) {
+            NotificationCategory known = CATEGORIES_BY_NAME.get(category);
+            boolean categoryEnabled = known != null
+                    ? (categoryMask & (1 << known.ordinal())) != 0
+                    : otherCategoriesEnabled;
+            if (!categoryEnabled || (priorityMask & (1 << priority.ordinal())) == 0) {
+                return false;
+            }
+            // Quiet hours never hold back CRITICAL notifications
+            return priority == NotificationPriority.CRITICAL || !inQuietHours(nanoOfDay);
+        }
+
+        private boolean inQuietHours(long nanoOfDay) {
+            if (!quietHoursEnabled) {
+                return false;
+            }
+            // Overnight range, e.g. 22:00 to 07:00
+            if (quietStartNanos > quietEndNanos) {
+                return nanoOfDay > quietStartNanos || nanoOfDay < quietEndNanos;
+            }
+            return nanoOfDay > quietStartNanos && nanoOfDay < quietEndNanos;
+        }
+    }
+}
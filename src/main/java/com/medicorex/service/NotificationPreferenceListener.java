@@ -0,0 +1,37 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.NotificationPreference;
+import com.medicorex.util.TransactionCallbacks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener that writes a compiled NotificationPreference through to the {@link NotificationPreferenceCache}
+ * once the write commits
+ */
+@Component
+public class NotificationPreferenceListener {
+
+    @Autowired
+    @Lazy // Listener is created while the EntityManagerFactory the cache's repository needs is built
+    private NotificationPreferenceCache cache;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(NotificationPreference preference) {
+        Long userId = preference.getUser().getId();
+        NotificationPreferenceCache.CompiledPreference compiled =
+                NotificationPreferenceCache.CompiledPreference.compile(preference);
+        TransactionCallbacks.afterCommit(() -> cache.put(userId, compiled));
+    }
+
+    @PostRemove
+    public void onRemove(NotificationPreference preference) {
+        Long userId = preference.getUser().getId();
+        TransactionCallbacks.afterCommit(() -> cache.invalidate(userId));
+    }
+}
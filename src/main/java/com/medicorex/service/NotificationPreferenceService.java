@@ -15,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -29,6 +30,8 @@ public class NotificationPreferenceService {
     private final NotificationPreferenceRepository preferenceRepository;
     private final UserRepository userRepository;
     private final NotificationRepository notificationRepository;
+    private final NotificationPreferenceCache preferenceCache;
+    private final NotificationPartitionManager partitionManager;
 
     /**
      * Get preferences for a user (create default if not exists)
@@ -146,20 +149,12 @@ public class NotificationPreferenceService {
     }
 
     /**
-     * Check if a notification should be sent based on user preferences
+     * Check if a notification should be sent based on user preferences.
+     * Served from {@link NotificationPreferenceCache}; users without preferences receive everything.
      */
     public boolean shouldSendNotification(Long userId, String category,
                                           Notification.NotificationPriority priority) {
-        NotificationPreference preferences = preferenceRepository.findByUserId(userId)
-                .orElse(null);
-
-        if (preferences == null) {
-            // No preferences set, default to sending
-            return true;
-        }
-
-        LocalTime currentTime = LocalTime.now();
-        boolean shouldSend = preferences.shouldSendNotification(category, priority, currentTime);
+        boolean shouldSend = preferenceCache.shouldSend(userId, category, priority, LocalTime.now().toNanoOfDay());
 
         log.debug("Notification check for user {}: category={}, priority={}, shouldSend={}",
                 userId, category, priority, shouldSend);
@@ -175,6 +170,7 @@ public class NotificationPreferenceService {
                 .orElseGet(() -> createDefaultPreferences(userId));
 
         List<NotificationCategoryStatusDTO> statusList = new ArrayList<>();
+        LocalDateTime since = partitionManager.retainedSince();
 
         // Define all categories with descriptions
         Map<String, String> categoryDescriptions = new HashMap<>();
@@ -195,7 +191,8 @@ public class NotificationPreferenceService {
             Long unreadCount = notificationRepository.countByUserIdAndStatusAndCategory(
                     userId,
                     Notification.NotificationStatus.UNREAD,
-                    Notification.NotificationCategory.valueOf(category)
+                    Notification.NotificationCategory.valueOf(category),
+                    since
             );
 
             NotificationCategoryStatusDTO status = NotificationCategoryStatusDTO.builder()
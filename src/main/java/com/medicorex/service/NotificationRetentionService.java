@@ -0,0 +1,255 @@
+package com.medicorex.service;
+
+import com.medicorex.dto.NotificationRetentionRunDTO;
+import com.medicorex.entity.Notification.NotificationPriority;
+import com.medicorex.entity.Notification.NotificationStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes old notifications. Everything older than the partition retention horizon goes with whole
+ * monthly partitions ({@link NotificationPartitionManager}); the status-based rules inside the retained
+ * months delete in bounded chunks instead of one long-running delete.
+ * Each chunk locks at most {@code notification.retention.chunk-size} rows found through the
+ * status/expires_at/read_at indexes, optionally copies them to notifications_archive, deletes them by
+ * primary key and commits, then pauses so OLTP traffic is not starved. Unread rows that are removed are
+ * taken off the in-memory unread counters.
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, user_id, priority, status FROM notifications WHERE %s LIMIT :limit FOR UPDATE";
+
+    private static final String ARCHIVE_SQL =
+            "INSERT INTO notifications_archive (id, user_id, type, category, title, message, priority, status, " +
+            "action_url, action_data, created_at, read_at, expires_at, archived_at, retention_rule) " +
+            "SELECT id, user_id, type, category, title, message, priority, status, action_url, action_data, " +
+            "created_at, read_at, expires_at, NOW(), :rule FROM notifications WHERE id IN (:ids)";
+
+    private static final String DELETE_SQL = "DELETE FROM notifications WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NotificationCounters counters;
+    private final NotificationPartitionManager partitionManager;
+    private final TransactionTemplate chunkTransaction;
+
+    @Value("${notification.cleanup.archive.days:90}")
+    private int archiveDays;
+
+    @Value("${notification.cleanup.expired.days:30}")
+    private int readDays;
+
+    @Value("${notification.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${notification.retention.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${notification.retention.max-runtime-minutes:60}")
+    private long maxRuntimeMinutes;
+
+    @Value("${notification.retention.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    public NotificationRetentionService(NamedParameterJdbcTemplate jdbcTemplate,
+                                        NotificationCounters counters,
+                                        NotificationPartitionManager partitionManager,
+                                        PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counters = counters;
+        this.partitionManager = partitionManager;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    private record Rule(String name, String predicate, Map<String, Object> params) {
+    }
+
+    private record ChunkResult(int deleted, int archived) {
+    }
+
+    /**
+     * Apply every retention rule, each until nothing matches or the run exceeds its time budget
+     */
+    public NotificationRetentionRunDTO runRetention() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Rule> rules = List.of(
+                new Rule("ARCHIVED_OLDER_THAN_" + archiveDays + "_DAYS",
+                        "status = 'ARCHIVED' AND created_at < :cutoff",
+                        Map.of("cutoff", Timestamp.valueOf(now.minusDays(archiveDays)))),
+                new Rule("EXPIRED",
+                        "expires_at < :cutoff AND status <> 'ARCHIVED'",
+                        Map.of("cutoff", Timestamp.valueOf(now))),
+                new Rule("READ_OLDER_THAN_" + readDays + "_DAYS",
+                        "status = 'READ' AND read_at < :cutoff",
+                        Map.of("cutoff", Timestamp.valueOf(now.minusDays(readDays)))));
+
+        long start = System.currentTimeMillis();
+        long deadline = start + maxRuntimeMinutes * 60_000L;
+
+        List<NotificationRetentionRunDTO.RuleResult> results = new ArrayList<>();
+        long deleted = 0;
+        long archived = 0;
+        NotificationRetentionRunDTO.RuleResult partitions = dropPartitions();
+        if (partitions != null) {
+            results.add(partitions);
+            deleted += partitions.getRowsDeleted();
+            archived += partitions.getRowsArchived();
+        }
+        for (Rule rule : rules) {
+            NotificationRetentionRunDTO.RuleResult result = apply(rule, deadline);
+            results.add(result);
+            deleted += result.getRowsDeleted();
+            archived += result.getRowsArchived();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        return NotificationRetentionRunDTO.builder()
+                .rowsDeleted(deleted)
+                .rowsArchived(archived)
+                .executionTimeMs(elapsed)
+                .rowsPerSecond(rate(deleted, elapsed))
+                .rules(results)
+                .build();
+    }
+
+    /**
+     * Partition maintenance; a DDL failure (lock timeout, missing privilege) is logged and reported as an
+     * incomplete rule so the row-based rules still run
+     *
+     * @return null when the table is not partitioned
+     */
+    private NotificationRetentionRunDTO.RuleResult dropPartitions() {
+        long start = System.currentTimeMillis();
+        NotificationPartitionManager.DropResult dropped = new NotificationPartitionManager.DropResult(0, 0);
+        boolean completed = true;
+        try {
+            if (!partitionManager.isPartitioned()) {
+                return null;
+            }
+            partitionManager.ensureFuturePartitions();
+        } catch (Exception e) {
+            completed = false;
+            log.error("Failed to create upcoming notification partitions: {}", e.getMessage());
+        }
+        try {
+            dropped = partitionManager.dropExpiredPartitions();
+        } catch (Exception e) {
+            completed = false;
+            log.error("Failed to drop expired notification partitions: {}", e.getMessage());
+        }
+        if (dropped.rowsDeleted() > 0) {
+            // Dropped partitions may have held unread rows the cached counters still include
+            counters.reconcile();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        return NotificationRetentionRunDTO.RuleResult.builder()
+                .rule("PARTITIONS_BEFORE_" + partitionManager.retentionHorizon())
+                .rowsDeleted(dropped.rowsDeleted())
+                .rowsArchived(dropped.rowsArchived())
+                .chunks(0)
+                .executionTimeMs(elapsed)
+                .rowsPerSecond(rate(dropped.rowsDeleted(), elapsed))
+                .completed(completed)
+                .build();
+    }
+
+    private NotificationRetentionRunDTO.RuleResult apply(Rule rule, long deadline) {
+        long start = System.currentTimeMillis();
+        long deleted = 0;
+        long archived = 0;
+        int chunks = 0;
+        boolean completed = false;
+
+        while (System.currentTimeMillis() < deadline) {
+            ChunkResult chunk = chunkTransaction.execute(status -> deleteChunk(rule));
+            if (chunk.deleted() > 0) {
+                chunks++;
+                deleted += chunk.deleted();
+                archived += chunk.archived();
+            }
+            if (chunk.deleted() < chunkSize) {
+                completed = true;
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        if (!completed) {
+            log.warn("Notification retention rule {} stopped before finishing after {} ms", rule.name(), elapsed);
+        }
+        log.info("Notification retention {}: deleted {} row(s) ({} archived) in {} chunk(s), {} ms, {} rows/s",
+                rule.name(), deleted, archived, chunks, elapsed, String.format("%.1f", rate(deleted, elapsed)));
+
+        return NotificationRetentionRunDTO.RuleResult.builder()
+                .rule(rule.name())
+                .rowsDeleted(deleted)
+                .rowsArchived(archived)
+                .chunks(chunks)
+                .executionTimeMs(elapsed)
+                .rowsPerSecond(rate(deleted, elapsed))
+                .completed(completed)
+                .build();
+    }
+
+    private ChunkResult deleteChunk(Rule rule) {
+        Map<String, Object> params = new HashMap<>(rule.params());
+        params.put("limit", chunkSize);
+
+        List<Long> ids = new ArrayList<>();
+        jdbcTemplate.query(String.format(SELECT_CHUNK_SQL, rule.predicate()), params, rs -> {
+            long id = rs.getLong("id");
+            ids.add(id);
+            NotificationStatus status = NotificationStatus.valueOf(rs.getString("status"));
+            if (status == NotificationStatus.UNREAD) {
+                String priority = rs.getString("priority");
+                counters.deleted(rs.getLong("user_id"),
+                        priority != null ? NotificationPriority.valueOf(priority) : NotificationPriority.MEDIUM,
+                        status);
+            }
+        });
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+
+        int archived = 0;
+        if (archiveEnabled) {
+            archived = jdbcTemplate.update(ARCHIVE_SQL, Map.of("ids", ids, "rule", rule.name()));
+        }
+        int deleted = jdbcTemplate.update(DELETE_SQL, Map.of("ids", ids));
+        return new ChunkResult(deleted, archived);
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static double rate(long rows, long elapsedMs) {
+        return elapsedMs > 0 ? rows * 1000.0 / elapsedMs : rows;
+    }
+}
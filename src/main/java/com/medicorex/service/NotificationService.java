@@ -13,16 +13,16 @@ import com.medicorex.entity.Product;
 import com.medicorex.entity.ProductBatch;
 import com.medicorex.exception.ResourceNotFoundException;
 import com.medicorex.repository.NotificationRepository;
-import com.medicorex.repository.NotificationTemplateRepository;
 import com.medicorex.repository.UserRepository;
 import com.medicorex.service.NotificationPreferenceService;
+import com.medicorex.util.TransactionCallbacks;
 import com.medicorex.websocket.service.WebSocketNotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -33,6 +33,8 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -42,9 +44,13 @@ import java.util.stream.Collectors;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
-    private final NotificationTemplateRepository templateRepository;
+    private final NotificationTemplateRegistry templateRegistry;
     private final UserRepository userRepository;
     private final NotificationPreferenceService preferenceService;
+    private final NotificationFanOutService fanOutService;
+    private final NotificationTemplateCompiler templateCompiler;
+    private final NotificationCounters counters;
+    private final NotificationPartitionManager partitionManager;
 
     @Autowired
     @Lazy // Use lazy loading to avoid circular dependency
@@ -53,6 +59,11 @@ public class NotificationService {
     @Autowired(required = false)
     private WebSocketNotificationService webSocketService;
 
+    @Value("${notification.summary.cache.ttl-seconds:10}")
+    private long summaryCacheTtlSeconds;
+
+    private final ConcurrentMap<Long, CachedSummary> summaryCache = new ConcurrentHashMap<>();
+
     /**
      * Create notification with preference checking
      */
@@ -94,35 +105,31 @@ public class NotificationService {
 
         Notification savedNotification = notificationRepository.save(notification);
         NotificationDTO notificationDTO = convertToDTO(savedNotification);
+        counters.created(user.getId(), savedNotification.getPriority());
 
-        // FIX: Always send updated count via WebSocket
+        // FIX: Always send updated count via WebSocket (once committed, so the counter includes this one)
         if (webSocketService != null) {
-            try {
-                User recipient = userRepository.findById(createDTO.getUserId()).orElse(null);
-                if (recipient != null) {
-                    // Get the actual unread count from database
-                    Integer unreadCount = notificationRepository.countByUserIdAndStatus(
-                            recipient.getId(),
-                            NotificationStatus.UNREAD
-                    ).intValue();
+            TransactionCallbacks.afterCommit(() -> {
+                try {
+                    int unreadCount = counters.getUnreadCount(user.getId());
 
                     // Send notification with correct unread count
                     webSocketService.sendNotificationToUser(
-                            recipient.getUsername(),
+                            user.getUsername(),
                             notificationDTO,
                             unreadCount
                     );
 
                     // Also send a separate count update message
-                    webSocketService.sendCountUpdate(recipient.getUsername(), unreadCount);
+                    webSocketService.sendCountUpdate(user.getUsername(), unreadCount);
 
                     log.debug("Sent notification via WebSocket to user: {} with unread count: {}",
-                            recipient.getUsername(), unreadCount);
+                            user.getUsername(), unreadCount);
+                } catch (Exception e) {
+                    log.error("Failed to send WebSocket notification: {}", e.getMessage());
+                    // Don't fail the notification creation if WebSocket fails
                 }
-            } catch (Exception e) {
-                log.error("Failed to send WebSocket notification: {}", e.getMessage());
-                // Don't fail the notification creation if WebSocket fails
-            }
+            });
         }
 
         log.info("Created notification for user {}: {}", user.getUsername(), notification.getTitle());
@@ -142,15 +149,15 @@ public class NotificationService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
 
-        NotificationTemplate template = templateRepository.findByCodeAndActive(templateCode, true)
+        NotificationTemplate template = templateRegistry.find(templateCode)
                 .orElseThrow(() -> new ResourceNotFoundException("Template", "code", templateCode));
 
         Notification notification = Notification.builder()
                 .user(user)
                 .type(templateCode)
                 .category(NotificationCategory.valueOf(template.getCategory()))
-                .title(template.processTitle(params))
-                .message(template.processMessage(params))
+                .title(templateCompiler.renderTitle(template, params))
+                .message(templateCompiler.renderMessage(template, params))
                 .priority(template.getPriority())
                 .status(NotificationStatus.UNREAD)
                 .actionUrl(generateActionUrl(templateCode, actionData))
@@ -166,7 +173,7 @@ public class NotificationService {
         Notification saved = notificationRepository.save(notification);
 
         // Update user's unread count
-        updateUserUnreadCount(userId);
+        counters.created(userId, saved.getPriority());
 
         log.info("Created notification for user {} from template {}", userId, templateCode);
 
@@ -210,7 +217,7 @@ public class NotificationService {
                 .build();
 
         Notification saved = notificationRepository.save(notification);
-        updateUserUnreadCount(createDTO.getUserId());
+        counters.created(createDTO.getUserId(), saved.getPriority());
 
         log.info("Created notification for user {}: {}", user.getUsername(), notification.getTitle());
 
@@ -253,7 +260,7 @@ public class NotificationService {
 
         List<User> users = userRepository.findByRoleIn(roles);
 
-        NotificationTemplate template = templateRepository.findByCodeAndActive(templateCode, true)
+        NotificationTemplate template = templateRegistry.find(templateCode)
                 .orElse(null);
 
         if (template == null) {
@@ -261,45 +268,7 @@ public class NotificationService {
             return;
         }
 
-        NotificationCategory category = determineCategory(templateCode);
-        NotificationPriority priority = template.getPriority();
-
-        for (User user : users) {
-            // Check preferences before creating notification
-            boolean shouldSend = preferenceService.shouldSendNotification(
-                    user.getId(),
-                    category.toString(),
-                    priority
-            );
-
-            if (!shouldSend) {
-                log.debug("Notification blocked by preferences for user: {}", user.getUsername());
-                continue;
-            }
-
-            // Create notification if preferences allow
-            try {
-                String title = processTemplate(template.getTitleTemplate(), params);
-                String message = processTemplate(template.getMessageTemplate(), params);
-
-                NotificationCreateDTO createDTO = NotificationCreateDTO.builder()
-                        .userId(user.getId())
-                        .type(templateCode)
-                        .category(category)
-                        .title(title)
-                        .message(message)
-                        .priority(priority)
-                        .actionUrl(generateActionUrl(templateCode, actionData))
-                        .actionData(actionData)
-                        .build();
-
-                createCustomNotification(createDTO);
-                log.debug("Notification created for user: {}", user.getUsername());
-            } catch (Exception e) {
-                log.error("Failed to create notification for user {}: {}",
-                        user.getUsername(), e.getMessage());
-            }
-        }
+        fanOut(users, template, templateCode, params, actionData);
     }
 
     /**
@@ -317,7 +286,7 @@ public class NotificationService {
 
         List<User> users = userRepository.findByRoleIn(roles);
 
-        NotificationTemplate template = templateRepository.findByCodeAndActive(templateCode, true)
+        NotificationTemplate template = templateRegistry.find(templateCode)
                 .orElse(null);
 
         if (template == null) {
@@ -325,73 +294,32 @@ public class NotificationService {
             return;
         }
 
-        NotificationCategory category = determineCategory(templateCode);
-        NotificationPriority priority = template.getPriority();
-
-        for (User user : users) {
-            // Check preferences before creating notification (if service is available)
-            if (preferenceService2 != null) {
-                boolean shouldSend = preferenceService2.shouldSendNotification(
-                        user.getId(),
-                        category.toString(),
-                        priority
-                );
-
-                if (!shouldSend) {
-                    log.debug("Notification blocked by preferences for user: {}", user.getUsername());
-                    continue;
-                }
-            }
-
-            // Create notification if preferences allow
-            try {
-                String title = processTemplate(template.getTitleTemplate(), params);
-                String message = processTemplate(template.getMessageTemplate(), params);
-
-                NotificationCreateDTO createDTO = NotificationCreateDTO.builder()
-                        .userId(user.getId())
-                        .type(templateCode)
-                        .category(category)
-                        .title(title)
-                        .message(message)
-                        .priority(priority)
-                        .actionUrl(generateActionUrl(templateCode, actionData))
-                        .actionData(actionData)
-                        .build();
-
-                // Use the base creation method without re-checking preferences
-                createNotificationInternal(createDTO);
-                log.debug("Notification created for user: {}", user.getUsername());
-            } catch (Exception e) {
-                log.error("Failed to create notification for user {}: {}",
-                        user.getUsername(), e.getMessage());
-            }
-        }
+        fanOut(users, template, templateCode, params, actionData);
     }
 
     /**
-     * Internal method to create notification without preference checking
-     * (to avoid double-checking in notifyUsersByRole)
+     * Render the template once and hand every recipient to the fan-out pipeline
      */
-    private NotificationDTO createNotificationInternal(NotificationCreateDTO createDTO) {
-        User user = userRepository.findById(createDTO.getUserId())
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", createDTO.getUserId()));
-
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setType(createDTO.getType());
-        notification.setCategory(createDTO.getCategory());
-        notification.setTitle(createDTO.getTitle());
-        notification.setMessage(createDTO.getMessage());
-        notification.setPriority(createDTO.getPriority() != null ?
-                createDTO.getPriority() : NotificationPriority.MEDIUM);
-        notification.setStatus(NotificationStatus.UNREAD);
-        notification.setActionUrl(createDTO.getActionUrl());
-        notification.setActionData(createDTO.getActionData());
-        notification.setExpiresAt(createDTO.getExpiresAt());
+    private void fanOut(List<User> users, NotificationTemplate template, String templateCode,
+                        Map<String, String> params, Map<String, Object> actionData) {
+        try {
+            NotificationFanOutService.Message message = new NotificationFanOutService.Message(
+                    templateCode,
+                    determineCategory(templateCode),
+                    template.getPriority(),
+                    templateCompiler.renderTitle(template, params),
+                    templateCompiler.renderMessage(template, params),
+                    generateActionUrl(templateCode, actionData),
+                    actionData,
+                    null
+            );
 
-        Notification saved = notificationRepository.save(notification);
-        return convertToDTO(saved);
+            int created = fanOutService.fanOut(users, message);
+            log.debug("Created {} notification(s) from template {}", created, templateCode);
+        } catch (Exception e) {
+            log.error("Failed to fan out notification {} to {} user(s): {}",
+                    templateCode, users.size(), e.getMessage());
+        }
     }
 
     /**
@@ -471,7 +399,7 @@ public class NotificationService {
             Pageable pageable) {
 
         Page<Notification> notificationPage = notificationRepository.findByUserIdWithFilters(
-                userId, status, category, priority, pageable);
+                userId, status, category, priority, partitionManager.retainedSince(), pageable);
 
         List<NotificationDTO> dtos = notificationPage.getContent().stream()
                 .map(this::convertToDTO)
@@ -495,10 +423,12 @@ public class NotificationService {
                 .orElseThrow(() -> new ResourceNotFoundException("Notification", "id", notificationId));
 
         if (notification.getStatus() != NotificationStatus.READ) {
+            NotificationStatus previous = notification.getStatus();
             notification.setStatus(NotificationStatus.READ);
             notification.setReadAt(LocalDateTime.now());
             notification = notificationRepository.save(notification);
-            updateUserUnreadCount(notification.getUser().getId());
+            counters.statusChanged(notification.getUser().getId(), notification.getPriority(),
+                    previous, NotificationStatus.READ);
         }
 
         return convertToDTO(notification);
@@ -512,28 +442,27 @@ public class NotificationService {
                 .orElseThrow(() -> new ResourceNotFoundException("Notification", "id", notificationId));
 
         if (notification.getStatus() != NotificationStatus.READ) {
+            NotificationStatus previous = notification.getStatus();
             notification.setStatus(NotificationStatus.READ);
             notification.setReadAt(LocalDateTime.now());
             notification = notificationRepository.save(notification);
-            updateUserUnreadCount(notification.getUser().getId());
+            counters.statusChanged(notification.getUser().getId(), notification.getPriority(),
+                    previous, NotificationStatus.READ);
         }
 
         // FIX: Send updated count after marking as read
         if (webSocketService != null) {
-            try {
-                User user = userRepository.findById(userId).orElse(null);
-                if (user != null) {
-                    // Get updated unread count
-                    Integer unreadCount = notificationRepository.countByUserIdAndStatus(
-                            userId,
-                            NotificationStatus.UNREAD
-                    ).intValue();
-
-                    // Send count update
-                    webSocketService.sendCountUpdate(user.getUsername(), unreadCount);
-                }
-            } catch (Exception e) {
-                log.error("Failed to send WebSocket update: {}", e.getMessage());
+            User user = userRepository.findById(userId).orElse(null);
+            if (user != null) {
+                String username = user.getUsername();
+                TransactionCallbacks.afterCommit(() -> {
+                    try {
+                        // Send count update
+                        webSocketService.sendCountUpdate(username, counters.getUnreadCount(userId));
+                    } catch (Exception e) {
+                        log.error("Failed to send WebSocket update: {}", e.getMessage());
+                    }
+                });
             }
         }
 
@@ -545,15 +474,16 @@ public class NotificationService {
      */
     public void markAllAsRead(Long userId) {
         List<Notification> unreadNotifications = notificationRepository.findByUserIdAndStatus(
-                userId, NotificationStatus.UNREAD);
+                userId, NotificationStatus.UNREAD, partitionManager.retainedSince());
 
         for (Notification notification : unreadNotifications) {
             notification.setStatus(NotificationStatus.READ);
             notification.setReadAt(LocalDateTime.now());
+            counters.statusChanged(userId, notification.getPriority(),
+                    NotificationStatus.UNREAD, NotificationStatus.READ);
         }
 
         notificationRepository.saveAll(unreadNotifications);
-        updateUserUnreadCount(userId);
     }
 
     /**
@@ -563,9 +493,11 @@ public class NotificationService {
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new ResourceNotFoundException("Notification", "id", notificationId));
 
+        NotificationStatus previous = notification.getStatus();
         notification.setStatus(NotificationStatus.ARCHIVED);
         notificationRepository.save(notification);
-        updateUserUnreadCount(notification.getUser().getId());
+        counters.statusChanged(notification.getUser().getId(), notification.getPriority(),
+                previous, NotificationStatus.ARCHIVED);
     }
 
     /**
@@ -577,49 +509,45 @@ public class NotificationService {
 
         Long userId = notification.getUser().getId();
         notificationRepository.delete(notification);
-        updateUserUnreadCount(userId);
+        counters.deleted(userId, notification.getPriority(), notification.getStatus());
+    }
+
+    /**
+     * Delete every notification of a user, e.g. before the user is removed
+     */
+    public int deleteUserNotifications(Long userId) {
+        int deleted = notificationRepository.deleteByUserId(userId);
+        counters.evict(userId);
+        return deleted;
     }
 
     /**
      * Get unread count for user
      */
     public Long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndStatus(userId, NotificationStatus.UNREAD);
+        return (long) counters.getUnreadCount(userId);
     }
 
     /**
      * Get notification summary for user
      */
+    @Transactional(readOnly = true)
     public NotificationSummaryDTO getNotificationSummary(Long userId) {
-        // Get all notifications for user
-        List<Notification> allNotifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(
-                userId, PageRequest.of(0, 1000)).getContent();
-
-        long totalCount = allNotifications.size();
-        long unreadCount = allNotifications.stream()
-                .filter(n -> n.getStatus() == NotificationStatus.UNREAD)
-                .count();
-        long criticalCount = allNotifications.stream()
-                .filter(n -> n.getStatus() == NotificationStatus.UNREAD &&
-                        n.getPriority() == NotificationPriority.CRITICAL)
-                .count();
-        long highPriorityCount = allNotifications.stream()
-                .filter(n -> n.getStatus() == NotificationStatus.UNREAD &&
-                        n.getPriority() == NotificationPriority.HIGH)
-                .count();
-
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-        long todayCount = allNotifications.stream()
-                .filter(n -> n.getCreatedAt().isAfter(todayStart))
-                .count();
-
-        return NotificationSummaryDTO.builder()
-                .totalCount(totalCount)
-                .unreadCount(unreadCount)
-                .criticalCount(criticalCount)
-                .highPriorityCount(highPriorityCount)
-                .todayCount(todayCount)
-                .build();
+        // A cached summary is reused within its TTL unless the user's unread counters moved since
+        NotificationCounters.Snapshot counts = counters.getSnapshot(userId);
+        CachedSummary cached = summaryCache.get(userId);
+        if (cached != null && cached.isValid(counts)) {
+            return cached.summary();
+        }
+
+        NotificationSummaryDTO summary = notificationRepository.getNotificationSummaryDTO(
+                userId, LocalDate.now().atStartOfDay(), partitionManager.retainedSince());
+
+        if (summaryCacheTtlSeconds > 0) {
+            summaryCache.put(userId, new CachedSummary(summary, counts,
+                    System.nanoTime() + summaryCacheTtlSeconds * 1_000_000_000L));
+        }
+        return summary;
     }
 
     /**
@@ -635,7 +563,8 @@ public class NotificationService {
                 .findByUserIdAndStatusAndPriorityIn(
                         userId,
                         NotificationStatus.UNREAD,
-                        criticalPriorities
+                        criticalPriorities,
+                        partitionManager.retainedSince()
                 );
 
         return criticalNotifications.stream()
@@ -643,71 +572,6 @@ public class NotificationService {
                 .collect(Collectors.toList());
     }
 
-    /**
-     * Clean up old notifications
-     */
-    public int cleanupOldNotifications(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        return notificationRepository.deleteByCreatedAtBeforeAndStatus(
-                cutoffDate, NotificationStatus.ARCHIVED);
-    }
-
-    /**
-     * Clean up archived notifications older than specified days
-     */
-    public int cleanupArchivedNotifications(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        List<Notification> archivedNotifications = notificationRepository
-                .findByCreatedAtBeforeAndStatus(cutoffDate, NotificationStatus.ARCHIVED);
-
-        if (!archivedNotifications.isEmpty()) {
-            notificationRepository.deleteAll(archivedNotifications);
-            log.info("Deleted {} archived notifications older than {} days", archivedNotifications.size(), daysToKeep);
-        }
-
-        return archivedNotifications.size();
-    }
-
-    /**
-     * Clean up expired notifications
-     */
-    public int cleanupExpiredNotifications() {
-        LocalDateTime now = LocalDateTime.now();
-        List<Notification> expiredNotifications = notificationRepository
-                .findByExpiresAtBeforeAndStatusNot(now, NotificationStatus.ARCHIVED);
-
-        if (!expiredNotifications.isEmpty()) {
-            for (Notification notification : expiredNotifications) {
-                Long userId = notification.getUser().getId();
-                notificationRepository.delete(notification);
-                updateUserUnreadCount(userId);
-            }
-            log.info("Deleted {} expired notifications", expiredNotifications.size());
-        }
-
-        return expiredNotifications.size();
-    }
-
-    /**
-     * Clean up old read notifications
-     */
-    public int cleanupOldReadNotifications(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        List<Notification> oldReadNotifications = notificationRepository
-                .findByReadAtBeforeAndStatus(cutoffDate, NotificationStatus.READ);
-
-        if (!oldReadNotifications.isEmpty()) {
-            for (Notification notification : oldReadNotifications) {
-                Long userId = notification.getUser().getId();
-                notificationRepository.delete(notification);
-                updateUserUnreadCount(userId);
-            }
-            log.info("Deleted {} old read notifications older than {} days", oldReadNotifications.size(), daysToKeep);
-        }
-
-        return oldReadNotifications.size();
-    }
-
     /**
      * Send daily summary to managers
      * FIX: Use enum directly, not string
@@ -725,7 +589,7 @@ public class NotificationService {
                 params.put("summaryDetails", "Daily system summary");
 
                 // Check if template exists before using it
-                if (!templateRepository.existsByCode("DAILY_SUMMARY")) {
+                if (!templateRegistry.exists("DAILY_SUMMARY")) {
                     log.warn("DAILY_SUMMARY template not found, creating custom notification");
 
                     NotificationCreateDTO dto = NotificationCreateDTO.builder()
@@ -764,7 +628,8 @@ public class NotificationService {
         LocalDateTime thresholdTime = LocalDateTime.now().minusHours(hoursThreshold);
 
         List<Notification> unescalated = notificationRepository.findUnescalatedCritical(
-                thresholdTime, NotificationPriority.CRITICAL, NotificationStatus.UNREAD);
+                thresholdTime, NotificationPriority.CRITICAL, NotificationStatus.UNREAD,
+                partitionManager.retainedSince());
 
         int escalated = 0;
         for (Notification notification : unescalated) {
@@ -781,7 +646,7 @@ public class NotificationService {
                         params.put("hoursOverdue", String.valueOf(hoursThreshold));
 
                         // Check if template exists
-                        if (!templateRepository.existsByCode("ESCALATION_NOTICE")) {
+                        if (!templateRegistry.exists("ESCALATION_NOTICE")) {
                             log.warn("ESCALATION_NOTICE template not found, creating custom notification");
 
                             NotificationCreateDTO dto = NotificationCreateDTO.builder()
@@ -847,19 +712,6 @@ public class NotificationService {
         }
     }
 
-    /**
-     * Update user's unread notification count
-     */
-    private void updateUserUnreadCount(Long userId) {
-        try {
-            Long unreadCount = notificationRepository.countByUserIdAndStatus(
-                    userId, NotificationStatus.UNREAD);
-            userRepository.updateUnreadNotificationCount(userId, unreadCount.intValue());
-        } catch (Exception e) {
-            log.error("Failed to update unread count for user {}: {}", userId, e.getMessage());
-        }
-    }
-
     /**
      * Generate action URL based on template and data
      */
@@ -920,22 +772,6 @@ public class NotificationService {
         return NotificationCategory.SYSTEM;
     }
 
-    /**
-     * Helper method to process template strings with parameters
-     */
-    private String processTemplate(String template, Map<String, String> params) {
-        if (template == null || params == null) {
-            return template;
-        }
-
-        String result = template;
-        for (Map.Entry<String, String> entry : params.entrySet()) {
-            String placeholder = "{" + entry.getKey() + "}";
-            result = result.replace(placeholder, entry.getValue());
-        }
-        return result;
-    }
-
     /**
      * Helper method to generate fallback title
      */
@@ -989,4 +825,11 @@ public class NotificationService {
 
         return message.toString();
     }
-}
\ No newline at end of file
+
+    private record CachedSummary(NotificationSummaryDTO summary, NotificationCounters.Snapshot counts,
+                                 long expiresAtNanos) {
+        boolean isValid(NotificationCounters.Snapshot current) {
+            return System.nanoTime() < expiresAtNanos && counts.equals(current);
+        }
+    }
+}
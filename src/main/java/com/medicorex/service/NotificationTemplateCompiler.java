@@ -0,0 +1,59 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.NotificationTemplate;
+import com.medicorex.entity.listener.NotificationTemplateListener;
+import com.medicorex.util.CompiledTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of compiled title/message templates keyed by template code.
+ * Entries are dropped by {@link NotificationTemplateListener} when a template is written, and an
+ * entry whose source no longer matches the template it is asked to render is recompiled.
+ */
+@Slf4j
+@Component
+public class NotificationTemplateCompiler {
+
+    private final ConcurrentMap<String, CompiledPair> cache = new ConcurrentHashMap<>();
+
+    public String renderTitle(NotificationTemplate template, Map<String, String> params) {
+        return compiled(template).title().render(params);
+    }
+
+    public String renderMessage(NotificationTemplate template, Map<String, String> params) {
+        return compiled(template).message().render(params);
+    }
+
+    public void invalidate(String code) {
+        if (code != null && cache.remove(code) != null) {
+            log.debug("Invalidated compiled notification template {}", code);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private CompiledPair compiled(NotificationTemplate template) {
+        CompiledPair pair = cache.get(template.getCode());
+        if (pair == null || !pair.matches(template)) {
+            pair = new CompiledPair(CompiledTemplate.compile(template.getTitleTemplate()),
+                    CompiledTemplate.compile(template.getMessageTemplate()));
+            cache.put(template.getCode(), pair);
+        }
+        return pair;
+    }
+
+    private record CompiledPair(CompiledTemplate title, CompiledTemplate message) {
+        boolean matches(NotificationTemplate template) {
+            return Objects.equals(title.getSource(), template.getTitleTemplate())
+                    && Objects.equals(message.getSource(), template.getMessageTemplate());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.NotificationTemplate;
+import com.medicorex.entity.listener.NotificationTemplateListener;
+import com.medicorex.repository.NotificationTemplateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Immutable snapshot of all active notification templates keyed by code.
+ * Loaded at startup, marked stale by {@link NotificationTemplateListener} when a template write commits,
+ * and reloaded on the first lookup after it went stale or the configured TTL elapsed.
+ * With {@code notification.template.cache.enabled=false} every lookup goes to the repository.
+ */
+@Slf4j
+@Component
+public class NotificationTemplateRegistry {
+
+    private final NotificationTemplateRepository templateRepository;
+    private final boolean enabled;
+    private final long ttlNanos;
+
+    private volatile Map<String, NotificationTemplate> templates = Map.of();
+    private volatile long loadedAtNanos;
+    private volatile LocalDateTime loadedAt;
+    private volatile boolean loaded;
+    // Bumped on every invalidation so a reload racing with a template write does not count as fresh
+    private final AtomicLong version = new AtomicLong();
+    private volatile long loadedVersion = -1;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    public NotificationTemplateRegistry(NotificationTemplateRepository templateRepository,
+                                        @Value("${notification.template.cache.enabled:true}") boolean enabled,
+                                        @Value("${notification.template.cache.ttl.minutes:60}") long ttlMinutes) {
+        this.templateRepository = templateRepository;
+        this.enabled = enabled;
+        this.ttlNanos = ttlMinutes * 60_000_000_000L;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Failed to load notification templates on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Active template with the given code
+     */
+    public Optional<NotificationTemplate> find(String code) {
+        if (!enabled) {
+            return templateRepository.findByCodeAndActive(code, true);
+        }
+
+        NotificationTemplate template = current().get(code);
+        if (template != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return Optional.ofNullable(template);
+    }
+
+    /**
+     * Whether an active template with the given code exists
+     */
+    public boolean exists(String code) {
+        return find(code).isPresent();
+    }
+
+    /**
+     * Force a reload on the next lookup
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("templates", templates.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("loadedAt", loadedAt);
+        stats.put("stale", isStale());
+        return stats;
+    }
+
+    private Map<String, NotificationTemplate> current() {
+        if (isStale()) {
+            synchronized (this) {
+                if (isStale()) {
+                    reload();
+                }
+            }
+        }
+        return templates;
+    }
+
+    private boolean isStale() {
+        return !loaded
+                || loadedVersion != version.get()
+                || System.nanoTime() - loadedAtNanos > ttlNanos;
+    }
+
+    private synchronized void reload() {
+        long startVersion = version.get();
+
+        Map<String, NotificationTemplate> byCode = new HashMap<>();
+        for (NotificationTemplate template : templateRepository.findByActive(true)) {
+            byCode.put(template.getCode(), template);
+        }
+
+        templates = Map.copyOf(byCode);
+        loadedAtNanos = System.nanoTime();
+        loadedAt = LocalDateTime.now();
+        loadedVersion = startVersion;
+        loaded = true;
+        refreshes.increment();
+        log.debug("Loaded {} active notification templates", byCode.size());
+    }
+}
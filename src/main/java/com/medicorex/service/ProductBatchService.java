@@ -12,6 +12,8 @@ import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -32,10 +34,24 @@ public class ProductBatchService {
     private final ProductBatchRepository batchRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductStockLocks stockLocks;
+    private final ProductStockLedger stockLedger;
 
     @Autowired
     private QuarantineService quarantineService;
 
+    // Buckets returned by ProductBatchRepository.getExpiryReportAggregates
+    private static final int BUCKET_COUNT = 10;
+    private static final int BUCKET_EXPIRED = 0;
+    private static final int BUCKET_UNDER_7_DAYS = 2;
+    private static final int BUCKET_UNDER_30_DAYS = 4;
+    private static final int BUCKET_UNDER_60_DAYS = 6;
+    private static final int BUCKET_UNDER_90_DAYS = 8;
+
+    // Maximum number of batches listed per report section
+    @Value("${batch.report.top-n:50}")
+    private int reportTopN;
+
     @Autowired
     private NotificationService notificationService;
 
@@ -69,8 +85,8 @@ public class ProductBatchService {
 
         ProductBatch savedBatch = batchRepository.save(batch);
 
-        // Update product total quantity
-        updateProductTotalQuantity(product.getId());
+        // Update product on-hand quantity
+        stockLedger.applyDelta(product, savedBatch.getQuantity());
 
         // ===== NOTIFICATION TRIGGERS =====
         try {
@@ -151,6 +167,7 @@ public class ProductBatchService {
                     dto.getBatchNumber(), batch.getQuantity(), dto.getQuantity());
 
             // Add to existing quantity
+            int previousQuantity = batch.getQuantity();
             batch.setQuantity(batch.getQuantity() + dto.getQuantity());
 
             // Update cost per unit if provided (use weighted average)
@@ -172,8 +189,9 @@ public class ProductBatchService {
 
             ProductBatch updatedBatch = batchRepository.save(batch);
 
-            // Update product total quantity
-            updateProductTotalQuantity(product.getId());
+            // Update product on-hand quantity
+            stockLedger.applyDelta(product, ProductStockLedger.delta(
+                    previousQuantity, batch.getStatus(), batch.getQuantity(), batch.getStatus()));
 
             log.info("✅ Updated batch {} | New quantity: {}",
                     batch.getBatchNumber(), updatedBatch.getQuantity());
@@ -198,8 +216,8 @@ public class ProductBatchService {
 
             ProductBatch savedBatch = batchRepository.save(batch);
 
-            // Update product total quantity
-            updateProductTotalQuantity(product.getId());
+            // Update product on-hand quantity
+            stockLedger.applyDelta(product, savedBatch.getQuantity());
 
             // Send batch created notification
             try {
@@ -259,14 +277,20 @@ public class ProductBatchService {
     }
 
     /**
-     * Consume stock from batches (FIFO)
+     * Consume stock from batches (FIFO).
+     * Consumers of the same product are serialized by a striped lock held until commit, and the
+     * batches are read with row locks, so two concurrent dispenses can never both pass the
+     * availability check against the same units.
      */
     public List<BatchConsumptionResult> consumeStock(Long productId, Integer quantity, String reason) {
+        return stockLocks.callLocked(productId, () -> consumeStockLocked(productId, quantity));
+    }
+
+    private List<BatchConsumptionResult> consumeStockLocked(Long productId, Integer quantity) {
         List<BatchConsumptionResult> results = new ArrayList<>();
 
-        // Get active batches in FIFO order (by expiry date)
-        List<ProductBatch> activeBatches = batchRepository
-                .findByProductIdAndStatusOrderByExpiryDateAsc(productId, ProductBatch.BatchStatus.ACTIVE);
+        // Get active batches in FIFO order (by expiry date), locked for update
+        List<ProductBatch> activeBatches = batchRepository.findActiveBatchesForConsumption(productId);
 
         if (activeBatches.isEmpty()) {
             throw new InsufficientBatchStockException(null, quantity, 0);
@@ -328,8 +352,8 @@ public class ProductBatchService {
             log.info("Consumed {} units from batch {}", consumeFromBatch, batch.getBatchNumber());
         }
 
-        // Update product total quantity
-        updateProductTotalQuantity(productId);
+        // Update product on-hand quantity
+        stockLedger.applyDelta(activeBatches.get(0).getProduct(), -quantity);
 
         return results;
     }
@@ -340,6 +364,8 @@ public class ProductBatchService {
     public ProductBatchDTO adjustBatchStock(BatchStockAdjustmentDTO dto) {
         ProductBatch batch = batchRepository.findById(dto.getBatchId())
                 .orElseThrow(() -> new ResourceNotFoundException("Batch", "id", dto.getBatchId()));
+        int previousQuantity = batch.getQuantity();
+        ProductBatch.BatchStatus previousStatus = batch.getStatus();
 
         // Handle different adjustment types
         switch (dto.getAdjustmentType().toUpperCase()) {
@@ -392,8 +418,9 @@ public class ProductBatchService {
 
         ProductBatch updatedBatch = batchRepository.save(batch);
 
-        // Update product total quantity
-        updateProductTotalQuantity(batch.getProduct().getId());
+        // Update product on-hand quantity
+        stockLedger.applyDelta(batch.getProduct(), ProductStockLedger.delta(
+                previousQuantity, previousStatus, batch.getQuantity(), batch.getStatus()));
 
         log.info("Adjusted batch {} stock: {} {}",
                 batch.getBatchNumber(), dto.getAdjustmentType(), dto.getQuantity());
@@ -408,9 +435,11 @@ public class ProductBatchService {
         LocalDate today = LocalDate.now();
         List<ProductBatch> expiredBatches = batchRepository.findExpiredActiveBatches(today);
 
+        Map<Long, Integer> onHandDeltas = new HashMap<>();
         for (ProductBatch batch : expiredBatches) {
             batch.setStatus(ProductBatch.BatchStatus.EXPIRED);
             batchRepository.save(batch);
+            onHandDeltas.merge(batch.getProduct().getId(), -batch.getQuantity(), Integer::sum);
 
             // Send expired notification
             try {
@@ -435,12 +464,8 @@ public class ProductBatchService {
             log.info("Marked batch {} as expired", batch.getBatchNumber());
         }
 
-        // Update product quantities
-        Set<Long> affectedProductIds = expiredBatches.stream()
-                .map(b -> b.getProduct().getId())
-                .collect(Collectors.toSet());
-
-        affectedProductIds.forEach(this::updateProductTotalQuantity);
+        // Update product on-hand quantities
+        stockLedger.applyDeltas(onHandDeltas);
     }
 
     /**
@@ -456,132 +481,109 @@ public class ProductBatchService {
 
     /**
      * Generate batch expiry report
+     * Counts and values come from one grouped query; only the top-N batches per list are loaded
      */
     @Transactional(readOnly = true)
     public BatchExpiryReportDTO generateBatchExpiryReport() {
-        List<ProductBatch> allBatches = batchRepository.findAll();
         LocalDate today = LocalDate.now();
+        LocalDate sevenDaysFromNow = today.plusDays(7);
+        LocalDate thirtyDaysFromNow = today.plusDays(30);
+        LocalDate sixtyDaysFromNow = today.plusDays(60);
+        LocalDate ninetyDaysFromNow = today.plusDays(90);
+
+        // [bucket] -> count / quantity / value, for ACTIVE batches only
+        long[] activeCounts = new long[BUCKET_COUNT];
+        long[] activeQuantities = new long[BUCKET_COUNT];
+        BigDecimal[] activeValues = new BigDecimal[BUCKET_COUNT];
+        Arrays.fill(activeValues, BigDecimal.ZERO);
+
+        long totalBatches = 0;
+        long quarantinedBatches = 0;
+        long expiredStatusBatches = 0;
+        BigDecimal expiredInventoryValue = BigDecimal.ZERO;
+
+        for (Object[] row : batchRepository.getExpiryReportAggregates(
+                today, sevenDaysFromNow, thirtyDaysFromNow, sixtyDaysFromNow, ninetyDaysFromNow)) {
+            String status = (String) row[0];
+            int bucket = ((Number) row[1]).intValue();
+            long count = ((Number) row[2]).longValue();
+            long quantity = ((Number) row[3]).longValue();
+            BigDecimal value = toBigDecimal(row[4]);
+
+            totalBatches += count;
+            if (ProductBatch.BatchStatus.ACTIVE.name().equals(status)) {
+                activeCounts[bucket] += count;
+                activeQuantities[bucket] += quantity;
+                activeValues[bucket] = activeValues[bucket].add(value);
+            } else if (ProductBatch.BatchStatus.QUARANTINED.name().equals(status)) {
+                quarantinedBatches += count;
+            } else if (ProductBatch.BatchStatus.EXPIRED.name().equals(status)) {
+                expiredStatusBatches += count;
+                expiredInventoryValue = expiredInventoryValue.add(value);
+            }
+        }
 
-        // Existing counts
-        long totalBatches = allBatches.size();
-        long activeBatches = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .count();
-        long quarantinedBatches = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.QUARANTINED)
-                .count();
+        long activeBatches = Arrays.stream(activeCounts).sum();
+        BigDecimal totalInventoryValue = Arrays.stream(activeValues).reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        LocalDate thirtyDaysFromNow = today.plusDays(30);
-        long expiringBatches = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(b -> b.getExpiryDate() != null)
-                .filter(b -> b.getExpiryDate().isAfter(today) && b.getExpiryDate().isBefore(thirtyDaysFromNow))
-                .count();
-
-        long expiredBatches = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.EXPIRED ||
-                        (b.getStatus() == ProductBatch.BatchStatus.ACTIVE &&
-                                b.getExpiryDate() != null &&
-                                b.getExpiryDate().isBefore(today)))
-                .count();
-
-        // Calculate inventory values
-        BigDecimal totalInventoryValue = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(b -> b.getCostPerUnit() != null)
-                .map(b -> b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal expiringInventoryValue = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(b -> b.getExpiryDate() != null)
-                .filter(b -> b.getExpiryDate().isAfter(today) && b.getExpiryDate().isBefore(thirtyDaysFromNow))
-                .filter(b -> b.getCostPerUnit() != null)
-                .map(b -> b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal expiredInventoryValue = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.EXPIRED)
-                .filter(b -> b.getCostPerUnit() != null)
-                .map(b -> b.getCostPerUnit().multiply(BigDecimal.valueOf(b.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Expiring: after today and before 30 days from now
+        long expiringBatches = 0;
+        BigDecimal expiringInventoryValue = BigDecimal.ZERO;
+        for (int bucket = BUCKET_UNDER_7_DAYS; bucket <= BUCKET_UNDER_30_DAYS; bucket++) {
+            expiringBatches += activeCounts[bucket];
+            expiringInventoryValue = expiringInventoryValue.add(activeValues[bucket]);
+        }
+
+        long expiredBatches = expiredStatusBatches + activeCounts[BUCKET_EXPIRED];
 
         // Get critical batches (expiring in next 7 days)
-        LocalDate sevenDaysFromNow = today.plusDays(7);
-        List<ProductBatchDTO> criticalBatches = allBatches.stream()
-                .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(b -> b.getExpiryDate() != null)
-                .filter(b -> b.getExpiryDate().isAfter(today) && b.getExpiryDate().isBefore(sevenDaysFromNow))
+        List<ProductBatchDTO> criticalBatches = batchRepository
+                .findActiveBatchesExpiringWithin(today, sevenDaysFromNow, PageRequest.of(0, reportTopN))
+                .stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
 
-        // ✅ NEW: Generate batches by expiry range with timeline stats
+        // Batches by expiry range with timeline stats
         Map<String, List<BatchExpiryReportDTO.BatchSummary>> batchesByExpiryRange = new LinkedHashMap<>();
         Map<String, BatchExpiryReportDTO.TimelineRangeStats> rangeStatsMap = new LinkedHashMap<>();
 
         // Define ranges
         LocalDate[] rangeDates = {
-                today.plusDays(7),
-                today.plusDays(30),
-                today.plusDays(60),
-                today.plusDays(90)
+                sevenDaysFromNow,
+                thirtyDaysFromNow,
+                sixtyDaysFromNow,
+                ninetyDaysFromNow
         };
         String[] rangeNames = {"0-7 days", "8-30 days", "31-60 days", "61-90 days", "Expired"};
         String[] severityLevels = {"CRITICAL", "HIGH", "MEDIUM", "LOW", "CRITICAL"};
         int[] daysRanges = {7, 30, 60, 90, 999};
+        int[] rangeBuckets = {BUCKET_UNDER_7_DAYS, BUCKET_UNDER_30_DAYS, BUCKET_UNDER_60_DAYS,
+                BUCKET_UNDER_90_DAYS, BUCKET_EXPIRED};
 
         for (int i = 0; i < rangeNames.length; i++) {
             String rangeName = rangeNames[i];
-            List<BatchExpiryReportDTO.BatchSummary> rangeBatches = new ArrayList<>();
 
-            List<ProductBatch> filteredBatches;
+            List<ProductBatch> topBatches;
             if (rangeName.equals("Expired")) {
-                filteredBatches = allBatches.stream()
-                        .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                        .filter(b -> b.getExpiryDate() != null)
-                        .filter(b -> b.getExpiryDate().isBefore(today))
-                        .collect(Collectors.toList());
+                topBatches = batchRepository.findActiveBatchesExpiredBefore(today, PageRequest.of(0, reportTopN));
             } else {
                 LocalDate startDate = (i == 0) ? today : rangeDates[i - 1];
-                LocalDate endDate = rangeDates[i];
-
-                filteredBatches = allBatches.stream()
-                        .filter(b -> b.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                        .filter(b -> b.getExpiryDate() != null)
-                        .filter(b -> b.getExpiryDate().isAfter(startDate) && b.getExpiryDate().isBefore(endDate))
-                        .collect(Collectors.toList());
-            }
-
-            int totalQuantity = 0;
-            BigDecimal totalValue = BigDecimal.ZERO;
-
-            for (ProductBatch batch : filteredBatches) {
-                long daysUntil = ChronoUnit.DAYS.between(today, batch.getExpiryDate());
-                BigDecimal value = batch.getCostPerUnit() != null
-                        ? batch.getCostPerUnit().multiply(BigDecimal.valueOf(batch.getQuantity()))
-                        : BigDecimal.ZERO;
-
-                rangeBatches.add(BatchExpiryReportDTO.BatchSummary.builder()
-                        .batchId(batch.getId())
-                        .productName(batch.getProduct().getName())
-                        .batchNumber(batch.getBatchNumber())
-                        .quantity(batch.getQuantity())
-                        .daysUntilExpiry((int) daysUntil)
-                        .value(value)
-                        .build());
-
-                totalQuantity += batch.getQuantity();
-                totalValue = totalValue.add(value);
+                topBatches = batchRepository.findActiveBatchesExpiringWithin(
+                        startDate, rangeDates[i], PageRequest.of(0, reportTopN));
             }
 
+            List<BatchExpiryReportDTO.BatchSummary> rangeBatches = topBatches.stream()
+                    .map(batch -> toBatchSummary(batch, today))
+                    .collect(Collectors.toList());
             batchesByExpiryRange.put(rangeName, rangeBatches);
 
             // Create range stats
+            int bucket = rangeBuckets[i];
             rangeStatsMap.put(rangeName, BatchExpiryReportDTO.TimelineRangeStats.builder()
                     .rangeName(rangeName)
-                    .batchCount(rangeBatches.size())
-                    .totalQuantity(totalQuantity)
-                    .totalValue(totalValue)
+                    .batchCount((int) activeCounts[bucket])
+                    .totalQuantity((int) activeQuantities[bucket])
+                    .totalValue(activeValues[bucket])
                     .severityLevel(severityLevels[i])
                     .daysRange(daysRanges[i])
                     .build());
@@ -602,17 +604,33 @@ public class ProductBatchService {
                 .expiredInventoryValue(expiredInventoryValue)
                 .criticalBatches(criticalBatches)
                 .batchesByExpiryRange(batchesByExpiryRange)
-                .timelineStats(timelineStats)  // ✅ NEW
+                .timelineStats(timelineStats)
                 .build();
     }
 
     // Helper methods
 
-    private void updateProductTotalQuantity(Long productId) {
-        Integer totalQuantity = batchRepository.getTotalQuantityByProductId(productId);
-        Product product = productRepository.findById(productId).orElseThrow();
-        product.setQuantity(totalQuantity != null ? totalQuantity : 0);
-        productRepository.save(product);
+    private BatchExpiryReportDTO.BatchSummary toBatchSummary(ProductBatch batch, LocalDate today) {
+        long daysUntil = ChronoUnit.DAYS.between(today, batch.getExpiryDate());
+        BigDecimal value = batch.getCostPerUnit() != null
+                ? batch.getCostPerUnit().multiply(BigDecimal.valueOf(batch.getQuantity()))
+                : BigDecimal.ZERO;
+
+        return BatchExpiryReportDTO.BatchSummary.builder()
+                .batchId(batch.getId())
+                .productName(batch.getProduct().getName())
+                .batchNumber(batch.getBatchNumber())
+                .quantity(batch.getQuantity())
+                .daysUntilExpiry((int) daysUntil)
+                .value(value)
+                .build();
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
     }
 
     private String getCurrentUsername() {
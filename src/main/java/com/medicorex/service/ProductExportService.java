@@ -3,21 +3,27 @@ package com.medicorex.service;
 import com.medicorex.entity.Product;
 import com.medicorex.repository.ProductRepository;
 import com.opencsv.CSVWriter;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,31 +31,60 @@ import java.util.stream.Collectors;
 public class ProductExportService {
 
     private final ProductRepository productRepository;
+    private final EntityManager entityManager;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private static final String[] EXPORT_HEADERS = {
+            "ID", "Product Code", "Barcode", "Product Name", "Description",
+            "Category", "Quantity", "Min Stock Level", "Unit",
+            "Unit Price", "Expiry Date", "Batch Number",
+            "Manufacturer", "Stock Status", "Created Date", "Last Updated"
+    };
+
+    // Fixed column widths in characters; autoSizeColumn would only see the rows still in the SXSSF window
+    private static final int[] EXPORT_COLUMN_WIDTHS = {
+            8, 16, 20, 32, 40, 20, 10, 16, 12, 12, 12, 16, 24, 14, 20, 20
+    };
+
+    @Value("${export.stream.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${export.stream.row-window:200}")
+    private int rowWindow;
+
     /**
      * Export products to CSV format based on filter type
      */
     public byte[] exportProductsToCSV(String filterType) throws IOException {
-        List<Product> products = getFilteredProducts(filterType);
-
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             OutputStreamWriter osw = new OutputStreamWriter(baos);
-             CSVWriter csvWriter = new CSVWriter(osw)) {
-
-            // Write header
-            String[] header = {
-                    "ID", "Product Code", "Barcode", "Product Name", "Description",
-                    "Category", "Quantity", "Min Stock Level", "Unit",
-                    "Unit Price", "Expiry Date", "Batch Number",
-                    "Manufacturer", "Stock Status", "Created Date", "Last Updated"
-            };
-            csvWriter.writeNext(header);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeProductsToCSV(filterType, baos);
+        return baos.toByteArray();
+    }
 
-            // Write data
+    /**
+     * Export products to Excel format based on filter type
+     */
+    public byte[] exportProductsToExcel(String filterType) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeProductsToExcel(filterType, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Stream products as CSV to the given output, reading them in keyset-paginated chunks.
+     * Runs outside a transaction so each chunk is a short read and no connection is held
+     * while the client is downloading.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeProductsToCSV(String filterType, OutputStream out) throws IOException {
+        CSVWriter csvWriter = new CSVWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        csvWriter.writeNext(EXPORT_HEADERS);
+        // The client gets the header before the first chunk is queried
+        csvWriter.flush();
+
+        forEachProductChunk(filterType, products -> {
             for (Product product : products) {
-                String stockStatus = determineStockStatus(product);
                 String[] data = {
                         product.getId().toString(),
                         product.getCode() != null ? product.getCode() : "",
@@ -64,29 +99,32 @@ public class ProductExportService {
                         product.getExpiryDate() != null ? product.getExpiryDate().format(DATE_FORMATTER) : "",
                         product.getBatchNumber() != null ? product.getBatchNumber() : "",
                         product.getManufacturer() != null ? product.getManufacturer() : "",
-                        stockStatus,
+                        determineStockStatus(product),
                         product.getCreatedAt().format(DATETIME_FORMATTER),
                         product.getUpdatedAt() != null ? product.getUpdatedAt().format(DATETIME_FORMATTER) : ""
                 };
                 csvWriter.writeNext(data);
             }
-
+            // Push each chunk to the client instead of buffering the whole file
             csvWriter.flush();
-            return baos.toByteArray();
-        }
+        });
+
+        csvWriter.flush();
     }
 
     /**
-     * Export products to Excel format based on filter type
+     * Write products as an Excel workbook to the given output.
+     * Uses SXSSF so only the last {@code rowWindow} rows are kept in memory; older rows spill to a
+     * compressed temp file. The xlsx is a zip whose parts are assembled in {@code workbook.write()},
+     * so unlike the CSV export no bytes reach the client until every row has been read.
      */
-    public byte[] exportProductsToExcel(String filterType) throws IOException {
-        List<Product> products = getFilteredProducts(filterType);
-        String sheetName = getSheetName(filterType);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeProductsToExcel(String filterType, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
 
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet(sheetName);
+        try {
+            Sheet sheet = workbook.createSheet(getSheetName(filterType));
 
             // Create header style
             CellStyle headerStyle = workbook.createCellStyle();
@@ -112,109 +150,106 @@ public class ProductExportService {
 
             // Create header row
             Row headerRow = sheet.createRow(0);
-            String[] headers = {
-                    "ID", "Product Code", "Barcode", "Product Name", "Description",
-                    "Category", "Quantity", "Min Stock Level", "Unit",
-                    "Unit Price", "Expiry Date", "Batch Number",
-                    "Manufacturer", "Stock Status", "Created Date", "Last Updated"
-            };
-
-            for (int i = 0; i < headers.length; i++) {
+            for (int i = 0; i < EXPORT_HEADERS.length; i++) {
                 Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
+                cell.setCellValue(EXPORT_HEADERS[i]);
                 cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, EXPORT_COLUMN_WIDTHS[i] * 256);
             }
 
             // Create data rows
-            int rowNum = 1;
-            for (Product product : products) {
-                Row row = sheet.createRow(rowNum++);
-                String stockStatus = determineStockStatus(product);
-
-                row.createCell(0).setCellValue(product.getId());
-                row.createCell(1).setCellValue(product.getCode() != null ? product.getCode() : "");
-                row.createCell(2).setCellValue(product.getBarcode() != null ? product.getBarcode() : "");
-                row.createCell(3).setCellValue(product.getName());
-                row.createCell(4).setCellValue(product.getDescription() != null ? product.getDescription() : "");
-                row.createCell(5).setCellValue(product.getCategory().getName());
-                row.createCell(6).setCellValue(product.getQuantity());
-                row.createCell(7).setCellValue(product.getMinStockLevel());
-                row.createCell(8).setCellValue(product.getUnit());
-
-                Cell priceCell = row.createCell(9);
-                priceCell.setCellValue(product.getUnitPrice().doubleValue());
-                priceCell.setCellStyle(currencyStyle);
-
-                // Fix date formatting
-                Cell dateCell = row.createCell(10);
-                if (product.getExpiryDate() != null) {
-                    dateCell.setCellValue(product.getExpiryDate().format(DATE_FORMATTER));
-                    dateCell.setCellStyle(dateStyle);
-                } else {
-                    dateCell.setCellValue("");
-                }
-
-                row.createCell(11).setCellValue(product.getBatchNumber() != null ? product.getBatchNumber() : "");
-                row.createCell(12).setCellValue(product.getManufacturer() != null ? product.getManufacturer() : "");
-                row.createCell(13).setCellValue(stockStatus);
-                row.createCell(14).setCellValue(product.getCreatedAt().format(DATETIME_FORMATTER));
-                row.createCell(15).setCellValue(product.getUpdatedAt() != null ? product.getUpdatedAt().format(DATETIME_FORMATTER) : "");
-            }
-
-            // Auto-size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                // Ensure minimum width for date columns
-                if (i == 10 || i == 14 || i == 15) {
-                    int currentWidth = sheet.getColumnWidth(i);
-                    if (currentWidth < 3000) {
-                        sheet.setColumnWidth(i, 3000); // Set minimum width for date columns
+            int[] rowNum = {1};
+            forEachProductChunk(filterType, products -> {
+                for (Product product : products) {
+                    Row row = sheet.createRow(rowNum[0]++);
+
+                    row.createCell(0).setCellValue(product.getId());
+                    row.createCell(1).setCellValue(product.getCode() != null ? product.getCode() : "");
+                    row.createCell(2).setCellValue(product.getBarcode() != null ? product.getBarcode() : "");
+                    row.createCell(3).setCellValue(product.getName());
+                    row.createCell(4).setCellValue(product.getDescription() != null ? product.getDescription() : "");
+                    row.createCell(5).setCellValue(product.getCategory().getName());
+                    row.createCell(6).setCellValue(product.getQuantity());
+                    row.createCell(7).setCellValue(product.getMinStockLevel());
+                    row.createCell(8).setCellValue(product.getUnit());
+
+                    Cell priceCell = row.createCell(9);
+                    priceCell.setCellValue(product.getUnitPrice().doubleValue());
+                    priceCell.setCellStyle(currencyStyle);
+
+                    Cell dateCell = row.createCell(10);
+                    if (product.getExpiryDate() != null) {
+                        dateCell.setCellValue(product.getExpiryDate().format(DATE_FORMATTER));
+                        dateCell.setCellStyle(dateStyle);
+                    } else {
+                        dateCell.setCellValue("");
                     }
+
+                    row.createCell(11).setCellValue(product.getBatchNumber() != null ? product.getBatchNumber() : "");
+                    row.createCell(12).setCellValue(product.getManufacturer() != null ? product.getManufacturer() : "");
+                    row.createCell(13).setCellValue(determineStockStatus(product));
+                    row.createCell(14).setCellValue(product.getCreatedAt().format(DATETIME_FORMATTER));
+                    row.createCell(15).setCellValue(product.getUpdatedAt() != null ? product.getUpdatedAt().format(DATETIME_FORMATTER) : "");
                 }
-            }
+            });
+            int lastRow = rowNum[0];
 
             // Add summary information
-            Row summaryRow = sheet.createRow(rowNum + 2);
+            Row summaryRow = sheet.createRow(lastRow + 2);
             summaryRow.createCell(0).setCellValue("Total Products:");
-            summaryRow.createCell(1).setCellValue(products.size());
+            summaryRow.createCell(1).setCellValue(lastRow - 1);
 
-            Row filterRow = sheet.createRow(rowNum + 3);
+            Row filterRow = sheet.createRow(lastRow + 3);
             filterRow.createCell(0).setCellValue("Filter Applied:");
             filterRow.createCell(1).setCellValue(getFilterDescription(filterType));
 
-            Row exportDateRow = sheet.createRow(rowNum + 4);
+            Row exportDateRow = sheet.createRow(lastRow + 4);
             exportDateRow.createCell(0).setCellValue("Exported on:");
             exportDateRow.createCell(1).setCellValue(LocalDateTime.now().format(DATETIME_FORMATTER));
 
-            workbook.write(baos);
-            return baos.toByteArray();
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // Remove the temp files SXSSF spilled rows into
+            workbook.dispose();
+            workbook.close();
         }
     }
 
     /**
-     * Get filtered products based on filter type
+     * Read filtered products in id order, one keyset page at a time, detaching each page once written
      */
-    private List<Product> getFilteredProducts(String filterType) {
-        List<Product> allProducts = productRepository.findAll();
-
-        switch (filterType.toLowerCase()) {
-            case "lowstock":
-                return allProducts.stream()
-                        .filter(p -> p.getQuantity() <= p.getMinStockLevel())
-                        .collect(Collectors.toList());
+    private void forEachProductChunk(String filterType, ProductChunkWriter writer) throws IOException {
+        String filter = filterType.toLowerCase();
+        LocalDate thirtyDaysFromNow = LocalDate.now().plusDays(30);
+        Pageable chunk = PageRequest.of(0, chunkSize);
+        long lastId = 0L;
+
+        while (true) {
+            List<Product> products = switch (filter) {
+                case "lowstock" -> productRepository.findLowStockExportChunk(lastId, chunk);
+                case "expiring" -> productRepository.findExpiringExportChunk(lastId, thirtyDaysFromNow, chunk);
+                default -> productRepository.findExportChunk(lastId, chunk);
+            };
+            if (products.isEmpty()) {
+                return;
+            }
 
-            case "expiring":
-                LocalDate thirtyDaysFromNow = LocalDate.now().plusDays(30);
-                return allProducts.stream()
-                        .filter(p -> p.getExpiryDate() != null &&
-                                p.getExpiryDate().isBefore(thirtyDaysFromNow))
-                        .collect(Collectors.toList());
+            writer.write(products);
+            lastId = products.get(products.size() - 1).getId();
+            entityManager.clear();
 
-            default:
-                return allProducts;
+            if (products.size() < chunkSize) {
+                return;
+            }
         }
     }
 
+    @FunctionalInterface
+    private interface ProductChunkWriter {
+        void write(List<Product> products) throws IOException;
+    }
+
     /**
      * Get sheet name based on filter type
      */
@@ -0,0 +1,321 @@
+package com.medicorex.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medicorex.dto.ImportErrorDTO;
+import com.medicorex.dto.ImportJobStatusDTO;
+import com.medicorex.dto.ImportResultDTO;
+import com.medicorex.entity.ProductImportJob;
+import com.medicorex.entity.ProductImportJob.JobStatus;
+import com.medicorex.exception.BusinessException;
+import com.medicorex.exception.ResourceNotFoundException;
+import com.medicorex.repository.ProductImportJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs product imports in the background on the bounded import executor.
+ * The upload is stored under the temp upload directory, a job id is returned immediately
+ * and progress is available from {@link #getStatus} and pushed to /user/queue/imports.
+ * <p>
+ * Each import is all-or-nothing: {@link ProductImportService} validates and inserts chunk by chunk
+ * inside one transaction that only commits when every row passed.
+ * Job state lives in product_import_jobs, so status survives a restart and can be polled on any node.
+ * The import itself runs on the node that accepted the upload, since the stored file is local to it.
+ * When that node restarts mid-import the transaction is lost with it, so its unfinished jobs are
+ * marked FAILED on startup with nothing saved; jobs whose node never comes back are failed once they
+ * stop reporting progress for {@code import.job.stale.minutes}.
+ */
+@Slf4j
+@Service
+public class ProductImportJobService {
+
+    private static final String PROGRESS_DESTINATION = "/queue/imports";
+
+    private static final Set<JobStatus> UNFINISHED = EnumSet.of(JobStatus.QUEUED, JobStatus.IMPORTING, JobStatus.SAVING);
+    private static final Set<JobStatus> FINISHED = EnumSet.of(JobStatus.COMPLETED, JobStatus.FAILED);
+
+    private final ProductImportService importService;
+    private final ProductImportJobRepository jobRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor importExecutor;
+    private final TransactionTemplate progressTransaction;
+    private final String node;
+
+    @Value("${file.upload-dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${import.job.progress-interval:1000}")
+    private int progressInterval;
+
+    @Value("${import.job.retention.minutes:60}")
+    private int retentionMinutes;
+
+    @Value("${import.job.stale.minutes:30}")
+    private int staleMinutes;
+
+    public ProductImportJobService(ProductImportService importService,
+                                   ProductImportJobRepository jobRepository,
+                                   SimpMessagingTemplate messagingTemplate,
+                                   ObjectMapper objectMapper,
+                                   @Qualifier("importExecutor") ThreadPoolTaskExecutor importExecutor,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${import.job.node-id:}") String nodeId) {
+        this.importService = importService;
+        this.jobRepository = jobRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.importExecutor = importExecutor;
+        // Progress is reported from inside the import transaction and must commit on its own
+        this.progressTransaction = new TransactionTemplate(transactionManager);
+        this.progressTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.node = nodeId.isBlank() ? hostName() : nodeId;
+    }
+
+    /**
+     * Store the upload and queue it for import
+     */
+    public ImportJobStatusDTO submit(MultipartFile file, String username) throws IOException {
+        String filename = file.getOriginalFilename();
+        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+
+        String jobId = UUID.randomUUID().toString();
+        Path importDir = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("temp").resolve("imports");
+        Files.createDirectories(importDir);
+        Path storedFile = importDir.resolve(jobId + "." + extension);
+        file.transferTo(storedFile);
+
+        ProductImportJob job = new ProductImportJob();
+        job.setId(jobId);
+        job.setUsername(username);
+        job.setFilename(filename);
+        job.setNode(node);
+        job.setStoredFile(storedFile.toString());
+        jobRepository.save(job);
+        ImportJobStatusDTO queued = toDTO(job);
+
+        try {
+            importExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobRepository.deleteById(jobId);
+            deleteQuietly(storedFile);
+            throw new BusinessException("Too many imports in progress. Please try again later.");
+        }
+
+        log.info("Queued product import job {} for user {} ({}) on {}", jobId, username, filename, node);
+        return queued;
+    }
+
+    /**
+     * Current status of a job owned by the given user
+     */
+    public ImportJobStatusDTO getStatus(String jobId, String username) {
+        return jobRepository.findById(jobId)
+                .filter(job -> job.getUsername().equals(username))
+                .map(this::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job", "id", jobId));
+    }
+
+    /**
+     * Jobs this node left unfinished when it stopped were rolled back with its import transaction
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        try {
+            for (ProductImportJob job : jobRepository.findByNodeAndStatusIn(node, UNFINISHED)) {
+                fail(job, "Import was interrupted by a server restart. No products were saved.");
+            }
+        } catch (Exception e) {
+            log.error("Failed to mark interrupted product import jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forget finished jobs once their retention window has passed, and fail jobs that stopped
+     * reporting progress (their node went away without restarting)
+     */
+    @Scheduled(fixedDelayString = "${import.job.cleanup.interval.ms:600000}")
+    public void purgeFinishedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ProductImportJob job : jobRepository.findByStatusInAndUpdatedAtBefore(UNFINISHED, now.minusMinutes(staleMinutes))) {
+            fail(job, "Import stopped reporting progress. No products were saved.");
+        }
+        int purged = jobRepository.deleteFinishedBefore(FINISHED, now.minusMinutes(retentionMinutes));
+        if (purged > 0) {
+            log.debug("Purged {} finished product import job(s)", purged);
+        }
+    }
+
+    private void run(ProductImportJob job) {
+        job.setStartedAt(LocalDateTime.now());
+        job.setStatus(JobStatus.IMPORTING);
+        publish(job);
+
+        Path file = Paths.get(job.getStoredFile());
+        ImportResultDTO result;
+        try {
+            result = importService.importProducts(
+                    job.getFilename(), new FileSystemResource(file), new JobProgress(job));
+            job.setErrorCount(result.getFailedImports());
+            job.setStatus(result.getSuccessfulImports() > 0 || result.getFailedImports() == 0
+                    ? JobStatus.COMPLETED : JobStatus.FAILED);
+        } catch (Exception e) {
+            log.error("Product import job {} failed: {}", job.getId(), e.getMessage());
+            result = new ImportResultDTO(job.getRowsParsed(), 0, 1,
+                    List.of(new ImportErrorDTO(0, "File processing error: " + e.getMessage())));
+            job.setMessage(e.getMessage());
+            job.setStatus(JobStatus.FAILED);
+        } finally {
+            deleteQuietly(file);
+        }
+
+        job.setResult(writeResult(result));
+        job.setFinishedAt(LocalDateTime.now());
+        publish(job);
+        log.info("Product import job {} finished with status {}", job.getId(), job.getStatus());
+    }
+
+    private void fail(ProductImportJob job, String message) {
+        log.warn("Marking product import job {} as failed: {}", job.getId(), message);
+        job.setStatus(JobStatus.FAILED);
+        job.setMessage(message);
+        job.setResult(writeResult(new ImportResultDTO(job.getRowsParsed(), 0, 1,
+                List.of(new ImportErrorDTO(0, message)))));
+        job.setFinishedAt(LocalDateTime.now());
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        if (node.equals(job.getNode())) {
+            deleteQuietly(Paths.get(job.getStoredFile()));
+        }
+    }
+
+    /**
+     * Persist the job (one UPDATE) and push it to the owner
+     */
+    private void publish(ProductImportJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        try {
+            progressTransaction.executeWithoutResult(status -> jobRepository.save(job));
+        } catch (Exception e) {
+            log.warn("Failed to store progress of import job {}: {}", job.getId(), e.getMessage());
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(job.getUsername(), PROGRESS_DESTINATION, toDTO(job));
+        } catch (Exception e) {
+            log.debug("Failed to push import progress for job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private ImportJobStatusDTO toDTO(ProductImportJob job) {
+        return ImportJobStatusDTO.builder()
+                .jobId(job.getId())
+                .filename(job.getFilename())
+                .status(job.getStatus().name())
+                .rowsParsed(job.getRowsParsed())
+                .rowsValidated(job.getRowsValidated())
+                .errorCount(job.getErrorCount())
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .message(job.getMessage())
+                .result(readResult(job))
+                .build();
+    }
+
+    private String writeResult(ImportResultDTO result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize import result: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private ImportResultDTO readResult(ProductImportJob job) {
+        if (job.getResult() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(job.getResult(), ImportResultDTO.class);
+        } catch (JsonProcessingException e) {
+            log.error("Could not read result of import job {}: {}", job.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete stored import file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * Updates the job counters and stores / pushes progress every {@code progressInterval} rows.
+     * Runs on the worker thread, which is the only writer of the job while it is running.
+     */
+    private class JobProgress implements ImportProgressListener {
+
+        private final ProductImportJob job;
+
+        JobProgress(ProductImportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onRowParsed(int rowsParsed, int errors) {
+            job.setRowsParsed(rowsParsed);
+            job.setErrorCount(errors);
+            if (rowsParsed % progressInterval == 0) {
+                publish(job);
+            }
+        }
+
+        @Override
+        public void onRowsValidated(int rowsValidated, int errors) {
+            job.setRowsValidated(rowsValidated);
+            job.setErrorCount(errors);
+        }
+
+        @Override
+        public void onCommitting(int rowsToSave) {
+            job.setStatus(JobStatus.SAVING);
+            publish(job);
+        }
+    }
+}
@@ -6,21 +6,37 @@ import com.medicorex.entity.Category;
 import com.medicorex.entity.Product;
 import com.medicorex.repository.CategoryRepository;
 import com.medicorex.repository.ProductRepository;
+import com.medicorex.util.XlsxStreamingReader;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -28,26 +44,139 @@ import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Bulk product import. Rows are validated and inserted chunk by chunk as the reader produces them,
+ * so memory is bounded by the chunk size rather than the file size. The whole import runs in one
+ * transaction and stays all-or-nothing: later chunks are still validated (and their valid rows
+ * inserted, so duplicates of earlier rows are found by the uniqueness queries) after a row fails,
+ * but any failure rolls back every chunk.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
-@Transactional
 public class ProductImportService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final BarcodeService barcodeService;
-
-    @PersistenceContext
-    private EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate insertTransaction;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO products (name, code, barcode, description, category_id, quantity, min_stock_level, " +
+            "unit, unit_price, expiry_date, batch_number, manufacturer, created_at, updated_at, min_stock, max_stock) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Columns read from the import template (Product Code .. Manufacturer)
+    private static final int EXCEL_COLUMN_COUNT = 12;
+
+    private static final String UPDATE_BARCODE_SQL = "UPDATE products SET barcode = ? WHERE id = ?";
+
+    public static final String LEGACY_EXCEL_MESSAGE =
+            "Legacy .xls files are not supported. Please save the file as .xlsx or CSV and upload it again.";
+
+    @Value("${import.batch.chunk-size:1000}")
+    private int chunkSize;
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                BarcodeService barcodeService,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.barcodeService = barcodeService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * A parsed row waiting for set-based validation; the category is resolved by name per chunk
+     */
+    private record ImportRow(int rowNumber, Product product, String categoryName, boolean generatedCode) {
+    }
+
+    /**
+     * Reads the data rows of a file, handing each parsed row (or its parse error) to the sink
+     */
+    @FunctionalInterface
+    private interface RowReader {
+        void read(ChunkSink sink) throws IOException, CsvException;
+    }
+
+    /**
+     * Carries a reader failure out of the import transaction so it rolls back
+     */
+    private static class ReadFailure extends RuntimeException {
+        ReadFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Buffers at most one chunk of parsed rows; each full chunk is validated and its valid rows inserted
+     */
+    private class ChunkSink {
+        private final ImportProgressListener progress;
+        private final List<ImportRow> pending = new ArrayList<>();
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private int totalRows;
+        private int validated;
+        private int inserted;
+
+        ChunkSink(ImportProgressListener progress) {
+            this.progress = progress;
+        }
+
+        void emptyRow() {
+            totalRows++;
+            progress.onRowParsed(totalRows, errors.size());
+        }
+
+        void parsed(ImportRow row) {
+            totalRows++;
+            pending.add(row);
+            progress.onRowParsed(totalRows, errors.size());
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void failed(int rowNumber, String message) {
+            totalRows++;
+            errors.add(new ImportErrorDTO(rowNumber, message));
+            progress.onRowParsed(totalRows, errors.size());
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<ImportRow> valid = validateChunk(pending, errors);
+            if (!valid.isEmpty()) {
+                insertChunk(valid);
+                inserted += valid.size();
+            }
+            validated += pending.size();
+            pending.clear();
+            progress.onRowsValidated(validated, errors.size());
+        }
+    }
+
     /**
      * Import products from uploaded file (CSV or Excel)
      */
     public ImportResultDTO importProducts(MultipartFile file) throws IOException {
-        String filename = file.getOriginalFilename();
+        return importProducts(file.getOriginalFilename(), file, ImportProgressListener.NONE);
+    }
+
+    /**
+     * Import products from any readable source (e.g. a stored upload), reporting progress as rows are processed
+     */
+    public ImportResultDTO importProducts(String filename, InputStreamSource source,
+                                          ImportProgressListener progress) throws IOException {
         if (filename == null) {
             throw new IllegalArgumentException("File name cannot be null");
         }
@@ -55,188 +184,304 @@ public class ProductImportService {
         String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
 
         if ("csv".equals(extension)) {
-            return importFromCSV(file);
-        } else if ("xlsx".equals(extension) || "xls".equals(extension)) {
-            return importFromExcel(file);
+            return importFromCSV(source, progress);
+        } else if ("xlsx".equals(extension)) {
+            return importFromExcel(source, progress);
+        } else if ("xls".equals(extension)) {
+            // The streaming reader only understands the OOXML (.xlsx) format
+            throw new IllegalArgumentException(LEGACY_EXCEL_MESSAGE);
         } else {
             throw new IllegalArgumentException("Unsupported file format. Please upload CSV or Excel file.");
         }
     }
 
     /**
-     * Import products from CSV file
+     * Import products from CSV file, one record at a time
      */
-    private ImportResultDTO importFromCSV(MultipartFile file) throws IOException {
-        List<ImportErrorDTO> errors = new ArrayList<>();
-        List<Product> validProducts = new ArrayList<>();
-        int totalRows = 0;
-
-        try (CSVReader csvReader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            List<String[]> records = csvReader.readAll();
-
-            if (records.isEmpty()) {
-                errors.add(new ImportErrorDTO(0, "File is empty"));
-                return new ImportResultDTO(0, 0, 0, errors);
+    private ImportResultDTO importFromCSV(InputStreamSource source, ImportProgressListener progress) throws IOException {
+        try (CSVReader csvReader = new CSVReader(new InputStreamReader(source.getInputStream()))) {
+            // Header row
+            if (csvReader.readNext() == null) {
+                return new ImportResultDTO(0, 0, 0, List.of(new ImportErrorDTO(0, "File is empty")));
             }
 
-            // First pass: Parse and validate all products without saving
-            for (int i = 1; i < records.size(); i++) {
-                int rowNumber = i + 1;
-                totalRows++;
-                String[] row = records.get(i);
+            return importRows("CSV", progress, sink -> {
+                String[] row;
+                int rowNumber = 1;
+                while ((row = csvReader.readNext()) != null) {
+                    rowNumber++;
 
-                // Skip empty rows
-                if (isEmptyRow(row)) {
-                    continue;
-                }
+                    // Skip empty rows
+                    if (isEmptyRow(row)) {
+                        sink.emptyRow();
+                        continue;
+                    }
 
-                try {
-                    Product product = parseProductFromCSV(row, rowNumber);
-                    if (product != null) {
-                        validProducts.add(product);
+                    ImportRow parsed;
+                    try {
+                        parsed = parseProductFromCSV(row, rowNumber);
+                    } catch (Exception e) {
+                        sink.failed(rowNumber, e.getMessage());
+                        log.error("Error parsing CSV row {}: {}", rowNumber, e.getMessage());
+                        continue;
                     }
-                } catch (Exception e) {
-                    errors.add(new ImportErrorDTO(rowNumber, e.getMessage()));
-                    log.error("Error parsing CSV row {}: {}", rowNumber, e.getMessage());
+                    sink.parsed(parsed);
                 }
-            }
+            });
 
-            // If there are any parsing errors, return without saving anything
-            if (!errors.isEmpty()) {
-                log.warn("CSV import aborted due to {} validation errors. No products were saved.", errors.size());
-                return new ImportResultDTO(totalRows, 0, errors.size(), errors);
+        } catch (CsvException e) {
+            log.error("CSV parsing error: {}", e.getMessage());
+            return new ImportResultDTO(0, 0, 1, List.of(new ImportErrorDTO(0, "CSV parsing error: " + e.getMessage())));
+        }
+    }
+
+    /**
+     * Import products from Excel file, streaming the sheet one row at a time
+     */
+    private ImportResultDTO importFromExcel(InputStreamSource source, ImportProgressListener progress) throws IOException {
+        // The event reader needs random access to the zip, so spool non-file sources to a temp file
+        Path tempFile = null;
+        File file;
+        if (source instanceof FileSystemResource resource) {
+            file = resource.getFile();
+        } else {
+            tempFile = Files.createTempFile("product-import-", ".xlsx");
+            try (InputStream in = source.getInputStream()) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
             }
+            file = tempFile.toFile();
+        }
 
-            // Second pass: Save all valid products in batch
-            List<Product> successfulImports = new ArrayList<>();
-            try {
-                for (Product product : validProducts) {
-                    // Save product to get ID
-                    Product savedProduct = productRepository.save(product);
-
-                    // Generate barcode if not provided
-                    if (savedProduct.getBarcode() == null || savedProduct.getBarcode().isEmpty()) {
-                        savedProduct.setBarcode(barcodeService.generateBarcode(savedProduct));
-                        productRepository.save(savedProduct);
-                    }
+        try {
+            boolean[] headerSkipped = {false};
+            ImportResultDTO result = importRows("Excel", progress, sink ->
+                    XlsxStreamingReader.read(file, EXCEL_COLUMN_COUNT, (rowIndex, cells) -> {
+                        // Skip header row
+                        if (!headerSkipped[0]) {
+                            headerSkipped[0] = true;
+                            return;
+                        }
+
+                        int rowNumber = rowIndex + 1;
+
+                        // Skip empty rows
+                        if (isEmptyRow(cells)) {
+                            sink.emptyRow();
+                            return;
+                        }
+
+                        ImportRow parsed;
+                        try {
+                            parsed = parseProductFromExcel(cells, rowNumber);
+                        } catch (Exception e) {
+                            sink.failed(rowNumber, e.getMessage());
+                            log.error("Error parsing row {}: {}", rowNumber, e.getMessage());
+                            return;
+                        }
+                        sink.parsed(parsed);
+                    }));
+
+            if (!headerSkipped[0]) {
+                return new ImportResultDTO(0, 0, 0, List.of(new ImportErrorDTO(0, "Excel file is empty")));
+            }
+            return result;
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
 
-                    successfulImports.add(savedProduct);
+    /**
+     * Shared by both formats: read the file inside one transaction, validating each chunk with one
+     * IN-query per lookup and inserting its valid rows with one JDBC batch as soon as the chunk is full.
+     * Nothing is kept if any row fails, and a database error (e.g. a code inserted concurrently after
+     * validation) rolls back every chunk.
+     */
+    private ImportResultDTO importRows(String format, ImportProgressListener progress, RowReader reader)
+            throws IOException {
+        ChunkSink sink = new ChunkSink(progress);
+        try {
+            return insertTransaction.execute(status -> {
+                try {
+                    reader.read(sink);
+                } catch (IOException | CsvException e) {
+                    throw new ReadFailure(e);
+                }
+                sink.flush();
+
+                // If there are any validation errors, roll back every inserted chunk
+                if (!sink.errors.isEmpty()) {
+                    status.setRollbackOnly();
+                    sink.errors.sort(Comparator.comparingInt(ImportErrorDTO::getRowNumber));
+                    log.warn("{} import aborted due to {} validation errors. No products were saved.",
+                            format, sink.errors.size());
+                    return new ImportResultDTO(sink.totalRows, 0, sink.errors.size(), sink.errors);
                 }
 
-                // Flush all changes to database
-                entityManager.flush();
-                log.info("CSV import completed successfully: {} products imported", successfulImports.size());
-
-                return new ImportResultDTO(
-                        totalRows,
-                        successfulImports.size(),
-                        0,
-                        errors
-                );
-
-            } catch (Exception e) {
-                log.error("Error during CSV batch save operation: {}", e.getMessage());
-                errors.add(new ImportErrorDTO(0, "Database error during import: " + e.getMessage()));
-                return new ImportResultDTO(totalRows, 0, 1, errors);
+                progress.onCommitting(sink.inserted);
+                log.info("{} import completed successfully: {} products imported", format, sink.inserted);
+                return new ImportResultDTO(sink.totalRows, sink.inserted, 0, sink.errors);
+            });
+
+        } catch (ReadFailure e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
             }
+            log.error("{} parsing error: {}", format, e.getCause().getMessage());
+            return new ImportResultDTO(sink.totalRows, 0, 1,
+                    List.of(new ImportErrorDTO(0, format + " parsing error: " + e.getCause().getMessage())));
 
-        } catch (CsvException e) {
-            log.error("CSV parsing error: {}", e.getMessage());
-            errors.add(new ImportErrorDTO(0, "CSV parsing error: " + e.getMessage()));
-            return new ImportResultDTO(0, 0, 1, errors);
+        } catch (Exception e) {
+            // Every chunk was rolled back
+            log.error("Error during {} batch save operation: {}", format, e.getMessage());
+            List<ImportErrorDTO> errors = new ArrayList<>(sink.errors);
+            errors.add(new ImportErrorDTO(0, "Database error during import. No products were saved: " + e.getMessage()));
+            return new ImportResultDTO(sink.totalRows, 0, errors.size(), errors);
         }
     }
 
     /**
-     * Import products from Excel file
+     * Resolve categories and check code/barcode uniqueness for one chunk of rows.
+     * Rows of earlier chunks are already inserted in the import transaction, so the existing-code and
+     * existing-barcode queries also catch duplicates across chunks; the seen sets only cover this chunk.
+     * Lookups are case-insensitive, matching the database collation.
+     *
+     * @return the rows that passed validation
      */
-    private ImportResultDTO importFromExcel(MultipartFile file) throws IOException {
-        List<ImportErrorDTO> errors = new ArrayList<>();
-        List<Product> validProducts = new ArrayList<>();
-        int totalRows = 0;
-
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-
-            if (sheet == null) {
-                errors.add(new ImportErrorDTO(0, "Excel file is empty"));
-                return new ImportResultDTO(0, 0, 0, errors);
+    private List<ImportRow> validateChunk(List<ImportRow> rows, List<ImportErrorDTO> errors) {
+        Set<String> seenCodes = new HashSet<>();
+        Set<String> seenBarcodes = new HashSet<>();
+        List<ImportRow> valid = new ArrayList<>(rows.size());
+        Set<String> codes = new HashSet<>();
+        Set<String> barcodes = new HashSet<>();
+        Set<String> categoryNames = new HashSet<>();
+        for (ImportRow row : rows) {
+            codes.add(row.product().getCode());
+            if (row.product().getBarcode() != null) {
+                barcodes.add(row.product().getBarcode());
             }
+            categoryNames.add(row.categoryName().toLowerCase());
+        }
 
-            Iterator<Row> rowIterator = sheet.iterator();
+        Set<String> existingCodes = toLowerCase(productRepository.findExistingCodes(codes));
+        Set<String> existingBarcodes = barcodes.isEmpty()
+                ? Collections.emptySet()
+                : toLowerCase(productRepository.findExistingBarcodes(barcodes));
+        Map<String, Category> categories = categoryRepository.findByLowerCaseNameIn(categoryNames).stream()
+                .collect(Collectors.toMap(c -> c.getName().toLowerCase(), c -> c, (a, b) -> a));
 
-            // Skip header row
-            if (rowIterator.hasNext()) {
-                rowIterator.next();
-            }
+        for (ImportRow row : rows) {
+            Product product = row.product();
 
-            // First pass: Parse and validate all products without saving
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
-                int rowNumber = row.getRowNum() + 1;
-                totalRows++;
+            String code = product.getCode();
+            if (row.generatedCode()) {
+                // Auto-generated codes are regenerated on collision instead of failing the row
+                while (existingCodes.contains(code.toLowerCase()) || seenCodes.contains(code.toLowerCase())) {
+                    code = generateProductCode();
+                }
+                product.setCode(code);
+            } else if (existingCodes.contains(code.toLowerCase())) {
+                errors.add(new ImportErrorDTO(row.rowNumber(), "Product code '" + code + "' already exists"));
+                continue;
+            } else if (seenCodes.contains(code.toLowerCase())) {
+                errors.add(new ImportErrorDTO(row.rowNumber(), "Product code '" + code + "' appears more than once in the file"));
+                continue;
+            }
+            seenCodes.add(code.toLowerCase());
 
-                // Skip empty rows
-                if (isEmptyRow(row)) {
+            String barcode = product.getBarcode();
+            if (barcode != null) {
+                if (existingBarcodes.contains(barcode.toLowerCase())) {
+                    errors.add(new ImportErrorDTO(row.rowNumber(), "Barcode '" + barcode + "' already exists"));
                     continue;
                 }
-
-                try {
-                    Product product = parseProductFromExcel(row, rowNumber);
-                    if (product != null) {
-                        validProducts.add(product);
-                    }
-                } catch (Exception e) {
-                    errors.add(new ImportErrorDTO(rowNumber, e.getMessage()));
-                    log.error("Error parsing row {}: {}", rowNumber, e.getMessage());
+                if (!seenBarcodes.add(barcode.toLowerCase())) {
+                    errors.add(new ImportErrorDTO(row.rowNumber(), "Barcode '" + barcode + "' appears more than once in the file"));
+                    continue;
                 }
             }
 
-            // If there are any parsing errors, return without saving anything
-            if (!errors.isEmpty()) {
-                log.warn("Import aborted due to {} validation errors. No products were saved.", errors.size());
-                return new ImportResultDTO(totalRows, 0, errors.size(), errors);
+            Category category = categories.get(row.categoryName().toLowerCase());
+            if (category == null) {
+                errors.add(new ImportErrorDTO(row.rowNumber(), "Category '" + row.categoryName() + "' not found"));
+                continue;
             }
+            product.setCategory(category);
+            valid.add(row);
+        }
+        return valid;
+    }
 
-            // Second pass: Save all valid products in batch
-            List<Product> successfulImports = new ArrayList<>();
-            try {
-                for (Product product : validProducts) {
-                    // Save product to get ID
-                    Product savedProduct = productRepository.save(product);
-
-                    // Generate barcode if not provided
-                    if (savedProduct.getBarcode() == null || savedProduct.getBarcode().isEmpty()) {
-                        savedProduct.setBarcode(barcodeService.generateBarcode(savedProduct));
-                        productRepository.save(savedProduct);
+    /**
+     * Insert one chunk with a single JDBC batch, then assign the id-based barcodes
+     * to rows that did not provide one with a second batch
+     */
+    private void insertChunk(List<ImportRow> rows) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_PRODUCT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Product product = rows.get(i).product();
+                        ps.setString(1, product.getName());
+                        ps.setString(2, product.getCode());
+                        ps.setString(3, product.getBarcode());
+                        ps.setString(4, product.getDescription());
+                        ps.setLong(5, product.getCategory().getId());
+                        ps.setInt(6, product.getQuantity());
+                        ps.setInt(7, product.getMinStockLevel());
+                        ps.setString(8, product.getUnit());
+                        ps.setBigDecimal(9, product.getUnitPrice());
+                        if (product.getExpiryDate() != null) {
+                            ps.setDate(10, Date.valueOf(product.getExpiryDate()));
+                        } else {
+                            ps.setNull(10, Types.DATE);
+                        }
+                        ps.setString(11, product.getBatchNumber());
+                        ps.setString(12, product.getManufacturer());
+                        ps.setTimestamp(13, Timestamp.valueOf(product.getCreatedAt()));
+                        if (product.getUpdatedAt() != null) {
+                            ps.setTimestamp(14, Timestamp.valueOf(product.getUpdatedAt()));
+                        } else {
+                            ps.setNull(14, Types.TIMESTAMP);
+                        }
+                        ps.setInt(15, product.getMinStock());
+                        ps.setInt(16, product.getMaxStock());
                     }
 
-                    successfulImports.add(savedProduct);
-                }
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder);
 
-                // Flush all changes to database
-                entityManager.flush();
-                log.info("Excel import completed successfully: {} products imported", successfulImports.size());
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated keys but got " + keys.size());
+        }
 
-            } catch (Exception e) {
-                log.error("Error during batch save operation: {}", e.getMessage());
-                errors.add(new ImportErrorDTO(0, "Database error during import: " + e.getMessage()));
-                return new ImportResultDTO(totalRows, 0, 1, errors);
+        List<Object[]> barcodeUpdates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Product product = rows.get(i).product();
+            product.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            if (product.getBarcode() == null || product.getBarcode().isEmpty()) {
+                product.setBarcode(barcodeService.generateBarcode(product));
+                barcodeUpdates.add(new Object[]{product.getBarcode(), product.getId()});
             }
+        }
 
-            return new ImportResultDTO(
-                    totalRows,
-                    successfulImports.size(),
-                    0,
-                    errors
-            );
+        if (!barcodeUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_BARCODE_SQL, barcodeUpdates);
         }
     }
 
     /**
      * Parse product from CSV row
      */
-    private Product parseProductFromCSV(String[] row, int rowNumber) {
+    private ImportRow parseProductFromCSV(String[] row, int rowNumber) {
         if (row.length < 9) {
             throw new IllegalArgumentException("Insufficient data. Expected at least 9 columns.");
         }
@@ -245,22 +490,12 @@ public class ProductImportService {
 
         // Product Code (optional, auto-generate if empty)
         String code = row[0].trim();
-        if (!code.isEmpty()) {
-            // Check if code already exists
-            if (productRepository.findByCode(code).isPresent()) {
-                throw new IllegalArgumentException("Product code '" + code + "' already exists");
-            }
-            product.setCode(code);
-        } else {
-            product.setCode(generateProductCode());
-        }
+        boolean generatedCode = code.isEmpty();
+        product.setCode(generatedCode ? generateProductCode() : code);
 
         // Barcode (optional, auto-generate if empty)
         if (row.length > 1 && !row[1].trim().isEmpty()) {
             String barcode = row[1].trim();
-            if (productRepository.findByBarcode(barcode).isPresent()) {
-                throw new IllegalArgumentException("Barcode '" + barcode + "' already exists");
-            }
             if (!barcodeService.isValidBarcode(barcode)) {
                 throw new IllegalArgumentException("Invalid barcode format: " + barcode);
             }
@@ -279,11 +514,11 @@ public class ProductImportService {
             product.setDescription(row[3].trim());
         }
 
-        // Category (required)
+        // Category (required, resolved per chunk)
         String categoryName = row[4].trim();
-        Category category = categoryRepository.findByName(categoryName)
-                .orElseThrow(() -> new IllegalArgumentException("Category '" + categoryName + "' not found"));
-        product.setCategory(category);
+        if (categoryName.isEmpty()) {
+            throw new IllegalArgumentException("Category is required");
+        }
 
         // Quantity (required)
         try {
@@ -332,33 +567,23 @@ public class ProductImportService {
             product.setManufacturer(row[11].trim());
         }
 
-        return product;
+        return new ImportRow(rowNumber, product, categoryName, generatedCode);
     }
 
     /**
-     * Parse product from Excel row
+     * Parse product from Excel row (cell text as delivered by the streaming reader)
      */
-    private Product parseProductFromExcel(Row row, int rowNumber) {
+    private ImportRow parseProductFromExcel(String[] cells, int rowNumber) {
         Product product = new Product();
 
         // Product Code (optional, auto-generate if empty)
-        String code = getCellValueAsString(row.getCell(0));
-        if (!code.isEmpty()) {
-            // Check if code already exists
-            if (productRepository.findByCode(code).isPresent()) {
-                throw new IllegalArgumentException("Product code '" + code + "' already exists");
-            }
-            product.setCode(code);
-        } else {
-            product.setCode(generateProductCode());
-        }
+        String code = cells[0];
+        boolean generatedCode = code.isEmpty();
+        product.setCode(generatedCode ? generateProductCode() : code);
 
-        // Barcode (optional, will be generated after save if empty)
-        String barcode = getCellValueAsString(row.getCell(1));
+        // Barcode (optional, will be generated after insert if empty)
+        String barcode = cells[1];
         if (!barcode.isEmpty()) {
-            if (productRepository.findByBarcode(barcode).isPresent()) {
-                throw new IllegalArgumentException("Barcode '" + barcode + "' already exists");
-            }
             if (!barcodeService.isValidBarcode(barcode)) {
                 throw new IllegalArgumentException("Invalid barcode format: " + barcode);
             }
@@ -366,68 +591,65 @@ public class ProductImportService {
         }
 
         // Product Name (required)
-        String name = getCellValueAsString(row.getCell(2));
+        String name = cells[2];
         if (name.isEmpty()) {
             throw new IllegalArgumentException("Product name is required");
         }
         product.setName(name);
 
         // Description (optional)
-        product.setDescription(getCellValueAsString(row.getCell(3)));
+        product.setDescription(cells[3]);
 
-        // Category (required)
-        String categoryName = getCellValueAsString(row.getCell(4));
+        // Category (required, resolved per chunk)
+        String categoryName = cells[4];
         if (categoryName.isEmpty()) {
             throw new IllegalArgumentException("Category is required");
         }
 
-        Category category = categoryRepository.findByNameIgnoreCase(categoryName)
-                .orElseThrow(() -> new IllegalArgumentException("Category '" + categoryName + "' not found"));
-        product.setCategory(category);
-
         // Quantity (required)
-        product.setQuantity(getCellValueAsInteger(row.getCell(5)));
+        product.setQuantity(getCellValueAsInteger(cells[5]));
 
         // Min Stock Level (required)
-        product.setMinStockLevel(getCellValueAsInteger(row.getCell(6)));
+        product.setMinStockLevel(getCellValueAsInteger(cells[6]));
 
         // Unit (required)
-        String unit = getCellValueAsString(row.getCell(7));
+        String unit = cells[7];
         if (unit.isEmpty()) {
             throw new IllegalArgumentException("Unit is required");
         }
         product.setUnit(unit);
 
         // Unit Price (required)
-        product.setUnitPrice(getCellValueAsBigDecimal(row.getCell(8)));
+        product.setUnitPrice(getCellValueAsBigDecimal(cells[8]));
 
-        // Expiry Date (optional)
-        if (row.getCell(9) != null) {
-            String expiryDateStr = getCellValueAsString(row.getCell(9));
-            if (!expiryDateStr.isEmpty()) {
-                try {
-                    product.setExpiryDate(LocalDate.parse(expiryDateStr, DATE_FORMATTER));
-                } catch (DateTimeParseException e) {
-                    throw new IllegalArgumentException("Invalid expiry date format. Use YYYY-MM-DD");
-                }
+        // Expiry Date (optional; date-formatted cells arrive as yyyy-MM-dd)
+        if (!cells[9].isEmpty()) {
+            try {
+                product.setExpiryDate(LocalDate.parse(cells[9], DATE_FORMATTER));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid expiry date format. Use YYYY-MM-DD");
             }
         }
 
         // Batch Number (optional)
-        if (row.getCell(10) != null) {
-            product.setBatchNumber(getCellValueAsString(row.getCell(10)));
+        if (!cells[10].isEmpty()) {
+            product.setBatchNumber(cells[10]);
         }
 
         // Manufacturer (optional)
-        if (row.getCell(11) != null) {
-            product.setManufacturer(getCellValueAsString(row.getCell(11)));
+        if (!cells[11].isEmpty()) {
+            product.setManufacturer(cells[11]);
         }
 
         // Set timestamps
         product.setCreatedAt(LocalDateTime.now());
         product.setUpdatedAt(LocalDateTime.now());
 
-        return product;
+        return new ImportRow(rowNumber, product, categoryName, generatedCode);
+    }
+
+    private Set<String> toLowerCase(Collection<String> values) {
+        return values.stream().map(String::toLowerCase).collect(Collectors.toSet());
     }
 
     /**
@@ -441,128 +663,41 @@ public class ProductImportService {
     }
 
     /**
-     * Check if CSV row is empty
+     * Check if a CSV or Excel row is empty
      */
     private boolean isEmptyRow(String[] row) {
         return Arrays.stream(row).allMatch(cell -> cell == null || cell.trim().isEmpty());
     }
 
     /**
-     * Check if Excel row is empty
+     * Get cell value as Integer (numeric cells with a fraction are truncated)
      */
-    private boolean isEmptyRow(Row row) {
-        if (row == null) {
-            return true;
-        }
-
-        for (Cell cell : row) {
-            if (cell != null && cell.getCellType() != CellType.BLANK) {
-                String value = getCellValueAsString(cell);
-                if (!value.trim().isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Get cell value as String
-     */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
-        }
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                }
-                return String.valueOf((int) cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return "";
-        }
-    }
-
-    /**
-     * Get cell value as Integer
-     */
-    private int getCellValueAsInteger(Cell cell) {
-        if (cell == null) {
+    private int getCellValueAsInteger(String value) {
+        if (value.isEmpty()) {
             throw new IllegalArgumentException("Required field is empty");
         }
-
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return (int) cell.getNumericCellValue();
-            case STRING:
-                try {
-                    return Integer.parseInt(cell.getStringCellValue().trim());
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("Invalid number: " + cell.getStringCellValue());
-                }
-            default:
-                throw new IllegalArgumentException("Invalid number format");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            try {
+                return new BigDecimal(value).intValue();
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid number: " + value);
+            }
         }
     }
 
     /**
      * Get cell value as BigDecimal
      */
-    private BigDecimal getCellValueAsBigDecimal(Cell cell) {
-        if (cell == null) {
+    private BigDecimal getCellValueAsBigDecimal(String value) {
+        if (value.isEmpty()) {
             throw new IllegalArgumentException("Required field is empty");
         }
-
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            case STRING:
-                try {
-                    return new BigDecimal(cell.getStringCellValue().trim());
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("Invalid numeric value: " + cell.getStringCellValue());
-                }
-            default:
-                throw new IllegalArgumentException("Invalid cell type for numeric value");
-        }
-    }
-
-    /**
-     * Get cell value as LocalDate
-     */
-    private LocalDate getCellValueAsDate(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toInstant()
-                            .atZone(java.time.ZoneId.systemDefault())
-                            .toLocalDate();
-                }
-                throw new IllegalArgumentException("Invalid date format");
-            case STRING:
-                String dateStr = cell.getStringCellValue().trim();
-                if (dateStr.isEmpty()) {
-                    return null;
-                }
-                try {
-                    return LocalDate.parse(dateStr, DATE_FORMATTER);
-                } catch (DateTimeParseException e) {
-                    throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
-                }
-            default:
-                return null;
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid numeric value: " + value);
         }
     }
-}
\ No newline at end of file
+}
@@ -13,6 +13,7 @@ import com.medicorex.repository.StockTransactionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +31,11 @@ public class ProductService {
     private final StockTransactionRepository stockTransactionRepository;
     private final FileService fileService;
     private final BarcodeService barcodeService;
+    private final ProductStockLedger stockLedger;
+    private final ProductStockLocks stockLocks;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String LOCK_QUANTITY_SQL = "SELECT quantity FROM products WHERE id = ? FOR UPDATE";
 
     public PageResponseDTO<ProductDTO> getAllProducts(Pageable pageable) {
         Page<Product> productPage = productRepository.findAll(pageable);
@@ -121,7 +127,15 @@ public class ProductService {
         return convertToDTO(finalProduct);
     }
 
+    /**
+     * Update a product. A changed quantity is applied as an on-hand delta against the quantity read under
+     * the product's stock stripe and row lock, so a concurrent adjustment or receipt cannot slip in between.
+     */
     public ProductDTO updateProduct(Long id, ProductCreateDTO productCreateDTO) {
+        return stockLocks.callLocked(id, () -> updateProductLocked(id, productCreateDTO));
+    }
+
+    private ProductDTO updateProductLocked(Long id, ProductCreateDTO productCreateDTO) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
 
@@ -149,6 +163,8 @@ public class ProductService {
         Category category = categoryRepository.findById(productCreateDTO.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", productCreateDTO.getCategoryId()));
 
+        // Current committed quantity; the row lock also covers writers on other application instances
+        Integer previousQuantity = jdbcTemplate.queryForObject(LOCK_QUANTITY_SQL, Integer.class, id);
         updateProductFromDTO(product, productCreateDTO, category);
 
         // Generate barcode if not provided and doesn't exist
@@ -166,6 +182,10 @@ public class ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+
+        // Quantity is not written by the entity update; apply the edit as an on-hand delta
+        stockLedger.applyDelta(updatedProduct.getId(), updatedProduct.getQuantity() - previousQuantity);
+
         return convertToDTO(updatedProduct);
     }
 
@@ -0,0 +1,97 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single write path for the on-hand counter in products.quantity.
+ * Every batch movement reports its net effect as a delta that is applied with an atomic
+ * {@code quantity = quantity + ?} update, instead of re-summing product_batches and saving the
+ * whole product row. Product.quantity is insert-only on the entity, so a stale managed product can
+ * never overwrite the counter. {@link ProductStockReconciliationService} reports any drift from
+ * the batch sums.
+ */
+@Slf4j
+@Component
+public class ProductStockLedger {
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE products SET quantity = quantity + ?, last_updated = ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ProductStockLedger(JdbcTemplate jdbcTemplate,
+                              @Value("${stock.ledger.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Whether a batch in this status counts towards the product's on-hand quantity
+     */
+    public static boolean countsOnHand(ProductBatch.BatchStatus status) {
+        return status == ProductBatch.BatchStatus.ACTIVE || status == ProductBatch.BatchStatus.QUARANTINED;
+    }
+
+    /**
+     * On-hand effect of a batch moving from one quantity/status to another
+     */
+    public static int delta(int oldQuantity, ProductBatch.BatchStatus oldStatus,
+                            int newQuantity, ProductBatch.BatchStatus newStatus) {
+        return (countsOnHand(newStatus) ? newQuantity : 0) - (countsOnHand(oldStatus) ? oldQuantity : 0);
+    }
+
+    /**
+     * Apply a delta and mirror it on the product instance when it is already loaded
+     */
+    public void applyDelta(Product product, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        applyDelta(product.getId(), delta);
+        if (Hibernate.isInitialized(product)) {
+            product.setQuantity(product.getQuantity() + delta);
+        }
+    }
+
+    public void applyDelta(Long productId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(APPLY_DELTA_SQL, delta, now, now, productId);
+    }
+
+    /**
+     * Apply deltas for many products as one JDBC batch
+     */
+    public void applyDeltas(Map<Long, Integer> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        deltas.forEach((productId, delta) -> {
+            if (delta != null && delta != 0) {
+                args.add(new Object[]{delta, now, now, productId});
+            }
+        });
+        if (args.isEmpty()) {
+            return;
+        }
+
+        for (int from = 0; from < args.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, args.subList(from, Math.min(from + batchSize, args.size())));
+        }
+        log.debug("Applied on-hand deltas for {} product(s)", args.size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.medicorex.service;
+
+import com.medicorex.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks keyed by product id. Stock consumers of the same product queue here
+ * instead of piling up on database row locks, while different products (almost always on
+ * different stripes) proceed in parallel. When called inside a transaction the stripe stays locked
+ * until the transaction completes, so the next consumer only runs once the previous one's writes
+ * are committed. Row locks taken by the caller still guard against other application instances.
+ */
+@Component
+public class ProductStockLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public ProductStockLocks(@Value("${batch.consumption.lock-stripes:64}") int stripeCount,
+                             @Value("${batch.consumption.lock-timeout-ms:10000}") long timeoutMillis) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Run the action holding the product's stripe (until transaction completion when one is active)
+     */
+    public <T> T callLocked(Long productId, Supplier<T> action) {
+        return callLocked(List.of(productId), action);
+    }
+
+    /**
+     * Run the action holding the stripes of all given products. Stripes are taken in index order
+     * so concurrent multi-product callers cannot deadlock each other.
+     */
+    public <T> T callLocked(Collection<Long> productIds, Supplier<T> action) {
+        TreeMap<Integer, Long> stripeOwners = new TreeMap<>();
+        for (Long productId : productIds) {
+            stripeOwners.putIfAbsent(stripeIndex(productId), productId);
+        }
+
+        List<ReentrantLock> held = new ArrayList<>(stripeOwners.size());
+        try {
+            for (Map.Entry<Integer, Long> stripe : stripeOwners.entrySet()) {
+                ReentrantLock lock = stripes[stripe.getKey()];
+                acquire(lock, stripe.getValue());
+                held.add(lock);
+            }
+        } catch (RuntimeException e) {
+            unlockAll(held);
+            throw e;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                return action.get();
+            } finally {
+                unlockAll(held);
+            }
+        }
+
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    unlockAll(held);
+                }
+            });
+        } catch (RuntimeException e) {
+            unlockAll(held);
+            throw e;
+        }
+        return action.get();
+    }
+
+    private void acquire(ReentrantLock lock, Long productId) {
+        try {
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException("Stock for product " + productId + " is busy. Please retry.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Interrupted while waiting for stock of product " + productId);
+        }
+    }
+
+    private void unlockAll(List<ReentrantLock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).unlock();
+        }
+    }
+
+    private int stripeIndex(Long productId) {
+        int hash = Long.hashCode(productId);
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, stripes.length);
+    }
+}
@@ -0,0 +1,101 @@
+package com.medicorex.service;
+
+import com.medicorex.dto.StockReconciliationDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the on-hand counter kept by {@link ProductStockLedger} with the ACTIVE + QUARANTINED
+ * batch sums and reports any drift. Only products that have batches are checked; stock added by
+ * plain adjustments (without a batch) shows up as positive drift. Correction is opt-in.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductStockReconciliationService {
+
+    private static final String DRIFT_SQL =
+            "SELECT p.id, p.name, p.code, p.quantity, " +
+            "COALESCE(SUM(CASE WHEN b.status IN ('ACTIVE', 'QUARANTINED') THEN b.quantity ELSE 0 END), 0) AS batch_total " +
+            "FROM products p JOIN product_batches b ON b.product_id = p.id " +
+            "GROUP BY p.id, p.name, p.code, p.quantity " +
+            "HAVING p.quantity <> batch_total";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductStockLedger stockLedger;
+
+    @Value("${stock.ledger.reconcile.auto-correct:false}")
+    private boolean autoCorrect;
+
+    @Value("${stock.ledger.reconcile.report-limit:20}")
+    private int reportLimit;
+
+    /**
+     * Nightly drift check (after the expired-batch marking jobs)
+     */
+    @Scheduled(cron = "${stock.ledger.reconcile.cron:0 45 3 * * *}")
+    public void scheduledReconciliation() {
+        try {
+            reconcile(autoCorrect);
+        } catch (Exception e) {
+            log.error("On-hand stock reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find products whose on-hand quantity differs from their batch sum; optionally reset them to it
+     */
+    @Transactional
+    public StockReconciliationDTO reconcile(boolean correct) {
+        List<StockReconciliationDTO.ProductDrift> drifts = jdbcTemplate.query(DRIFT_SQL, (rs, rowNum) -> {
+            int onHand = rs.getInt("quantity");
+            int batchTotal = rs.getInt("batch_total");
+            return StockReconciliationDTO.ProductDrift.builder()
+                    .productId(rs.getLong("id"))
+                    .productName(rs.getString("name"))
+                    .productCode(rs.getString("code"))
+                    .onHandQuantity(onHand)
+                    .batchQuantity(batchTotal)
+                    .drift(onHand - batchTotal)
+                    .build();
+        });
+
+        long totalAbsoluteDrift = drifts.stream().mapToLong(d -> Math.abs(d.getDrift())).sum();
+
+        if (correct && !drifts.isEmpty()) {
+            Map<Long, Integer> corrections = new LinkedHashMap<>();
+            drifts.forEach(d -> corrections.put(d.getProductId(), -d.getDrift()));
+            stockLedger.applyDeltas(corrections);
+        }
+
+        if (drifts.isEmpty()) {
+            log.info("On-hand stock reconciliation: no drift");
+        } else {
+            log.warn("On-hand stock reconciliation: {} product(s) drift from batch totals by {} unit(s){}",
+                    drifts.size(), totalAbsoluteDrift, correct ? " - corrected" : "");
+        }
+
+        return StockReconciliationDTO.builder()
+                .checkedAt(LocalDateTime.now())
+                .productsWithDrift(drifts.size())
+                .totalAbsoluteDrift(totalAbsoluteDrift)
+                .corrected(correct && !drifts.isEmpty())
+                .drifts(drifts.stream()
+                        .sorted(Comparator.comparingInt((StockReconciliationDTO.ProductDrift d) -> Math.abs(d.getDrift()))
+                                .reversed())
+                        .limit(Math.max(0, reportLimit))
+                        .toList())
+                .build();
+    }
+}
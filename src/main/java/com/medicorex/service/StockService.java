@@ -1,8 +1,11 @@
 package com.medicorex.service;
 
+import com.medicorex.dto.BulkStockAdjustmentDTO;
+import com.medicorex.dto.BulkStockAdjustmentResultDTO;
 import com.medicorex.dto.PageResponseDTO;
 import com.medicorex.dto.StockAdjustmentDTO;
 import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
 import com.medicorex.entity.StockTransaction;
 import com.medicorex.entity.TransactionType;
 import com.medicorex.entity.User;
@@ -12,15 +15,23 @@ import com.medicorex.repository.ProductRepository;
 import com.medicorex.repository.StockTransactionRepository;
 import com.medicorex.repository.UserRepository;
 import com.medicorex.service.ProductBatchService;
+import com.medicorex.service.expiry.BatchExpiryIndex;
+import com.medicorex.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -35,9 +46,47 @@ public class StockService {
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final ProductBatchService batchService;
-
+    private final ProductStockLocks stockLocks;
+    private final ProductStockLedger stockLedger;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final BatchExpiryIndex expiryIndex;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${stock.bulk.max-lines:1000}")
+    private int bulkMaxLines;
+
+    @Value("${stock.bulk.jdbc-batch-size:500}")
+    private int bulkJdbcBatchSize;
+
+    private static final String LOCK_BATCHES_SQL =
+            "SELECT id, product_id, batch_number, expiry_date, quantity FROM product_batches " +
+            "WHERE product_id IN (:productIds) AND status = 'ACTIVE' " +
+            "ORDER BY product_id, expiry_date, id FOR UPDATE";
+
+    private static final String UPDATE_BATCH_SQL =
+            "UPDATE product_batches SET quantity = ?, status = ?, updated_at = ? WHERE id = ?";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO stock_transactions (product_id, transaction_type, quantity, balance_after, type, reason, " +
+            "transaction_date, reference, notes, performed_by, before_quantity, after_quantity, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final List<String> STOCK_ROLES = Arrays.asList("HOSPITAL_MANAGER", "PHARMACY_STAFF");
+
+    /**
+     * Adjust one product's stock. The product's stock stripe is taken before its quantity is read, so the
+     * insufficient-stock check and the before/after quantities cannot interleave with another adjustment.
+     */
     @Transactional
     public void adjustStock(StockAdjustmentDTO adjustmentDTO) {
+        stockLocks.callLocked(adjustmentDTO.getProductId(), () -> {
+            adjustStockLocked(adjustmentDTO);
+            return null;
+        });
+    }
+
+    private void adjustStockLocked(StockAdjustmentDTO adjustmentDTO) {
         Product product = productRepository.findById(adjustmentDTO.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", adjustmentDTO.getProductId()));
 
@@ -86,7 +135,7 @@ public class StockService {
         } else if (adjustmentQuantity > 0) {
             // Stock is being added - just update product total
             // Note: Actual batch creation should be done via goods receipt or manual batch creation
-            product.setQuantity(newQuantity);
+            stockLedger.applyDelta(product, adjustmentQuantity);
             product.setLastUpdated(LocalDateTime.now());
             product.setLastStockCheck(LocalDateTime.now());
             productRepository.save(product);
@@ -155,6 +204,271 @@ public class StockService {
         }
     }
 
+    /**
+     * Apply many adjustment lines in one transaction (e.g. a pharmacy counter dispensing a basket).
+     * The ACTIVE batches of all affected products are read and locked with a single query, consumed FIFO
+     * in memory and written back with JDBC batches; each product's on-hand quantity gets one net delta.
+     * The whole request fails if any line cannot be satisfied, and notifications are only sent once it commits.
+     */
+    @Transactional
+    public BulkStockAdjustmentResultDTO adjustStockBulk(BulkStockAdjustmentDTO bulkDTO) {
+        List<StockAdjustmentDTO> lines = bulkDTO.getLines();
+        if (lines.size() > bulkMaxLines) {
+            throw new BusinessException("A bulk adjustment may contain at most " + bulkMaxLines + " lines");
+        }
+
+        Set<Long> productIds = new TreeSet<>();
+        for (StockAdjustmentDTO line : lines) {
+            productIds.add(line.getProductId());
+        }
+
+        return stockLocks.callLocked(productIds, () -> adjustStockBulkLocked(lines, productIds));
+    }
+
+    private BulkStockAdjustmentResultDTO adjustStockBulkLocked(List<StockAdjustmentDTO> lines, Set<Long> productIds) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+        }
+
+        // One locking read for the batches of every product, already in FIFO order
+        Map<Long, List<LockedBatch>> activeBatches = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_BATCHES_SQL, Map.of("productIds", productIds), rs -> {
+            LockedBatch batch = new LockedBatch(
+                    rs.getLong("id"),
+                    rs.getLong("product_id"),
+                    rs.getString("batch_number"),
+                    rs.getObject("expiry_date", LocalDate.class),
+                    rs.getInt("quantity"));
+            activeBatches.computeIfAbsent(batch.productId, id -> new ArrayList<>()).add(batch);
+        });
+
+        Map<Long, Integer> startQuantities = new LinkedHashMap<>();
+        Map<Long, Integer> balances = new HashMap<>();
+        for (Long productId : productIds) {
+            int start = products.get(productId).getQuantity();
+            startQuantities.put(productId, start);
+            balances.put(productId, start);
+        }
+
+        // Consume in memory, line by line
+        LocalDateTime now = LocalDateTime.now();
+        Long performedBy = getCurrentUserId();
+        Set<LockedBatch> touchedBatches = new LinkedHashSet<>();
+        List<StockTransaction> transactions = new ArrayList<>(lines.size());
+
+        for (StockAdjustmentDTO line : lines) {
+            Product product = products.get(line.getProductId());
+            int before = balances.get(product.getId());
+            int adjustment = line.getQuantity();
+
+            if (adjustment < 0) {
+                consumeFifo(product, activeBatches.getOrDefault(product.getId(), Collections.emptyList()),
+                        -adjustment, touchedBatches);
+            }
+
+            int after = before + adjustment;
+            balances.put(product.getId(), after);
+
+            StockTransaction transaction = new StockTransaction();
+            transaction.setProduct(product);
+            transaction.setTransactionType(TransactionType.fromString(line.getType()));
+            transaction.setQuantity(Math.abs(adjustment));
+            transaction.setBalanceAfter(after);
+            transaction.setType(line.getType().toUpperCase());
+            transaction.setReason(line.getNotes() != null ? line.getNotes() : "Stock adjustment");
+            transaction.setTransactionDate(now);
+            transaction.setReference(line.getReference());
+            transaction.setNotes(line.getNotes());
+            transaction.setPerformedBy(performedBy);
+            transaction.setBeforeQuantity(before);
+            transaction.setAfterQuantity(after);
+            transaction.setCreatedAt(now);
+            transactions.add(transaction);
+        }
+
+        // Flush everything as JDBC batches
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(UPDATE_BATCH_SQL, touchedBatches, bulkJdbcBatchSize, (ps, batch) -> {
+            ps.setInt(1, batch.quantity);
+            ps.setString(2, batch.quantity == 0
+                    ? ProductBatch.BatchStatus.DEPLETED.name()
+                    : ProductBatch.BatchStatus.ACTIVE.name());
+            ps.setTimestamp(3, timestamp);
+            ps.setLong(4, batch.id);
+        });
+        Map<Long, Integer> onHandDeltas = new HashMap<>();
+        startQuantities.forEach((productId, start) -> onHandDeltas.put(productId, balances.get(productId) - start));
+        stockLedger.applyDeltas(onHandDeltas);
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, transactions, bulkJdbcBatchSize, (ps, tx) -> {
+            ps.setLong(1, tx.getProduct().getId());
+            ps.setString(2, tx.getTransactionType().name());
+            ps.setInt(3, tx.getQuantity());
+            ps.setInt(4, tx.getBalanceAfter());
+            ps.setString(5, tx.getType());
+            ps.setString(6, tx.getReason());
+            ps.setTimestamp(7, timestamp);
+            ps.setString(8, tx.getReference());
+            ps.setString(9, tx.getNotes());
+            ps.setLong(10, tx.getPerformedBy());
+            ps.setInt(11, tx.getBeforeQuantity());
+            ps.setInt(12, tx.getAfterQuantity());
+            ps.setTimestamp(13, timestamp);
+        });
+
+        List<LockedBatch> depletedBatches = touchedBatches.stream().filter(b -> b.quantity == 0).toList();
+        syncExpiryIndexAfterCommit(touchedBatches);
+
+        log.info("Bulk stock adjustment applied: {} line(s), {} product(s), {} batch(es) updated, {} depleted",
+                lines.size(), productIds.size(), touchedBatches.size(), depletedBatches.size());
+
+        sendBulkNotifications(lines, products, balances, depletedBatches);
+
+        List<BulkStockAdjustmentResultDTO.ProductStockResult> results = new ArrayList<>();
+        startQuantities.forEach((productId, start) -> results.add(
+                BulkStockAdjustmentResultDTO.ProductStockResult.builder()
+                        .productId(productId)
+                        .productName(products.get(productId).getName())
+                        .quantityBefore(start)
+                        .quantityAfter(balances.get(productId))
+                        .build()));
+
+        return BulkStockAdjustmentResultDTO.builder()
+                .linesProcessed(lines.size())
+                .productsAffected(productIds.size())
+                .batchesUpdated(touchedBatches.size())
+                .batchesDepleted(depletedBatches.size())
+                .products(results)
+                .build();
+    }
+
+    private void consumeFifo(Product product, List<LockedBatch> batches, int quantity, Set<LockedBatch> touched) {
+        int available = 0;
+        for (LockedBatch batch : batches) {
+            available += batch.quantity;
+        }
+        if (available < quantity) {
+            throw new BusinessException(String.format(
+                    "Insufficient stock for %s. Requested: %d, Available: %d", product.getName(), quantity, available));
+        }
+
+        int remaining = quantity;
+        for (LockedBatch batch : batches) {
+            if (remaining <= 0) break;
+            if (batch.quantity == 0) continue;
+
+            int consumed = Math.min(batch.quantity, remaining);
+            batch.quantity -= consumed;
+            remaining -= consumed;
+            touched.add(batch);
+        }
+    }
+
+    /**
+     * JDBC writes bypass the JPA listener, so mirror them into the expiry index once committed
+     */
+    private void syncExpiryIndexAfterCommit(Collection<LockedBatch> batches) {
+        List<BatchExpiryIndex.BatchEntry> updated = new ArrayList<>();
+        List<Long> depleted = new ArrayList<>();
+        for (LockedBatch batch : batches) {
+            if (batch.quantity == 0) {
+                depleted.add(batch.id);
+            } else {
+                updated.add(new BatchExpiryIndex.BatchEntry(
+                        batch.id, batch.productId, batch.batchNumber, batch.expiryDate, batch.quantity));
+            }
+        }
+
+        Runnable sync = () -> {
+            updated.forEach(expiryIndex::put);
+            depleted.forEach(expiryIndex::remove);
+        };
+        TransactionCallbacks.afterCommit(sync);
+    }
+
+    /**
+     * One STOCK_ADJUSTED per product (not per line), plus low/out-of-stock and batch depletion alerts.
+     * Sent after commit, so a rolled-back adjustment never notifies anyone.
+     */
+    private void sendBulkNotifications(List<StockAdjustmentDTO> lines, Map<Long, Product> products,
+                                       Map<Long, Integer> balances, List<LockedBatch> depletedBatches) {
+        TransactionCallbacks.afterCommitInNewTransaction(transactionManager,
+                "send bulk stock adjustment notifications",
+                () -> doSendBulkNotifications(lines, products, balances, depletedBatches));
+    }
+
+    private void doSendBulkNotifications(List<StockAdjustmentDTO> lines, Map<Long, Product> products,
+                                         Map<Long, Integer> balances, List<LockedBatch> depletedBatches) {
+        Map<Long, Integer> adjustedUnits = new LinkedHashMap<>();
+        Map<Long, Set<String>> adjustmentTypes = new HashMap<>();
+        for (StockAdjustmentDTO line : lines) {
+            adjustedUnits.merge(line.getProductId(), Math.abs(line.getQuantity()), Integer::sum);
+            adjustmentTypes.computeIfAbsent(line.getProductId(), id -> new LinkedHashSet<>())
+                    .add(line.getType().toLowerCase());
+        }
+
+        for (Map.Entry<Long, Integer> entry : adjustedUnits.entrySet()) {
+            Product product = products.get(entry.getKey());
+            int newQuantity = balances.get(product.getId());
+
+            Map<String, String> params = new HashMap<>();
+            params.put("productName", product.getName());
+            params.put("adjustmentType", String.join(", ", adjustmentTypes.get(product.getId())));
+            params.put("quantity", String.valueOf(entry.getValue()));
+            params.put("newQuantity", String.valueOf(newQuantity));
+            notificationService.notifyUsersByRole(STOCK_ROLES, "STOCK_ADJUSTED", params,
+                    Map.of("productId", product.getId()));
+
+            if (newQuantity > 0 && newQuantity <= product.getMinStock()) {
+                Map<String, String> lowStockParams = new HashMap<>();
+                lowStockParams.put("productName", product.getName());
+                lowStockParams.put("quantity", String.valueOf(newQuantity));
+                lowStockParams.put("minStock", String.valueOf(product.getMinStock()));
+                notificationService.notifyUsersByRole(STOCK_ROLES, "LOW_STOCK", lowStockParams,
+                        Map.of("productId", product.getId()));
+            }
+
+            if (newQuantity == 0) {
+                Map<String, String> outOfStockParams = new HashMap<>();
+                outOfStockParams.put("productName", product.getName());
+                notificationService.notifyUsersByRole(STOCK_ROLES, "OUT_OF_STOCK", outOfStockParams,
+                        Map.of("productId", product.getId()));
+            }
+        }
+
+        for (LockedBatch batch : depletedBatches) {
+            Map<String, String> params = new HashMap<>();
+            params.put("batchNumber", batch.batchNumber);
+            params.put("productName", products.get(batch.productId).getName());
+            notificationService.notifyUsersByRole(STOCK_ROLES, "BATCH_DEPLETED", params,
+                    Map.of("batchId", batch.id, "productId", batch.productId));
+        }
+    }
+
+    /**
+     * Batch row locked by the bulk adjustment; quantity is consumed in memory before being written back
+     */
+    private static final class LockedBatch {
+        private final long id;
+        private final long productId;
+        private final String batchNumber;
+        private final LocalDate expiryDate;
+        private int quantity;
+
+        private LockedBatch(long id, long productId, String batchNumber, LocalDate expiryDate, int quantity) {
+            this.id = id;
+            this.productId = productId;
+            this.batchNumber = batchNumber;
+            this.expiryDate = expiryDate;
+            this.quantity = quantity;
+        }
+    }
+
     @Transactional(readOnly = true)
     public PageResponseDTO<StockTransaction> getStockTransactions(Long productId, Pageable pageable) {
         Page<StockTransaction> transactions;
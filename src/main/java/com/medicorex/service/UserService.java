@@ -159,6 +159,8 @@ public class UserService {
             fileService.deleteFile(user.getProfileImageUrl());
         }
 
+        // notifications has no ON DELETE CASCADE foreign key once partitioned
+        notificationService.deleteUserNotifications(id);
         userRepository.deleteById(id);
     }
 
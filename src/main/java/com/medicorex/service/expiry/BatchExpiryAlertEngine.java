@@ -0,0 +1,437 @@
+package com.medicorex.service.expiry;
+
+import com.medicorex.dto.BatchExpiryRunDTO;
+import com.medicorex.entity.ExpiryAlertConfig;
+import com.medicorex.entity.ExpiryCheckPartition;
+import com.medicorex.entity.ExpiryCheckPartition.PartitionStatus;
+import com.medicorex.exception.ResourceNotFoundException;
+import com.medicorex.repository.ExpiryAlertConfigRepository;
+import com.medicorex.repository.ExpiryCheckPartitionRepository;
+import com.medicorex.service.NotificationService;
+import com.medicorex.util.LongHashSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Evaluates ACTIVE product batches against the expiry alert tiers.
+ * The products that own candidate batches are split into contiguous id ranges, and every range is
+ * evaluated on the bounded expiry worker pool in its own transaction: existing batch alerts of the
+ * range are loaded with one query, tiers are matched in memory and new alerts are written as one
+ * JDBC batch together with the partition's COMPLETED checkpoint. A failed partition is recorded as
+ * FAILED and can be re-run later via {@link #retryFailedPartitions(Long)}.
+ * <p>
+ * A batch counts as expired when its expiry date is on or before the check date (day 0 is expired, not
+ * "expires in 0 days"). An expired batch without any alert gets one EXPIRED_PRODUCT notification and a
+ * SENT marker row under the most urgent tier, so later runs see it as alerted and do not notify again.
+ */
+@Slf4j
+@Component
+public class BatchExpiryAlertEngine {
+
+    private static final String PARTITION_PRODUCTS_SQL =
+            "SELECT DISTINCT product_id FROM product_batches " +
+            "WHERE status = 'ACTIVE' AND expiry_date IS NOT NULL AND expiry_date <= ? ORDER BY product_id";
+
+    private static final String EXISTING_ALERTS_SQL =
+            "SELECT batch_id, config_id FROM expiry_alerts " +
+            "WHERE batch_id IS NOT NULL AND product_id BETWEEN ? AND ?";
+
+    private static final String CANDIDATE_BATCHES_SQL =
+            "SELECT b.id, b.product_id, b.batch_number, b.expiry_date, b.quantity, p.name " +
+            "FROM product_batches b JOIN products p ON p.id = b.product_id " +
+            "WHERE b.status = 'ACTIVE' AND b.expiry_date IS NOT NULL AND b.expiry_date <= ? " +
+            "AND b.product_id BETWEEN ? AND ?";
+
+    private static final String INSERT_ALERT_SQL =
+            "INSERT INTO expiry_alerts (product_id, config_id, batch_id, batch_number, alert_date, expiry_date, " +
+            "quantity_affected, status, notes, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExpiryAlertConfigRepository configRepository;
+    private final ExpiryCheckPartitionRepository partitionRepository;
+    private final NotificationService notificationService;
+    private final TaskExecutor executor;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${expiry.batch-alerts.partition-size:500}")
+    private int partitionSize;
+
+    @Value("${expiry.alerts.insert-batch-size:1000}")
+    private int insertBatchSize;
+
+    public BatchExpiryAlertEngine(JdbcTemplate jdbcTemplate,
+                                  ExpiryAlertConfigRepository configRepository,
+                                  ExpiryCheckPartitionRepository partitionRepository,
+                                  NotificationService notificationService,
+                                  @Qualifier("expiryPartitionExecutor") TaskExecutor executor,
+                                  PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.configRepository = configRepository;
+        this.partitionRepository = partitionRepository;
+        this.notificationService = notificationService;
+        this.executor = executor;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Plan the partitions for a check and evaluate them in parallel
+     */
+    public BatchExpiryRunDTO evaluate(LocalDate checkDate, Long checkLogId) {
+        long start = System.currentTimeMillis();
+
+        List<Tier> tiers = loadTiers();
+        if (tiers.isEmpty()) {
+            log.warn("No active expiry alert configurations found");
+            return summarize(checkLogId, checkDate, Collections.emptyList(), start);
+        }
+
+        List<ExpiryCheckPartition> partitions = requiresNew.execute(status ->
+                partitionRepository.saveAll(planPartitions(checkDate, checkLogId, horizon(checkDate, tiers))));
+        log.info("Evaluating batch expiry for {} in {} partition(s)", checkDate, partitions.size());
+
+        runPartitions(partitions, tiers);
+        return summarize(checkLogId, checkDate, loadPartitions(checkLogId), start);
+    }
+
+    /**
+     * Re-run only the FAILED partitions of an earlier check
+     */
+    public BatchExpiryRunDTO retryFailedPartitions(Long checkLogId) {
+        long start = System.currentTimeMillis();
+
+        List<ExpiryCheckPartition> all = loadPartitions(checkLogId);
+        if (all.isEmpty()) {
+            throw new ResourceNotFoundException("ExpiryCheckPartition", "checkLogId", checkLogId);
+        }
+
+        List<ExpiryCheckPartition> failed = all.stream()
+                .filter(p -> p.getStatus() == PartitionStatus.FAILED)
+                .toList();
+        if (!failed.isEmpty()) {
+            log.info("Retrying {} failed batch expiry partition(s) of check log {}", failed.size(), checkLogId);
+            runPartitions(failed, loadTiers());
+        }
+
+        return summarize(checkLogId, all.get(0).getCheckDate(), loadPartitions(checkLogId), start);
+    }
+
+    /**
+     * Read checkpoints in a fresh transaction so the caller's snapshot does not hide the workers' commits
+     */
+    private List<ExpiryCheckPartition> loadPartitions(Long checkLogId) {
+        return requiresNew.execute(status -> partitionRepository.findByCheckLogIdOrderByPartitionIndexAsc(checkLogId));
+    }
+
+    /**
+     * Queue every partition on the worker pool; a partition the full queue rejects is marked FAILED
+     */
+    private void runPartitions(List<ExpiryCheckPartition> partitions, List<Tier> tiers) {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (ExpiryCheckPartition partition : partitions) {
+            try {
+                futures.add(CompletableFuture.runAsync(() -> runPartition(partition.getId(), tiers), executor));
+            } catch (RejectedExecutionException e) {
+                log.error("Batch expiry partition {} rejected by the worker pool", partition.getId());
+                markFailed(partition.getId(), e);
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Evaluate one partition; alerts and the COMPLETED checkpoint commit together
+     */
+    private void runPartition(Long partitionId, List<Tier> tiers) {
+        List<NewAlert> created;
+        try {
+            created = requiresNew.execute(status -> {
+                ExpiryCheckPartition partition = partitionRepository.findById(partitionId)
+                        .orElseThrow(() -> new ResourceNotFoundException("ExpiryCheckPartition", "id", partitionId));
+                partition.setStartTime(LocalDateTime.now());
+                partition.setAttempts(partition.getAttempts() + 1);
+
+                List<NewAlert> alerts = new ArrayList<>();
+                int checked = evaluatePartition(partition, tiers, alerts);
+                insertAlerts(alerts, partition, mostUrgent(tiers));
+
+                partition.setStatus(PartitionStatus.COMPLETED);
+                partition.setBatchesChecked(checked);
+                partition.setAlertsGenerated((int) alerts.stream().filter(a -> a.tier != null).count());
+                partition.setErrorMessage(null);
+                partition.setEndTime(LocalDateTime.now());
+                partitionRepository.save(partition);
+                return alerts;
+            });
+        } catch (Exception e) {
+            log.error("Batch expiry partition {} failed: {}", partitionId, e.getMessage(), e);
+            markFailed(partitionId, e);
+            return;
+        }
+
+        sendNotifications(created);
+    }
+
+    /**
+     * Match the partition's candidate batches against the tiers (most urgent tier first)
+     */
+    private int evaluatePartition(ExpiryCheckPartition partition, List<Tier> tiers, List<NewAlert> alerts) {
+        long from = partition.getProductIdFrom();
+        long to = partition.getProductIdTo();
+        LocalDate checkDate = partition.getCheckDate();
+
+        // Batches already alerted, per tier and regardless of tier
+        Map<Long, LongHashSet> alertedByTier = new HashMap<>();
+        for (Tier tier : tiers) {
+            alertedByTier.put(tier.id, new LongHashSet());
+        }
+        LongHashSet alerted = new LongHashSet();
+        jdbcTemplate.query(EXISTING_ALERTS_SQL, rs -> {
+            long batchId = rs.getLong("batch_id");
+            alerted.add(batchId);
+            LongHashSet batches = alertedByTier.get(rs.getLong("config_id"));
+            if (batches != null) {
+                batches.add(batchId);
+            }
+        }, from, to);
+
+        int[] checked = new int[1];
+        jdbcTemplate.query(CANDIDATE_BATCHES_SQL, rs -> {
+            checked[0]++;
+            long batchId = rs.getLong("id");
+            LocalDate expiryDate = rs.getObject("expiry_date", LocalDate.class);
+            long daysUntilExpiry = ChronoUnit.DAYS.between(checkDate, expiryDate);
+
+            Tier tier = null;
+            // Expiry day 0 already counts as expired
+            if (daysUntilExpiry > 0) {
+                tier = matchTier(tiers, daysUntilExpiry);
+                if (tier == null || alertedByTier.get(tier.id).contains(batchId)) {
+                    return;
+                }
+            } else if (alerted.contains(batchId)) {
+                return;
+            }
+
+            // A null tier marks an expired batch: EXPIRED_PRODUCT notification plus a SENT marker row
+            alerts.add(new NewAlert(batchId, rs.getLong("product_id"), rs.getString("name"),
+                    rs.getString("batch_number"), expiryDate, rs.getInt("quantity"), tier, daysUntilExpiry));
+        }, Date.valueOf(horizon(checkDate, tiers)), from, to);
+
+        return checked[0];
+    }
+
+    /**
+     * Tiered alerts are inserted PENDING; expired batches get a SENT marker under {@code expiredTier},
+     * since their only action (the notification) is sent right after the commit
+     */
+    private void insertAlerts(List<NewAlert> alerts, ExpiryCheckPartition partition, Tier expiredTier) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+
+        Date alertDate = Date.valueOf(partition.getCheckDate());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String notes = "Generated by check log: " + partition.getCheckLogId();
+        jdbcTemplate.batchUpdate(INSERT_ALERT_SQL, alerts, insertBatchSize, (ps, alert) -> {
+            boolean expired = alert.tier == null;
+            ps.setLong(1, alert.productId);
+            ps.setLong(2, expired ? expiredTier.id : alert.tier.id);
+            ps.setLong(3, alert.batchId);
+            ps.setString(4, alert.batchNumber);
+            ps.setDate(5, alertDate);
+            ps.setDate(6, Date.valueOf(alert.expiryDate));
+            ps.setInt(7, alert.quantity);
+            ps.setString(8, expired ? "SENT" : "PENDING");
+            ps.setString(9, expired ? notes + " (batch expired)" : notes);
+            ps.setTimestamp(10, now);
+        });
+    }
+
+    private void markFailed(Long partitionId, Exception e) {
+        try {
+            requiresNew.executeWithoutResult(status -> partitionRepository.findById(partitionId).ifPresent(partition -> {
+                partition.setStatus(PartitionStatus.FAILED);
+                partition.setAttempts(partition.getAttempts() + 1);
+                partition.setErrorMessage(e.getMessage());
+                partition.setEndTime(LocalDateTime.now());
+                partitionRepository.save(partition);
+            }));
+        } catch (Exception checkpointError) {
+            log.error("Could not record failure of batch expiry partition {}: {}",
+                    partitionId, checkpointError.getMessage());
+        }
+    }
+
+    private void sendNotifications(List<NewAlert> alerts) {
+        for (NewAlert alert : alerts) {
+            try {
+                Map<String, String> params = new HashMap<>();
+                params.put("productName", alert.productName);
+                params.put("batchNumber", alert.batchNumber);
+
+                Map<String, Object> actionData = new HashMap<>();
+                actionData.put("batchId", alert.batchId);
+                actionData.put("productId", alert.productId);
+
+                String templateCode;
+                if (alert.tier == null) {
+                    templateCode = "EXPIRED_PRODUCT";
+                } else {
+                    params.put("days", String.valueOf(alert.daysUntilExpiry));
+                    templateCode = templateFor(alert.daysUntilExpiry);
+                }
+
+                notificationService.notifyUsersByRole(
+                        Arrays.asList("HOSPITAL_MANAGER", "PHARMACY_STAFF"),
+                        templateCode,
+                        params,
+                        actionData
+                );
+            } catch (Exception e) {
+                log.error("Failed to send expiry notification for batch {}: {}", alert.batchNumber, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Split the products owning candidate batches into ranges of at most partitionSize products
+     */
+    private List<ExpiryCheckPartition> planPartitions(LocalDate checkDate, Long checkLogId, LocalDate horizon) {
+        int size = Math.max(1, partitionSize);
+        List<ExpiryCheckPartition> partitions = new ArrayList<>();
+        long[] range = new long[2];
+        int[] inRange = new int[1];
+
+        jdbcTemplate.query(PARTITION_PRODUCTS_SQL, rs -> {
+            long productId = rs.getLong("product_id");
+            if (inRange[0] == 0) {
+                range[0] = productId;
+            }
+            range[1] = productId;
+            if (++inRange[0] == size) {
+                partitions.add(newPartition(checkLogId, checkDate, partitions.size(), range[0], range[1]));
+                inRange[0] = 0;
+            }
+        }, Date.valueOf(horizon));
+
+        if (inRange[0] > 0) {
+            partitions.add(newPartition(checkLogId, checkDate, partitions.size(), range[0], range[1]));
+        }
+        return partitions;
+    }
+
+    private ExpiryCheckPartition newPartition(Long checkLogId, LocalDate checkDate, int index, long from, long to) {
+        ExpiryCheckPartition partition = new ExpiryCheckPartition();
+        partition.setCheckLogId(checkLogId);
+        partition.setCheckDate(checkDate);
+        partition.setPartitionIndex(index);
+        partition.setProductIdFrom(from);
+        partition.setProductIdTo(to);
+        partition.setStatus(PartitionStatus.PENDING);
+        return partition;
+    }
+
+    private BatchExpiryRunDTO summarize(Long checkLogId, LocalDate checkDate,
+                                        List<ExpiryCheckPartition> partitions, long start) {
+        int completed = 0;
+        int batchesChecked = 0;
+        int alertsGenerated = 0;
+        List<BatchExpiryRunDTO.FailedPartition> failed = new ArrayList<>();
+
+        for (ExpiryCheckPartition partition : partitions) {
+            if (partition.getStatus() == PartitionStatus.COMPLETED) {
+                completed++;
+                batchesChecked += partition.getBatchesChecked();
+                alertsGenerated += partition.getAlertsGenerated();
+            } else if (partition.getStatus() == PartitionStatus.FAILED) {
+                failed.add(BatchExpiryRunDTO.FailedPartition.builder()
+                        .partitionId(partition.getId())
+                        .partitionIndex(partition.getPartitionIndex())
+                        .productIdFrom(partition.getProductIdFrom())
+                        .productIdTo(partition.getProductIdTo())
+                        .attempts(partition.getAttempts())
+                        .errorMessage(partition.getErrorMessage())
+                        .build());
+            }
+        }
+
+        BatchExpiryRunDTO result = BatchExpiryRunDTO.builder()
+                .checkLogId(checkLogId)
+                .checkDate(checkDate)
+                .partitionsTotal(partitions.size())
+                .partitionsCompleted(completed)
+                .partitionsFailed(failed.size())
+                .batchesChecked(batchesChecked)
+                .alertsGenerated(alertsGenerated)
+                .executionTimeMs(System.currentTimeMillis() - start)
+                .failedPartitions(failed)
+                .build();
+
+        log.info("Batch expiry evaluation for check log {}: {}/{} partition(s) completed, {} batch(es), {} alert(s)",
+                checkLogId, completed, partitions.size(), batchesChecked, alertsGenerated);
+        return result;
+    }
+
+    private List<Tier> loadTiers() {
+        return configRepository.findByActiveTrueOrderBySortOrderAsc().stream()
+                .map(config -> new Tier(config.getId(), config.getDaysBeforeExpiry()))
+                .toList();
+    }
+
+    private static Tier mostUrgent(List<Tier> tiers) {
+        return tiers.stream().min(Comparator.comparingInt(Tier::daysBeforeExpiry))
+                .orElseThrow(() -> new IllegalStateException("No active expiry alert configurations"));
+    }
+
+    private static Tier matchTier(List<Tier> tiers, long daysUntilExpiry) {
+        for (Tier tier : tiers) {
+            if (daysUntilExpiry <= tier.daysBeforeExpiry) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate horizon(LocalDate checkDate, List<Tier> tiers) {
+        int maxDays = tiers.stream().mapToInt(Tier::daysBeforeExpiry).max().orElse(0);
+        return checkDate.plusDays(maxDays);
+    }
+
+    private static String templateFor(long daysUntilExpiry) {
+        if (daysUntilExpiry <= 7) {
+            return "EXPIRY_CRITICAL";
+        } else if (daysUntilExpiry <= 15) {
+            return "EXPIRY_WARNING";
+        } else if (daysUntilExpiry <= 30) {
+            return "EXPIRY_NOTICE";
+        }
+        return "BATCH_EXPIRING";
+    }
+
+    /**
+     * Detached copy of an active {@link ExpiryAlertConfig} shared by the worker threads
+     */
+    private record Tier(long id, int daysBeforeExpiry) {
+    }
+
+    private record NewAlert(long batchId, long productId, String productName, String batchNumber,
+                            LocalDate expiryDate, int quantity, Tier tier, long daysUntilExpiry) {
+    }
+}
@@ -0,0 +1,347 @@
+package com.medicorex.service.expiry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory index of ACTIVE product batches ordered by expiry date.
+ * Batches are kept in per-day buckets, and a Fenwick tree over the known expiry days holds the
+ * running batch count per day, so range counts are O(log days). Writes to a day already known to the
+ * tree update it in O(log days); a new expiry day marks the tree stale and the next count rebuilds it
+ * from the buckets in O(days). Kept current by {@link BatchExpiryIndexListener} and rebuilt
+ * periodically by {@link BatchExpiryIndexLoader}.
+ */
+@Slf4j
+@Component
+public class BatchExpiryIndex {
+
+    public record BatchEntry(Long batchId, Long productId, String batchNumber,
+                             LocalDate expiryDate, int quantity) {
+    }
+
+    public record ProductFacts(Long productId, String name, String code,
+                               String categoryName, BigDecimal unitPrice) {
+    }
+
+    private final TreeMap<LocalDate, Map<Long, BatchEntry>> days = new TreeMap<>();
+    private final Map<Long, BatchEntry> entries = new HashMap<>();
+    private final Map<Long, ProductFacts> products = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+    // Writes seen while a rebuild is reading the database, replayed on top of the rebuilt content
+    private List<Runnable> rebuildJournal;
+    // Fenwick tree (1-based) over the sorted epoch days in dayKeys; rebuilt when a new day appears
+    private long[] dayKeys = new long[0];
+    private long[] dayTree = new long[1];
+    private boolean dayTreeStale = true;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Start journaling writes; call before the loader queries the database so that updates
+     * committed while it reads are not lost by {@link #replaceAll}
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuildJournal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stop journaling after a failed rebuild
+     */
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuildJournal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the whole index content (used by the loader on startup and on rebuild),
+     * then replay the writes journaled since {@link #beginRebuild}
+     */
+    public void replaceAll(Collection<BatchEntry> batches, Collection<ProductFacts> facts) {
+        lock.writeLock().lock();
+        try {
+            days.clear();
+            entries.clear();
+            products.clear();
+            dayTreeStale = true;
+            facts.forEach(f -> products.put(f.productId(), f));
+            batches.forEach(this::addInternal);
+            int replayed = 0;
+            if (rebuildJournal != null) {
+                rebuildJournal.forEach(Runnable::run);
+                replayed = rebuildJournal.size();
+                rebuildJournal = null;
+            }
+            ready = true;
+            log.info("Batch expiry index loaded with {} active batches across {} days ({} concurrent writes replayed)",
+                    entries.size(), days.size(), replayed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace an ACTIVE batch
+     */
+    public void put(BatchEntry entry) {
+        if (entry.expiryDate() == null) {
+            remove(entry.batchId());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(() -> {
+                removeInternal(entry.batchId());
+                addInternal(entry);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop a batch that is no longer ACTIVE (or was deleted)
+     */
+    public void remove(Long batchId) {
+        lock.writeLock().lock();
+        try {
+            apply(() -> removeInternal(batchId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putProduct(ProductFacts facts) {
+        lock.writeLock().lock();
+        try {
+            apply(() -> products.put(facts.productId(), facts));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ProductFacts getProduct(Long productId) {
+        lock.readLock().lock();
+        try {
+            return products.get(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Product ids referenced by the given entries for which no facts are cached yet
+     */
+    public Set<Long> findMissingProducts(Collection<BatchEntry> batches) {
+        lock.readLock().lock();
+        try {
+            Set<Long> missing = new HashSet<>();
+            for (BatchEntry entry : batches) {
+                if (!products.containsKey(entry.productId())) {
+                    missing.add(entry.productId());
+                }
+            }
+            return missing;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count batches expiring strictly before the given date
+     */
+    public long countBefore(LocalDate date) {
+        long day = date.toEpochDay();
+        return count(() -> countBelow(day));
+    }
+
+    /**
+     * Count batches expiring between start and end (both inclusive)
+     */
+    public long countBetween(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            return 0;
+        }
+        long from = start.toEpochDay();
+        long to = end.toEpochDay() + 1;
+        return count(() -> countBelow(to) - countBelow(from));
+    }
+
+    /**
+     * Batches expiring strictly before the given date
+     */
+    public List<BatchEntry> findBefore(LocalDate date) {
+        lock.readLock().lock();
+        try {
+            return flatten(days.headMap(date, false), Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Batches expiring between start and end (both inclusive)
+     */
+    public List<BatchEntry> findBetween(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return flatten(days.subMap(start, true, end, true), Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Earliest-expiring batches up to and including the given date, in expiry order
+     */
+    public List<BatchEntry> findEarliest(LocalDate upTo, int limit) {
+        lock.readLock().lock();
+        try {
+            return flatten(days.headMap(upTo, true), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Private helper methods (callers hold the lock)
+
+    private void apply(Runnable write) {
+        write.run();
+        if (rebuildJournal != null) {
+            rebuildJournal.add(write);
+        }
+    }
+
+    private void addInternal(BatchEntry entry) {
+        entries.put(entry.batchId(), entry);
+        days.computeIfAbsent(entry.expiryDate(), d -> new LinkedHashMap<>()).put(entry.batchId(), entry);
+        updateDayTree(entry.expiryDate(), 1);
+    }
+
+    private void removeInternal(Long batchId) {
+        BatchEntry previous = entries.remove(batchId);
+        if (previous == null) {
+            return;
+        }
+        updateDayTree(previous.expiryDate(), -1);
+        Map<Long, BatchEntry> bucket = days.get(previous.expiryDate());
+        if (bucket != null) {
+            bucket.remove(batchId);
+            if (bucket.isEmpty()) {
+                days.remove(previous.expiryDate());
+            }
+        }
+    }
+
+    /**
+     * Run a count under the read lock, or under the write lock when the day tree must be rebuilt first
+     */
+    private long count(LongSupplier query) {
+        lock.readLock().lock();
+        try {
+            if (!dayTreeStale) {
+                return query.getAsLong();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (dayTreeStale) {
+                rebuildDayTree();
+            }
+            return query.getAsLong();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Batches expiring strictly before the given epoch day
+     */
+    private long countBelow(long epochDay) {
+        int position = Arrays.binarySearch(dayKeys, epochDay);
+        int known = position >= 0 ? position : -position - 1;
+        long count = 0;
+        for (int i = known; i > 0; i -= i & -i) {
+            count += dayTree[i];
+        }
+        return count;
+    }
+
+    private void updateDayTree(LocalDate day, int delta) {
+        if (dayTreeStale) {
+            return;
+        }
+        int position = Arrays.binarySearch(dayKeys, day.toEpochDay());
+        if (position < 0) {
+            dayTreeStale = true;
+            return;
+        }
+        for (int i = position + 1; i < dayTree.length; i += i & -i) {
+            dayTree[i] += delta;
+        }
+    }
+
+    private void rebuildDayTree() {
+        dayKeys = new long[days.size()];
+        dayTree = new long[days.size() + 1];
+        int i = 0;
+        for (Map.Entry<LocalDate, Map<Long, BatchEntry>> bucket : days.entrySet()) {
+            dayKeys[i] = bucket.getKey().toEpochDay();
+            dayTree[i + 1] = bucket.getValue().size();
+            i++;
+        }
+        // Linear-time Fenwick construction
+        for (int j = 1; j < dayTree.length; j++) {
+            int parent = j + (j & -j);
+            if (parent < dayTree.length) {
+                dayTree[parent] += dayTree[j];
+            }
+        }
+        dayTreeStale = false;
+    }
+
+    private List<BatchEntry> flatten(NavigableMap<LocalDate, Map<Long, BatchEntry>> range, int limit) {
+        List<BatchEntry> result = new ArrayList<>();
+        for (Map<Long, BatchEntry> bucket : range.values()) {
+            for (BatchEntry entry : bucket.values()) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package com.medicorex.service.expiry;
+
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+import com.medicorex.util.TransactionCallbacks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener that mirrors ProductBatch and Product writes into the {@link BatchExpiryIndex}.
+ * Changes are captured at flush time and applied only once the transaction commits,
+ * so rolled-back writes never reach the index.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchExpiryIndexListener {
+
+    private final BatchExpiryIndex index;
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Object entity) {
+        if (entity instanceof ProductBatch batch) {
+            Long batchId = batch.getId();
+            if (batch.getStatus() == ProductBatch.BatchStatus.ACTIVE && batch.getExpiryDate() != null) {
+                BatchExpiryIndex.BatchEntry entry = new BatchExpiryIndex.BatchEntry(
+                        batchId,
+                        batch.getProduct().getId(),
+                        batch.getBatchNumber(),
+                        batch.getExpiryDate(),
+                        batch.getQuantity() != null ? batch.getQuantity() : 0);
+                TransactionCallbacks.afterCommit(() -> index.put(entry));
+            } else {
+                TransactionCallbacks.afterCommit(() -> index.remove(batchId));
+            }
+            if (Hibernate.isInitialized(batch.getProduct())) {
+                onWrite(batch.getProduct());
+            }
+        } else if (entity instanceof Product product) {
+            BatchExpiryIndex.ProductFacts facts = new BatchExpiryIndex.ProductFacts(
+                    product.getId(),
+                    product.getName(),
+                    product.getCode(),
+                    product.getCategory() != null ? product.getCategory().getName() : null,
+                    product.getUnitPrice());
+            TransactionCallbacks.afterCommit(() -> index.putProduct(facts));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof ProductBatch batch) {
+            Long batchId = batch.getId();
+            TransactionCallbacks.afterCommit(() -> index.remove(batchId));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.medicorex.service.expiry;
+
+import com.medicorex.repository.ProductBatchRepository;
+import com.medicorex.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Populates the {@link BatchExpiryIndex} from lightweight projections (no entity graph)
+ * at startup and rebuilds it periodically to pick up bulk updates that bypass JPA listeners.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchExpiryIndexLoader {
+
+    private final BatchExpiryIndex index;
+    private final ProductBatchRepository batchRepository;
+    private final ProductRepository productRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Failed to load batch expiry index on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload all ACTIVE batches and the products they belong to
+     */
+    @Scheduled(cron = "${expiry.index.rebuild.cron:0 15 * * * *}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        // Listener writes committed while we read are journaled and replayed by replaceAll
+        index.beginRebuild();
+        try {
+            load();
+        } catch (RuntimeException e) {
+            index.abortRebuild();
+            throw e;
+        }
+        log.debug("Batch expiry index rebuilt in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void load() {
+        List<BatchExpiryIndex.BatchEntry> batches = new ArrayList<>();
+        for (Object[] row : batchRepository.findActiveBatchIndexRows()) {
+            batches.add(new BatchExpiryIndex.BatchEntry(
+                    (Long) row[0],
+                    (Long) row[1],
+                    (String) row[2],
+                    (LocalDate) row[3],
+                    row[4] != null ? (Integer) row[4] : 0));
+        }
+
+        List<BatchExpiryIndex.ProductFacts> facts = new ArrayList<>();
+        for (Object[] row : productRepository.findProductFactsWithActiveBatches()) {
+            facts.add(toFacts(row));
+        }
+
+        index.replaceAll(batches, facts);
+    }
+
+    /**
+     * Make sure the index is loaded (e.g. when a request arrives before startup loading finished)
+     */
+    public void ensureLoaded() {
+        if (!index.isReady()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Fetch product facts missing from the index for the given entries in a single query
+     */
+    @Transactional(readOnly = true)
+    public void ensureProducts(Collection<BatchExpiryIndex.BatchEntry> entries) {
+        Set<Long> missing = index.findMissingProducts(entries);
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Object[] row : productRepository.findProductFactsByIds(missing)) {
+            index.putProduct(toFacts(row));
+        }
+    }
+
+    private BatchExpiryIndex.ProductFacts toFacts(Object[] row) {
+        return new BatchExpiryIndex.ProductFacts(
+                (Long) row[0],
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (BigDecimal) row[4]);
+    }
+}
@@ -3,6 +3,7 @@ package com.medicorex.service.expiry;
 import com.medicorex.entity.*;
 import com.medicorex.repository.*;
 import com.medicorex.service.NotificationService;
+import com.medicorex.service.ProductStockLedger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,9 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -21,123 +20,11 @@ import java.util.stream.Collectors;
 public class BatchExpiryTrackingService {
 
     private final ProductBatchRepository batchRepository;
-    private final ExpiryAlertRepository alertRepository;
-    private final ExpiryAlertConfigRepository configRepository;
+    private final ProductStockLedger stockLedger;
 
     @Autowired
     private NotificationService notificationService;
 
-    /**
-     * Check batches for expiry and generate alerts
-     * This is called by the main expiry monitoring service
-     */
-    @Transactional
-    public void checkBatchExpiry(LocalDate checkDate) {
-        log.info("Starting batch expiry check for date: {}", checkDate);
-
-        // Get all active configurations
-        List<ExpiryAlertConfig> activeConfigs = configRepository.findByActiveTrue();
-        if (activeConfigs.isEmpty()) {
-            log.warn("No active expiry alert configurations found");
-            return;
-        }
-
-        // FIX: Use findAll and filter instead of findByStatus
-        List<ProductBatch> activeBatches = batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .collect(Collectors.toList());
-
-        log.info("Found {} active batches to check", activeBatches.size());
-
-        int alertsGenerated = 0;
-
-        for (ProductBatch batch : activeBatches) {
-            if (batch.getExpiryDate() == null) {
-                continue;
-            }
-
-            long daysUntilExpiry = ChronoUnit.DAYS.between(checkDate, batch.getExpiryDate());
-
-            // Check against each configuration
-            for (ExpiryAlertConfig config : activeConfigs) {
-                if (daysUntilExpiry > 0 && daysUntilExpiry <= config.getDaysBeforeExpiry()) {
-                    // Check if alert already exists for this batch
-                    boolean alertExists = alertRepository.existsByBatchIdAndConfigId(batch.getId(), config.getId());
-
-                    if (!alertExists) {
-                        createBatchAlert(batch, config, checkDate, (int) daysUntilExpiry);
-                        alertsGenerated++;
-
-                        // Send notification
-                        try {
-                            Map<String, String> params = new HashMap<>();
-                            params.put("productName", batch.getProduct().getName());
-                            params.put("batchNumber", batch.getBatchNumber());
-                            params.put("days", String.valueOf(daysUntilExpiry));
-
-                            Map<String, Object> actionData = new HashMap<>();
-                            actionData.put("batchId", batch.getId());
-                            actionData.put("productId", batch.getProduct().getId());
-
-                            String templateCode;
-                            if (daysUntilExpiry <= 7) {
-                                templateCode = "EXPIRY_CRITICAL";
-                            } else if (daysUntilExpiry <= 15) {
-                                templateCode = "EXPIRY_WARNING";
-                            } else if (daysUntilExpiry <= 30) {
-                                templateCode = "EXPIRY_NOTICE";
-                            } else {
-                                templateCode = "BATCH_EXPIRING";
-                            }
-
-                            notificationService.notifyUsersByRole(
-                                    Arrays.asList("HOSPITAL_MANAGER", "PHARMACY_STAFF"),
-                                    templateCode,
-                                    params,
-                                    actionData
-                            );
-
-                            log.debug("Created notification for expiring batch: {} ({} days until expiry)",
-                                    batch.getBatchNumber(), daysUntilExpiry);
-
-                        } catch (Exception e) {
-                            log.error("Failed to send expiry notification for batch {}: {}",
-                                    batch.getBatchNumber(), e.getMessage());
-                        }
-
-                        break; // Only create one alert per batch
-                    }
-                } else if (daysUntilExpiry <= 0 && !alertExists(batch, "EXPIRED")) {
-                    // Batch has expired - create critical notification
-                    try {
-                        Map<String, String> params = new HashMap<>();
-                        params.put("productName", batch.getProduct().getName());
-                        params.put("batchNumber", batch.getBatchNumber());
-
-                        Map<String, Object> actionData = new HashMap<>();
-                        actionData.put("batchId", batch.getId());
-                        actionData.put("productId", batch.getProduct().getId());
-
-                        notificationService.notifyUsersByRole(
-                                Arrays.asList("HOSPITAL_MANAGER", "PHARMACY_STAFF"),
-                                "EXPIRED_PRODUCT",
-                                params,
-                                actionData
-                        );
-
-                        log.warn("Batch {} has expired - critical notification sent", batch.getBatchNumber());
-
-                    } catch (Exception e) {
-                        log.error("Failed to send expired notification for batch {}: {}",
-                                batch.getBatchNumber(), e.getMessage());
-                    }
-                }
-            }
-        }
-
-        log.info("Generated {} new batch expiry alerts", alertsGenerated);
-    }
-
     /**
      * Daily task to mark expired batches
      * Runs at 3 AM (after the main expiry check at 2 AM)
@@ -150,9 +37,11 @@ public class BatchExpiryTrackingService {
         LocalDate today = LocalDate.now();
         List<ProductBatch> expiredBatches = batchRepository.findExpiredActiveBatches(today);
 
+        Map<Long, Integer> onHandDeltas = new HashMap<>();
         for (ProductBatch batch : expiredBatches) {
             batch.setStatus(ProductBatch.BatchStatus.EXPIRED);
             batchRepository.save(batch);
+            onHandDeltas.merge(batch.getProduct().getId(), -batch.getQuantity(), Integer::sum);
             log.info("Marked batch {} as expired", batch.getBatchNumber());
 
             // ===== FIXED NOTIFICATION TRIGGER =====
@@ -180,10 +69,8 @@ public class BatchExpiryTrackingService {
             }
         }
 
-        // Update product quantities
-        Set<Long> affectedProductIds = expiredBatches.stream()
-                .map(b -> b.getProduct().getId())
-                .collect(java.util.stream.Collectors.toSet());
+        // Expired batches no longer count towards on-hand stock
+        stockLedger.applyDeltas(onHandDeltas);
 
         log.info("Marked {} batches as expired", expiredBatches.size());
     }
@@ -211,36 +98,6 @@ public class BatchExpiryTrackingService {
         return report;
     }
 
-    // Helper methods
-    // FIX: Update createBatchAlert method to set all required fields including expiry_date
-    private void createBatchAlert(ProductBatch batch, ExpiryAlertConfig config, LocalDate checkDate, int daysBeforeExpiry) {
-        // Validate batch has expiry date
-        if (batch.getExpiryDate() == null) {
-            log.warn("Cannot create alert for batch {} without expiry date", batch.getBatchNumber());
-            return;
-        }
-
-        ExpiryAlert alert = new ExpiryAlert();
-        alert.setProduct(batch.getProduct());
-        alert.setBatch(batch);
-        alert.setConfig(config);
-        alert.setAlertDate(checkDate);
-        alert.setExpiryDate(batch.getExpiryDate()); // Set the required expiry_date field
-        alert.setBatchNumber(batch.getBatchNumber()); // Set batch number
-        alert.setQuantityAffected(batch.getQuantity()); // Set quantity affected
-        alert.setStatus(ExpiryAlert.AlertStatus.PENDING);
-
-        alertRepository.save(alert);
-
-        log.debug("Created expiry alert for batch {} - {} days before expiry",
-                batch.getBatchNumber(), daysBeforeExpiry);
-    }
-
-    private boolean alertExists(ProductBatch batch, String type) {
-        // Check if an alert of this type already exists for this batch
-        return alertRepository.existsByBatchId(batch.getId());
-    }
-
     // FIX: Update count methods to use repository queries or manual counting
     private long countBatchesExpiringInDays(int days) {
         LocalDate today = LocalDate.now();
@@ -2,29 +2,56 @@ package com.medicorex.service.expiry;
 
 import com.medicorex.dto.AlertGenerationReportDTO;
 import com.medicorex.dto.AlertGenerationReportDTO.ProductAlertSummary;
-import com.medicorex.entity.*;
-import com.medicorex.repository.*;
+import com.medicorex.entity.ExpiryAlert;
+import com.medicorex.entity.ExpiryAlertConfig;
+import com.medicorex.repository.ExpiryAlertConfigRepository;
+import com.medicorex.util.LongHashSet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Generates tiered product-level expiry alerts set-based: existing PENDING product-level
+ * (product, tier) pairs are loaded with one query into primitive hash sets, tier matches are
+ * computed in memory over a projection of the candidate products, and new alerts are written with
+ * batched inserts (rewritten by the MySQL driver into multi-row INSERTs).
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExpiryAlertGenerator {
 
-    private final ProductRepository productRepository;
+    // Product-level alerts only: a PENDING batch alert (BatchExpiryAlertEngine) for the same tier
+    // must not suppress the product alert. Covered by idx_alert_status_config_product.
+    private static final String PENDING_PAIRS_SQL =
+            "SELECT product_id, config_id FROM expiry_alerts WHERE status = 'PENDING' AND batch_id IS NULL";
+
+    private static final String CANDIDATE_PRODUCTS_SQL =
+            "SELECT id, name, code, batch_number, expiry_date, quantity FROM products " +
+            "WHERE expiry_date IS NOT NULL AND quantity > 0";
+
+    private static final String INSERT_ALERT_SQL =
+            "INSERT INTO expiry_alerts (product_id, config_id, batch_number, alert_date, expiry_date, " +
+            "quantity_affected, status, notes, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final ExpiryAlertConfigRepository configRepository;
-    private final ExpiryAlertRepository alertRepository;
-    private final ExpiryCheckLogRepository checkLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${expiry.alerts.insert-batch-size:1000}")
+    private int insertBatchSize;
 
     /**
      * Generate alerts for all products based on active configurations
@@ -32,157 +59,115 @@ public class ExpiryAlertGenerator {
     @Transactional
     public AlertGenerationReportDTO generateAlertsForDate(LocalDate checkDate, Long checkLogId) {
         log.info("Generating expiry alerts for date: {}", checkDate);
+        long start = System.currentTimeMillis();
 
-        // Get active configurations
+        // Get active configurations (highest priority first)
         List<ExpiryAlertConfig> activeConfigs = configRepository.findByActiveTrueOrderBySortOrderAsc();
         if (activeConfigs.isEmpty()) {
             log.warn("No active expiry alert configurations found");
             return buildEmptyReport();
         }
 
-        // Get all products with expiry dates and positive quantity using database query
-        List<Product> productsWithExpiry = productRepository.findProductsWithValidExpiryDates();
-
-        log.info("Processing {} products with expiry dates", productsWithExpiry.size());
+        // All pending product-level (product, tier) pairs in one query, one product id set per tier
+        Map<Long, LongHashSet> pendingByConfig = new HashMap<>();
+        for (ExpiryAlertConfig config : activeConfigs) {
+            pendingByConfig.put(config.getId(), new LongHashSet());
+        }
+        jdbcTemplate.query(PENDING_PAIRS_SQL, rs -> {
+            LongHashSet products = pendingByConfig.get(rs.getLong("config_id"));
+            if (products != null) {
+                products.add(rs.getLong("product_id"));
+            }
+        });
 
-        // Process each product
         AlertGenerationReportDTO report = new AlertGenerationReportDTO();
-        report.setTotalProductsProcessed(productsWithExpiry.size());
         report.setProductAlerts(new ArrayList<>());
+        List<Object[]> newAlerts = new ArrayList<>();
+        int[] processed = new int[1];
+        int[] duplicatesSkipped = new int[1];
 
-        int alertsGenerated = 0;
-        int duplicatesSkipped = 0;
-        int errors = 0;
+        String notes = checkLogId != null ? "Generated by check log: " + checkLogId : null;
 
-        for (Product product : productsWithExpiry) {
-            try {
-                ProcessResult result = processProductExpiry(product, activeConfigs, checkDate, checkLogId);
-                alertsGenerated += result.alertsCreated;
-                duplicatesSkipped += result.duplicatesSkipped;
+        // Match every candidate product against the tiers in memory
+        jdbcTemplate.query(CANDIDATE_PRODUCTS_SQL, rs -> {
+            processed[0]++;
+            LocalDate expiryDate = rs.getObject("expiry_date", LocalDate.class);
+            long daysUntilExpiry = ChronoUnit.DAYS.between(checkDate, expiryDate);
 
-                // Add to report
-                result.summaries.forEach(summary -> report.getProductAlerts().add(summary));
+            // Skip if product has already expired
+            if (daysUntilExpiry < 0) {
+                return;
+            }
 
-            } catch (Exception e) {
-                log.error("Error processing product {}: {}", product.getId(), e.getMessage());
-                errors++;
+            ExpiryAlertConfig config = matchTier(activeConfigs, daysUntilExpiry);
+            if (config == null) {
+                return;
+            }
+
+            long productId = rs.getLong("id");
+            String batchNumber = rs.getString("batch_number");
+            boolean isNew = !pendingByConfig.get(config.getId()).contains(productId);
+            if (isNew) {
+                newAlerts.add(new Object[]{productId, config.getId(), batchNumber, expiryDate, rs.getInt("quantity")});
+            } else {
+                duplicatesSkipped[0]++;
             }
-        }
 
-        report.setTotalAlertsGenerated(alertsGenerated);
-        report.setDuplicatesSkipped(duplicatesSkipped);
-        report.setErrorsEncountered(errors);
+            report.getProductAlerts().add(ProductAlertSummary.builder()
+                    .productId(productId)
+                    .productName(rs.getString("name"))
+                    .productCode(rs.getString("code"))
+                    .batchNumber(batchNumber)
+                    .daysUntilExpiry((int) daysUntilExpiry)
+                    .tierName(config.getTierName())
+                    .severity(config.getSeverity().toString())
+                    .isNewAlert(isNew)
+                    .build());
+        });
+
+        insertAlerts(newAlerts, checkDate, notes);
+
+        report.setTotalProductsProcessed(processed[0]);
+        report.setTotalAlertsGenerated(newAlerts.size());
+        report.setDuplicatesSkipped(duplicatesSkipped[0]);
+        report.setErrorsEncountered(0);
 
-        log.info("Alert generation completed. Alerts: {}, Duplicates: {}, Errors: {}",
-                alertsGenerated, duplicatesSkipped, errors);
+        log.info("Alert generation completed in {} ms. Products: {}, Alerts: {}, Duplicates: {}",
+                System.currentTimeMillis() - start, processed[0], newAlerts.size(), duplicatesSkipped[0]);
 
         return report;
     }
 
     /**
-     * Process expiry for a single product
+     * First (highest priority) tier whose window contains the product; one alert per product
      */
-    private ProcessResult processProductExpiry(Product product, List<ExpiryAlertConfig> configs,
-                                               LocalDate checkDate, Long checkLogId) {
-        ProcessResult result = new ProcessResult();
-
-        // Additional safety check for null expiry date
-        if (product.getExpiryDate() == null) {
-            log.warn("Product {} has null expiry date, skipping alert generation", product.getId());
-            return result;
-        }
-
-        // Calculate days until expiry
-        long daysUntilExpiry = ChronoUnit.DAYS.between(checkDate, product.getExpiryDate());
-
-        // Skip if product has already expired
-        if (daysUntilExpiry < 0) {
-            log.debug("Product {} has already expired", product.getId());
-            return result;
-        }
-
-        // Check against each configuration
+    private ExpiryAlertConfig matchTier(List<ExpiryAlertConfig> configs, long daysUntilExpiry) {
         for (ExpiryAlertConfig config : configs) {
             if (daysUntilExpiry <= config.getDaysBeforeExpiry()) {
-                // Check if alert already exists
-                List<ExpiryAlert> existingAlerts = alertRepository.findPendingAlerts(
-                        product.getId(), config.getId()
-                );
-
-                if (!existingAlerts.isEmpty()) {
-                    log.debug("Alert already exists for product {} and config {}",
-                            product.getId(), config.getId());
-                    result.duplicatesSkipped++;
-
-                    // Add to report as existing alert
-                    result.summaries.add(createAlertSummary(product, config, daysUntilExpiry, false));
-                } else {
-                    // Create new alert
-                    ExpiryAlert alert = createAlert(product, config, checkDate, checkLogId);
-                    alertRepository.save(alert);
-                    result.alertsCreated++;
-
-                    log.debug("Created alert for product {} with config {}",
-                            product.getId(), config.getTierName());
-
-                    // Add to report as new alert
-                    result.summaries.add(createAlertSummary(product, config, daysUntilExpiry, true));
-                }
-
-                // Only create one alert per product (highest priority config)
-                break;
+                return config;
             }
         }
-
-        return result;
+        return null;
     }
 
-    /**
-     * Create new expiry alert
-     */
-    private ExpiryAlert createAlert(Product product, ExpiryAlertConfig config,
-                                    LocalDate alertDate, Long checkLogId) {
-        // Validate that product has expiry date - this should not happen if filtering is correct
-        if (product.getExpiryDate() == null) {
-            throw new IllegalArgumentException("Cannot create alert for product without expiry date: " + product.getId());
-        }
-
-        ExpiryAlert alert = new ExpiryAlert();
-        alert.setProduct(product);
-        alert.setConfig(config);
-        alert.setBatchNumber(product.getBatchNumber());
-        alert.setAlertDate(alertDate);
-        alert.setExpiryDate(product.getExpiryDate()); // This is now guaranteed to be non-null
-        alert.setQuantityAffected(product.getQuantity());
-        alert.setStatus(ExpiryAlert.AlertStatus.PENDING);
-
-        // Link to check log
-        if (checkLogId != null) {
-            ExpiryCheckLog checkLog = new ExpiryCheckLog();
-            checkLog.setId(checkLogId);
-            // Note: In real implementation, you'd add this field to ExpiryAlert entity
-            // For now, we'll store it in notes
-            alert.setNotes("Generated by check log: " + checkLogId);
+    private void insertAlerts(List<Object[]> alerts, LocalDate alertDate, String notes) {
+        if (alerts.isEmpty()) {
+            return;
         }
 
-        return alert;
-    }
-
-    /**
-     * Create alert summary for report
-     */
-    private ProductAlertSummary createAlertSummary(Product product, ExpiryAlertConfig config,
-                                                   long daysUntilExpiry, boolean isNewAlert) {
-        return ProductAlertSummary.builder()
-                .productId(product.getId())
-                .productName(product.getName())
-                .productCode(product.getCode())
-                .batchNumber(product.getBatchNumber())
-                .daysUntilExpiry((int) daysUntilExpiry)
-                .tierName(config.getTierName())
-                .severity(config.getSeverity().toString())
-                .isNewAlert(isNewAlert)
-                .build();
+        Date alertDay = Date.valueOf(alertDate);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ALERT_SQL, alerts, insertBatchSize, (ps, alert) -> {
+            ps.setLong(1, (Long) alert[0]);
+            ps.setLong(2, (Long) alert[1]);
+            ps.setString(3, (String) alert[2]);
+            ps.setDate(4, alertDay);
+            ps.setDate(5, Date.valueOf((LocalDate) alert[3]));
+            ps.setInt(6, (Integer) alert[4]);
+            ps.setString(7, ExpiryAlert.AlertStatus.PENDING.name());
+            ps.setString(8, notes);
+            ps.setTimestamp(9, now);
+        });
     }
 
     /**
@@ -197,13 +182,4 @@ public class ExpiryAlertGenerator {
         report.setProductAlerts(new ArrayList<>());
         return report;
     }
-
-    /**
-     * Internal class for processing results
-     */
-    private static class ProcessResult {
-        int alertsCreated = 0;
-        int duplicatesSkipped = 0;
-        List<ProductAlertSummary> summaries = new ArrayList<>();
-    }
-}
\ No newline at end of file
+}
@@ -1,9 +1,11 @@
 package com.medicorex.service.expiry;
 
 import com.medicorex.dto.AlertGenerationReportDTO;
+import com.medicorex.dto.BatchExpiryRunDTO;
 import com.medicorex.dto.ExpiryCheckResultDTO;
 import com.medicorex.entity.ExpiryCheckLog;
 import com.medicorex.entity.ExpiryCheckLog.CheckStatus;
+import com.medicorex.exception.ResourceNotFoundException;
 import com.medicorex.repository.ExpiryCheckLogRepository;
 import com.medicorex.service.quarantine.QuarantineService;
 import com.medicorex.service.NotificationService;
@@ -30,7 +32,7 @@ public class ExpiryMonitoringService {
 
     private final ExpiryCheckLogRepository checkLogRepository;
     private final ExpiryAlertGenerator alertGenerator;
-    private final BatchExpiryTrackingService batchExpiryTrackingService;
+    private final BatchExpiryAlertEngine batchAlertEngine;
     private final NotificationService notificationService;
 
     @Autowired(required = false)
@@ -132,8 +134,8 @@ public class ExpiryMonitoringService {
             // Generate alerts
             AlertGenerationReportDTO report = alertGenerator.generateAlertsForDate(checkDate, checkLog.getId());
 
-            // Check batch expiry (THIS IS WHERE NOTIFICATIONS ARE CREATED)
-            batchExpiryTrackingService.checkBatchExpiry(checkDate);
+            // Evaluate batches partition by partition (THIS IS WHERE NOTIFICATIONS ARE CREATED)
+            BatchExpiryRunDTO batchRun = batchAlertEngine.evaluate(checkDate, checkLog.getId());
 
             // Update check log with results
             LocalDateTime endTime = LocalDateTime.now();
@@ -142,6 +144,7 @@ public class ExpiryMonitoringService {
             checkLog.setProductsChecked(report.getTotalProductsProcessed());
             checkLog.setAlertsGenerated(report.getTotalAlertsGenerated());
             checkLog.setExecutionTimeMs(ChronoUnit.MILLIS.between(startTime, endTime));
+            checkLog.setErrorMessage(partitionFailureMessage(batchRun));
 
             checkLog = checkLogRepository.save(checkLog);
 
@@ -172,7 +175,9 @@ public class ExpiryMonitoringService {
                         report.getTotalAlertsGenerated());
             }
 
-            return buildCheckResultDTO(checkLog, report);
+            ExpiryCheckResultDTO result = buildCheckResultDTO(checkLog, report);
+            applyBatchRun(result, batchRun);
+            return result;
 
         } catch (Exception e) {
             log.error("Expiry check failed", e);
@@ -181,6 +186,39 @@ public class ExpiryMonitoringService {
         }
     }
 
+    /**
+     * Re-run the batch expiry partitions that failed during an earlier check
+     */
+    @Transactional
+    public ExpiryCheckResultDTO retryFailedBatchPartitions(Long checkLogId) {
+        ExpiryCheckLog checkLog = checkLogRepository.findById(checkLogId)
+                .orElseThrow(() -> new ResourceNotFoundException("ExpiryCheckLog", "id", checkLogId));
+
+        BatchExpiryRunDTO batchRun = batchAlertEngine.retryFailedPartitions(checkLogId);
+
+        checkLog.setErrorMessage(partitionFailureMessage(batchRun));
+        checkLog = checkLogRepository.save(checkLog);
+
+        ExpiryCheckResultDTO result = buildCheckResultDTO(checkLog);
+        applyBatchRun(result, batchRun);
+        return result;
+    }
+
+    private String partitionFailureMessage(BatchExpiryRunDTO batchRun) {
+        if (batchRun.getPartitionsFailed() == 0) {
+            return null;
+        }
+        return String.format("%d of %d batch partition(s) failed and can be retried",
+                batchRun.getPartitionsFailed(), batchRun.getPartitionsTotal());
+    }
+
+    private void applyBatchRun(ExpiryCheckResultDTO result, BatchExpiryRunDTO batchRun) {
+        result.setBatchesChecked(batchRun.getBatchesChecked());
+        result.setBatchAlertsGenerated(batchRun.getAlertsGenerated());
+        result.setBatchPartitions(batchRun.getPartitionsTotal());
+        result.setFailedBatchPartitions(batchRun.getPartitionsFailed());
+    }
+
     /**
      * Create initial check log entry
      */
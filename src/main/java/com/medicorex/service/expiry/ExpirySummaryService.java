@@ -23,12 +23,13 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class ExpirySummaryService {
 
-    private final ProductBatchRepository batchRepository;
     private final ExpiryAlertRepository alertRepository;
     private final QuarantineRecordRepository quarantineRepository;
     private final ExpiryCheckLogRepository checkLogRepository;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final BatchExpiryIndex batchIndex;
+    private final BatchExpiryIndexLoader batchIndexLoader;
 
     /**
      * Get comprehensive expiry summary for dashboard
@@ -74,44 +75,25 @@ public class ExpirySummaryService {
         LocalDate today = LocalDate.now();
         LocalDate criticalDate = today.plusDays(7);
 
-        List<ProductBatch> criticalBatches = batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> !batch.getExpiryDate().isAfter(criticalDate))
-                .sorted(Comparator.comparing(ProductBatch::getExpiryDate))
-                .limit(limit)
-                .collect(Collectors.toList());
-
-        return criticalBatches.stream()
-                .map(this::convertToCriticalItem)
-                .collect(Collectors.toList());
+        batchIndexLoader.ensureLoaded();
+        return toCriticalItems(batchIndex.findEarliest(criticalDate, limit), today);
     }
 
     // Private helper methods
 
     private Long countExpiredItems(LocalDate today) {
-        return batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> batch.getExpiryDate().isBefore(today))
-                .count();
+        batchIndexLoader.ensureLoaded();
+        return batchIndex.countBefore(today);
     }
 
     private Long countExpiringToday(LocalDate today) {
-        return batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> batch.getExpiryDate().equals(today))
-                .count();
+        batchIndexLoader.ensureLoaded();
+        return batchIndex.countBetween(today, today);
     }
 
     private Long countExpiringInPeriod(LocalDate start, LocalDate end) {
-        return batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> !batch.getExpiryDate().isBefore(start))
-                .filter(batch -> !batch.getExpiryDate().isAfter(end))
-                .count();
+        batchIndexLoader.ensureLoaded();
+        return batchIndex.countBetween(start, end);
     }
 
     private Map<String, Long> getSeverityBreakdown() {
@@ -134,16 +116,10 @@ public class ExpirySummaryService {
     private Map<String, Long> getCategoryBreakdown(LocalDate start, LocalDate end) {
         Map<String, Long> breakdown = new HashMap<>();
 
-        List<ProductBatch> expiringBatches = batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> !batch.getExpiryDate().isBefore(start))
-                .filter(batch -> !batch.getExpiryDate().isAfter(end))
-                .collect(Collectors.toList());
-
-        for (ProductBatch batch : expiringBatches) {
-            String categoryName = batch.getProduct().getCategory() != null
-                    ? batch.getProduct().getCategory().getName()
+        for (BatchExpiryIndex.BatchEntry entry : loadEntriesBetween(start, end)) {
+            BatchExpiryIndex.ProductFacts product = batchIndex.getProduct(entry.productId());
+            String categoryName = product != null && product.categoryName() != null
+                    ? product.categoryName()
                     : "Uncategorized";
             breakdown.merge(categoryName, 1L, Long::sum);
         }
@@ -152,49 +128,51 @@ public class ExpirySummaryService {
     }
 
     private BigDecimal calculateValueAtRisk(LocalDate start, LocalDate end) {
-        return batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> !batch.getExpiryDate().isBefore(start))
-                .filter(batch -> !batch.getExpiryDate().isAfter(end))
-                .map(batch -> {
-                    BigDecimal unitPrice = batch.getProduct().getUnitPrice();
-                    if (unitPrice == null) unitPrice = BigDecimal.ZERO;
-                    return unitPrice.multiply(BigDecimal.valueOf(batch.getQuantity()));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return sumValue(loadEntriesBetween(start, end));
     }
 
     private BigDecimal calculateExpiredValue(LocalDate today) {
-        return batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> batch.getExpiryDate().isBefore(today))
-                .map(batch -> {
-                    BigDecimal unitPrice = batch.getProduct().getUnitPrice();
-                    if (unitPrice == null) unitPrice = BigDecimal.ZERO;
-                    return unitPrice.multiply(BigDecimal.valueOf(batch.getQuantity()));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        batchIndexLoader.ensureLoaded();
+        List<BatchExpiryIndex.BatchEntry> expired = batchIndex.findBefore(today);
+        batchIndexLoader.ensureProducts(expired);
+        return sumValue(expired);
     }
 
     private List<CriticalItemDTO> getCriticalItems(LocalDate today) {
         LocalDate criticalDate = today.plusDays(7);
 
-        return batchRepository.findAll().stream()
-                .filter(batch -> batch.getStatus() == ProductBatch.BatchStatus.ACTIVE)
-                .filter(batch -> batch.getExpiryDate() != null)
-                .filter(batch -> !batch.getExpiryDate().isAfter(criticalDate))
-                .sorted(Comparator.comparing(ProductBatch::getExpiryDate))
-                .limit(5)
-                .map(this::convertToCriticalItem)
+        batchIndexLoader.ensureLoaded();
+        return toCriticalItems(batchIndex.findEarliest(criticalDate, 5), today);
+    }
+
+    private List<BatchExpiryIndex.BatchEntry> loadEntriesBetween(LocalDate start, LocalDate end) {
+        batchIndexLoader.ensureLoaded();
+        List<BatchExpiryIndex.BatchEntry> entries = batchIndex.findBetween(start, end);
+        batchIndexLoader.ensureProducts(entries);
+        return entries;
+    }
+
+    private BigDecimal sumValue(List<BatchExpiryIndex.BatchEntry> entries) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BatchExpiryIndex.BatchEntry entry : entries) {
+            BatchExpiryIndex.ProductFacts product = batchIndex.getProduct(entry.productId());
+            BigDecimal unitPrice = product != null ? product.unitPrice() : null;
+            if (unitPrice == null) unitPrice = BigDecimal.ZERO;
+            total = total.add(unitPrice.multiply(BigDecimal.valueOf(entry.quantity())));
+        }
+        return total;
+    }
+
+    private List<CriticalItemDTO> toCriticalItems(List<BatchExpiryIndex.BatchEntry> entries, LocalDate today) {
+        batchIndexLoader.ensureProducts(entries);
+        return entries.stream()
+                .map(entry -> convertToCriticalItem(entry, today))
                 .collect(Collectors.toList());
     }
 
-    private CriticalItemDTO convertToCriticalItem(ProductBatch batch) {
-        Product product = batch.getProduct();
-        LocalDate today = LocalDate.now();
-        long daysUntilExpiry = ChronoUnit.DAYS.between(today, batch.getExpiryDate());
+    private CriticalItemDTO convertToCriticalItem(BatchExpiryIndex.BatchEntry entry, LocalDate today) {
+        BatchExpiryIndex.ProductFacts product = batchIndex.getProduct(entry.productId());
+        long daysUntilExpiry = ChronoUnit.DAYS.between(today, entry.expiryDate());
 
         String severity;
         if (daysUntilExpiry <= 0) {
@@ -209,23 +187,23 @@ public class ExpirySummaryService {
             severity = "LOW";
         }
 
-        BigDecimal value = product.getUnitPrice() != null
-                ? product.getUnitPrice().multiply(BigDecimal.valueOf(batch.getQuantity()))
+        BigDecimal value = product != null && product.unitPrice() != null
+                ? product.unitPrice().multiply(BigDecimal.valueOf(entry.quantity()))
                 : BigDecimal.ZERO;
 
         return CriticalItemDTO.builder()
-                .productId(product.getId())
-                .productName(product.getName())
-                .productCode(product.getCode())
-                .batchNumber(batch.getBatchNumber())
-                .expiryDate(batch.getExpiryDate())
-                .quantity(batch.getQuantity())
+                .productId(entry.productId())
+                .productName(product != null ? product.name() : null)
+                .productCode(product != null ? product.code() : null)
+                .batchNumber(entry.batchNumber())
+                .expiryDate(entry.expiryDate())
+                .quantity(entry.quantity())
                 .value(value)
                 .daysUntilExpiry((int) daysUntilExpiry)
                 .severity(severity)
-                .category(product.getCategory() != null ? product.getCategory().getName() : "Uncategorized")
+                .category(product != null && product.categoryName() != null ? product.categoryName() : "Uncategorized")
                 .location("Main Warehouse")
-                .actionUrl("/batch-tracking/" + batch.getId())
+                .actionUrl("/batch-tracking/" + entry.batchId())
                 .build();
     }
 
@@ -0,0 +1,83 @@
+package com.medicorex.service.procurement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out document numbers (PO, goods receipt) from the document_sequences counter table.
+ * Each prefix row is advanced with a single atomic UPDATE in its own short transaction, so
+ * concurrent creators never see the same value and the row lock is not held for the caller's
+ * transaction. Values can be reserved in blocks and served from memory; a rolled-back caller
+ * (or a restart with an unused block) leaves a gap, never a duplicate.
+ */
+@Slf4j
+@Service
+public class DocumentSequenceAllocator {
+
+    private static final String INCREMENT_SQL =
+            "UPDATE document_sequences SET last_value = LAST_INSERT_ID(last_value + ?), updated_at = NOW() WHERE prefix = ?";
+    private static final String SEED_SQL =
+            "INSERT IGNORE INTO document_sequences (prefix, last_value, updated_at) VALUES (?, ?, NOW())";
+    private static final String LAST_VALUE_SQL = "SELECT LAST_INSERT_ID()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public DocumentSequenceAllocator(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${sequence.allocation.block-size:1}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Next value for the prefix. {@code initialValue} is only consulted the first time a prefix is
+     * used, to continue numbering from documents created before the counter row existed.
+     */
+    public long next(String prefix, LongSupplier initialValue) {
+        Block block = blocks.computeIfAbsent(prefix, p -> new Block());
+        synchronized (block) {
+            if (block.next > block.max) {
+                long high = reserve(prefix, initialValue);
+                block.next = high - blockSize + 1;
+                block.max = high;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Reserve the next block for the prefix and return its highest value
+     */
+    private long reserve(String prefix, LongSupplier initialValue) {
+        Long high = requiresNew.execute(status -> {
+            if (jdbcTemplate.update(INCREMENT_SQL, blockSize, prefix) == 0) {
+                jdbcTemplate.update(SEED_SQL, prefix, initialValue.getAsLong());
+                jdbcTemplate.update(INCREMENT_SQL, blockSize, prefix);
+            }
+            // LAST_INSERT_ID(expr) is connection-scoped, and the transaction pins the connection
+            return jdbcTemplate.queryForObject(LAST_VALUE_SQL, Long.class);
+        });
+        log.debug("Reserved {} value(s) for sequence {} up to {}", blockSize, prefix, high);
+        return high;
+    }
+
+    private static class Block {
+        private long next = 1;
+        private long max = 0;
+    }
+}
@@ -9,6 +9,7 @@ import com.medicorex.repository.*;
 import com.medicorex.service.NotificationService;
 import com.medicorex.service.ProductBatchService;
 import com.medicorex.service.supplier.SupplierMetricsService;
+import com.medicorex.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -16,10 +17,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -39,13 +40,14 @@ public class GoodsReceiptService {
     private final GoodsReceiptLineRepository receiptLineRepository;
     private final PurchaseOrderRepository purchaseOrderRepository;
     private final PurchaseOrderLineRepository poLineRepository;
-    private final ProductRepository productRepository;
     private final ProductBatchRepository batchRepository;
     private final ProductBatchService batchService;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
-    private final StockTransactionRepository stockTransactionRepository;
     private final SupplierMetricsService supplierMetricsService;
+    private final DocumentSequenceAllocator sequenceAllocator;
+    private final ReceiptInventoryPoster inventoryPoster;
+    private final PlatformTransactionManager transactionManager;
 
     /**
      * Create goods receipt from purchase order
@@ -316,66 +318,23 @@ public class GoodsReceiptService {
         receipt.setQualityCheckedBy(currentUser);
         receipt.setQualityCheckedAt(LocalDateTime.now());
 
-        // Track metrics for supplier performance update
-        int totalItemsReceived = 0;
-        int totalItemsAccepted = 0;
-        BigDecimal totalCost = BigDecimal.ZERO;
-
-        // Now process each line and update inventory
-        for (GoodsReceiptLine line : receipt.getLines()) {
-            try {
-                // STEP 1: Create or update product batch
-                ProductBatch batch = batchService.createOrUpdateBatch(
-                        ProductBatchCreateDTO.builder()
-                                .productId(line.getProduct().getId())
-                                .batchNumber(line.getBatchNumber())
-                                .quantity(line.getReceivedQuantity())
-                                .expiryDate(line.getExpiryDate())
-                                .manufactureDate(line.getManufactureDate())
-                                .costPerUnit(line.getUnitCost())
-                                .supplierReference(receipt.getPoNumber())
-                                .notes("Added from accepted receipt: " + receipt.getReceiptNumber() +
-                                        (acceptDTO.getQualityNotes() != null ?
-                                                " | Quality: " + acceptDTO.getQualityNotes() : ""))
-                                .build()
-                );
-
-                // Link batch to receipt line
-                line.setBatch(batch);
-
-                // STEP 2: Create stock transaction for audit trail
-                createStockTransaction(
-                        line.getProduct(),
-                        line.getReceivedQuantity(),
-                        "GOODS_RECEIPT",
-                        "Goods received from PO: " + receipt.getPoNumber() +
-                                " | Receipt: " + receipt.getReceiptNumber() +
-                                " | Batch: " + line.getBatchNumber(),
-                        currentUser
-                );
-
-                // STEP 3: Update product average purchase price
-                updateProductAverageCost(
-                        line.getProduct(),
-                        line.getReceivedQuantity(),
-                        line.getUnitCost()
-                );
-
-                // Track for supplier metrics
-                totalItemsReceived += line.getReceivedQuantity();
-                totalItemsAccepted += line.getReceivedQuantity();
-                totalCost = totalCost.add(line.getLineTotal());
-
-                log.info("Inventory updated for product: {} | Batch: {} | Quantity: {}",
-                        line.getProductName(), batch.getBatchNumber(), line.getReceivedQuantity());
-
-            } catch (Exception e) {
-                log.error("Failed to update inventory for line: {}", line.getId(), e);
-                throw new BusinessException("Failed to update inventory for " + line.getProductName() +
-                        ": " + e.getMessage());
-            }
+        // Post all lines to inventory in one pass (batches, stock transactions, product totals and costs)
+        try {
+            inventoryPoster.post(receipt, acceptDTO.getQualityNotes(), currentUser);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to update inventory for receipt: {}", receipt.getReceiptNumber(), e);
+            throw new BusinessException("Failed to update inventory for receipt " + receipt.getReceiptNumber() +
+                    ": " + e.getMessage());
         }
 
+        // Track for supplier metrics
+        int totalItemsReceived = receipt.getLines().stream()
+                .mapToInt(GoodsReceiptLine::getReceivedQuantity)
+                .sum();
+        int totalItemsAccepted = totalItemsReceived;
+
         GoodsReceipt savedReceipt = receiptRepository.save(receipt);
         log.info("Goods receipt {} accepted and inventory updated", receipt.getReceiptNumber());
 
@@ -385,8 +344,8 @@ public class GoodsReceiptService {
         // Check if PO is fully received
         updatePurchaseOrderStatus(receipt.getPurchaseOrder());
 
-        // Send acceptance notification
-        sendAcceptanceNotification(savedReceipt);
+        // Send acceptance notification once the inventory changes are committed
+        sendAcceptanceNotificationAfterCommit(savedReceipt);
 
         return convertToDTO(savedReceipt);
     }
@@ -441,63 +400,6 @@ public class GoodsReceiptService {
         return convertToDTO(savedReceipt);
     }
 
-    /**
-     * Create stock transaction for audit trail
-     */
-    private void createStockTransaction(Product product, Integer quantity,
-                                        String type, String reason, User user) {
-        try {
-            StockTransaction transaction = new StockTransaction();
-            transaction.setProduct(product);
-            transaction.setType(type);
-            transaction.setTransactionType(TransactionType.PURCHASE);
-            transaction.setQuantity(quantity);
-            transaction.setBalanceAfter(product.getQuantity());
-            transaction.setReason(reason);
-            transaction.setPerformedBy(user.getId());
-            transaction.setTransactionDate(LocalDateTime.now());
-
-            stockTransactionRepository.save(transaction);
-            log.info("Stock transaction logged: {} units for product {}", quantity, product.getName());
-
-        } catch (Exception e) {
-            log.error("Failed to create stock transaction: {}", e.getMessage());
-        }
-    }
-
-    /**
-     * Update product average purchase price
-     */
-    private void updateProductAverageCost(Product product, Integer newQuantity, BigDecimal newCost) {
-        try {
-            if (newCost == null || newCost.compareTo(BigDecimal.ZERO) <= 0) {
-                return;
-            }
-
-            Integer currentQty = product.getQuantity() - newQuantity;
-            BigDecimal currentCost = product.getPurchasePrice() != null ?
-                    product.getPurchasePrice() : BigDecimal.ZERO;
-
-            if (currentQty > 0 && currentCost.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal totalOldValue = currentCost.multiply(BigDecimal.valueOf(currentQty));
-                BigDecimal totalNewValue = newCost.multiply(BigDecimal.valueOf(newQuantity));
-                BigDecimal totalValue = totalOldValue.add(totalNewValue);
-                BigDecimal totalQuantity = BigDecimal.valueOf(currentQty + newQuantity);
-
-                BigDecimal averageCost = totalValue.divide(totalQuantity, 2, RoundingMode.HALF_UP);
-                product.setPurchasePrice(averageCost);
-            } else {
-                product.setPurchasePrice(newCost);
-            }
-
-            productRepository.save(product);
-            log.info("Updated average cost for product {}: {}", product.getName(), product.getPurchasePrice());
-
-        } catch (Exception e) {
-            log.error("Failed to update product average cost: {}", e.getMessage());
-        }
-    }
-
     /**
      * Update supplier performance metrics
      */
@@ -514,31 +416,30 @@ public class GoodsReceiptService {
     }
 
     /**
-     * Send acceptance notification
+     * Send acceptance notification after commit, in its own transaction
      */
-    private void sendAcceptanceNotification(GoodsReceipt receipt) {
-        try {
-            Map<String, String> params = new HashMap<>();
-            params.put("receiptNumber", receipt.getReceiptNumber());
-            params.put("poNumber", receipt.getPoNumber());
-            params.put("supplierName", receipt.getSupplierName());
-            params.put("totalQuantity", String.valueOf(
-                    receipt.getLines().stream()
-                            .mapToInt(GoodsReceiptLine::getReceivedQuantity)
-                            .sum()
-            ));
-
+    private void sendAcceptanceNotificationAfterCommit(GoodsReceipt receipt) {
+        Long recipientId = receipt.getReceivedBy().getId();
+        Map<String, String> params = new HashMap<>();
+        params.put("receiptNumber", receipt.getReceiptNumber());
+        params.put("poNumber", receipt.getPoNumber());
+        params.put("supplierName", receipt.getSupplierName());
+        params.put("totalQuantity", String.valueOf(
+                receipt.getLines().stream()
+                        .mapToInt(GoodsReceiptLine::getReceivedQuantity)
+                        .sum()
+        ));
+
+        TransactionCallbacks.afterCommitInNewTransaction(transactionManager, "send acceptance notification", () -> {
             notificationService.createNotificationFromTemplate(
-                    receipt.getReceivedBy().getId(),
+                    recipientId,
                     "GOODS_RECEIPT_ACCEPTED",
                     params,
                     null
             );
 
-            log.info("Acceptance notification sent for receipt: {}", receipt.getReceiptNumber());
-        } catch (Exception e) {
-            log.error("Failed to send acceptance notification: {}", e.getMessage());
-        }
+            log.info("Acceptance notification sent for receipt: {}", params.get("receiptNumber"));
+        });
     }
 
     /**
@@ -647,24 +548,13 @@ public class GoodsReceiptService {
     }
 
     /**
-     * Generate unique receipt number
+     * Generate unique receipt number from the daily document sequence.
+     * Older receipts used a 5-digit timestamp suffix, so a fresh daily counter cannot collide with them.
      */
     private String generateReceiptNumber() {
-        String prefix = "GR";
-        String datePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String timestamp = String.valueOf(System.currentTimeMillis()).substring(8);
-
-        String receiptNumber;
-        int attempt = 0;
-        do {
-            receiptNumber = String.format("%s-%s-%s", prefix, datePart, timestamp);
-            if (attempt > 0) {
-                receiptNumber += "-" + attempt;
-            }
-            attempt++;
-        } while (receiptRepository.existsByReceiptNumber(receiptNumber));
-
-        return receiptNumber;
+        String prefix = "GR-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "-";
+        long sequence = sequenceAllocator.next(prefix, () -> 0L);
+        return prefix + String.format("%04d", sequence);
     }
 
     /**
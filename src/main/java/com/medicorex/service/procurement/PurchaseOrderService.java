@@ -39,6 +39,7 @@ public class PurchaseOrderService {
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final PurchaseOrderStatusHistoryRepository statusHistoryRepository;
+    private final DocumentSequenceAllocator sequenceAllocator;
 
     /**
      * Create new purchase order
@@ -587,33 +588,12 @@ public class PurchaseOrderService {
     // ==================== HELPER METHODS ====================
 
     /**
-     * Generate unique PO number
+     * Generate unique PO number from the monthly document sequence
      */
     private String generatePoNumber() {
         String prefix = "PO-" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM")) + "-";
-
-        // Get all PO numbers with this prefix
-        List<PurchaseOrder> existingPos = purchaseOrderRepository.findAll().stream()
-                .filter(po -> po.getPoNumber().startsWith(prefix))
-                .collect(Collectors.toList());
-
-        // Find max sequence
-        int maxSequence = 0;
-        for (PurchaseOrder po : existingPos) {
-            try {
-                String sequencePart = po.getPoNumber().substring(prefix.length());
-                int sequence = Integer.parseInt(sequencePart);
-                if (sequence > maxSequence) {
-                    maxSequence = sequence;
-                }
-            } catch (Exception e) {
-                // Skip invalid PO numbers
-                log.warn("Invalid PO number format: {}", po.getPoNumber());
-            }
-        }
-
-        int nextSequence = maxSequence + 1;
-        return prefix + String.format("%04d", nextSequence);
+        long sequence = sequenceAllocator.next(prefix, () -> purchaseOrderRepository.findMaxPoSequence(prefix));
+        return prefix + String.format("%04d", sequence);
     }
 
     /**
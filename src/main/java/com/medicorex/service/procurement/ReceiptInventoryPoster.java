@@ -0,0 +1,371 @@
+package com.medicorex.service.procurement;
+
+import com.medicorex.entity.GoodsReceipt;
+import com.medicorex.entity.GoodsReceiptLine;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch;
+import com.medicorex.entity.TransactionType;
+import com.medicorex.entity.User;
+import com.medicorex.repository.ProductBatchRepository;
+import com.medicorex.service.NotificationService;
+import com.medicorex.service.ProductStockLedger;
+import com.medicorex.service.ProductStockLocks;
+import com.medicorex.service.expiry.BatchExpiryIndex;
+import com.medicorex.util.TransactionCallbacks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Posts the lines of an accepted goods receipt to inventory in a single pass.
+ * Existing batches of all received products are read (and locked) with one query, new batch
+ * quantities, on-hand balances and weighted average costs are computed in memory, and batches,
+ * stock transactions and on-hand quantities (as ledger deltas) are written back as JDBC batches.
+ * The weighted average cost is set on the managed products so the persistence context never holds a
+ * stale purchase price. Batch notifications and expiry index updates are deferred until the transaction commits.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReceiptInventoryPoster {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ProductBatchRepository batchRepository;
+    private final ProductStockLocks stockLocks;
+    private final ProductStockLedger stockLedger;
+    private final BatchExpiryIndex expiryIndex;
+    private final NotificationService notificationService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${receipt.posting.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    // Existing batches the receipt tops up (any status)
+    private static final String LOCK_BATCHES_SQL =
+            "SELECT id, product_id, batch_number, quantity, expiry_date, status, notes FROM product_batches " +
+            "WHERE product_id IN (:productIds) AND batch_number IN (:batchNumbers) " +
+            "ORDER BY id FOR UPDATE";
+
+    private static final String INSERT_BATCH_SQL =
+            "INSERT INTO product_batches (product_id, batch_number, quantity, initial_quantity, expiry_date, " +
+            "manufacture_date, supplier_reference, cost_per_unit, notes, status, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_BATCH_SQL =
+            "UPDATE product_batches SET quantity = ?, cost_per_unit = ?, supplier_reference = ?, notes = ?, " +
+            "updated_at = ? WHERE id = ?";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO stock_transactions (product_id, transaction_type, quantity, balance_after, type, reason, " +
+            "transaction_date, reference, notes, performed_by, before_quantity, after_quantity, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Add every line of the receipt to stock and link each line to its batch
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void post(GoodsReceipt receipt, String qualityNotes, User user) {
+        Set<Long> productIds = new TreeSet<>();
+        for (GoodsReceiptLine line : receipt.getLines()) {
+            productIds.add(line.getProduct().getId());
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+
+        stockLocks.callLocked(productIds, () -> {
+            postLocked(receipt, qualityNotes, user, productIds);
+            return null;
+        });
+    }
+
+    private void postLocked(GoodsReceipt receipt, String qualityNotes, User user, Set<Long> productIds) {
+        List<GoodsReceiptLine> lines = receipt.getLines();
+        Set<String> batchNumbers = new HashSet<>();
+        Map<Long, Product> products = new HashMap<>();
+        for (GoodsReceiptLine line : lines) {
+            batchNumbers.add(line.getBatchNumber());
+            products.put(line.getProduct().getId(), line.getProduct());
+        }
+
+        // Preload the existing batches with a single locking read
+        Map<String, PostedBatch> batchesByKey = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_BATCHES_SQL,
+                Map.of("productIds", productIds, "batchNumbers", batchNumbers), rs -> {
+                    PostedBatch batch = new PostedBatch(rs.getLong("product_id"), rs.getString("batch_number"));
+                    batch.id = rs.getLong("id");
+                    batch.quantity = rs.getInt("quantity");
+                    batch.expiryDate = rs.getObject("expiry_date", LocalDate.class);
+                    batch.status = ProductBatch.BatchStatus.valueOf(rs.getString("status"));
+                    batch.notes = rs.getString("notes");
+                    batchesByKey.putIfAbsent(batchKey(batch.productId, batch.batchNumber), batch);
+                });
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, BigDecimal> purchasePrices = new HashMap<>();
+        for (Long productId : productIds) {
+            quantities.put(productId, products.get(productId).getQuantity());
+            purchasePrices.put(productId, products.get(productId).getPurchasePrice());
+        }
+
+        String lineNotes = "Added from accepted receipt: " + receipt.getReceiptNumber() +
+                (qualityNotes != null ? " | Quality: " + qualityNotes : "");
+        LocalDateTime now = LocalDateTime.now();
+
+        Set<PostedBatch> updatedBatches = new LinkedHashSet<>();
+        List<PostedBatch> newBatches = new ArrayList<>();
+        List<Object[]> transactions = new ArrayList<>(lines.size());
+
+        for (GoodsReceiptLine line : lines) {
+            Long productId = line.getProduct().getId();
+            int received = line.getReceivedQuantity();
+            BigDecimal unitCost = line.getUnitCost();
+
+            String key = batchKey(productId, line.getBatchNumber());
+            PostedBatch batch = batchesByKey.get(key);
+            if (batch == null) {
+                batch = new PostedBatch(productId, line.getBatchNumber());
+                batch.quantity = received;
+                batch.initialQuantity = received;
+                batch.expiryDate = line.getExpiryDate();
+                batch.manufactureDate = line.getManufactureDate();
+                batch.supplierReference = receipt.getPoNumber();
+                batch.costPerUnit = unitCost;
+                batch.notes = lineNotes;
+                batchesByKey.put(key, batch);
+                newBatches.add(batch);
+            } else {
+                batch.quantity += received;
+                if (unitCost != null && unitCost.compareTo(BigDecimal.ZERO) > 0) {
+                    batch.costPerUnit = unitCost;
+                }
+                batch.supplierReference = receipt.getPoNumber();
+                batch.notes = batch.notes != null ? batch.notes + " | " + lineNotes : lineNotes;
+                if (batch.isNew()) {
+                    batch.initialQuantity += received;
+                } else {
+                    updatedBatches.add(batch);
+                }
+            }
+            batch.lines.add(line);
+
+            int previousQuantity = quantities.get(productId);
+            boolean onHand = ProductStockLedger.countsOnHand(batch.status);
+            int balance = onHand ? previousQuantity + received : previousQuantity;
+            quantities.put(productId, balance);
+            if (onHand) {
+                // Units topping up an expired or depleted batch are not on hand and do not move the average
+                purchasePrices.put(productId, averageCost(purchasePrices.get(productId), previousQuantity,
+                        received, unitCost));
+            }
+
+            transactions.add(new Object[]{
+                    productId,
+                    received,
+                    balance,
+                    "Goods received from PO: " + receipt.getPoNumber() +
+                            " | Receipt: " + receipt.getReceiptNumber() +
+                            " | Batch: " + line.getBatchNumber(),
+                    previousQuantity
+            });
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        insertBatches(newBatches, timestamp);
+
+        jdbcTemplate.batchUpdate(UPDATE_BATCH_SQL, updatedBatches, jdbcBatchSize, (ps, batch) -> {
+            ps.setInt(1, batch.quantity);
+            ps.setBigDecimal(2, batch.costPerUnit);
+            ps.setString(3, batch.supplierReference);
+            ps.setString(4, batch.notes);
+            ps.setTimestamp(5, timestamp);
+            ps.setLong(6, batch.id);
+        });
+        Map<Long, Integer> onHandDeltas = new HashMap<>();
+        for (Long productId : productIds) {
+            onHandDeltas.put(productId, quantities.get(productId) - products.get(productId).getQuantity());
+        }
+        stockLedger.applyDeltas(onHandDeltas);
+        for (Long productId : productIds) {
+            Product product = products.get(productId);
+            // Mirror the ledger write (quantity is not updatable on the entity) and reprice through the entity
+            product.setQuantity(quantities.get(productId));
+            if (!Objects.equals(purchasePrices.get(productId), product.getPurchasePrice())) {
+                product.setPurchasePrice(purchasePrices.get(productId));
+            }
+        }
+        String receiptNumber = receipt.getReceiptNumber();
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, transactions, jdbcBatchSize, (ps, tx) -> {
+            ps.setLong(1, (Long) tx[0]);
+            ps.setString(2, TransactionType.PURCHASE.name());
+            ps.setInt(3, (Integer) tx[1]);
+            ps.setInt(4, (Integer) tx[2]);
+            ps.setString(5, "GOODS_RECEIPT");
+            ps.setString(6, (String) tx[3]);
+            ps.setTimestamp(7, timestamp);
+            ps.setString(8, receiptNumber);
+            ps.setString(9, lineNotes);
+            ps.setLong(10, user.getId());
+            ps.setInt(11, (Integer) tx[4]);
+            ps.setInt(12, (Integer) tx[2]);
+            ps.setTimestamp(13, timestamp);
+        });
+
+        // Link receipt lines to their batches without loading them
+        for (PostedBatch batch : batchesByKey.values()) {
+            if (!batch.lines.isEmpty()) {
+                ProductBatch reference = batchRepository.getReferenceById(batch.id);
+                batch.lines.forEach(line -> line.setBatch(reference));
+            }
+        }
+
+        log.info("Receipt {} posted: {} line(s), {} new batch(es), {} updated batch(es), {} product(s)",
+                receipt.getReceiptNumber(), lines.size(), newBatches.size(), updatedBatches.size(), productIds.size());
+
+        List<PostedBatch> touched = new ArrayList<>(newBatches);
+        touched.addAll(updatedBatches);
+        TransactionCallbacks.afterCommit(() -> syncExpiryIndex(touched));
+        sendBatchCreatedNotifications(newBatches, products);
+    }
+
+    private void insertBatches(List<PostedBatch> batches, Timestamp timestamp) {
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_BATCH_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        PostedBatch batch = batches.get(i);
+                        ps.setLong(1, batch.productId);
+                        ps.setString(2, batch.batchNumber);
+                        ps.setInt(3, batch.quantity);
+                        ps.setInt(4, batch.initialQuantity);
+                        ps.setDate(5, batch.expiryDate != null ? Date.valueOf(batch.expiryDate) : null);
+                        ps.setDate(6, batch.manufactureDate != null ? Date.valueOf(batch.manufactureDate) : null);
+                        ps.setString(7, batch.supplierReference);
+                        ps.setBigDecimal(8, batch.costPerUnit);
+                        ps.setString(9, batch.notes);
+                        ps.setString(10, batch.status.name());
+                        ps.setTimestamp(11, timestamp);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batches.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i).id = ((Number) keys.get(i).values().iterator().next()).longValue();
+        }
+    }
+
+    /**
+     * Weighted average of the current purchase price and the received unit cost
+     */
+    private BigDecimal averageCost(BigDecimal currentCost, int currentQuantity, int receivedQuantity,
+                                   BigDecimal unitCost) {
+        if (unitCost == null || unitCost.compareTo(BigDecimal.ZERO) <= 0) {
+            return currentCost;
+        }
+        if (currentQuantity <= 0 || currentCost == null || currentCost.compareTo(BigDecimal.ZERO) <= 0) {
+            return unitCost;
+        }
+
+        BigDecimal totalValue = currentCost.multiply(BigDecimal.valueOf(currentQuantity))
+                .add(unitCost.multiply(BigDecimal.valueOf(receivedQuantity)));
+        return totalValue.divide(BigDecimal.valueOf(currentQuantity + receivedQuantity), 2, RoundingMode.HALF_UP);
+    }
+
+    private void syncExpiryIndex(List<PostedBatch> batches) {
+        for (PostedBatch batch : batches) {
+            if (batch.status == ProductBatch.BatchStatus.ACTIVE) {
+                expiryIndex.put(new BatchExpiryIndex.BatchEntry(
+                        batch.id, batch.productId, batch.batchNumber, batch.expiryDate, batch.quantity));
+            }
+        }
+    }
+
+    /**
+     * One BATCH_CREATED notification per new batch, each sent after commit in its own transaction
+     */
+    private void sendBatchCreatedNotifications(List<PostedBatch> batches, Map<Long, Product> products) {
+        for (PostedBatch batch : batches) {
+            Map<String, String> params = new HashMap<>();
+            params.put("batchNumber", batch.batchNumber);
+            params.put("productName", products.get(batch.productId).getName());
+            params.put("quantity", String.valueOf(batch.quantity));
+            params.put("expiryDate", String.valueOf(batch.expiryDate));
+
+            Map<String, Object> actionData = new HashMap<>();
+            actionData.put("batchId", batch.id);
+            actionData.put("productId", batch.productId);
+
+            TransactionCallbacks.afterCommitInNewTransaction(transactionManager, "send batch created notification",
+                    () -> notificationService.notifyUsersByRole(
+                            Arrays.asList("HOSPITAL_MANAGER", "PHARMACY_STAFF"),
+                            "BATCH_CREATED",
+                            params,
+                            actionData
+                    ));
+        }
+    }
+
+    private static String batchKey(Long productId, String batchNumber) {
+        return productId + "|" + batchNumber;
+    }
+
+    /**
+     * Batch state accumulated in memory while posting; id is null until a new batch is inserted
+     */
+    private static final class PostedBatch {
+        private final long productId;
+        private final String batchNumber;
+        private final List<GoodsReceiptLine> lines = new ArrayList<>();
+        private Long id;
+        private int quantity;
+        private int initialQuantity;
+        private LocalDate expiryDate;
+        private LocalDate manufactureDate;
+        private String supplierReference;
+        private BigDecimal costPerUnit;
+        private String notes;
+        private ProductBatch.BatchStatus status = ProductBatch.BatchStatus.ACTIVE;
+
+        private PostedBatch(long productId, String batchNumber) {
+            this.productId = productId;
+            this.batchNumber = batchNumber;
+        }
+
+        private boolean isNew() {
+            return id == null;
+        }
+    }
+}
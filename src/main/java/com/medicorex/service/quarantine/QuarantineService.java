@@ -5,18 +5,33 @@ import com.medicorex.entity.*;
 import com.medicorex.exception.ResourceNotFoundException;
 import com.medicorex.repository.*;
 import com.medicorex.service.NotificationService;
+import com.medicorex.service.ProductStockLedger;
+import com.medicorex.service.expiry.BatchExpiryIndex;
+import com.medicorex.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -33,10 +48,36 @@ public class QuarantineService {
     private final ProductBatchRepository batchRepository;
     private final ProductRepository productRepository;
     private final QuarantineWorkflowService workflowService;
+    private final ProductStockLedger stockLedger;
+    private final JdbcTemplate jdbcTemplate;
+    private final BatchExpiryIndex expiryIndex;
+    private final PlatformTransactionManager transactionManager;
 
     @Autowired
     private NotificationService notificationService;
 
+    @Value("${quarantine.bulk.jdbc-batch-size:500}")
+    private int bulkBatchSize;
+
+    private static final String AUTO_QUARANTINE_REASON = "Auto-quarantine: Expired";
+    private static final String AUTO_QUARANTINE_USER = "SYSTEM";
+
+    private static final String LOCK_EXPIRED_BATCHES_SQL =
+            "SELECT id, product_id, quantity, cost_per_unit FROM product_batches " +
+            "WHERE status = 'ACTIVE' AND expiry_date < ? ORDER BY id FOR UPDATE";
+
+    private static final String QUARANTINE_EXPIRED_BATCHES_SQL =
+            "UPDATE product_batches SET status = 'QUARANTINED', updated_at = ? " +
+            "WHERE status = 'ACTIVE' AND expiry_date < ?";
+
+    private static final String INSERT_RECORD_SQL =
+            "INSERT INTO quarantine_records (batch_id, product_id, quantity_quarantined, reason, quarantine_date, " +
+            "quarantined_by, status, estimated_loss, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ACTION_LOG_SQL =
+            "INSERT INTO quarantine_action_logs (quarantine_record_id, action, performed_by, performed_at, " +
+            "previous_status, new_status, comments) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
     /**
      * Create quarantine record for expired batch
      */
@@ -68,8 +109,11 @@ public class QuarantineService {
         QuarantineRecord savedRecord = quarantineRepository.save(record);
 
         // Update batch status
+        ProductBatch.BatchStatus previousStatus = batch.getStatus();
         batch.setStatus(ProductBatch.BatchStatus.QUARANTINED);
         batchRepository.save(batch);
+        stockLedger.applyDelta(batch.getProduct(), ProductStockLedger.delta(
+                batch.getQuantity(), previousStatus, batch.getQuantity(), batch.getStatus()));
 
         // Create audit log
         workflowService.logAction(savedRecord.getId(), "QUARANTINE", performedBy,
@@ -231,28 +275,74 @@ public class QuarantineService {
     }
 
     /**
-     * Auto-quarantine expired batches (called by scheduled task)
+     * Auto-quarantine expired batches (called by scheduled task).
+     * All expired ACTIVE batches are locked with one query and flipped with one set-based UPDATE;
+     * quarantine records and action logs are written as JDBC batches and a single digest
+     * notification goes to each role once the transaction commits.
      */
-    public void autoQuarantineExpiredBatches() {
+    public BulkQuarantineResultDTO autoQuarantineExpiredBatches() {
         log.info("Running auto-quarantine for expired batches");
 
         LocalDate today = LocalDate.now();
-        List<ProductBatch> expiredBatches = batchRepository.findExpiredActiveBatches(today);
-
-        int quarantinedCount = 0;
-        for (ProductBatch batch : expiredBatches) {
-            if (batch.getStatus() != ProductBatch.BatchStatus.QUARANTINED) {
-                try {
-                    quarantineBatch(batch.getId(), "Auto-quarantine: Expired", "SYSTEM");
-                    quarantinedCount++;
-                } catch (Exception e) {
-                    log.error("Failed to quarantine batch {}: {}",
-                            batch.getBatchNumber(), e.getMessage());
-                }
-            }
+        List<ExpiredBatch> batches = jdbcTemplate.query(LOCK_EXPIRED_BATCHES_SQL, (rs, rowNum) -> new ExpiredBatch(
+                rs.getLong("id"),
+                rs.getLong("product_id"),
+                rs.getInt("quantity"),
+                rs.getBigDecimal("cost_per_unit")), Date.valueOf(today));
+
+        if (batches.isEmpty()) {
+            log.info("Auto-quarantined 0 expired batches");
+            return BulkQuarantineResultDTO.builder()
+                    .batchesQuarantined(0)
+                    .productsAffected(0)
+                    .totalQuantity(0)
+                    .totalEstimatedLoss(BigDecimal.ZERO)
+                    .build();
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int flipped = jdbcTemplate.update(QUARANTINE_EXPIRED_BATCHES_SQL, now, Date.valueOf(today));
+        if (flipped != batches.size()) {
+            throw new IllegalStateException("Expected to quarantine " + batches.size() +
+                    " expired batches but updated " + flipped);
+        }
+
+        List<Long> recordIds = insertQuarantineRecords(batches, today, now);
+        jdbcTemplate.batchUpdate(INSERT_ACTION_LOG_SQL, recordIds, bulkBatchSize, (ps, recordId) -> {
+            ps.setLong(1, recordId);
+            ps.setString(2, "QUARANTINE");
+            ps.setString(3, AUTO_QUARANTINE_USER);
+            ps.setTimestamp(4, now);
+            ps.setString(5, null);
+            ps.setString(6, QuarantineRecord.QuarantineStatus.PENDING_REVIEW.name());
+            ps.setString(7, "Batch quarantined: " + AUTO_QUARANTINE_REASON);
+        });
+
+        // Quarantined stock still counts on hand, so these deltas are normally all zero
+        Map<Long, Integer> onHandDeltas = new HashMap<>();
+        int totalQuantity = 0;
+        BigDecimal totalLoss = BigDecimal.ZERO;
+        for (ExpiredBatch batch : batches) {
+            onHandDeltas.merge(batch.productId(), ProductStockLedger.delta(batch.quantity(),
+                    ProductBatch.BatchStatus.ACTIVE, batch.quantity(), ProductBatch.BatchStatus.QUARANTINED), Integer::sum);
+            totalQuantity += batch.quantity();
+            totalLoss = totalLoss.add(batch.estimatedLoss());
         }
+        stockLedger.applyDeltas(onHandDeltas);
+
+        BulkQuarantineResultDTO result = BulkQuarantineResultDTO.builder()
+                .batchesQuarantined(batches.size())
+                .productsAffected(onHandDeltas.size())
+                .totalQuantity(totalQuantity)
+                .totalEstimatedLoss(totalLoss)
+                .build();
+
+        List<Long> batchIds = batches.stream().map(ExpiredBatch::id).toList();
+        TransactionCallbacks.afterCommit(() -> batchIds.forEach(expiryIndex::remove));
+        sendAutoQuarantineDigest(result);
 
-        log.info("Auto-quarantined {} expired batches", quarantinedCount);
+        log.info("Auto-quarantined {} expired batches across {} products", batches.size(), onHandDeltas.size());
+        return result;
     }
 
     // Private helper methods
@@ -297,10 +387,7 @@ public class QuarantineService {
         record.setDisposalCertificate(action.getDisposalCertificate());
 
         // Update batch status
-        ProductBatch batch = record.getBatch();
-        batch.setStatus(ProductBatch.BatchStatus.EXPIRED);
-        batch.setQuantity(0);
-        batchRepository.save(batch);
+        writeOffBatch(record.getBatch());
     }
 
     private void processReturn(QuarantineRecord record, QuarantineActionDTO action) {
@@ -313,10 +400,73 @@ public class QuarantineService {
         record.setReturnReference(action.getReturnReference());
 
         // Update batch status
-        ProductBatch batch = record.getBatch();
+        writeOffBatch(record.getBatch());
+    }
+
+    private void writeOffBatch(ProductBatch batch) {
+        int previousQuantity = batch.getQuantity();
+        ProductBatch.BatchStatus previousStatus = batch.getStatus();
         batch.setStatus(ProductBatch.BatchStatus.EXPIRED);
         batch.setQuantity(0);
         batchRepository.save(batch);
+        stockLedger.applyDelta(batch.getProduct(), ProductStockLedger.delta(
+                previousQuantity, previousStatus, 0, batch.getStatus()));
+    }
+
+    private List<Long> insertQuarantineRecords(List<ExpiredBatch> batches, LocalDate today, Timestamp now) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_RECORD_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ExpiredBatch batch = batches.get(i);
+                        ps.setLong(1, batch.id());
+                        ps.setLong(2, batch.productId());
+                        ps.setInt(3, batch.quantity());
+                        ps.setString(4, AUTO_QUARANTINE_REASON);
+                        ps.setDate(5, Date.valueOf(today));
+                        ps.setString(6, AUTO_QUARANTINE_USER);
+                        ps.setString(7, QuarantineRecord.QuarantineStatus.PENDING_REVIEW.name());
+                        ps.setBigDecimal(8, batch.estimatedLoss());
+                        ps.setTimestamp(9, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batches.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(batches.size());
+        for (Map<String, Object> key : keyHolder.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    /**
+     * One QUARANTINE_BULK_CREATED digest per role, each sent after commit in its own transaction
+     */
+    private void sendAutoQuarantineDigest(BulkQuarantineResultDTO result) {
+        Map<String, String> params = new HashMap<>();
+        params.put("count", String.valueOf(result.getBatchesQuarantined()));
+        params.put("productCount", String.valueOf(result.getProductsAffected()));
+        params.put("quantity", String.valueOf(result.getTotalQuantity()));
+        params.put("estimatedLoss", result.getTotalEstimatedLoss().toPlainString());
+        params.put("reason", AUTO_QUARANTINE_REASON);
+
+        Map<String, Object> actionData = new HashMap<>();
+        actionData.put("type", "auto_quarantine_digest");
+        actionData.put("count", result.getBatchesQuarantined());
+
+        for (String role : List.of("HOSPITAL_MANAGER", "PHARMACY_STAFF")) {
+            TransactionCallbacks.afterCommitInNewTransaction(transactionManager,
+                    "send auto-quarantine digest to " + role,
+                    () -> notificationService.notifyUsersByRole(
+                            List.of(role), "QUARANTINE_BULK_CREATED", params, actionData));
+        }
     }
 
     private BigDecimal calculateEstimatedLoss(ProductBatch batch) {
@@ -355,6 +505,15 @@ public class QuarantineService {
                 .returnReference(record.getReturnReference())
                 .build();
     }
+
+    /**
+     * Expired batch locked for bulk quarantine
+     */
+    private record ExpiredBatch(long id, long productId, int quantity, BigDecimal costPerUnit) {
+        BigDecimal estimatedLoss() {
+            return costPerUnit != null ? costPerUnit.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+        }
+    }
 }
 
 // ========================================
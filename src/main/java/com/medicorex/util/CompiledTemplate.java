@@ -0,0 +1,98 @@
+package com.medicorex.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notification template parsed once into literal and placeholder tokens.
+ * Both {@code {{name}}} (seeded templates) and {@code {name}} placeholders are recognised;
+ * rendering is a single pass into a pre-sized StringBuilder with no regex or intermediate strings.
+ * A placeholder without a matching parameter is emitted unchanged.
+ */
+public final class CompiledTemplate {
+
+    private static final int ESTIMATED_VALUE_LENGTH = 16;
+
+    private final String source;
+    // literals[i] precedes names[i]; the last literal follows the last placeholder
+    private final String[] literals;
+    private final String[] names;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private CompiledTemplate(String source, List<String> literals, List<String> names, List<String> placeholders) {
+        this.source = source;
+        this.literals = literals.toArray(new String[0]);
+        this.names = names.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        if (source == null) {
+            literals.add("");
+            return new CompiledTemplate(null, literals, names, placeholders);
+        }
+
+        StringBuilder literal = new StringBuilder();
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '{') {
+                boolean doubleBraced = i + 1 < length && source.charAt(i + 1) == '{';
+                int nameStart = doubleBraced ? i + 2 : i + 1;
+                int nameEnd = nameStart;
+                while (nameEnd < length && isNameChar(source.charAt(nameEnd))) {
+                    nameEnd++;
+                }
+                String close = doubleBraced ? "}}" : "}";
+                if (nameEnd > nameStart && source.startsWith(close, nameEnd)) {
+                    int end = nameEnd + close.length();
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    names.add(source.substring(nameStart, nameEnd));
+                    placeholders.add(source.substring(i, end));
+                    i = end;
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+
+        return new CompiledTemplate(source, literals, names, placeholders);
+    }
+
+    public String render(Map<String, String> params) {
+        if (names.length == 0 || params == null) {
+            return source;
+        }
+
+        StringBuilder out = new StringBuilder(literalLength + names.length * ESTIMATED_VALUE_LENGTH);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String value = params.get(names[i]);
+            out.append(value != null ? value : placeholders[i]);
+        }
+        out.append(literals[names.length]);
+        return out.toString();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-';
+    }
+}
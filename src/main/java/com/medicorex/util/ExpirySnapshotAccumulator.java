@@ -0,0 +1,156 @@
+package com.medicorex.util;
+
+import com.medicorex.entity.ExpiryTrendCategorySnapshot;
+import com.medicorex.entity.ExpiryTrendSnapshot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Single-pass accumulator for expiry trend snapshots.
+ * Active batches are fed one at a time (from a streamed query) and the overall
+ * snapshot plus per-category rollups are built without holding the batches in memory.
+ */
+public class ExpirySnapshotAccumulator {
+
+    private final LocalDate referenceDate;
+    private final LocalDate day7;
+    private final LocalDate day30;
+    private final LocalDate day60;
+    private final LocalDate day90;
+
+    private int totalBatches;
+    private int expiredCount;
+    private int expiring7Days;
+    private int expiring30Days;
+    private int expiring60Days;
+    private int expiring90Days;
+    private BigDecimal expiredValue = BigDecimal.ZERO;
+    private BigDecimal expiring7DaysValue = BigDecimal.ZERO;
+    private BigDecimal expiring30DaysValue = BigDecimal.ZERO;
+    private long daysToExpirySum;
+    private int daysToExpiryCount;
+
+    private final Map<Long, ExpiryTrendCategorySnapshot> categories = new LinkedHashMap<>();
+
+    public ExpirySnapshotAccumulator(LocalDate referenceDate) {
+        this.referenceDate = referenceDate;
+        this.day7 = referenceDate.plusDays(7);
+        this.day30 = referenceDate.plusDays(30);
+        this.day60 = referenceDate.plusDays(60);
+        this.day90 = referenceDate.plusDays(90);
+    }
+
+    /**
+     * Add one active batch
+     */
+    public void add(LocalDate expiryDate, Integer quantity, BigDecimal costPerUnit,
+                    Long categoryId, String categoryName) {
+        totalBatches++;
+
+        ExpiryTrendCategorySnapshot category = null;
+        if (categoryId != null) {
+            category = categories.computeIfAbsent(categoryId, id -> newCategory(id, categoryName));
+            category.setTotalBatches(category.getTotalBatches() + 1);
+        }
+
+        if (expiryDate == null) {
+            return;
+        }
+
+        BigDecimal value = costPerUnit != null && quantity != null
+                ? costPerUnit.multiply(BigDecimal.valueOf(quantity))
+                : BigDecimal.ZERO;
+
+        if (expiryDate.isBefore(referenceDate)) {
+            expiredCount++;
+            expiredValue = expiredValue.add(value);
+            if (category != null) {
+                category.setExpiredCount(category.getExpiredCount() + 1);
+                category.setExpiredValue(category.getExpiredValue().add(value));
+            }
+        } else if (expiryDate.isAfter(referenceDate)) {
+            daysToExpirySum += ChronoUnit.DAYS.between(referenceDate, expiryDate);
+            daysToExpiryCount++;
+
+            if (expiryDate.isBefore(day7)) {
+                expiring7Days++;
+                expiring7DaysValue = expiring7DaysValue.add(value);
+                if (category != null) {
+                    category.setExpiring7Days(category.getExpiring7Days() + 1);
+                }
+            }
+            if (expiryDate.isBefore(day30)) {
+                expiring30Days++;
+                expiring30DaysValue = expiring30DaysValue.add(value);
+                if (category != null) {
+                    category.setExpiring30Days(category.getExpiring30Days() + 1);
+                    category.setExpiring30DaysValue(category.getExpiring30DaysValue().add(value));
+                }
+            }
+            if (expiryDate.isBefore(day60)) {
+                expiring60Days++;
+            }
+            if (expiryDate.isBefore(day90)) {
+                expiring90Days++;
+            }
+        }
+
+        if (category != null && expiryDate.isBefore(day30)) {
+            category.setAtRiskCount(category.getAtRiskCount() + 1);
+        }
+    }
+
+    /**
+     * Copy the accumulated totals into the snapshot (trend fields are left to the caller)
+     */
+    public void applyTo(ExpiryTrendSnapshot snapshot) {
+        snapshot.setTotalProducts(totalBatches);
+        snapshot.setExpiredCount(expiredCount);
+        snapshot.setExpiring7Days(expiring7Days);
+        snapshot.setExpiring30Days(expiring30Days);
+        snapshot.setExpiring60Days(expiring60Days);
+        snapshot.setExpiring90Days(expiring90Days);
+        snapshot.setExpiredValue(expiredValue);
+        snapshot.setExpiring7DaysValue(expiring7DaysValue);
+        snapshot.setExpiring30DaysValue(expiring30DaysValue);
+        snapshot.setAvgDaysToExpiry(daysToExpiryCount > 0 ? (double) daysToExpirySum / daysToExpiryCount : 0);
+        snapshot.setCriticalCategoryId(null);
+        snapshot.setCriticalCategoryName(null);
+        snapshot.setCriticalCategoryCount(null);
+
+        categories.values().stream()
+                .filter(c -> c.getAtRiskCount() > 0)
+                .max(Comparator.comparingInt(ExpiryTrendCategorySnapshot::getAtRiskCount))
+                .ifPresent(c -> {
+                    snapshot.setCriticalCategoryId(c.getCategoryId());
+                    snapshot.setCriticalCategoryName(c.getCategoryName());
+                    snapshot.setCriticalCategoryCount(c.getAtRiskCount());
+                });
+    }
+
+    /**
+     * Per-category rollup rows for the reference date
+     */
+    public List<ExpiryTrendCategorySnapshot> getCategorySnapshots() {
+        return new ArrayList<>(categories.values());
+    }
+
+    public LocalDate getReferenceDate() {
+        return referenceDate;
+    }
+
+    public int getTotalBatches() {
+        return totalBatches;
+    }
+
+    private ExpiryTrendCategorySnapshot newCategory(Long categoryId, String categoryName) {
+        ExpiryTrendCategorySnapshot category = new ExpiryTrendCategorySnapshot();
+        category.setSnapshotDate(referenceDate);
+        category.setCategoryId(categoryId);
+        category.setCategoryName(categoryName);
+        return category;
+    }
+}
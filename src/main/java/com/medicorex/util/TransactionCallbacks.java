@@ -0,0 +1,54 @@
+package com.medicorex.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Helpers for deferring work until the surrounding transaction has committed
+ */
+@Slf4j
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Run the action once the current transaction commits, or right away when no transaction is active.
+     * Actions registered in the same transaction run in registration order; nothing runs on rollback.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Run transactional work (e.g. sending notifications) once the current transaction commits, in a
+     * REQUIRES_NEW transaction of its own. During afterCommit the finished transaction's resources are
+     * still bound, so a REQUIRED call would join it and any synchronization it registers would never run.
+     * A failure is logged as "Failed to {description}" and does not reach the already committed caller.
+     */
+    public static void afterCommitInNewTransaction(PlatformTransactionManager transactionManager,
+                                                   String description, Runnable action) {
+        afterCommit(() -> {
+            try {
+                TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+                requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                requiresNew.executeWithoutResult(status -> action.run());
+            } catch (Exception e) {
+                log.error("Failed to {}: {}", description, e.getMessage());
+            }
+        });
+    }
+}
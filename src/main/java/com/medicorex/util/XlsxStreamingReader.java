@@ -0,0 +1,122 @@
+package com.medicorex.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Streams the first sheet of an .xlsx file row by row using POI's SAX event model,
+ * so memory is bounded by the widest row (plus the shared strings table) instead of the sheet DOM.
+ * Cells are delivered as text: numbers unformatted, date-formatted numbers as yyyy-MM-dd,
+ * formulas as their cached result and missing cells as empty strings.
+ */
+public final class XlsxStreamingReader {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param rowIndex zero-based sheet row index
+         * @param cells    cell text for columns 0..columnCount-1
+         */
+        void row(int rowIndex, String[] cells);
+    }
+
+    private XlsxStreamingReader() {
+    }
+
+    /**
+     * Read the first sheet, passing every row present in the file to the handler in order
+     */
+    public static void read(File file, int columnCount, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, strings, new RowCollector(columnCount, handler), new RawValueFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Collects the cells of the current row into a fixed-width array
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final int columnCount;
+        private final RowHandler handler;
+        private String[] cells;
+        private int nextColumn;
+
+        RowCollector(int columnCount, RowHandler handler) {
+            this.columnCount = columnCount;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new String[columnCount];
+            Arrays.fill(cells, "");
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (column < columnCount && formattedValue != null) {
+                cells[column] = formattedValue.trim();
+            }
+        }
+    }
+
+    /**
+     * Keeps numeric cells unformatted (no currency symbols or grouping) and renders dates as ISO dates
+     */
+    private static class RawValueFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return NumberToTextConverter.toText(value);
+        }
+    }
+}
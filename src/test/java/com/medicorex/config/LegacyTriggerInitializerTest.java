@@ -0,0 +1,146 @@
+package com.medicorex.config;
+
+import com.medicorex.entity.ProductBatch.BatchStatus;
+import com.medicorex.service.ProductStockLedger;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the initializer against a stand-in for an existing database that still has the V3 triggers.
+ * The product trigger is modelled as it is defined in V3: after any batch update it resets
+ * products.quantity to the ACTIVE + QUARANTINED batch sum, before the ledger applies its delta.
+ */
+class LegacyTriggerInitializerTest {
+
+    private static final String PRODUCT_TRIGGER = "update_product_quantity_after_batch_change";
+
+    @Test
+    void ledgerDoubleCountsWhileTheTriggerIsPresent() {
+        LegacyDatabase database = new LegacyDatabase(Set.of(PRODUCT_TRIGGER));
+        database.receiveBatch(1L, 10, BatchStatus.ACTIVE);
+
+        database.updateBatch(1L, 4, BatchStatus.ACTIVE);
+
+        assertNotEquals(database.batchTotal(), database.productQuantity);
+    }
+
+    @Test
+    void onHandMatchesActivePlusQuarantinedOnceTheTriggerIsDropped() {
+        LegacyDatabase database = new LegacyDatabase(Set.of(PRODUCT_TRIGGER));
+        database.receiveBatch(1L, 10, BatchStatus.ACTIVE);
+        database.receiveBatch(2L, 20, BatchStatus.ACTIVE);
+
+        new LegacyTriggerInitializer(database.jdbcTemplate).dropLegacyTriggers();
+
+        assertTrue(database.triggers.isEmpty());
+        database.updateBatch(1L, 4, BatchStatus.ACTIVE);
+        database.updateBatch(2L, 20, BatchStatus.QUARANTINED);
+        database.updateBatch(1L, 0, BatchStatus.DEPLETED);
+        database.updateBatch(2L, 15, BatchStatus.EXPIRED);
+        database.receiveBatch(3L, 7, BatchStatus.QUARANTINED);
+        assertEquals(database.batchTotal(), database.productQuantity);
+        assertEquals(7, database.productQuantity);
+    }
+
+    @Test
+    void dropsTheUnreadCountTriggers() {
+        LegacyDatabase database = new LegacyDatabase(
+                Set.of("update_unread_notification_count", "update_unread_count_on_read"));
+
+        new LegacyTriggerInitializer(database.jdbcTemplate).dropLegacyTriggers();
+
+        assertTrue(database.triggers.isEmpty());
+    }
+
+    @Test
+    void refusesToStartWhenATriggerCannotBeDropped() {
+        LegacyDatabase database = new LegacyDatabase(Set.of(PRODUCT_TRIGGER));
+        doThrow(new DataAccessResourceFailureException("TRIGGER command denied"))
+                .when(database.jdbcTemplate).execute(anyString());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new LegacyTriggerInitializer(database.jdbcTemplate).dropLegacyTriggers());
+
+        assertTrue(e.getMessage().contains(PRODUCT_TRIGGER));
+    }
+
+    @Test
+    void leavesADatabaseWithoutTriggersAlone() {
+        LegacyDatabase database = new LegacyDatabase(Set.of());
+
+        new LegacyTriggerInitializer(database.jdbcTemplate).dropLegacyTriggers();
+
+        verify(database.jdbcTemplate, never()).execute(anyString());
+    }
+
+    /**
+     * One product, its batches and the triggers installed on the schema
+     */
+    private static final class LegacyDatabase {
+
+        private final Set<String> triggers;
+        private final Map<Long, Integer> quantities = new HashMap<>();
+        private final Map<Long, BatchStatus> statuses = new HashMap<>();
+        private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        private int productQuantity;
+
+        private LegacyDatabase(Set<String> installedTriggers) {
+            this.triggers = new HashSet<>(installedTriggers);
+            when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), anyString()))
+                    .thenAnswer(invocation -> triggers.contains(invocation.<String>getArgument(2)) ? 1 : 0);
+            doAnswer(invocation -> {
+                String sql = invocation.getArgument(0);
+                triggers.remove(sql.substring(sql.lastIndexOf(' ') + 1));
+                return null;
+            }).when(jdbcTemplate).execute(anyString());
+        }
+
+        private void receiveBatch(Long batchId, int quantity, BatchStatus status) {
+            quantities.put(batchId, quantity);
+            statuses.put(batchId, status);
+            productQuantity += ProductStockLedger.delta(0, BatchStatus.DEPLETED, quantity, status);
+        }
+
+        /**
+         * Batch UPDATE (firing the trigger if installed) followed by the ledger's delta update
+         */
+        private void updateBatch(Long batchId, int quantity, BatchStatus status) {
+            int delta = ProductStockLedger.delta(quantities.get(batchId), statuses.get(batchId), quantity, status);
+            quantities.put(batchId, quantity);
+            statuses.put(batchId, status);
+            if (triggers.contains(PRODUCT_TRIGGER)) {
+                productQuantity = batchTotal();
+            }
+            productQuantity += delta;
+        }
+
+        private int batchTotal() {
+            int total = 0;
+            for (Map.Entry<Long, Integer> batch : quantities.entrySet()) {
+                if (ProductStockLedger.countsOnHand(statuses.get(batch.getKey()))) {
+                    total += batch.getValue();
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.medicorex.service;
+
+import com.medicorex.entity.Product;
+import com.medicorex.entity.ProductBatch.BatchStatus;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class ProductStockLedgerTest {
+
+    @Test
+    void onlyActiveAndQuarantinedBatchesCountOnHand() {
+        for (BatchStatus status : BatchStatus.values()) {
+            boolean expected = status == BatchStatus.ACTIVE || status == BatchStatus.QUARANTINED;
+            assertEquals(expected, ProductStockLedger.countsOnHand(status), status.name());
+        }
+    }
+
+    @Test
+    void deltaCoversQuantityAndStatusChanges() {
+        assertEquals(-4, ProductStockLedger.delta(10, BatchStatus.ACTIVE, 6, BatchStatus.ACTIVE));
+        assertEquals(-10, ProductStockLedger.delta(10, BatchStatus.ACTIVE, 0, BatchStatus.DEPLETED));
+        assertEquals(-10, ProductStockLedger.delta(10, BatchStatus.ACTIVE, 10, BatchStatus.EXPIRED));
+        assertEquals(0, ProductStockLedger.delta(10, BatchStatus.ACTIVE, 10, BatchStatus.QUARANTINED));
+        assertEquals(8, ProductStockLedger.delta(8, BatchStatus.EXPIRED, 8, BatchStatus.ACTIVE));
+        assertEquals(0, ProductStockLedger.delta(5, BatchStatus.EXPIRED, 3, BatchStatus.DEPLETED));
+    }
+
+    /**
+     * The invariant the reconciliation job checks: summing every delta reported while batches are
+     * received, consumed and moved between statuses gives exactly the ACTIVE + QUARANTINED total.
+     */
+    @Test
+    void accumulatedDeltasMatchActivePlusQuarantinedTotal() {
+        Random random = new Random(20240611L);
+        BatchStatus[] statuses = BatchStatus.values();
+        List<int[]> batches = new ArrayList<>();          // {quantity, status ordinal}
+        int onHand = 0;
+
+        for (int step = 0; step < 5_000; step++) {
+            if (batches.isEmpty() || random.nextInt(5) == 0) {
+                int quantity = 1 + random.nextInt(100);
+                BatchStatus status = random.nextBoolean() ? BatchStatus.ACTIVE : BatchStatus.QUARANTINED;
+                batches.add(new int[]{quantity, status.ordinal()});
+                onHand += ProductStockLedger.delta(0, BatchStatus.DEPLETED, quantity, status);
+            } else {
+                int[] batch = batches.get(random.nextInt(batches.size()));
+                int oldQuantity = batch[0];
+                BatchStatus oldStatus = statuses[batch[1]];
+                int newQuantity = random.nextInt(oldQuantity + 1);
+                BatchStatus newStatus = newQuantity == 0
+                        ? BatchStatus.DEPLETED
+                        : statuses[random.nextInt(statuses.length)];
+                batch[0] = newQuantity;
+                batch[1] = newStatus.ordinal();
+                onHand += ProductStockLedger.delta(oldQuantity, oldStatus, newQuantity, newStatus);
+            }
+
+            int batchTotal = 0;
+            for (int[] batch : batches) {
+                if (ProductStockLedger.countsOnHand(statuses[batch[1]])) {
+                    batchTotal += batch[0];
+                }
+            }
+            assertEquals(batchTotal, onHand, "drift after step " + step);
+        }
+    }
+
+    @Test
+    void applyDeltaAccumulatesOnLoadedProduct() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ProductStockLedger ledger = new ProductStockLedger(jdbcTemplate, 500);
+        Product product = new Product();
+        product.setId(1L);
+        product.setQuantity(10);
+
+        ledger.applyDelta(product, 5);
+        ledger.applyDelta(product, -3);
+        ledger.applyDelta(product, 0);
+
+        assertEquals(12, product.getQuantity());
+        verify(jdbcTemplate).update(anyString(), eq(5), any(), any(), eq(1L));
+        verify(jdbcTemplate).update(anyString(), eq(-3), any(), any(), eq(1L));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void applyDeltaWithZeroDoesNotTouchTheDatabase() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ProductStockLedger ledger = new ProductStockLedger(jdbcTemplate, 500);
+
+        ledger.applyDelta(7L, 0);
+        ledger.applyDeltas(Map.of(7L, 0));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyDeltasSkipsZeroesAndSplitsIntoBatches() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ProductStockLedger ledger = new ProductStockLedger(jdbcTemplate, 2);
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        deltas.put(1L, 5);
+        deltas.put(2L, 0);
+        deltas.put(3L, -3);
+        deltas.put(4L, 7);
+
+        ledger.applyDeltas(deltas);
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        List<Object[]> first = batches.getAllValues().get(0);
+        List<Object[]> second = batches.getAllValues().get(1);
+
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+        assertEquals(5, first.get(0)[0]);
+        assertEquals(1L, first.get(0)[3]);
+        assertEquals(-3, first.get(1)[0]);
+        assertEquals(3L, first.get(1)[3]);
+        assertEquals(7, second.get(0)[0]);
+        assertEquals(4L, second.get(0)[3]);
+
+        List<Object> productIds = new ArrayList<>();
+        batches.getAllValues().forEach(batch -> batch.forEach(args -> productIds.add(args[3])));
+        assertFalse(productIds.contains(2L));
+        assertTrue(productIds.containsAll(List.of(1L, 3L, 4L)));
+    }
+}
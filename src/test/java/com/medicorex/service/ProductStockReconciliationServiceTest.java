@@ -0,0 +1,115 @@
+package com.medicorex.service;
+
+import com.medicorex.dto.StockReconciliationDTO;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductStockReconciliationServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ProductStockLedger stockLedger = mock(ProductStockLedger.class);
+
+    @Test
+    void checksOnHandAgainstActivePlusQuarantinedSum() {
+        ProductStockReconciliationService service = service(List.of());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+
+        service.reconcile(false);
+
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class));
+        assertTrue(sql.getValue().contains("b.status IN ('ACTIVE', 'QUARANTINED')"));
+        assertTrue(sql.getValue().contains("HAVING p.quantity <> batch_total"));
+    }
+
+    @Test
+    void reportsDriftLargestFirstWithoutCorrecting() throws SQLException {
+        ProductStockReconciliationService service = service(List.of(
+                row(1L, 10, 12),
+                row(2L, 30, 20),
+                row(3L, 5, 4)));
+
+        StockReconciliationDTO result = service.reconcile(false);
+
+        assertEquals(3, result.getProductsWithDrift());
+        assertEquals(13L, result.getTotalAbsoluteDrift());
+        assertFalse(result.getCorrected());
+        assertEquals(List.of(2L, 1L, 3L),
+                result.getDrifts().stream().map(StockReconciliationDTO.ProductDrift::getProductId).toList());
+        assertEquals(10, result.getDrifts().get(0).getDrift());
+        assertEquals(-2, result.getDrifts().get(1).getDrift());
+        verify(stockLedger, never()).applyDeltas(anyMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void correctionResetsOnHandToBatchTotal() throws SQLException {
+        ProductStockReconciliationService service = service(List.of(
+                row(1L, 10, 12),
+                row(2L, 30, 20)));
+
+        StockReconciliationDTO result = service.reconcile(true);
+
+        ArgumentCaptor<Map<Long, Integer>> corrections = ArgumentCaptor.forClass(Map.class);
+        verify(stockLedger).applyDeltas(corrections.capture());
+        assertEquals(Map.of(1L, 2, 2L, -10), corrections.getValue());
+        assertTrue(result.getCorrected());
+    }
+
+    @Test
+    void nothingToCorrectWithoutDrift() {
+        ProductStockReconciliationService service = service(List.of());
+
+        StockReconciliationDTO result = service.reconcile(true);
+
+        assertEquals(0, result.getProductsWithDrift());
+        assertFalse(result.getCorrected());
+        verify(stockLedger, never()).applyDeltas(anyMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProductStockReconciliationService service(List<ResultSet> rows) {
+        doAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object> mapped = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                mapped.add(mapper.mapRow(rows.get(i), i));
+            }
+            return mapped;
+        }).when(jdbcTemplate).query(anyString(), any(RowMapper.class));
+
+        ProductStockReconciliationService service = new ProductStockReconciliationService(jdbcTemplate, stockLedger);
+        ReflectionTestUtils.setField(service, "reportLimit", 20);
+        return service;
+    }
+
+    private static ResultSet row(long productId, int onHand, int batchTotal) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(productId);
+        when(rs.getString("name")).thenReturn("Product " + productId);
+        when(rs.getString("code")).thenReturn("P" + productId);
+        when(rs.getInt("quantity")).thenReturn(onHand);
+        when(rs.getInt("batch_total")).thenReturn(batchTotal);
+        return rs;
+    }
+}
@@ -0,0 +1,292 @@
+package com.medicorex.service;
+
+import com.medicorex.dto.BulkStockAdjustmentDTO;
+import com.medicorex.dto.BulkStockAdjustmentResultDTO;
+import com.medicorex.dto.StockAdjustmentDTO;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.User;
+import com.medicorex.exception.BusinessException;
+import com.medicorex.repository.ProductRepository;
+import com.medicorex.repository.StockTransactionRepository;
+import com.medicorex.repository.UserRepository;
+import com.medicorex.service.expiry.BatchExpiryIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk adjustments against mocked JDBC: the locked batch rows are fed to the service in the order
+ * the locking query returns them (earliest expiry first) and the JDBC batches it writes are replayed
+ * to see which batches were consumed.
+ */
+class StockServiceBulkAdjustmentTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final ProductStockLedger stockLedger = mock(ProductStockLedger.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final BatchExpiryIndex expiryIndex = mock(BatchExpiryIndex.class);
+
+    private final Map<Long, Product> products = new HashMap<>();
+    private final List<Object[]> lockedBatches = new ArrayList<>();  // {id, productId, batchNumber, expiry, quantity}
+
+    private StockService stockService;
+
+    @BeforeEach
+    void setUp() {
+        stockService = new StockService(productRepository, mock(StockTransactionRepository.class), userRepository,
+                notificationService, mock(ProductBatchService.class), new ProductStockLocks(8, 1_000),
+                stockLedger, jdbcTemplate, namedParameterJdbcTemplate, expiryIndex,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(stockService, "bulkMaxLines", 100);
+        ReflectionTestUtils.setField(stockService, "bulkJdbcBatchSize", 500);
+
+        User system = new User();
+        system.setId(99L);
+        when(userRepository.findByUsername("SYSTEM")).thenReturn(Optional.of(system));
+        when(productRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Product> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (products.containsKey(id)) {
+                    found.add(products.get(id));
+                }
+            }
+            return found;
+        });
+        doAnswer(invocation -> {
+            Map<String, Collection<Long>> params = invocation.getArgument(1);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object[] batch : lockedBatches) {
+                if (params.get("productIds").contains((Long) batch[1])) {
+                    handler.processRow(row(batch));
+                }
+            }
+            return null;
+        }).when(namedParameterJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        // Stand-in for the surrounding @Transactional so after-commit work can be observed
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void consumesEarliestExpiringBatchesFirst() {
+        product(1L, 30);
+        batch(11L, 1L, "2030-01-31", 5);
+        batch(12L, 1L, "2030-02-28", 10);
+        batch(13L, 1L, "2030-03-31", 15);
+
+        BulkStockAdjustmentResultDTO result = stockService.adjustStockBulk(bulk(line(1L, -12)));
+
+        assertEquals(List.of(update(11L, 0, "DEPLETED"), update(12L, 3, "ACTIVE")), batchUpdates());
+        assertEquals(2, result.getBatchesUpdated());
+        assertEquals(1, result.getBatchesDepleted());
+        assertEquals(18, result.getProducts().get(0).getQuantityAfter());
+
+        ArgumentCaptor<String> lockSql = ArgumentCaptor.forClass(String.class);
+        verify(namedParameterJdbcTemplate).query(lockSql.capture(), anyMap(), any(RowCallbackHandler.class));
+        assertTrue(lockSql.getValue().contains("ORDER BY product_id, expiry_date, id FOR UPDATE"));
+    }
+
+    @Test
+    void laterLinesContinueWhereEarlierLinesStopped() {
+        product(1L, 15);
+        batch(11L, 1L, "2030-01-31", 5);
+        batch(12L, 1L, "2030-02-28", 10);
+
+        stockService.adjustStockBulk(bulk(line(1L, -3), line(1L, -4)));
+
+        assertEquals(List.of(update(11L, 0, "DEPLETED"), update(12L, 8, "ACTIVE")), batchUpdates());
+
+        List<Map<Integer, Object>> transactions = replay("INSERT INTO stock_transactions");
+        assertEquals(2, transactions.size());
+        assertEquals(15, transactions.get(0).get(11));
+        assertEquals(12, transactions.get(0).get(12));
+        assertEquals(12, transactions.get(1).get(11));
+        assertEquals(8, transactions.get(1).get(12));
+    }
+
+    @Test
+    void reportsOneNetLedgerDeltaPerProduct() {
+        product(1L, 15);
+        product(2L, 40);
+        batch(11L, 1L, "2030-01-31", 15);
+        batch(21L, 2L, "2030-01-31", 40);
+
+        stockService.adjustStockBulk(bulk(line(1L, -3), line(2L, 10), line(1L, -4), line(2L, -25)));
+
+        verify(stockLedger).applyDeltas(Map.of(1L, -7, 2L, -15));
+    }
+
+    @Test
+    void insufficientStockOnAnyLineWritesNothing() {
+        product(1L, 20);
+        product(2L, 10);
+        batch(11L, 1L, "2030-01-31", 20);
+        batch(21L, 2L, "2030-01-31", 6);
+        batch(22L, 2L, "2030-02-28", 4);
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> stockService.adjustStockBulk(bulk(line(1L, -5), line(2L, -11))));
+
+        assertTrue(e.getMessage().contains("Requested: 11, Available: 10"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verifyNoInteractions(stockLedger);
+        commit();
+        verifyNoInteractions(expiryIndex, notificationService);
+    }
+
+    @Test
+    void expiryIndexFollowsOnlyAfterCommit() {
+        product(1L, 15);
+        batch(11L, 1L, "2030-01-31", 5);
+        batch(12L, 1L, "2030-02-28", 10);
+
+        stockService.adjustStockBulk(bulk(line(1L, -7)));
+        verifyNoInteractions(expiryIndex);
+
+        commit();
+        verify(expiryIndex).remove(11L);
+        verify(expiryIndex).put(new BatchExpiryIndex.BatchEntry(12L, 1L, "B12", LocalDate.parse("2030-02-28"), 8));
+    }
+
+    private void product(Long id, int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setQuantity(quantity);
+        products.put(id, product);
+    }
+
+    private void batch(Long id, Long productId, String expiry, int quantity) {
+        lockedBatches.add(new Object[]{id, productId, "B" + id, LocalDate.parse(expiry), quantity});
+    }
+
+    private static StockAdjustmentDTO line(Long productId, int quantity) {
+        StockAdjustmentDTO line = new StockAdjustmentDTO();
+        line.setProductId(productId);
+        line.setQuantity(quantity);
+        line.setType(quantity < 0 ? "SALE" : "PURCHASE");
+        return line;
+    }
+
+    private static BulkStockAdjustmentDTO bulk(StockAdjustmentDTO... lines) {
+        return BulkStockAdjustmentDTO.builder().lines(List.of(lines)).build();
+    }
+
+    private static ResultSet row(Object[] batch) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn((Long) batch[0]);
+        when(rs.getLong("product_id")).thenReturn((Long) batch[1]);
+        when(rs.getString("batch_number")).thenReturn((String) batch[2]);
+        when(rs.getObject("expiry_date", LocalDate.class)).thenReturn((LocalDate) batch[3]);
+        when(rs.getInt("quantity")).thenReturn((Integer) batch[4]);
+        return rs;
+    }
+
+    private static List<Object> update(Long batchId, int quantity, String status) {
+        return List.of(batchId, quantity, status);
+    }
+
+    private List<List<Object>> batchUpdates() {
+        List<List<Object>> updates = new ArrayList<>();
+        for (Map<Integer, Object> params : replay("UPDATE product_batches")) {
+            updates.add(List.of(params.get(4), params.get(1), params.get(2)));
+        }
+        return updates;
+    }
+
+    /**
+     * Run the statement setters the service passed to JdbcTemplate.batchUpdate and collect the
+     * parameters of every row written with the given SQL
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<Integer, Object>> replay(String sqlPrefix) {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Collection<Object>> items = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setters =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate, atLeastOnce())
+                .batchUpdate(sql.capture(), items.capture(), anyInt(), setters.capture());
+
+        List<Map<Integer, Object>> rows = new ArrayList<>();
+        for (int call = 0; call < sql.getAllValues().size(); call++) {
+            if (!sql.getAllValues().get(call).startsWith(sqlPrefix)) {
+                continue;
+            }
+            for (Object item : items.getAllValues().get(call)) {
+                Map<Integer, Object> params = new HashMap<>();
+                PreparedStatement ps = recordingStatement(params);
+                try {
+                    setters.getAllValues().get(call).setValues(ps, item);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                rows.add(params);
+            }
+        }
+        return rows;
+    }
+
+    private static PreparedStatement recordingStatement(Map<Integer, Object> params) {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        try {
+            doAnswer(i -> params.put(i.getArgument(0), i.getArgument(1))).when(ps).setInt(anyInt(), anyInt());
+            doAnswer(i -> params.put(i.getArgument(0), i.getArgument(1))).when(ps).setLong(anyInt(), anyLong());
+            doAnswer(i -> params.put(i.getArgument(0), i.getArgument(1))).when(ps).setString(anyInt(), any());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return ps;
+    }
+
+    private static void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+    }
+}
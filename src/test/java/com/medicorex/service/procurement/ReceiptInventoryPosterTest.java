@@ -0,0 +1,272 @@
+package com.medicorex.service.procurement;
+
+import com.medicorex.entity.GoodsReceipt;
+import com.medicorex.entity.GoodsReceiptLine;
+import com.medicorex.entity.Product;
+import com.medicorex.entity.User;
+import com.medicorex.repository.ProductBatchRepository;
+import com.medicorex.service.NotificationService;
+import com.medicorex.service.ProductStockLedger;
+import com.medicorex.service.ProductStockLocks;
+import com.medicorex.service.expiry.BatchExpiryIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReceiptInventoryPosterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final ProductStockLedger stockLedger = mock(ProductStockLedger.class);
+    private final BatchExpiryIndex expiryIndex = mock(BatchExpiryIndex.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+
+    private final List<Object[]> existingBatches = new ArrayList<>();  // {id, productId, batchNumber, quantity, status}
+    private final List<Map<Integer, Object>> insertedBatches = new ArrayList<>();
+    private long nextBatchId = 501L;
+
+    private ReceiptInventoryPoster poster;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        poster = new ReceiptInventoryPoster(jdbcTemplate, namedParameterJdbcTemplate,
+                mock(ProductBatchRepository.class), new ProductStockLocks(8, 1_000), stockLedger, expiryIndex,
+                notificationService, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(poster, "jdbcBatchSize", 500);
+
+        user = new User();
+        user.setId(3L);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object[] batch : existingBatches) {
+                handler.processRow(row(batch));
+            }
+            return null;
+        }).when(namedParameterJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        doAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keyHolder = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                Map<String, Object> params = new HashMap<>();
+                Map<Integer, Object> values = new HashMap<>();
+                setter.setValues(recordingStatement(values), i);
+                insertedBatches.add(values);
+                params.put("GENERATED_KEY", nextBatchId++);
+                keyHolder.getKeyList().add(params);
+            }
+            return new int[setter.getBatchSize()];
+        }).when(jdbcTemplate).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+
+        // Stand-in for the receipt acceptance transaction so after-commit work can be observed
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void existingBatchMergesWithWeightedAverageCost() {
+        Product product = product(1L, 100, "10.00");
+        existingBatches.add(new Object[]{7L, 1L, "LOT-1", 40, "ACTIVE"});
+
+        poster.post(receipt(line(product, "LOT-1", 50, "13.00")), null, user);
+
+        // (100 x 10.00 + 50 x 13.00) / 150
+        assertEquals(new BigDecimal("11.00"), product.getPurchasePrice());
+        assertEquals(150, product.getQuantity());
+        verify(stockLedger).applyDeltas(Map.of(1L, 50));
+
+        List<Map<Integer, Object>> updates = replay("UPDATE product_batches");
+        assertEquals(1, updates.size());
+        assertEquals(7L, updates.get(0).get(6));
+        assertEquals(90, updates.get(0).get(1));
+        assertEquals(new BigDecimal("13.00"), updates.get(0).get(2));
+        assertTrue(insertedBatches.isEmpty());
+
+        commit();
+        verify(notificationService, never()).notifyUsersByRole(anyList(), anyString(), anyMap(), anyMap());
+        verify(expiryIndex).put(new BatchExpiryIndex.BatchEntry(7L, 1L, "LOT-1", null, 90));
+    }
+
+    @Test
+    void averageCostFollowsTheRunningBalanceAcrossLines() {
+        Product product = product(1L, 100, "10.00");
+        existingBatches.add(new Object[]{7L, 1L, "LOT-1", 40, "ACTIVE"});
+
+        poster.post(receipt(
+                line(product, "LOT-1", 50, "13.00"),
+                line(product, "LOT-2", 30, "9.00")), null, user);
+
+        // 11.00 after the first line, then (150 x 11.00 + 30 x 9.00) / 180
+        assertEquals(new BigDecimal("10.67"), product.getPurchasePrice());
+        assertEquals(180, product.getQuantity());
+        verify(stockLedger).applyDeltas(Map.of(1L, 80));
+    }
+
+    @Test
+    void unitsAddedToAnExpiredBatchDoNotMoveOnHandOrCost() {
+        Product product = product(1L, 100, "10.00");
+        existingBatches.add(new Object[]{7L, 1L, "LOT-1", 40, "EXPIRED"});
+
+        poster.post(receipt(line(product, "LOT-1", 50, "13.00")), null, user);
+
+        assertEquals(new BigDecimal("10.00"), product.getPurchasePrice());
+        assertEquals(100, product.getQuantity());
+        verify(stockLedger).applyDeltas(Map.of(1L, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void newBatchSendsExactlyOneBatchCreatedAfterCommit() {
+        Product product = product(1L, 0, null);
+
+        poster.post(receipt(
+                line(product, "NEW-1", 20, "5.00"),
+                line(product, "NEW-1", 10, "5.00")), null, user);
+
+        assertEquals(1, insertedBatches.size());
+        assertEquals(30, insertedBatches.get(0).get(3));
+        assertEquals(30, insertedBatches.get(0).get(4));
+        assertEquals(new BigDecimal("5.00"), product.getPurchasePrice());
+        verifyNoInteractions(notificationService);
+
+        commit();
+
+        ArgumentCaptor<Map<String, String>> params = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Map<String, Object>> actionData = ArgumentCaptor.forClass(Map.class);
+        verify(notificationService, times(1)).notifyUsersByRole(anyList(), eq("BATCH_CREATED"),
+                params.capture(), actionData.capture());
+        verify(notificationService, times(1)).notifyUsersByRole(anyList(), anyString(), anyMap(), anyMap());
+        assertEquals("NEW-1", params.getValue().get("batchNumber"));
+        assertEquals("30", params.getValue().get("quantity"));
+        assertEquals(501L, actionData.getValue().get("batchId"));
+        assertEquals(1L, actionData.getValue().get("productId"));
+    }
+
+    private static Product product(Long id, int quantity, String purchasePrice) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setQuantity(quantity);
+        product.setPurchasePrice(purchasePrice != null ? new BigDecimal(purchasePrice) : null);
+        return product;
+    }
+
+    private static GoodsReceiptLine line(Product product, String batchNumber, int quantity, String unitCost) {
+        GoodsReceiptLine line = new GoodsReceiptLine();
+        line.setProduct(product);
+        line.setBatchNumber(batchNumber);
+        line.setReceivedQuantity(quantity);
+        line.setUnitCost(new BigDecimal(unitCost));
+        return line;
+    }
+
+    private static GoodsReceipt receipt(GoodsReceiptLine... lines) {
+        GoodsReceipt receipt = new GoodsReceipt();
+        receipt.setReceiptNumber("GR-1");
+        receipt.setPoNumber("PO-1");
+        receipt.setLines(new ArrayList<>(List.of(lines)));
+        return receipt;
+    }
+
+    private static ResultSet row(Object[] batch) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn((Long) batch[0]);
+        when(rs.getLong("product_id")).thenReturn((Long) batch[1]);
+        when(rs.getString("batch_number")).thenReturn((String) batch[2]);
+        when(rs.getInt("quantity")).thenReturn((Integer) batch[3]);
+        when(rs.getString("status")).thenReturn((String) batch[4]);
+        return rs;
+    }
+
+    /**
+     * Run the statement setters passed to JdbcTemplate.batchUpdate for the given SQL and collect
+     * the parameters of every row
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<Integer, Object>> replay(String sqlPrefix) {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Collection<Object>> items = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setters =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(sql.capture(), items.capture(), anyInt(), setters.capture());
+
+        List<Map<Integer, Object>> rows = new ArrayList<>();
+        for (int call = 0; call < sql.getAllValues().size(); call++) {
+            if (!sql.getAllValues().get(call).startsWith(sqlPrefix)) {
+                continue;
+            }
+            for (Object item : items.getAllValues().get(call)) {
+                Map<Integer, Object> values = new HashMap<>();
+                try {
+                    setters.getAllValues().get(call).setValues(recordingStatement(values), item);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    private static PreparedStatement recordingStatement(Map<Integer, Object> values) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        doAnswer(i -> values.put(i.getArgument(0), i.getArgument(1))).when(ps).setInt(anyInt(), anyInt());
+        doAnswer(i -> values.put(i.getArgument(0), i.getArgument(1))).when(ps).setLong(anyInt(), anyLong());
+        doAnswer(i -> values.put(i.getArgument(0), i.getArgument(1))).when(ps).setString(anyInt(), any());
+        doAnswer(i -> values.put(i.getArgument(0), i.getArgument(1))).when(ps).setBigDecimal(anyInt(), any());
+        return ps;
+    }
+
+    private static void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+    }
+}
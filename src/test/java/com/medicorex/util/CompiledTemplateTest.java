@@ -0,0 +1,92 @@
+package com.medicorex.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CompiledTemplateTest {
+
+    @Test
+    void rendersDoubleBracedPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("Batch {{batchNumber}} of {{productName}} expires");
+
+        assertEquals("Batch B-1 of Paracetamol expires",
+                template.render(Map.of("batchNumber", "B-1", "productName", "Paracetamol")));
+    }
+
+    @Test
+    void rendersSingleBracedPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("{count} batches quarantined");
+
+        assertEquals("3 batches quarantined", template.render(Map.of("count", "3")));
+    }
+
+    @Test
+    void rendersMixedPlaceholdersWithDottedAndDashedNames() {
+        CompiledTemplate template = CompiledTemplate.compile("{{user.name}} / {po-number}");
+
+        assertEquals("Ann / PO-7", template.render(Map.of("user.name", "Ann", "po-number", "PO-7")));
+    }
+
+    @Test
+    void keepsUnknownPlaceholdersUnchanged() {
+        CompiledTemplate template = CompiledTemplate.compile("{{known}} and {{unknown}} and {missing}");
+
+        assertEquals("yes and {{unknown}} and {missing}", template.render(Map.of("known", "yes")));
+    }
+
+    @Test
+    void treatsUnclosedAndEmptyPlaceholdersAsLiterals() {
+        CompiledTemplate template = CompiledTemplate.compile("{{open and {half and {} and {{}} end {");
+
+        assertEquals("{{open and {half and {} and {{}} end {", template.render(Map.of("open", "x", "half", "y")));
+    }
+
+    @Test
+    void treatsPlaceholdersWithInvalidCharactersAsLiterals() {
+        CompiledTemplate template = CompiledTemplate.compile("{not valid} {{a b}}");
+
+        assertEquals("{not valid} {{a b}}", template.render(Map.of("not valid", "x", "a b", "y")));
+    }
+
+    @Test
+    void returnsSourceForNullParams() {
+        String source = "Stock of {{productName}} is low";
+
+        assertEquals(source, CompiledTemplate.compile(source).render(null));
+    }
+
+    @Test
+    void keepsPlaceholderForNullParamValue() {
+        Map<String, String> params = new HashMap<>();
+        params.put("productName", null);
+
+        assertEquals("Stock of {{productName}} is low",
+                CompiledTemplate.compile("Stock of {{productName}} is low").render(params));
+    }
+
+    @Test
+    void returnsTemplatesWithoutPlaceholdersUnchanged() {
+        CompiledTemplate template = CompiledTemplate.compile("Nothing to replace");
+
+        assertEquals("Nothing to replace", template.render(Map.of("x", "y")));
+    }
+
+    @Test
+    void handlesAdjacentPlaceholdersAndEmptySource() {
+        assertEquals("ab", CompiledTemplate.compile("{{a}}{b}").render(Map.of("a", "a", "b", "b")));
+        assertEquals("", CompiledTemplate.compile("").render(Map.of("a", "a")));
+    }
+
+    @Test
+    void rendersNullSourceAsNull() {
+        CompiledTemplate template = CompiledTemplate.compile(null);
+
+        assertNull(template.getSource());
+        assertNull(template.render(Map.of("a", "b")));
+    }
+}
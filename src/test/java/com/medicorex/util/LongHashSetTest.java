@@ -0,0 +1,72 @@
+package com.medicorex.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void addsAndFindsValues() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(42L));
+        assertTrue(set.add(-7L));
+        assertFalse(set.add(42L));
+
+        assertTrue(set.contains(42L));
+        assertTrue(set.contains(-7L));
+        assertFalse(set.contains(43L));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void storesZeroKeySeparately() {
+        LongHashSet set = new LongHashSet();
+
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+
+        assertTrue(set.contains(0L));
+        assertEquals(1, set.size());
+        assertFalse(set.isEmpty());
+    }
+
+    @Test
+    void keepsEveryValueAcrossRehashes() {
+        LongHashSet set = new LongHashSet(4);
+        int count = 10_000;
+
+        for (long i = 0; i < count; i++) {
+            assertTrue(set.add(i * 31));
+        }
+
+        assertEquals(count, set.size());
+        for (long i = 0; i < count; i++) {
+            assertTrue(set.contains(i * 31));
+            assertFalse(set.add(i * 31));
+        }
+        assertFalse(set.contains(count * 31L));
+        assertFalse(set.contains(1L));
+    }
+
+    @Test
+    void handlesCollidingAndExtremeValues() {
+        LongHashSet set = new LongHashSet();
+        // Packed (product id, tier) keys share their low bits
+        long[] values = {1L << 32, 2L << 32, 3L << 32, Long.MIN_VALUE, Long.MAX_VALUE, -1L};
+
+        for (long value : values) {
+            assertTrue(set.add(value));
+        }
+        for (long value : values) {
+            assertTrue(set.contains(value));
+        }
+        assertFalse(set.contains(4L << 32));
+        assertEquals(values.length, set.size());
+    }
+}